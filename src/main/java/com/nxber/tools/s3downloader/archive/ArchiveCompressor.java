@@ -0,0 +1,85 @@
+package com.nxber.tools.s3downloader.archive;
+
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import com.nxber.tools.s3downloader.config.ExecutorConfiguration;
+import com.nxber.tools.s3downloader.config.S3ClientProperties;
+
+@Component
+public class ArchiveCompressor {
+	private static final int MAX_WINDOW = 16;
+
+	// formats whose payload is already compressed; deflating them again burns CPU for a fraction of a percent
+	private static final Set<String> PRECOMPRESSED_EXTENSIONS = Set.of(
+		"jpg", "jpeg", "png", "gif", "webp", "heic", "avif",
+		"mp4", "mov", "mkv", "webm", "avi",
+		"mp3", "aac", "m4a", "ogg", "opus", "flac",
+		"zip", "gz", "tgz", "bz2", "xz", "zst", "7z", "rar", "jar", "war", "apk",
+		"docx", "xlsx", "pptx", "odt",
+		"woff2", "parquet"
+	);
+	private static final Set<String> PRECOMPRESSED_TYPES = Set.of(
+		"application/zip",
+		"application/gzip",
+		"application/x-gzip",
+		"application/x-bzip2",
+		"application/x-xz",
+		"application/zstd",
+		"application/x-7z-compressed",
+		"application/vnd.rar",
+		"application/java-archive",
+		"font/woff2"
+	);
+	private static final Set<String> COMPRESSIBLE_MEDIA_TYPES = Set.of("image/svg+xml", "image/bmp", "image/tiff", "audio/wav", "audio/x-wav");
+
+	private final S3ClientProperties.Archive settings;
+	private final Executor executor;
+	private final int threads;
+
+	@Autowired
+	public ArchiveCompressor(S3ClientProperties properties, @Qualifier(ExecutorConfiguration.ARCHIVE_COMPRESSION_EXECUTOR) Executor executor) {
+		this(properties, executor, threadCount(properties.getArchive()));
+	}
+
+	ArchiveCompressor(S3ClientProperties properties, Executor executor, int threads) {
+		this.settings = properties.getArchive();
+		this.executor = executor;
+		this.threads = threads;
+	}
+
+	public ZipArchiveWriter open(OutputStream outputStream) {
+		return new ZipArchiveWriter(outputStream, executor, settings.getCompressionLevel(), settings.getChunkSize(), Math.min(threads * 2, MAX_WINDOW));
+	}
+
+	public boolean shouldCompress(String key, String contentType) {
+		if (settings.getCompressionLevel() == 0) {
+			return false;
+		}
+		if (StringUtils.hasText(contentType)) {
+			String mediaType = contentType.split(";", 2)[0].trim().toLowerCase(Locale.ROOT);
+			if (PRECOMPRESSED_TYPES.contains(mediaType)) {
+				return false;
+			}
+			if ((mediaType.startsWith("image/") || mediaType.startsWith("video/") || mediaType.startsWith("audio/"))
+				&& !COMPRESSIBLE_MEDIA_TYPES.contains(mediaType)) {
+				return false;
+			}
+		}
+		String fileName = key.substring(key.lastIndexOf('/') + 1);
+		int dot = fileName.lastIndexOf('.');
+		return dot < 0 || !PRECOMPRESSED_EXTENSIONS.contains(fileName.substring(dot + 1).toLowerCase(Locale.ROOT));
+	}
+
+	@Override
+	public static int threadCount(S3ClientProperties.Archive settings) {
+		return settings.getCompressionThreads() > 0 ? settings.getCompressionThreads() : Runtime.getRuntime().availableProcessors();
+	}
+}
@@ -0,0 +1,339 @@
+package com.nxber.tools.s3downloader.archive;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipException;
+
+/*
+ * Streams a zip archive whose entries are deflated in independent chunks on several threads, in the
+ * manner of pigz: every chunk is primed with the last 32 KB of the chunk before it, ends on a sync flush
+ * (the last one on a final block), and the chunks are written back in order, which concatenates into a
+ * single valid deflate stream. The CRC is computed on the writing thread as chunks are read.
+ *
+ * Entries always use DEFLATE with a trailing data descriptor, since neither the CRC nor the compressed
+ * size is known before the body has streamed. Entries that are not worth compressing are deflated at
+ * level 0, which emits stored blocks: no CPU spent on matching, and still readable by streaming unzip
+ * tools that reject STORED entries with descriptors. ZIP64 records are written whenever a size, offset
+ * or entry count outgrows the classic format; like java.util.zip, the data descriptor switches to 8-byte
+ * sizes only once an entry actually passes 4 GB, which is how streaming readers tell the two apart.
+ */
+public final class ZipArchiveWriter implements Closeable {
+	private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+	private static final int DATA_DESCRIPTOR_SIGNATURE = 0x08074b50;
+	private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+	private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+	private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+	private static final int END_SIGNATURE = 0x06054b50;
+	private static final int FLAG_DATA_DESCRIPTOR = 1 << 3;
+	private static final int FLAG_UTF8 = 1 << 11;
+	private static final int METHOD_DEFLATED = 8;
+	private static final int VERSION_DEFAULT = 20;
+	private static final int VERSION_ZIP64 = 45;
+	private static final int ZIP64_EXTRA_ID = 0x0001;
+	private static final long ZIP32_LIMIT = 0xFFFFFFFFL;
+	private static final int DICTIONARY_SIZE = 32 * 1024;
+
+	private final OutputStream output;
+	private final Executor executor;
+	private final int level;
+	private final int chunkSize;
+	private final int window;
+	private final List<CentralEntry> entries = new ArrayList<>();
+	private final Set<String> names = new HashSet<>();
+	private long offset;
+	private boolean finished;
+
+	ZipArchiveWriter(OutputStream output, Executor executor, int level, int chunkSize, int window) {
+		this.output = new BufferedOutputStream(output, 64 * 1024);
+		this.executor = executor;
+		this.level = level;
+		this.chunkSize = chunkSize;
+		this.window = Math.max(1, window);
+	}
+
+	// expectedSize may be -1 when unknown; returns the uncompressed bytes written
+	public long writeEntry(String name, Instant lastModified, long expectedSize, InputStream content, boolean compress) throws IOException {
+		if (finished) {
+			throw new IOException("Archive already finished");
+		}
+		if (!names.add(name)) {
+			throw new ZipException("duplicate entry: " + name);
+		}
+
+		byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+		boolean zip64 = expectedSize >= ZIP32_LIMIT;
+		int flags = FLAG_DATA_DESCRIPTOR | FLAG_UTF8;
+		long dosTime = dosTime(lastModified != null ? lastModified : Instant.now());
+		long localHeaderOffset = offset;
+
+		writeInt(LOCAL_HEADER_SIGNATURE);
+		writeShort(zip64 ? VERSION_ZIP64 : VERSION_DEFAULT);
+		writeShort(flags);
+		writeShort(METHOD_DEFLATED);
+		writeInt(dosTime);
+		writeInt(0L);
+		writeInt(zip64 ? ZIP32_LIMIT : 0L);
+		writeInt(zip64 ? ZIP32_LIMIT : 0L);
+		writeShort(nameBytes.length);
+		writeShort(zip64 ? 20 : 0);
+		writeBytes(nameBytes, 0, nameBytes.length);
+		if (zip64) {
+			writeShort(ZIP64_EXTRA_ID);
+			writeShort(16);
+			writeLong(0L);
+			writeLong(0L);
+		}
+
+		CRC32 crc = new CRC32();
+		long uncompressedSize = 0L;
+		long compressedSize = 0L;
+		int entryLevel = compress ? level : Deflater.NO_COMPRESSION;
+		Deque<CompletableFuture<byte[]>> pending = new ArrayDeque<>();
+		try {
+			byte[] previous = null;
+			byte[] current = readChunk(content);
+			if (current == null) {
+				compressedSize += writeChunk(deflateChunk(new byte[0], null, true, entryLevel));
+			}
+			while (current != null) {
+				crc.update(current);
+				uncompressedSize += current.length;
+				byte[] next = readChunk(content);
+				boolean last = next == null;
+				if (last && pending.isEmpty()) {
+					// small entries fit in one chunk, where a hand-off to another thread only adds latency
+					compressedSize += writeChunk(deflateChunk(current, previous, true, entryLevel));
+				} else {
+					byte[] chunk = current;
+					byte[] dictionary = previous;
+					pending.add(CompletableFuture.supplyAsync(() -> deflateChunk(chunk, dictionary, last, entryLevel), executor));
+				}
+				// the oldest chunk is written as soon as the window is full, which bounds memory per archive
+				while (pending.size() >= window || (last && !pending.isEmpty())) {
+					compressedSize += writeChunk(await(pending.poll()));
+				}
+				previous = current;
+				current = next;
+			}
+		} catch (IOException | RuntimeException exception) {
+			pending.forEach(future -> future.cancel(false));
+			throw exception;
+		}
+
+		if (expectedSize >= 0 && uncompressedSize != expectedSize) {
+			throw new ZipException("Entry '%s' was %d bytes, expected %d".formatted(name, uncompressedSize, expectedSize));
+		}
+		writeInt(DATA_DESCRIPTOR_SIGNATURE);
+		writeInt(crc.getValue());
+		if (compressedSize >= ZIP32_LIMIT || uncompressedSize >= ZIP32_LIMIT) {
+			writeLong(compressedSize);
+			writeLong(uncompressedSize);
+		} else {
+			writeInt(compressedSize);
+			writeInt(uncompressedSize);
+		}
+
+		entries.add(new CentralEntry(nameBytes, flags, dosTime, crc.getValue(), compressedSize, uncompressedSize, localHeaderOffset));
+		return uncompressedSize;
+	}
+
+	public void finish() throws IOException {
+		if (finished) {
+			return;
+		}
+		finished = true;
+
+		long centralDirectoryOffset = offset;
+		for (CentralEntry entry : entries) {
+			writeCentralHeader(entry);
+		}
+		long centralDirectorySize = offset - centralDirectoryOffset;
+		long entryCount = entries.size();
+
+		boolean zip64 = entryCount >= 0xFFFF || centralDirectoryOffset >= ZIP32_LIMIT || centralDirectorySize >= ZIP32_LIMIT;
+		if (zip64) {
+			long zip64EndOffset = offset;
+			writeInt(ZIP64_END_SIGNATURE);
+			writeLong(44L);
+			writeShort(VERSION_ZIP64);
+			writeShort(VERSION_ZIP64);
+			writeInt(0L);
+			writeInt(0L);
+			writeLong(entryCount);
+			writeLong(entryCount);
+			writeLong(centralDirectorySize);
+			writeLong(centralDirectoryOffset);
+
+			writeInt(ZIP64_LOCATOR_SIGNATURE);
+			writeInt(0L);
+			writeLong(zip64EndOffset);
+			writeInt(1L);
+		}
+
+		writeInt(END_SIGNATURE);
+		writeShort(0);
+		writeShort(0);
+		writeShort((int) Math.min(entryCount, 0xFFFF));
+		writeShort((int) Math.min(entryCount, 0xFFFF));
+		writeInt(Math.min(centralDirectorySize, ZIP32_LIMIT));
+		writeInt(Math.min(centralDirectoryOffset, ZIP32_LIMIT));
+		writeShort(0);
+		output.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			finish();
+		} finally {
+			output.close();
+		}
+	}
+
+	private void writeCentralHeader(CentralEntry entry) throws IOException {
+		boolean zip64Uncompressed = entry.uncompressedSize() >= ZIP32_LIMIT;
+		boolean zip64Compressed = entry.compressedSize() >= ZIP32_LIMIT;
+		boolean zip64Offset = entry.localHeaderOffset() >= ZIP32_LIMIT;
+		int extraLength = (zip64Uncompressed ? 8 : 0) + (zip64Compressed ? 8 : 0) + (zip64Offset ? 8 : 0);
+		int version = extraLength > 0 ? VERSION_ZIP64 : VERSION_DEFAULT;
+
+		writeInt(CENTRAL_HEADER_SIGNATURE);
+		writeShort(version);
+		writeShort(version);
+		writeShort(entry.flags());
+		writeShort(METHOD_DEFLATED);
+		writeInt(entry.dosTime());
+		writeInt(entry.crc());
+		writeInt(zip64Compressed ? ZIP32_LIMIT : entry.compressedSize());
+		writeInt(zip64Uncompressed ? ZIP32_LIMIT : entry.uncompressedSize());
+		writeShort(entry.name().length);
+		writeShort(extraLength > 0 ? extraLength + 4 : 0);
+		writeShort(0);
+		writeShort(0);
+		writeShort(0);
+		writeInt(0L);
+		writeInt(zip64Offset ? ZIP32_LIMIT : entry.localHeaderOffset());
+		writeBytes(entry.name(), 0, entry.name().length);
+		if (extraLength > 0) {
+			// the ZIP64 extra holds only the fields that overflowed, in this fixed order
+			writeShort(ZIP64_EXTRA_ID);
+			writeShort(extraLength);
+			if (zip64Uncompressed) {
+				writeLong(entry.uncompressedSize());
+			}
+			if (zip64Compressed) {
+				writeLong(entry.compressedSize());
+			}
+			if (zip64Offset) {
+				writeLong(entry.localHeaderOffset());
+			}
+		}
+	}
+
+	private byte[] readChunk(InputStream content) throws IOException {
+		byte[] chunk = content.readNBytes(chunkSize);
+		return chunk.length > 0 ? chunk : null;
+	}
+
+	private long writeChunk(byte[] compressed) throws IOException {
+		writeBytes(compressed, 0, compressed.length);
+		return compressed.length;
+	}
+
+	static byte[] deflateChunk(byte[] chunk, byte[] dictionary, boolean last, int level) {
+		Deflater deflater = new Deflater(level, true);
+		try {
+			if (dictionary != null) {
+				int dictionaryLength = Math.min(DICTIONARY_SIZE, dictionary.length);
+				deflater.setDictionary(dictionary, dictionary.length - dictionaryLength, dictionaryLength);
+			}
+			deflater.setInput(chunk);
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream(level == Deflater.NO_COMPRESSION ? chunk.length + 64 : chunk.length / 2 + 64);
+			byte[] buffer = new byte[64 * 1024];
+			if (last) {
+				deflater.finish();
+				while (!deflater.finished()) {
+					compressed.write(buffer, 0, deflater.deflate(buffer));
+				}
+			} else {
+				// a sync flush ends the chunk on a byte boundary so the next chunk's output can follow directly
+				int count;
+				do {
+					count = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+					compressed.write(buffer, 0, count);
+				} while (count == buffer.length);
+			}
+			return compressed.toByteArray();
+		} finally {
+			deflater.end();
+		}
+	}
+
+	private static byte[] await(CompletableFuture<byte[]> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while compressing archive entry");
+		} catch (ExecutionException exception) {
+			throw new IOException("Compressing archive entry failed", exception.getCause());
+		}
+	}
+
+	private static long dosTime(Instant instant) {
+		LocalDateTime time = LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+		if (time.getYear() < 1980) {
+			return (1 << 21) | (1 << 16);
+		}
+		return ((long) (time.getYear() - 1980) << 25)
+			| ((long) time.getMonthValue() << 21)
+			| ((long) time.getDayOfMonth() << 16)
+			| ((long) time.getHour() << 11)
+			| ((long) time.getMinute() << 5)
+			| ((long) time.getSecond() >> 1);
+	}
+
+	private void writeShort(int value) throws IOException {
+		output.write(value & 0xFF);
+		output.write((value >>> 8) & 0xFF);
+		offset += 2;
+	}
+
+	private void writeInt(long value) throws IOException {
+		writeShort((int) (value & 0xFFFF));
+		writeShort((int) ((value >>> 16) & 0xFFFF));
+	}
+
+	private void writeLong(long value) throws IOException {
+		writeInt(value & ZIP32_LIMIT);
+		writeInt(value >>> 32);
+	}
+
+	private void writeBytes(byte[] bytes, int start, int length) throws IOException {
+		output.write(bytes, start, length);
+		offset += length;
+	}
+
+	private record CentralEntry(byte[] name, int flags, long dosTime, long crc, long compressedSize, long uncompressedSize, long localHeaderOffset) {
+	}
+}
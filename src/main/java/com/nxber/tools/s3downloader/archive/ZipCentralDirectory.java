@@ -0,0 +1,324 @@
+package com.nxber.tools.s3downloader.archive;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/*
+ * Reads a zip archive through byte-range reads, so a remote archive is never fetched whole.
+ *
+ * The end of central directory record sits in the last 22 bytes plus an optional comment of up to 64 KB,
+ * so one read of the tail finds it. A ZIP64 archive keeps a 20-byte locator in front of that record which
+ * points at a 56-byte ZIP64 end record holding the 64-bit directory size and offset. The central directory
+ * itself is one contiguous range; every entry in it names the offset of its local header, whose own name
+ * and extra field lengths give where the compressed data starts.
+ *
+ * Offsets in the archive are declared relative to its first byte. Self-extracting archives and other files
+ * with bytes in front shift every offset by the same amount, which is the gap between where the directory
+ * actually ends and where it says it starts plus its size.
+ */
+public final class ZipCentralDirectory {
+	public static final int LOCAL_HEADER_SIZE = 30;
+
+	private static final int END_SIGNATURE = 0x06054b50;
+	private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+	private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+	private static final int CENTRAL_SIGNATURE = 0x02014b50;
+	private static final int LOCAL_SIGNATURE = 0x04034b50;
+	private static final int END_SIZE = 22;
+	private static final int ZIP64_LOCATOR_SIZE = 20;
+	private static final int ZIP64_END_SIZE = 56;
+	private static final int CENTRAL_HEADER_SIZE = 46;
+	private static final int TAIL_SIZE = END_SIZE + 0xFFFF + ZIP64_LOCATOR_SIZE;
+	private static final int ZIP64_EXTRA_ID = 0x0001;
+	private static final long UINT32_MAX = 0xFFFFFFFFL;
+	private static final Charset LEGACY_CHARSET = Charset.isSupported("IBM437") ? Charset.forName("IBM437") : StandardCharsets.ISO_8859_1;
+
+	@FunctionalInterface
+	public interface RangeReader {
+		byte[] read(long offset, int length) throws IOException;
+	}
+
+	private ZipCentralDirectory() {
+	}
+
+	public static List<ZipEntryInfo> read(RangeReader reader, long archiveSize, int maxDirectoryBytes) throws IOException {
+		if (archiveSize < END_SIZE) {
+			throw new ZipException("Too short to be a zip archive");
+		}
+		int tailLength = (int) Math.min(archiveSize, TAIL_SIZE);
+		long tailStart = archiveSize - tailLength;
+		ByteBuffer tail = littleEndian(reader.read(tailStart, tailLength));
+		int end = findEndRecord(tail);
+		if (end < 0) {
+			throw new ZipException("No end of central directory record found");
+		}
+
+		long entryCount = u16(tail, end + 10);
+		long directorySize = u32(tail, end + 12);
+		long directoryOffset = u32(tail, end + 16);
+		long directoryEnd = tailStart + end;
+
+		int locator = end - ZIP64_LOCATOR_SIZE;
+		if (locator >= 0 && tail.getInt(locator) == ZIP64_LOCATOR_SIGNATURE) {
+			// the ZIP64 end record almost always sits right in front of its locator; the declared offset covers the rest
+			long zip64End = tailStart + locator - ZIP64_END_SIZE;
+			ByteBuffer record = zip64End >= tailStart ? tail.slice(locator - ZIP64_END_SIZE, ZIP64_END_SIZE).order(ByteOrder.LITTLE_ENDIAN) : null;
+			if (record == null || record.getInt(0) != ZIP64_END_SIGNATURE) {
+				zip64End = tail.getLong(locator + 8);
+				record = littleEndian(reader.read(zip64End, ZIP64_END_SIZE));
+				if (record.getInt(0) != ZIP64_END_SIGNATURE) {
+					throw new ZipException("ZIP64 end of central directory record not found");
+				}
+			}
+			entryCount = record.getLong(32);
+			directorySize = record.getLong(40);
+			directoryOffset = record.getLong(48);
+			directoryEnd = zip64End;
+		}
+
+		if (directorySize > maxDirectoryBytes) {
+			throw new ZipException("Central directory of %d bytes exceeds the %d byte limit".formatted(directorySize, maxDirectoryBytes));
+		}
+		long directoryStart = directoryEnd - directorySize;
+		long shift = directoryStart - directoryOffset;
+		if (directoryStart < 0 || shift < 0) {
+			throw new ZipException("Central directory offsets do not fit the archive");
+		}
+
+		ByteBuffer directory = directoryStart >= tailStart
+			? tail.slice((int) (directoryStart - tailStart), (int) directorySize).order(ByteOrder.LITTLE_ENDIAN)
+			: littleEndian(reader.read(directoryStart, (int) directorySize));
+		return parseEntries(directory, entryCount, shift);
+	}
+
+	// where the compressed bytes of an entry start, given the fixed part of its local header
+	public static long dataOffset(ZipEntryInfo entry, byte[] localHeader) throws ZipException {
+		ByteBuffer header = littleEndian(localHeader);
+		if (localHeader.length < LOCAL_HEADER_SIZE || header.getInt(0) != LOCAL_SIGNATURE) {
+			throw new ZipException("No local header for entry '%s'".formatted(entry.name()));
+		}
+		return entry.localHeaderOffset() + LOCAL_HEADER_SIZE + u16(header, 26) + u16(header, 28);
+	}
+
+	// inflates the compressed bytes of an entry and fails at the end if they do not match its recorded size and CRC
+	public static InputStream entryStream(ZipEntryInfo entry, InputStream compressed) {
+		InputStream data = entry.method() == ZipEntryInfo.DEFLATED ? new RawInflaterInputStream(compressed) : compressed;
+		return new CheckedEntryInputStream(data, entry);
+	}
+
+	private static int findEndRecord(ByteBuffer tail) {
+		for (int position = tail.limit() - END_SIZE; position >= 0; position--) {
+			// a comment may contain the signature, so the comment length has to reach the end exactly
+			if (tail.getInt(position) == END_SIGNATURE && position + END_SIZE + u16(tail, position + 20) == tail.limit()) {
+				return position;
+			}
+		}
+		return -1;
+	}
+
+	private static List<ZipEntryInfo> parseEntries(ByteBuffer directory, long entryCount, long shift) throws ZipException {
+		List<ZipEntryInfo> entries = new ArrayList<>((int) Math.min(entryCount, 1 << 16));
+		int position = 0;
+		while (position + CENTRAL_HEADER_SIZE <= directory.limit()) {
+			if (directory.getInt(position) != CENTRAL_SIGNATURE) {
+				throw new ZipException("Corrupt central directory at offset %d".formatted(position));
+			}
+			int flags = u16(directory, position + 8);
+			int method = u16(directory, position + 10);
+			int time = u16(directory, position + 12);
+			int date = u16(directory, position + 14);
+			long crc = u32(directory, position + 16);
+			long compressedSize = u32(directory, position + 20);
+			long size = u32(directory, position + 24);
+			int nameLength = u16(directory, position + 28);
+			int extraLength = u16(directory, position + 30);
+			int commentLength = u16(directory, position + 32);
+			long localHeaderOffset = u32(directory, position + 42);
+			int nameStart = position + CENTRAL_HEADER_SIZE;
+			int next = nameStart + nameLength + extraLength + commentLength;
+			if (next > directory.limit()) {
+				throw new ZipException("Truncated central directory entry at offset %d".formatted(position));
+			}
+
+			byte[] nameBytes = new byte[nameLength];
+			directory.get(nameStart, nameBytes);
+			String name = decodeName(nameBytes, (flags & 0x800) != 0);
+
+			// ZIP64 values are present only for the fields that overflowed, in this order
+			int extra = nameStart + nameLength;
+			int extraEnd = extra + extraLength;
+			while (extra + 4 <= extraEnd) {
+				int id = u16(directory, extra);
+				int length = u16(directory, extra + 2);
+				if (id == ZIP64_EXTRA_ID) {
+					int field = extra + 4;
+					int fieldEnd = Math.min(field + length, extraEnd);
+					if (size == UINT32_MAX && field + 8 <= fieldEnd) {
+						size = directory.getLong(field);
+						field += 8;
+					}
+					if (compressedSize == UINT32_MAX && field + 8 <= fieldEnd) {
+						compressedSize = directory.getLong(field);
+						field += 8;
+					}
+					if (localHeaderOffset == UINT32_MAX && field + 8 <= fieldEnd) {
+						localHeaderOffset = directory.getLong(field);
+					}
+				}
+				extra += 4 + length;
+			}
+
+			entries.add(new ZipEntryInfo(name, method, (flags & 0x1) != 0, compressedSize, size, crc, localHeaderOffset + shift, dosTime(time, date)));
+			position = next;
+		}
+		return entries;
+	}
+
+	// names without the UTF-8 flag are often UTF-8 anyway; only bytes that are not fall back to the legacy code page
+	private static String decodeName(byte[] bytes, boolean utf8) {
+		if (utf8) {
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+		try {
+			return StandardCharsets.UTF_8.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPORT)
+				.onUnmappableCharacter(CodingErrorAction.REPORT)
+				.decode(ByteBuffer.wrap(bytes))
+				.toString();
+		} catch (CharacterCodingException exception) {
+			return new String(bytes, LEGACY_CHARSET);
+		}
+	}
+
+	private static Instant dosTime(int time, int date) {
+		if (date == 0) {
+			return null;
+		}
+		try {
+			return LocalDateTime.of(((date >> 9) & 0x7F) + 1980, (date >> 5) & 0x0F, date & 0x1F, (time >> 11) & 0x1F, (time >> 5) & 0x3F, (time & 0x1F) * 2)
+				.atZone(ZoneId.systemDefault())
+				.toInstant();
+		} catch (DateTimeException exception) {
+			return null;
+		}
+	}
+
+	private static ByteBuffer littleEndian(byte[] bytes) {
+		return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private static int u16(ByteBuffer buffer, int position) {
+		return buffer.getShort(position) & 0xFFFF;
+	}
+
+	private static long u32(ByteBuffer buffer, int position) {
+		return buffer.getInt(position) & UINT32_MAX;
+	}
+
+	private static final class RawInflaterInputStream extends InflaterInputStream {
+		private boolean eof;
+
+		private RawInflaterInputStream(InputStream compressed) {
+			super(compressed, new Inflater(true), 8192);
+		}
+
+		// a raw inflater may want one byte past the end of the stream, as java.util.zip.ZipFile feeds it
+		@Override
+		protected void fill() throws IOException {
+			if (eof) {
+				throw new EOFException("Unexpected end of deflated entry");
+			}
+			len = in.read(buf, 0, buf.length);
+			if (len == -1) {
+				buf[0] = 0;
+				len = 1;
+				eof = true;
+			}
+			inf.setInput(buf, 0, len);
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				super.close();
+			} finally {
+				inf.end();
+			}
+		}
+	}
+
+	private static final class CheckedEntryInputStream extends FilterInputStream {
+		private final ZipEntryInfo entry;
+		private final CRC32 crc = new CRC32();
+		private long count;
+
+		private CheckedEntryInputStream(InputStream data, ZipEntryInfo entry) {
+			super(data);
+			this.entry = entry;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int value = super.read();
+			if (value < 0) {
+				verify();
+			} else {
+				crc.update(value);
+				count++;
+			}
+			return value;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			int read = super.read(buffer, offset, length);
+			if (read < 0) {
+				verify();
+			} else {
+				crc.update(buffer, offset, read);
+				count += read;
+			}
+			return read;
+		}
+
+		// skipped bytes still have to pass through the checksum
+		@Override
+		public long skip(long n) throws IOException {
+			byte[] scratch = new byte[(int) Math.min(n, 8192)];
+			long skipped = 0L;
+			while (skipped < n) {
+				int read = read(scratch, 0, (int) Math.min(scratch.length, n - skipped));
+				if (read < 0) {
+					break;
+				}
+				skipped += read;
+			}
+			return skipped;
+		}
+
+		private void verify() throws ZipException {
+			if (count != entry.size() || crc.getValue() != entry.crc()) {
+				throw new ZipException("Entry '%s' is corrupt: expected %d bytes with CRC %08x, read %d bytes with CRC %08x"
+					.formatted(entry.name(), entry.size(), entry.crc(), count, crc.getValue()));
+			}
+		}
+	}
+}
@@ -0,0 +1,31 @@
+package com.nxber.tools.s3downloader.archive;
+
+import java.time.Instant;
+
+// localHeaderOffset already accounts for any bytes prepended to the archive
+public record ZipEntryInfo(
+	String name,
+	int method,
+	boolean encrypted,
+	long compressedSize,
+	long size,
+	long crc,
+	long localHeaderOffset,
+	Instant lastModified
+) {
+	public static final int STORED = 0;
+	public static final int DEFLATED = 8;
+
+	public boolean directory() {
+		return name.endsWith("/");
+	}
+
+	public boolean readable() {
+		return !encrypted && (method == STORED || method == DEFLATED);
+	}
+
+	public String fileName() {
+		String trimmed = directory() ? name.substring(0, name.length() - 1) : name;
+		return trimmed.substring(trimmed.lastIndexOf('/') + 1);
+	}
+}
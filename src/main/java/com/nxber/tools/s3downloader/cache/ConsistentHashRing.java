@@ -0,0 +1,63 @@
+package com.nxber.tools.s3downloader.cache;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+// each node owns many small arcs, so adding a node takes roughly an equal share of keys from every other node
+final class ConsistentHashRing {
+	private final NavigableMap<Long, String> ring = new TreeMap<>();
+	private final List<String> nodes;
+
+	ConsistentHashRing(Collection<String> nodes, int virtualNodes) {
+		this.nodes = List.copyOf(nodes);
+		for (String node : this.nodes) {
+			for (int replica = 0; replica < virtualNodes; replica++) {
+				ring.put(hash(node + "#" + replica), node);
+			}
+		}
+	}
+
+	List<String> nodes() {
+		return nodes;
+	}
+
+	String nodeFor(String key) {
+		return nodeFor(key, node -> true);
+	}
+
+	// walks clockwise past unavailable nodes so their keys fall to the next owner instead of missing entirely
+	String nodeFor(String key, Predicate<String> available) {
+		if (ring.isEmpty()) {
+			throw new IllegalStateException("Hash ring has no nodes");
+		}
+		long position = hash(key);
+		for (Map.Entry<Long, String> entry : ring.tailMap(position, true).entrySet()) {
+			if (available.test(entry.getValue())) {
+				return entry.getValue();
+			}
+		}
+		for (Map.Entry<Long, String> entry : ring.headMap(position, false).entrySet()) {
+			if (available.test(entry.getValue())) {
+				return entry.getValue();
+			}
+		}
+		return null;
+	}
+
+	private static long hash(String value) {
+		try {
+			byte[] digest = MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8));
+			return ByteBuffer.wrap(digest).getLong();
+		} catch (NoSuchAlgorithmException exception) {
+			throw new IllegalStateException("MD5 is not available", exception);
+		}
+	}
+}
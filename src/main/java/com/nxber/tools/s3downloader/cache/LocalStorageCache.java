@@ -0,0 +1,65 @@
+package com.nxber.tools.s3downloader.cache;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+public class LocalStorageCache implements StorageCache {
+	private final Clock clock;
+	private final Map<String, Entry> entries;
+
+	public LocalStorageCache(int maxEntries) {
+		this(maxEntries, Clock.systemUTC());
+	}
+
+	LocalStorageCache(int maxEntries, Clock clock) {
+		this.clock = clock;
+		this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	@Override
+	public Optional<byte[]> get(String key) {
+		synchronized (entries) {
+			Entry entry = entries.get(key);
+			if (entry == null) {
+				return Optional.empty();
+			}
+			if (entry.expiresAt().isBefore(clock.instant())) {
+				entries.remove(key);
+				return Optional.empty();
+			}
+			return Optional.of(entry.value());
+		}
+	}
+
+	@Override
+	public void put(String key, byte[] value, Duration ttl) {
+		synchronized (entries) {
+			entries.put(key, new Entry(value, clock.instant().plus(ttl)));
+		}
+	}
+
+	@Override
+	public void invalidate(String keyPrefix) {
+		synchronized (entries) {
+			entries.keySet().removeIf(key -> key.startsWith(keyPrefix));
+		}
+	}
+
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	private record Entry(byte[] value, Instant expiresAt) {
+	}
+}
@@ -0,0 +1,167 @@
+package com.nxber.tools.s3downloader.cache;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.StringUtils;
+
+public class PeerStorageCache implements StorageCache {
+	public static final String TOKEN_HEADER = "X-Cache-Token";
+	public static final String ENTRY_PATH = "/internal/cache/entry";
+	public static final String ENTRIES_PATH = "/internal/cache/entries";
+
+	private static final Logger log = LoggerFactory.getLogger(PeerStorageCache.class);
+	private static final Duration SUSPENSION = Duration.ofSeconds(10);
+
+	private final LocalStorageCache localStore;
+	private final ConsistentHashRing ring;
+	private final String selfUrl;
+	private final String token;
+	private final Duration timeout;
+	private final HttpClient httpClient;
+	private final Clock clock;
+	private final Map<String, Instant> suspendedUntil = new ConcurrentHashMap<>();
+
+	public PeerStorageCache(LocalStorageCache localStore, Collection<String> peers, String selfUrl, int virtualNodes, Duration timeout, String token) {
+		this(localStore, peers, selfUrl, virtualNodes, timeout, token, Clock.systemUTC());
+	}
+
+	PeerStorageCache(LocalStorageCache localStore, Collection<String> peers, String selfUrl, int virtualNodes, Duration timeout, String token, Clock clock) {
+		if (!StringUtils.hasText(selfUrl)) {
+			throw new IllegalArgumentException("storage.s3.cache.self-url is required for the peer cache backend");
+		}
+		// the internal endpoints can rewrite or flush any node's cache, so a cluster never runs them unauthenticated
+		if (!StringUtils.hasText(token)) {
+			throw new IllegalArgumentException("storage.s3.cache.token is required for the peer cache backend");
+		}
+		this.localStore = localStore;
+		this.selfUrl = normalizeUrl(selfUrl);
+		Set<String> nodes = new LinkedHashSet<>();
+		nodes.add(this.selfUrl);
+		peers.stream().filter(StringUtils::hasText).map(PeerStorageCache::normalizeUrl).forEach(nodes::add);
+		this.ring = new ConsistentHashRing(nodes, virtualNodes);
+		this.token = token;
+		this.timeout = timeout;
+		this.clock = clock;
+		this.httpClient = HttpClient.newBuilder().connectTimeout(timeout).build();
+	}
+
+	public LocalStorageCache localStore() {
+		return localStore;
+	}
+
+	public List<String> nodes() {
+		return ring.nodes();
+	}
+
+	@Override
+	public Optional<byte[]> get(String key) {
+		String owner = ownerOf(key);
+		if (owner.equals(selfUrl)) {
+			return localStore.get(key);
+		}
+		try {
+			HttpResponse<byte[]> response = httpClient.send(request(owner, ENTRY_PATH, "key=" + encode(key)).GET().build(), HttpResponse.BodyHandlers.ofByteArray());
+			if (response.statusCode() == 200) {
+				return Optional.of(response.body());
+			}
+			if (response.statusCode() != 404) {
+				log.debug("Cache node {} answered {} for key '{}'", owner, response.statusCode(), key);
+			}
+		} catch (Exception exception) {
+			suspend(owner, exception);
+		}
+		return Optional.empty();
+	}
+
+	@Override
+	public void put(String key, byte[] value, Duration ttl) {
+		String owner = ownerOf(key);
+		if (owner.equals(selfUrl)) {
+			localStore.put(key, value, ttl);
+			return;
+		}
+		try {
+			HttpRequest request = request(owner, ENTRY_PATH, "key=" + encode(key) + "&ttl=" + encode(ttl.toString()))
+				.PUT(HttpRequest.BodyPublishers.ofByteArray(value))
+				.build();
+			httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+		} catch (Exception exception) {
+			suspend(owner, exception);
+		}
+	}
+
+	@Override
+	public void invalidate(String keyPrefix) {
+		localStore.invalidate(keyPrefix);
+		// invalidation goes to every node, not just the owner, because ownership moves while nodes are suspended
+		List<CompletableFuture<Void>> broadcasts = ring.nodes().stream()
+			.filter(node -> !node.equals(selfUrl))
+			.map(node -> httpClient.sendAsync(request(node, ENTRIES_PATH, "prefix=" + encode(keyPrefix)).DELETE().build(), HttpResponse.BodyHandlers.discarding())
+				.<Void>handle((response, exception) -> {
+					if (exception != null) {
+						log.warn("Could not invalidate cache prefix '{}' on node {}", keyPrefix, node, exception);
+					}
+					return null;
+				}))
+			.toList();
+		CompletableFuture.allOf(broadcasts.toArray(CompletableFuture[]::new)).join();
+	}
+
+	String ownerOf(String key) {
+		Instant now = clock.instant();
+		String owner = ring.nodeFor(key, node -> node.equals(selfUrl) || !isSuspended(node, now));
+		return owner != null ? owner : selfUrl;
+	}
+
+	private boolean isSuspended(String node, Instant now) {
+		Instant until = suspendedUntil.get(node);
+		if (until == null) {
+			return false;
+		}
+		if (until.isBefore(now)) {
+			suspendedUntil.remove(node, until);
+			return false;
+		}
+		return true;
+	}
+
+	private void suspend(String node, Exception exception) {
+		if (exception instanceof InterruptedException) {
+			Thread.currentThread().interrupt();
+		}
+		// a dead peer should cost one timeout, not one per request, so its keys fall to the next node for a while
+		suspendedUntil.put(node, clock.instant().plus(SUSPENSION));
+		log.warn("Cache node {} is unreachable; routing its keys elsewhere for {}s", node, SUSPENSION.toSeconds(), exception);
+	}
+
+	private HttpRequest.Builder request(String node, String path, String query) {
+		return HttpRequest.newBuilder(URI.create(node + path + "?" + query)).timeout(timeout).header(TOKEN_HEADER, token);
+	}
+
+	private static String encode(String value) {
+		return URLEncoder.encode(value, StandardCharsets.UTF_8);
+	}
+
+	private static String normalizeUrl(String url) {
+		String trimmed = url.trim();
+		return trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
+	}
+}
@@ -0,0 +1,13 @@
+package com.nxber.tools.s3downloader.cache;
+
+import java.time.Duration;
+import java.util.Optional;
+
+public interface StorageCache {
+	Optional<byte[]> get(String key);
+
+	void put(String key, byte[] value, Duration ttl);
+
+	// drops every entry whose key starts with the given prefix, on every node that may hold one
+	void invalidate(String keyPrefix);
+}
@@ -0,0 +1,141 @@
+package com.nxber.tools.s3downloader.concurrency;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+import com.nxber.tools.s3downloader.config.S3SourceProperties;
+
+// additive increase while latency stays near its baseline, multiplicative decrease on throttling
+public class AdaptiveConcurrencyLimiter {
+	private static final double LATENCY_BACKOFF_RATIO = 0.9;
+	private static final int BASELINE_DRIFT = 100;
+
+	private final int minLimit;
+	private final int maxLimit;
+	private final double backoffRatio;
+	private final double latencyTolerance;
+	private final LongSupplier nanoClock;
+	// a ReentrantLock rather than synchronized so waiting virtual threads do not pin their carriers
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition capacityAvailable = lock.newCondition();
+	private final LongAdder throttledCount = new LongAdder();
+	// a listing and a first byte of an object take very different times, so each operation is measured against its own baseline
+	private final Map<String, Long> baselines = new HashMap<>();
+
+	private double limit;
+	private int inFlight;
+	private long lastDecreaseNanos;
+	private boolean decreased;
+
+	public AdaptiveConcurrencyLimiter(S3SourceProperties.Concurrency settings) {
+		this(settings, System::nanoTime);
+	}
+
+	AdaptiveConcurrencyLimiter(S3SourceProperties.Concurrency settings, LongSupplier nanoClock) {
+		this.minLimit = settings.getMinLimit();
+		this.maxLimit = Math.max(settings.getMinLimit(), settings.getMaxLimit());
+		this.backoffRatio = settings.getBackoffRatio();
+		this.latencyTolerance = settings.getLatencyTolerance();
+		this.nanoClock = nanoClock;
+		this.limit = Math.min(maxLimit, Math.max(minLimit, settings.getInitialLimit()));
+	}
+
+	public boolean tryAcquire(Duration timeout) throws InterruptedException {
+		long remainingNanos = timeout.toNanos();
+		lock.lock();
+		try {
+			while (inFlight >= (int) limit) {
+				if (remainingNanos <= 0L) {
+					return false;
+				}
+				remainingNanos = capacityAvailable.awaitNanos(remainingNanos);
+			}
+			inFlight++;
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public long now() {
+		return nanoClock.getAsLong();
+	}
+
+	public void release(String operation, long startedAt, Signal signal) {
+		long finishedAt = nanoClock.getAsLong();
+		lock.lock();
+		try {
+			int inFlightBefore = inFlight;
+			inFlight = Math.max(0, inFlight - 1);
+			switch (signal) {
+				case THROTTLED -> {
+					throttledCount.increment();
+					decrease(startedAt, finishedAt, backoffRatio);
+				}
+				case SUCCESS -> onSuccess(operation, startedAt, finishedAt, inFlightBefore);
+				case FAILED -> {
+				}
+			}
+			capacityAvailable.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int limit() {
+		lock.lock();
+		try {
+			return (int) limit;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int inFlight() {
+		lock.lock();
+		try {
+			return inFlight;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public long throttledCount() {
+		return throttledCount.sum();
+	}
+
+	private void onSuccess(String operation, long startedAt, long finishedAt, int inFlightBefore) {
+		long latency = Math.max(1L, finishedAt - startedAt);
+		// the baseline follows drops immediately but only drifts up slowly, so it approximates the unloaded latency
+		long baselineNanos = baselines.merge(operation, latency, (baseline, sample) -> Math.min(sample, baseline + (sample - baseline) / BASELINE_DRIFT));
+		if (latency > baselineNanos * latencyTolerance) {
+			decrease(startedAt, finishedAt, LATENCY_BACKOFF_RATIO);
+			return;
+		}
+		// only grow while the current limit is actually in use, otherwise idle periods would inflate it
+		if (inFlightBefore * 2 >= (int) limit) {
+			limit = Math.min(maxLimit, limit + 1d / limit);
+		}
+	}
+
+	private void decrease(long startedAt, long finishedAt, double ratio) {
+		// requests sent before the last decrease reflect the old limit, so one overload window backs off once
+		if (decreased && startedAt - lastDecreaseNanos < 0L) {
+			return;
+		}
+		limit = Math.max(minLimit, limit * ratio);
+		lastDecreaseNanos = finishedAt;
+		decreased = true;
+	}
+
+	public enum Signal {
+		SUCCESS,
+		THROTTLED,
+		FAILED
+	}
+}
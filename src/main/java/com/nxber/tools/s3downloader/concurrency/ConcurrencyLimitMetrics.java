@@ -0,0 +1,40 @@
+package com.nxber.tools.s3downloader.concurrency;
+
+import org.springframework.stereotype.Component;
+
+import com.nxber.tools.s3downloader.config.S3SourceManager;
+import com.nxber.tools.s3downloader.config.S3SourceManager.S3Source;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+@Component
+public class ConcurrencyLimitMetrics implements MeterBinder {
+	private final S3SourceManager sourceManager;
+
+	public ConcurrencyLimitMetrics(S3SourceManager sourceManager) {
+		this.sourceManager = sourceManager;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		for (S3Source source : sourceManager.getSources()) {
+			sourceManager.limiter(source.name()).ifPresent(limiter -> {
+				Gauge.builder("s3.client.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::limit)
+					.description("Current adaptive limit on concurrent S3 requests")
+					.tag("source", source.name())
+					.register(registry);
+				Gauge.builder("s3.client.concurrency.in-flight", limiter, AdaptiveConcurrencyLimiter::inFlight)
+					.description("S3 requests currently holding a slot")
+					.tag("source", source.name())
+					.register(registry);
+				FunctionCounter.builder("s3.client.throttled", limiter, AdaptiveConcurrencyLimiter::throttledCount)
+					.description("S3 requests answered with 503 SlowDown or 429")
+					.tag("source", source.name())
+					.register(registry);
+			});
+		}
+	}
+}
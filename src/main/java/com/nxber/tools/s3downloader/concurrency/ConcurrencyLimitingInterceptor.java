@@ -0,0 +1,92 @@
+package com.nxber.tools.s3downloader.concurrency;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+
+// holds one permit for the whole execution, so SDK retries of a throttled call never add concurrency on top of the limit
+public class ConcurrencyLimitingInterceptor implements ExecutionInterceptor {
+	private static final ExecutionAttribute<Permit> PERMIT = new ExecutionAttribute<>("AdaptiveConcurrencyPermit");
+
+	private final String sourceName;
+	private final AdaptiveConcurrencyLimiter limiter;
+	private final Duration acquisitionTimeout;
+
+	public ConcurrencyLimitingInterceptor(String sourceName, AdaptiveConcurrencyLimiter limiter, Duration acquisitionTimeout) {
+		this.sourceName = sourceName;
+		this.limiter = limiter;
+		this.acquisitionTimeout = acquisitionTimeout;
+	}
+
+	@Override
+	public void beforeExecution(Context.BeforeExecution context, ExecutionAttributes executionAttributes) {
+		boolean acquired;
+		try {
+			acquired = limiter.tryAcquire(acquisitionTimeout);
+		} catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+			throw SdkClientException.create("Interrupted while waiting for a request slot on source '%s'".formatted(sourceName), exception);
+		}
+		if (!acquired) {
+			throw SdkClientException.create("Source '%s' is throttling requests; no request slot freed up within %ss".formatted(sourceName, acquisitionTimeout.toSeconds()));
+		}
+		executionAttributes.putAttribute(PERMIT, new Permit(executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME), limiter.now()));
+	}
+
+	@Override
+	public void afterTransmission(Context.AfterTransmission context, ExecutionAttributes executionAttributes) {
+		// a 503 that a retry later recovers from still means the source wants less traffic
+		Permit permit = executionAttributes.getAttribute(PERMIT);
+		if (permit != null && isThrottlingStatus(context.httpResponse().statusCode())) {
+			permit.throttled = true;
+		}
+	}
+
+	@Override
+	public void afterExecution(Context.AfterExecution context, ExecutionAttributes executionAttributes) {
+		Permit permit = executionAttributes.getAttribute(PERMIT);
+		if (permit != null) {
+			release(permit, permit.throttled ? AdaptiveConcurrencyLimiter.Signal.THROTTLED : AdaptiveConcurrencyLimiter.Signal.SUCCESS);
+		}
+	}
+
+	@Override
+	public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes executionAttributes) {
+		Permit permit = executionAttributes.getAttribute(PERMIT);
+		if (permit == null) {
+			return;
+		}
+		boolean throttled = permit.throttled
+			|| context.exception() instanceof AwsServiceException serviceException && (serviceException.isThrottlingException() || isThrottlingStatus(serviceException.statusCode()));
+		release(permit, throttled ? AdaptiveConcurrencyLimiter.Signal.THROTTLED : AdaptiveConcurrencyLimiter.Signal.FAILED);
+	}
+
+	private void release(Permit permit, AdaptiveConcurrencyLimiter.Signal signal) {
+		if (permit.released.compareAndSet(false, true)) {
+			limiter.release(permit.operation, permit.startedAt, signal);
+		}
+	}
+
+	private boolean isThrottlingStatus(int statusCode) {
+		return statusCode == 503 || statusCode == 429;
+	}
+
+	private static final class Permit {
+		private final String operation;
+		private final long startedAt;
+		private final AtomicBoolean released = new AtomicBoolean();
+		private volatile boolean throttled;
+
+		private Permit(String operation, long startedAt) {
+			this.operation = operation != null ? operation : "";
+			this.startedAt = startedAt;
+		}
+	}
+}
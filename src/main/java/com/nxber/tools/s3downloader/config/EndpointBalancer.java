@@ -0,0 +1,237 @@
+package com.nxber.tools.s3downloader.config;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.exception.AbortedException;
+import software.amazon.awssdk.core.exception.ApiCallTimeoutException;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+
+// one client per gateway of a source; every call goes to the gateway with the least work outstanding among those not ejected
+public final class EndpointBalancer implements Supplier<S3Client> {
+	private static final Logger log = LoggerFactory.getLogger(EndpointBalancer.class);
+	private static final ExecutionAttribute<AtomicBoolean> CALL = new ExecutionAttribute<>("BalancedEndpointCall");
+
+	private final String sourceName;
+	private final S3SourceProperties.Balancing settings;
+	private final LongSupplier nanoClock;
+	private final List<Endpoint> endpoints;
+
+	EndpointBalancer(String sourceName, List<URI> uris, S3SourceProperties.Balancing settings, BiFunction<URI, ExecutionInterceptor, Supplier<S3Client>> clientFactory) {
+		this(sourceName, uris, settings, clientFactory, System::nanoTime);
+	}
+
+	EndpointBalancer(String sourceName, List<URI> uris, S3SourceProperties.Balancing settings, BiFunction<URI, ExecutionInterceptor, Supplier<S3Client>> clientFactory, LongSupplier nanoClock) {
+		this.sourceName = sourceName;
+		this.settings = settings;
+		this.nanoClock = nanoClock;
+		List<Endpoint> built = new ArrayList<>();
+		for (URI uri : uris) {
+			Endpoint endpoint = new Endpoint(uri);
+			endpoint.client = clientFactory.apply(uri, endpoint.tracker);
+			built.add(endpoint);
+		}
+		this.endpoints = List.copyOf(built);
+	}
+
+	@Override
+	public S3Client get() {
+		return select().client.get();
+	}
+
+	public List<Endpoint> endpoints() {
+		return endpoints;
+	}
+
+	Endpoint select() {
+		long now = nanoClock.getAsLong();
+		List<Endpoint> candidates = endpoints.stream().filter(endpoint -> !endpoint.isEjected(now)).toList();
+		// with every gateway ejected, sending traffic somewhere beats failing every call outright
+		if (candidates.isEmpty()) {
+			candidates = endpoints;
+		}
+		if (candidates.size() == 1) {
+			return candidates.getFirst();
+		}
+
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		if (settings.getStrategy() == S3SourceProperties.Balancing.Strategy.POWER_OF_TWO_CHOICES) {
+			// two random picks avoid the herd that forms when every caller chases the same least-loaded gateway
+			int first = random.nextInt(candidates.size());
+			int second = random.nextInt(candidates.size() - 1);
+			if (second >= first) {
+				second++;
+			}
+			Endpoint a = candidates.get(first);
+			Endpoint b = candidates.get(second);
+			return b.outstanding.get() < a.outstanding.get() ? b : a;
+		}
+
+		// start the scan at a random gateway so ties spread out instead of always landing on the first
+		int offset = random.nextInt(candidates.size());
+		Endpoint best = null;
+		for (int index = 0; index < candidates.size(); index++) {
+			Endpoint candidate = candidates.get((offset + index) % candidates.size());
+			if (best == null || candidate.outstanding.get() < best.outstanding.get()) {
+				best = candidate;
+			}
+		}
+		return best;
+	}
+
+	boolean isInitialized() {
+		return endpoints.stream().anyMatch(endpoint -> !(endpoint.client instanceof LazyS3Client<?> lazy) || lazy.isInitialized());
+	}
+
+	void initialize() {
+		endpoints.forEach(endpoint -> endpoint.client.get());
+	}
+
+	public final class Endpoint {
+		private final URI uri;
+		private final AtomicInteger outstanding = new AtomicInteger();
+		private final AtomicInteger consecutiveFailures = new AtomicInteger();
+		private final LongAdder requests = new LongAdder();
+		private final LongAdder ejections = new LongAdder();
+		private final ExecutionInterceptor tracker = new Tracker();
+		private volatile long ejectedUntil;
+		private volatile boolean ejected;
+		private Supplier<S3Client> client;
+
+		private Endpoint(URI uri) {
+			this.uri = uri;
+		}
+
+		public URI uri() {
+			return uri;
+		}
+
+		public int outstanding() {
+			return outstanding.get();
+		}
+
+		public long requests() {
+			return requests.sum();
+		}
+
+		public long ejections() {
+			return ejections.sum();
+		}
+
+		public boolean isEjected() {
+			return isEjected(nanoClock.getAsLong());
+		}
+
+		private boolean isEjected(long now) {
+			return ejected && now - ejectedUntil < 0L;
+		}
+
+		private void succeeded() {
+			consecutiveFailures.set(0);
+			ejected = false;
+		}
+
+		private void failed() {
+			int failures = consecutiveFailures.incrementAndGet();
+			if (failures < settings.getFailureThreshold()) {
+				return;
+			}
+			Duration ejectionTime = settings.getEjectionTime();
+			ejectedUntil = nanoClock.getAsLong() + ejectionTime.toNanos();
+			ejected = true;
+			ejections.increment();
+			// once back, a gateway that fails again is ejected on the spot rather than after another full run of failures
+			consecutiveFailures.set(settings.getFailureThreshold() - 1);
+			log.warn("Ejecting endpoint {} of source '{}' for {}s after {} consecutive failures", uri, sourceName, ejectionTime.toSeconds(), failures);
+		}
+
+		private void release(AtomicBoolean held) {
+			if (held.compareAndSet(false, true)) {
+				outstanding.decrementAndGet();
+			}
+		}
+
+		// counts a call from its first byte out until its response is handled; an object body stays counted until it is closed
+		private final class Tracker implements ExecutionInterceptor {
+			@Override
+			public void beforeExecution(Context.BeforeExecution context, ExecutionAttributes executionAttributes) {
+				requests.increment();
+				outstanding.incrementAndGet();
+				executionAttributes.putAttribute(CALL, new AtomicBoolean());
+			}
+
+			@Override
+			public Optional<InputStream> modifyHttpResponseContent(Context.ModifyHttpResponse context, ExecutionAttributes executionAttributes) {
+				Optional<InputStream> content = context.responseBody();
+				if (!(context.request() instanceof GetObjectRequest) || !context.httpResponse().isSuccessful() || content.isEmpty()) {
+					return content;
+				}
+				AtomicBoolean body = new AtomicBoolean();
+				outstanding.incrementAndGet();
+				return Optional.of(new FilterInputStream(content.get()) {
+					@Override
+					public void close() throws IOException {
+						try {
+							super.close();
+						} finally {
+							release(body);
+						}
+					}
+				});
+			}
+
+			@Override
+			public void afterExecution(Context.AfterExecution context, ExecutionAttributes executionAttributes) {
+				AtomicBoolean call = executionAttributes.getAttribute(CALL);
+				if (call != null) {
+					release(call);
+					succeeded();
+				}
+			}
+
+			@Override
+			public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes executionAttributes) {
+				AtomicBoolean call = executionAttributes.getAttribute(CALL);
+				if (call == null) {
+					return;
+				}
+				release(call);
+				Throwable failure = context.exception();
+				if (failure instanceof AwsServiceException serviceException) {
+					// a 404 or 403 is the gateway answering correctly
+					if (serviceException.statusCode() >= 500) {
+						failed();
+					} else {
+						succeeded();
+					}
+				} else if (failure instanceof SdkClientException && !(failure instanceof ApiCallTimeoutException) && !(failure instanceof AbortedException)) {
+					// refused connections and resets; deadlines and cancellations say nothing about the gateway
+					failed();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package com.nxber.tools.s3downloader.config;
+
+import org.springframework.stereotype.Component;
+
+import com.nxber.tools.s3downloader.config.S3SourceManager.S3Source;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+@Component
+public class EndpointBalancerMetrics implements MeterBinder {
+	private final S3SourceManager sourceManager;
+
+	public EndpointBalancerMetrics(S3SourceManager sourceManager) {
+		this.sourceManager = sourceManager;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		for (S3Source source : sourceManager.getSources()) {
+			sourceManager.balancer(source.name()).ifPresent(balancer -> {
+				for (EndpointBalancer.Endpoint endpoint : balancer.endpoints()) {
+					String uri = endpoint.uri().toString();
+					Gauge.builder("s3.client.endpoint.outstanding", endpoint, EndpointBalancer.Endpoint::outstanding)
+						.description("S3 requests and open object bodies currently on the gateway")
+						.tags("source", source.name(), "endpoint", uri)
+						.register(registry);
+					Gauge.builder("s3.client.endpoint.ejected", endpoint, current -> current.isEjected() ? 1 : 0)
+						.description("Whether the gateway is out of rotation after consecutive failures")
+						.tags("source", source.name(), "endpoint", uri)
+						.register(registry);
+					FunctionCounter.builder("s3.client.endpoint.requests", endpoint, EndpointBalancer.Endpoint::requests)
+						.description("S3 requests sent to the gateway")
+						.tags("source", source.name(), "endpoint", uri)
+						.register(registry);
+					FunctionCounter.builder("s3.client.endpoint.ejections", endpoint, EndpointBalancer.Endpoint::ejections)
+						.description("Times the gateway was taken out of rotation")
+						.tags("source", source.name(), "endpoint", uri)
+						.register(registry);
+				}
+			});
+		}
+	}
+}
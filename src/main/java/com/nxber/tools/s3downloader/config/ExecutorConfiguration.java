@@ -0,0 +1,41 @@
+package com.nxber.tools.s3downloader.config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.nxber.tools.s3downloader.archive.ArchiveCompressor;
+
+// background storage work stays off the task executor that runs streaming bodies, where work a request waits on would queue
+// behind downloads. Long jobs (exports, mirrors) get bounded platform pools so further jobs queue instead of adding load;
+// fan-out a request waits on gets virtual threads; CPU-bound compression gets a pool sized to the cores.
+// spring.task.execution.mode=force keeps Boot's own executor alongside these
+@Configuration
+public class ExecutorConfiguration {
+	public static final String EXPORT_EXECUTOR = "listingExportExecutor";
+	public static final String MIRROR_EXECUTOR = "mirrorExecutor";
+	public static final String STORAGE_FAN_OUT_EXECUTOR = "storageFanOutExecutor";
+	public static final String ARCHIVE_COMPRESSION_EXECUTOR = "archiveCompressionExecutor";
+
+	@Bean(name = EXPORT_EXECUTOR, destroyMethod = "shutdownNow")
+	public ExecutorService listingExportExecutor(S3ClientProperties properties) {
+		return Executors.newFixedThreadPool(properties.getExport().getParallelism(), Thread.ofPlatform().name("listing-export-", 0).daemon().factory());
+	}
+
+	@Bean(name = MIRROR_EXECUTOR, destroyMethod = "shutdownNow")
+	public ExecutorService mirrorExecutor(S3ClientProperties properties) {
+		return Executors.newFixedThreadPool(properties.getMirror().getParallelism(), Thread.ofPlatform().name("mirror-", 0).daemon().factory());
+	}
+
+	@Bean(name = STORAGE_FAN_OUT_EXECUTOR, destroyMethod = "shutdownNow")
+	public ExecutorService storageFanOutExecutor() {
+		return Executors.newVirtualThreadPerTaskExecutor();
+	}
+
+	@Bean(name = ARCHIVE_COMPRESSION_EXECUTOR, destroyMethod = "shutdownNow")
+	public ExecutorService archiveCompressionExecutor(S3ClientProperties properties) {
+		return Executors.newFixedThreadPool(ArchiveCompressor.threadCount(properties.getArchive()), Thread.ofPlatform().name("archive-compressor-", 0).daemon().factory());
+	}
+}
@@ -0,0 +1,36 @@
+package com.nxber.tools.s3downloader.config;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+// builds a source's client or presigner on first use; the SDK client and its connection pool are the expensive part of a source
+final class LazyS3Client<T> implements Supplier<T> {
+	private final Supplier<T> factory;
+	private final ReentrantLock lock = new ReentrantLock();
+	private volatile T client;
+
+	LazyS3Client(Supplier<T> factory) {
+		this.factory = factory;
+	}
+
+	@Override
+	public T get() {
+		T current = client;
+		if (current != null) {
+			return current;
+		}
+		lock.lock();
+		try {
+			if (client == null) {
+				client = factory.get();
+			}
+			return client;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	boolean isInitialized() {
+		return client != null;
+	}
+}
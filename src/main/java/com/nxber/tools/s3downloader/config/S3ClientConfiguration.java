@@ -2,8 +2,10 @@ package com.nxber.tools.s3downloader.config;
 
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @Configuration
+@EnableScheduling
 @EnableConfigurationProperties(S3ClientProperties.class)
 public class S3ClientConfiguration {
 }
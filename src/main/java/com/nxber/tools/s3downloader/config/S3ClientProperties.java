@@ -1,8 +1,16 @@
 package com.nxber.tools.s3downloader.config;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.validation.annotation.Validated;
 
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 
@@ -16,8 +24,55 @@ public class S3ClientProperties {
 	@Min(1)
 	private int searchPageLimit = 10;
 
+	// storage calls a request handler makes must finish within this; zero lifts the limit
+	private Duration requestDeadline = Duration.ofSeconds(30);
+
 	private String defaultSource;
 
+	private List<String> sources = new ArrayList<>();
+
+	private final Startup startup = new Startup();
+
+	@Valid
+	private final Cursor cursor = new Cursor();
+
+	private final Inventory inventory = new Inventory();
+
+	@Valid
+	private final FolderStats folderStats = new FolderStats();
+
+	@Valid
+	private final Prefetch prefetch = new Prefetch();
+
+	@Valid
+	private final Cache cache = new Cache();
+
+	@Valid
+	private final Hedging hedging = new Hedging();
+
+	@Valid
+	private final Snapshot snapshot = new Snapshot();
+
+	@Valid
+	private final Export export = new Export();
+
+	@Valid
+	private final TextPreview textPreview = new TextPreview();
+
+	@Valid
+	private final Archive archive = new Archive();
+
+	private final Transfers transfers = new Transfers();
+
+	@Valid
+	private final FederatedSearch federatedSearch = new FederatedSearch();
+
+	@Valid
+	private final Mirror mirror = new Mirror();
+
+	@Valid
+	private final ContentEncoding contentEncoding = new ContentEncoding();
+
 	public int getPageSize() {
 		return pageSize;
 	}
@@ -34,6 +89,14 @@ public class S3ClientProperties {
 		this.searchPageLimit = searchPageLimit;
 	}
 
+	public Duration getRequestDeadline() {
+		return requestDeadline;
+	}
+
+	public void setRequestDeadline(Duration requestDeadline) {
+		this.requestDeadline = requestDeadline;
+	}
+
 	public String getDefaultSource() {
 		return defaultSource;
 	}
@@ -41,4 +104,787 @@ public class S3ClientProperties {
 	public void setDefaultSource(String defaultSource) {
 		this.defaultSource = defaultSource;
 	}
+
+	public List<String> getSources() {
+		return sources;
+	}
+
+	public void setSources(List<String> sources) {
+		this.sources = sources;
+	}
+
+	public Startup getStartup() {
+		return startup;
+	}
+
+	public Cursor getCursor() {
+		return cursor;
+	}
+
+	public Inventory getInventory() {
+		return inventory;
+	}
+
+	public FolderStats getFolderStats() {
+		return folderStats;
+	}
+
+	public Prefetch getPrefetch() {
+		return prefetch;
+	}
+
+	public Cache getCache() {
+		return cache;
+	}
+
+	public Hedging getHedging() {
+		return hedging;
+	}
+
+	public Snapshot getSnapshot() {
+		return snapshot;
+	}
+
+	public Export getExport() {
+		return export;
+	}
+
+	public TextPreview getTextPreview() {
+		return textPreview;
+	}
+
+	public Archive getArchive() {
+		return archive;
+	}
+
+	public Transfers getTransfers() {
+		return transfers;
+	}
+
+	public FederatedSearch getFederatedSearch() {
+		return federatedSearch;
+	}
+
+	public Mirror getMirror() {
+		return mirror;
+	}
+
+	public ContentEncoding getContentEncoding() {
+		return contentEncoding;
+	}
+
+	public static class Startup {
+		private boolean lazyClients = true;
+
+		private boolean warmup = false;
+
+		public boolean isLazyClients() {
+			return lazyClients;
+		}
+
+		public void setLazyClients(boolean lazyClients) {
+			this.lazyClients = lazyClients;
+		}
+
+		public boolean isWarmup() {
+			return warmup;
+		}
+
+		public void setWarmup(boolean warmup) {
+			this.warmup = warmup;
+		}
+	}
+
+	public static class Cursor {
+		@Min(1)
+		private int maxEntries = 500;
+
+		private Duration ttl = Duration.ofMinutes(10);
+
+		private boolean prefetchEnabled = true;
+
+		@Min(0)
+		private int prefetchPageLimit = 50;
+
+		public int getMaxEntries() {
+			return maxEntries;
+		}
+
+		public void setMaxEntries(int maxEntries) {
+			this.maxEntries = maxEntries;
+		}
+
+		public Duration getTtl() {
+			return ttl;
+		}
+
+		public void setTtl(Duration ttl) {
+			this.ttl = ttl;
+		}
+
+		public boolean isPrefetchEnabled() {
+			return prefetchEnabled;
+		}
+
+		public void setPrefetchEnabled(boolean prefetchEnabled) {
+			this.prefetchEnabled = prefetchEnabled;
+		}
+
+		public int getPrefetchPageLimit() {
+			return prefetchPageLimit;
+		}
+
+		public void setPrefetchPageLimit(int prefetchPageLimit) {
+			this.prefetchPageLimit = prefetchPageLimit;
+		}
+	}
+
+	public static class Inventory {
+		private Path directory = Path.of(System.getProperty("java.io.tmpdir"), "s3-downloader", "inventory");
+
+		private Duration refreshInterval = Duration.ofHours(6);
+
+		// reports are delivered daily or weekly, so a week and a day covers one missed weekly delivery at most
+		private Duration maxAge = Duration.ofDays(8);
+
+		public Path getDirectory() {
+			return directory;
+		}
+
+		public void setDirectory(Path directory) {
+			this.directory = directory;
+		}
+
+		public Duration getRefreshInterval() {
+			return refreshInterval;
+		}
+
+		public void setRefreshInterval(Duration refreshInterval) {
+			this.refreshInterval = refreshInterval;
+		}
+
+		public Duration getMaxAge() {
+			return maxAge;
+		}
+
+		public void setMaxAge(Duration maxAge) {
+			this.maxAge = maxAge;
+		}
+	}
+
+	public static class FolderStats {
+		@Min(1)
+		private int partitions = 4;
+
+		private boolean progressive = true;
+
+		public int getPartitions() {
+			return partitions;
+		}
+
+		public void setPartitions(int partitions) {
+			this.partitions = partitions;
+		}
+
+		public boolean isProgressive() {
+			return progressive;
+		}
+
+		public void setProgressive(boolean progressive) {
+			this.progressive = progressive;
+		}
+	}
+
+	public static class Prefetch {
+		private boolean enabled = false;
+
+		@Min(1)
+		private int maxEntries = 64;
+
+		private Duration ttl = Duration.ofSeconds(30);
+
+		@Min(0)
+		private int budgetPerMinute = 60;
+
+		@Min(0)
+		private int subfolders = 0;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public int getMaxEntries() {
+			return maxEntries;
+		}
+
+		public void setMaxEntries(int maxEntries) {
+			this.maxEntries = maxEntries;
+		}
+
+		public Duration getTtl() {
+			return ttl;
+		}
+
+		public void setTtl(Duration ttl) {
+			this.ttl = ttl;
+		}
+
+		public int getBudgetPerMinute() {
+			return budgetPerMinute;
+		}
+
+		public void setBudgetPerMinute(int budgetPerMinute) {
+			this.budgetPerMinute = budgetPerMinute;
+		}
+
+		public int getSubfolders() {
+			return subfolders;
+		}
+
+		public void setSubfolders(int subfolders) {
+			this.subfolders = subfolders;
+		}
+	}
+
+	public static class Cache {
+		private Backend backend = Backend.LOCAL;
+
+		@Min(1)
+		private int maxEntries = 10_000;
+
+		private Duration listingTtl = Duration.ofSeconds(30);
+
+		private Duration bucketTtl = Duration.ofMinutes(5);
+
+		private Duration bucketDeniedTtl = Duration.ofHours(1);
+
+		private Duration zipDirectoryTtl = Duration.ofMinutes(30);
+
+		private Duration folderStatsTtl = Duration.ofMinutes(5);
+
+		private List<String> peers = new ArrayList<>();
+
+		private String selfUrl;
+
+		private String token;
+
+		@Min(1)
+		private int virtualNodes = 128;
+
+		private Duration timeout = Duration.ofSeconds(2);
+
+		public Backend getBackend() {
+			return backend;
+		}
+
+		public void setBackend(Backend backend) {
+			this.backend = backend;
+		}
+
+		public int getMaxEntries() {
+			return maxEntries;
+		}
+
+		public void setMaxEntries(int maxEntries) {
+			this.maxEntries = maxEntries;
+		}
+
+		public Duration getListingTtl() {
+			return listingTtl;
+		}
+
+		public void setListingTtl(Duration listingTtl) {
+			this.listingTtl = listingTtl;
+		}
+
+		public Duration getBucketTtl() {
+			return bucketTtl;
+		}
+
+		public void setBucketTtl(Duration bucketTtl) {
+			this.bucketTtl = bucketTtl;
+		}
+
+		public Duration getBucketDeniedTtl() {
+			return bucketDeniedTtl;
+		}
+
+		public void setBucketDeniedTtl(Duration bucketDeniedTtl) {
+			this.bucketDeniedTtl = bucketDeniedTtl;
+		}
+
+		public Duration getZipDirectoryTtl() {
+			return zipDirectoryTtl;
+		}
+
+		public void setZipDirectoryTtl(Duration zipDirectoryTtl) {
+			this.zipDirectoryTtl = zipDirectoryTtl;
+		}
+
+		public Duration getFolderStatsTtl() {
+			return folderStatsTtl;
+		}
+
+		public void setFolderStatsTtl(Duration folderStatsTtl) {
+			this.folderStatsTtl = folderStatsTtl;
+		}
+
+		public List<String> getPeers() {
+			return peers;
+		}
+
+		public void setPeers(List<String> peers) {
+			this.peers = peers;
+		}
+
+		public String getSelfUrl() {
+			return selfUrl;
+		}
+
+		public void setSelfUrl(String selfUrl) {
+			this.selfUrl = selfUrl;
+		}
+
+		public String getToken() {
+			return token;
+		}
+
+		public void setToken(String token) {
+			this.token = token;
+		}
+
+		public int getVirtualNodes() {
+			return virtualNodes;
+		}
+
+		public void setVirtualNodes(int virtualNodes) {
+			this.virtualNodes = virtualNodes;
+		}
+
+		public Duration getTimeout() {
+			return timeout;
+		}
+
+		public void setTimeout(Duration timeout) {
+			this.timeout = timeout;
+		}
+
+		public enum Backend {
+			LOCAL,
+			PEER
+		}
+	}
+
+	public static class Hedging {
+		private boolean enabled = false;
+
+		@DecimalMin("50.0")
+		@DecimalMax("99.9")
+		private double percentile = 95.0;
+
+		@DecimalMin("0.0")
+		@DecimalMax("50.0")
+		private double budgetPercent = 5.0;
+
+		private Duration minDelay = Duration.ofMillis(20);
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public double getPercentile() {
+			return percentile;
+		}
+
+		public void setPercentile(double percentile) {
+			this.percentile = percentile;
+		}
+
+		public double getBudgetPercent() {
+			return budgetPercent;
+		}
+
+		public void setBudgetPercent(double budgetPercent) {
+			this.budgetPercent = budgetPercent;
+		}
+
+		public Duration getMinDelay() {
+			return minDelay;
+		}
+
+		public void setMinDelay(Duration minDelay) {
+			this.minDelay = minDelay;
+		}
+	}
+
+	public static class Snapshot {
+		private Path directory = Path.of(System.getProperty("java.io.tmpdir"), "s3-downloader", "snapshots");
+
+		private Duration interval = Duration.ofHours(24);
+
+		@Min(1)
+		private int retain = 14;
+
+		private List<Target> targets = new ArrayList<>();
+
+		public Path getDirectory() {
+			return directory;
+		}
+
+		public void setDirectory(Path directory) {
+			this.directory = directory;
+		}
+
+		public Duration getInterval() {
+			return interval;
+		}
+
+		public void setInterval(Duration interval) {
+			this.interval = interval;
+		}
+
+		public int getRetain() {
+			return retain;
+		}
+
+		public void setRetain(int retain) {
+			this.retain = retain;
+		}
+
+		public List<Target> getTargets() {
+			return targets;
+		}
+
+		public void setTargets(List<Target> targets) {
+			this.targets = targets;
+		}
+
+		public static class Target {
+			private String source;
+
+			private String bucket;
+
+			private String prefix = "";
+
+			public String getSource() {
+				return source;
+			}
+
+			public void setSource(String source) {
+				this.source = source;
+			}
+
+			public String getBucket() {
+				return bucket;
+			}
+
+			public void setBucket(String bucket) {
+				this.bucket = bucket;
+			}
+
+			public String getPrefix() {
+				return prefix;
+			}
+
+			public void setPrefix(String prefix) {
+				this.prefix = prefix;
+			}
+		}
+	}
+
+	public static class Export {
+		private Path directory = Path.of(System.getProperty("java.io.tmpdir"), "s3-downloader", "exports");
+
+		@Min(1)
+		@Max(64)
+		private int parallelism = 8;
+
+		@Min(1)
+		private int partitions = 64;
+
+		@Min(0)
+		@Max(8)
+		private int discoveryDepth = 2;
+
+		public Path getDirectory() {
+			return directory;
+		}
+
+		public void setDirectory(Path directory) {
+			this.directory = directory;
+		}
+
+		public int getParallelism() {
+			return parallelism;
+		}
+
+		public void setParallelism(int parallelism) {
+			this.parallelism = parallelism;
+		}
+
+		public int getPartitions() {
+			return partitions;
+		}
+
+		public void setPartitions(int partitions) {
+			this.partitions = partitions;
+		}
+
+		public int getDiscoveryDepth() {
+			return discoveryDepth;
+		}
+
+		public void setDiscoveryDepth(int discoveryDepth) {
+			this.discoveryDepth = discoveryDepth;
+		}
+	}
+
+	public static class TextPreview {
+		@Min(1024)
+		@Max(16 * 1024 * 1024)
+		private int maxBytes = 256 * 1024;
+
+		@Min(1)
+		private int defaultLines = 100;
+
+		@Min(1)
+		private int maxLines = 2000;
+
+		public int getMaxBytes() {
+			return maxBytes;
+		}
+
+		public void setMaxBytes(int maxBytes) {
+			this.maxBytes = maxBytes;
+		}
+
+		public int getDefaultLines() {
+			return defaultLines;
+		}
+
+		public void setDefaultLines(int defaultLines) {
+			this.defaultLines = defaultLines;
+		}
+
+		public int getMaxLines() {
+			return maxLines;
+		}
+
+		public void setMaxLines(int maxLines) {
+			this.maxLines = maxLines;
+		}
+	}
+
+	public static class Archive {
+		@Min(0)
+		@Max(9)
+		private int compressionLevel = 6;
+
+		// 0 means one thread per available processor
+		@Min(0)
+		private int compressionThreads = 0;
+
+		@Min(32 * 1024)
+		@Max(16 * 1024 * 1024)
+		private int chunkSize = 128 * 1024;
+
+		@Min(64 * 1024)
+		private int maxDirectoryBytes = 32 * 1024 * 1024;
+
+		// byte budget of one volume when a folder archive is split for parallel download
+		@Min(1024 * 1024)
+		private long volumeSize = 4L * 1024 * 1024 * 1024;
+
+		// the last volume takes whatever is left once this many are planned
+		@Min(1)
+		private int maxVolumes = 1000;
+
+		public int getCompressionLevel() {
+			return compressionLevel;
+		}
+
+		public void setCompressionLevel(int compressionLevel) {
+			this.compressionLevel = compressionLevel;
+		}
+
+		public int getCompressionThreads() {
+			return compressionThreads;
+		}
+
+		public void setCompressionThreads(int compressionThreads) {
+			this.compressionThreads = compressionThreads;
+		}
+
+		public int getChunkSize() {
+			return chunkSize;
+		}
+
+		public void setChunkSize(int chunkSize) {
+			this.chunkSize = chunkSize;
+		}
+
+		public int getMaxDirectoryBytes() {
+			return maxDirectoryBytes;
+		}
+
+		public void setMaxDirectoryBytes(int maxDirectoryBytes) {
+			this.maxDirectoryBytes = maxDirectoryBytes;
+		}
+
+		public long getVolumeSize() {
+			return volumeSize;
+		}
+
+		public void setVolumeSize(long volumeSize) {
+			this.volumeSize = volumeSize;
+		}
+
+		public int getMaxVolumes() {
+			return maxVolumes;
+		}
+
+		public void setMaxVolumes(int maxVolumes) {
+			this.maxVolumes = maxVolumes;
+		}
+	}
+
+	public static class Transfers {
+		private Duration progressInterval = Duration.ofSeconds(1);
+
+		public Duration getProgressInterval() {
+			return progressInterval;
+		}
+
+		public void setProgressInterval(Duration progressInterval) {
+			this.progressInterval = progressInterval;
+		}
+	}
+
+	public static class FederatedSearch {
+		// buckets of one source listed at the same time
+		@Min(1)
+		@Max(64)
+		private int sourceConcurrency = 4;
+
+		private Duration sourceTimeout = Duration.ofSeconds(10);
+
+		@Min(1)
+		private int maxResults = 500;
+
+		@Min(1)
+		private int maxPagesPerBucket = 20;
+
+		public int getSourceConcurrency() {
+			return sourceConcurrency;
+		}
+
+		public void setSourceConcurrency(int sourceConcurrency) {
+			this.sourceConcurrency = sourceConcurrency;
+		}
+
+		public Duration getSourceTimeout() {
+			return sourceTimeout;
+		}
+
+		public void setSourceTimeout(Duration sourceTimeout) {
+			this.sourceTimeout = sourceTimeout;
+		}
+
+		public int getMaxResults() {
+			return maxResults;
+		}
+
+		public void setMaxResults(int maxResults) {
+			this.maxResults = maxResults;
+		}
+
+		public int getMaxPagesPerBucket() {
+			return maxPagesPerBucket;
+		}
+
+		public void setMaxPagesPerBucket(int maxPagesPerBucket) {
+			this.maxPagesPerBucket = maxPagesPerBucket;
+		}
+	}
+
+	public static class Mirror {
+		// every mirror target has to resolve below this directory
+		private Path root = Path.of(System.getProperty("java.io.tmpdir"), "s3-downloader", "mirrors");
+
+		@Min(1)
+		@Max(64)
+		private int parallelism = 8;
+
+		public Path getRoot() {
+			return root;
+		}
+
+		public void setRoot(Path root) {
+			this.root = root;
+		}
+
+		public int getParallelism() {
+			return parallelism;
+		}
+
+		public void setParallelism(int parallelism) {
+			this.parallelism = parallelism;
+		}
+	}
+
+	public static class ContentEncoding {
+		private boolean enabled = true;
+
+		@Min(1)
+		@Max(9)
+		private int level = 6;
+
+		// below this the gzip framing and a compressor slot cost more than the bytes saved
+		@Min(0)
+		private long minSize = 8 * 1024;
+
+		// 0 means one per available processor; downloads past the limit go out uncompressed instead of waiting
+		@Min(0)
+		private int maxConcurrent = 0;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public int getLevel() {
+			return level;
+		}
+
+		public void setLevel(int level) {
+			this.level = level;
+		}
+
+		public long getMinSize() {
+			return minSize;
+		}
+
+		public void setMinSize(long minSize) {
+			this.minSize = minSize;
+		}
+
+		public int getMaxConcurrent() {
+			return maxConcurrent;
+		}
+
+		public void setMaxConcurrent(int maxConcurrent) {
+			this.maxConcurrent = maxConcurrent;
+		}
+	}
 }
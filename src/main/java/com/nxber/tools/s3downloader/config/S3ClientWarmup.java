@@ -0,0 +1,46 @@
+package com.nxber.tools.s3downloader.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Component;
+
+import com.nxber.tools.s3downloader.config.S3SourceManager.S3Source;
+
+// builds lazy clients off the startup path, so the node takes traffic first and the first request per source stays fast
+@Component
+public class S3ClientWarmup {
+	private static final Logger log = LoggerFactory.getLogger(S3ClientWarmup.class);
+
+	private final S3SourceManager sourceManager;
+	private final S3ClientProperties properties;
+	private final TaskExecutor taskExecutor;
+
+	public S3ClientWarmup(S3SourceManager sourceManager, S3ClientProperties properties, @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor) {
+		this.sourceManager = sourceManager;
+		this.properties = properties;
+		this.taskExecutor = taskExecutor;
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void warmUp() {
+		if (!properties.getStartup().isLazyClients() || !properties.getStartup().isWarmup()) {
+			return;
+		}
+		for (S3Source source : sourceManager.getSources()) {
+			taskExecutor.execute(() -> {
+				long started = System.nanoTime();
+				try {
+					// a balanced source builds one client per gateway, and client() would build only the gateway it picks
+					sourceManager.balancer(source.name()).ifPresentOrElse(EndpointBalancer::initialize, source::client);
+					log.debug("Built client for source '{}' in {} ms", source.name(), (System.nanoTime() - started) / 1_000_000L);
+				} catch (RuntimeException exception) {
+					log.warn("Warming up client for source '{}' failed; it will be built on first use", source.name(), exception);
+				}
+			});
+		}
+	}
+}
@@ -1,12 +1,15 @@
 package com.nxber.tools.s3downloader.config;
 
+import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Supplier;
 
 import org.springframework.boot.context.properties.bind.Bindable;
 import org.springframework.boot.context.properties.bind.Binder;
@@ -16,13 +19,19 @@ import org.springframework.core.env.MutablePropertySources;
 import org.springframework.core.env.EnumerablePropertySource;
 import org.springframework.stereotype.Component;
 
+import com.nxber.tools.s3downloader.concurrency.AdaptiveConcurrencyLimiter;
+import com.nxber.tools.s3downloader.concurrency.ConcurrencyLimitingInterceptor;
+
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
 import software.amazon.awssdk.http.apache.ApacheHttpClient;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.S3Configuration;
 import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 
 @Component
 public class S3SourceManager {
@@ -30,17 +39,46 @@ public class S3SourceManager {
 	private static final Set<String> RESERVED_KEYS = Set.of(
 		"region",
 		"endpoint",
+		"endpoints",
+		"balancing",
 		"path-style-access",
 		"access-key",
 		"secret-key",
 		"default-bucket",
 		"display-name",
+		"inventory-manifest",
+		"max-connections",
+		"max-concurrent-streams",
+		"connection-acquisition-timeout",
+		"concurrency",
+		"download-mode",
+		"presign-ttl",
+		"public-endpoint",
 		"page-size",
 		"search-page-limit",
-		"default-source"
+		"request-deadline",
+		"default-source",
+		"cursor",
+		"inventory",
+		"folder-stats",
+		"prefetch",
+		"cache",
+		"hedging",
+		"snapshot",
+		"export",
+		"sources",
+		"startup",
+		"text-preview",
+		"archive",
+		"transfers",
+		"federated-search",
+		"mirror",
+		"content-encoding"
 	);
 
 	private final Map<String, S3Source> sources;
+	private final Map<String, AdaptiveConcurrencyLimiter> limiters;
+	private final Map<String, EndpointBalancer> balancers;
 	private final String defaultSourceName;
 
 	public S3SourceManager(Environment environment, S3ClientProperties properties) {
@@ -49,16 +87,45 @@ public class S3SourceManager {
 		}
 
 		Binder binder = Binder.get(environment);
-		List<String> discoveredNames = discoverSourceNames(configurableEnvironment);
+		// an explicit list skips walking every property name of every property source
+		List<String> discoveredNames = properties.getSources().isEmpty()
+			? discoverSourceNames(configurableEnvironment)
+			: List.copyOf(new LinkedHashSet<>(properties.getSources()));
 
 		Map<String, S3Source> resolvedSources = new LinkedHashMap<>();
+		Map<String, AdaptiveConcurrencyLimiter> resolvedLimiters = new LinkedHashMap<>();
+		Map<String, EndpointBalancer> resolvedBalancers = new LinkedHashMap<>();
 		for (String name : discoveredNames) {
 			S3SourceProperties sourceProperties = binder.bind(PROPERTY_PREFIX + name, Bindable.of(S3SourceProperties.class))
 				.orElseThrow(() -> new IllegalStateException("Missing configuration for storage source '%s'".formatted(name)));
-			S3Client client = buildClient(sourceProperties);
+			AdaptiveConcurrencyLimiter limiter = sourceProperties.getConcurrency().isAdaptive()
+				? new AdaptiveConcurrencyLimiter(sourceProperties.getConcurrency())
+				: null;
+			if (limiter != null) {
+				resolvedLimiters.put(name, limiter);
+			}
+			Supplier<S3Client> client;
+			if (sourceProperties.getEndpoints().size() > 1) {
+				EndpointBalancer balancer = new EndpointBalancer(name, sourceProperties.getEndpoints(), sourceProperties.getBalancing(),
+					(endpoint, tracker) -> new LazyS3Client<>(() -> buildClient(name, sourceProperties, limiter, endpoint, tracker)));
+				if (!properties.getStartup().isLazyClients()) {
+					balancer.initialize();
+				}
+				resolvedBalancers.put(name, balancer);
+				client = balancer;
+			} else {
+				URI endpoint = sourceProperties.getEndpoints().isEmpty() ? sourceProperties.getEndpoint() : sourceProperties.getEndpoints().getFirst();
+				LazyS3Client<S3Client> single = new LazyS3Client<>(() -> buildClient(name, sourceProperties, limiter, endpoint, null));
+				if (!properties.getStartup().isLazyClients()) {
+					single.get();
+				}
+				client = single;
+			}
 			String displayName = Optional.ofNullable(sourceProperties.getDisplayName())
 				.orElseGet(() -> name.replace('-', ' '));
-			resolvedSources.put(name, new S3Source(name, displayName, sourceProperties, client));
+			// presigners hold no connections, so they stay lazy even when clients are built eagerly
+			LazyS3Client<S3Presigner> presigner = new LazyS3Client<>(() -> buildPresigner(sourceProperties));
+			resolvedSources.put(name, new S3Source(name, displayName, sourceProperties, client, presigner));
 		}
 
 		if (resolvedSources.isEmpty()) {
@@ -66,6 +133,8 @@ public class S3SourceManager {
 		}
 
 		this.sources = Collections.unmodifiableMap(resolvedSources);
+		this.limiters = Collections.unmodifiableMap(resolvedLimiters);
+		this.balancers = Collections.unmodifiableMap(resolvedBalancers);
 		this.defaultSourceName = determineDefaultSource(properties.getDefaultSource(), resolvedSources.keySet());
 	}
 
@@ -104,7 +173,7 @@ public class S3SourceManager {
 		return available.iterator().next();
 	}
 
-	private S3Client buildClient(S3SourceProperties properties) {
+	private S3Client buildClient(String name, S3SourceProperties properties, AdaptiveConcurrencyLimiter limiter, URI endpoint, ExecutionInterceptor tracker) {
 		S3Configuration.Builder serviceConfig = S3Configuration.builder();
 
 		if (properties.isPathStyleAccess()) {
@@ -113,20 +182,58 @@ public class S3SourceManager {
 
 		S3ClientBuilder builder = S3Client.builder()
 			.region(Region.of(properties.getRegion()))
-			.credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create(
-				properties.getAccessKey(),
-				properties.getSecretKey()
-			)))
-			.httpClientBuilder(ApacheHttpClient.builder())
+			.credentialsProvider(credentials(properties))
+			.httpClientBuilder(ApacheHttpClient.builder()
+				.maxConnections(properties.getMaxConnections())
+				.connectionAcquisitionTimeout(properties.getConnectionAcquisitionTimeout()))
 			.serviceConfiguration(serviceConfig.build());
 
-		if (properties.getEndpoint() != null) {
-			builder = builder.endpointOverride(properties.getEndpoint());
+		if (endpoint != null) {
+			builder = builder.endpointOverride(endpoint);
+		}
+		if (limiter != null || tracker != null) {
+			// an interceptor sees every operation, paginators included, without wrapping each call site
+			ClientOverrideConfiguration.Builder override = ClientOverrideConfiguration.builder();
+			if (limiter != null) {
+				override.addExecutionInterceptor(new ConcurrencyLimitingInterceptor(name, limiter, properties.getConnectionAcquisitionTimeout()));
+			}
+			// after the limiter, so a call it turns away never counts against the gateway
+			if (tracker != null) {
+				override.addExecutionInterceptor(tracker);
+			}
+			builder = builder.overrideConfiguration(override.build());
+		}
+
+		return builder.build();
+	}
+
+	private S3Presigner buildPresigner(S3SourceProperties properties) {
+		S3Presigner.Builder builder = S3Presigner.builder()
+			.region(Region.of(properties.getRegion()))
+			.credentialsProvider(credentials(properties))
+			.serviceConfiguration(S3Configuration.builder()
+				.pathStyleAccessEnabled(properties.isPathStyleAccess())
+				.build());
+
+		// browsers follow the signed URL themselves, so it must name a host they can reach
+		URI endpoint = properties.getPublicEndpoint() != null ? properties.getPublicEndpoint() : properties.getEndpoint();
+		if (endpoint == null && !properties.getEndpoints().isEmpty()) {
+			endpoint = properties.getEndpoints().getFirst();
+		}
+		if (endpoint != null) {
+			builder = builder.endpointOverride(endpoint);
 		}
 
 		return builder.build();
 	}
 
+	private static StaticCredentialsProvider credentials(S3SourceProperties properties) {
+		return StaticCredentialsProvider.create(AwsBasicCredentials.create(
+			properties.getAccessKey(),
+			properties.getSecretKey()
+		));
+	}
+
 	public List<S3Source> getSources() {
 		return List.copyOf(sources.values());
 	}
@@ -146,7 +253,51 @@ public class S3SourceManager {
 		return sources.containsKey(name);
 	}
 
-	public record S3Source(String name, String displayName, S3SourceProperties properties, S3Client client) {
+	public Optional<AdaptiveConcurrencyLimiter> limiter(String name) {
+		return Optional.ofNullable(limiters.get(name));
+	}
+
+	public Optional<EndpointBalancer> balancer(String name) {
+		return Optional.ofNullable(balancers.get(name));
+	}
+
+	boolean isClientInitialized(String name) {
+		S3Source source = sources.get(name);
+		if (source != null && source.clientSupplier() instanceof EndpointBalancer balancer) {
+			return balancer.isInitialized();
+		}
+		return source != null && (!(source.clientSupplier() instanceof LazyS3Client<?> lazy) || lazy.isInitialized());
+	}
+
+	public record S3Source(
+		String name,
+		String displayName,
+		S3SourceProperties properties,
+		Supplier<S3Client> clientSupplier,
+		Supplier<S3Presigner> presignerSupplier
+	) {
+		public S3Source(String name, String displayName, S3SourceProperties properties, S3Client client) {
+			this(name, displayName, properties, () -> client, () -> {
+				throw new IllegalStateException("Storage source '%s' cannot presign requests".formatted(name));
+			});
+		}
+
+		public S3Source(String name, String displayName, S3SourceProperties properties, S3Client client, S3Presigner presigner) {
+			this(name, displayName, properties, () -> client, () -> presigner);
+		}
+
+		public S3Client client() {
+			return clientSupplier.get();
+		}
+
+		public S3Presigner presigner() {
+			return presignerSupplier.get();
+		}
+
+		public boolean redirectsDownloads() {
+			return properties.getDownloadMode() == S3SourceProperties.DownloadMode.REDIRECT;
+		}
+
 		public String defaultBucket() {
 			return properties.getDefaultBucket();
 		}
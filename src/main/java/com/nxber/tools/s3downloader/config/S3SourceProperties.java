@@ -1,7 +1,14 @@
 package com.nxber.tools.s3downloader.config;
 
 import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 
 public class S3SourceProperties {
@@ -10,6 +17,9 @@ public class S3SourceProperties {
 
 	private URI endpoint;
 
+	// several gateways of one cluster; when set, calls are spread across them instead of going to endpoint
+	private List<URI> endpoints = new ArrayList<>();
+
 	private boolean pathStyleAccess = true;
 
 	@NotBlank
@@ -23,6 +33,28 @@ public class S3SourceProperties {
 
 	private String displayName;
 
+	private String inventoryManifest;
+
+	@Min(1)
+	private int maxConnections = 64;
+
+	@Min(1)
+	private int maxConcurrentStreams = 48;
+
+	private Duration connectionAcquisitionTimeout = Duration.ofSeconds(10);
+
+	private DownloadMode downloadMode = DownloadMode.PROXY;
+
+	private Duration presignTtl = Duration.ofMinutes(5);
+
+	private URI publicEndpoint;
+
+	@Valid
+	private final Concurrency concurrency = new Concurrency();
+
+	@Valid
+	private final Balancing balancing = new Balancing();
+
 	public String getRegion() {
 		return region;
 	}
@@ -39,6 +71,14 @@ public class S3SourceProperties {
 		this.endpoint = endpoint;
 	}
 
+	public List<URI> getEndpoints() {
+		return endpoints;
+	}
+
+	public void setEndpoints(List<URI> endpoints) {
+		this.endpoints = endpoints;
+	}
+
 	public boolean isPathStyleAccess() {
 		return pathStyleAccess;
 	}
@@ -78,4 +118,182 @@ public class S3SourceProperties {
 	public void setDisplayName(String displayName) {
 		this.displayName = displayName;
 	}
+
+	public String getInventoryManifest() {
+		return inventoryManifest;
+	}
+
+	public void setInventoryManifest(String inventoryManifest) {
+		this.inventoryManifest = inventoryManifest;
+	}
+
+	public int getMaxConnections() {
+		return maxConnections;
+	}
+
+	public void setMaxConnections(int maxConnections) {
+		this.maxConnections = maxConnections;
+	}
+
+	public int getMaxConcurrentStreams() {
+		return maxConcurrentStreams;
+	}
+
+	public void setMaxConcurrentStreams(int maxConcurrentStreams) {
+		this.maxConcurrentStreams = maxConcurrentStreams;
+	}
+
+	public Duration getConnectionAcquisitionTimeout() {
+		return connectionAcquisitionTimeout;
+	}
+
+	public void setConnectionAcquisitionTimeout(Duration connectionAcquisitionTimeout) {
+		this.connectionAcquisitionTimeout = connectionAcquisitionTimeout;
+	}
+
+	public DownloadMode getDownloadMode() {
+		return downloadMode;
+	}
+
+	public void setDownloadMode(DownloadMode downloadMode) {
+		this.downloadMode = downloadMode;
+	}
+
+	public Duration getPresignTtl() {
+		return presignTtl;
+	}
+
+	public void setPresignTtl(Duration presignTtl) {
+		this.presignTtl = presignTtl;
+	}
+
+	public URI getPublicEndpoint() {
+		return publicEndpoint;
+	}
+
+	public void setPublicEndpoint(URI publicEndpoint) {
+		this.publicEndpoint = publicEndpoint;
+	}
+
+	public Concurrency getConcurrency() {
+		return concurrency;
+	}
+
+	public Balancing getBalancing() {
+		return balancing;
+	}
+
+	public enum DownloadMode {
+		// object bytes flow through this server
+		PROXY,
+		// clients are sent to a short-lived signed URL and pull from storage directly
+		REDIRECT
+	}
+
+	public static class Concurrency {
+		private boolean adaptive;
+
+		@Min(1)
+		private int initialLimit = 16;
+
+		@Min(1)
+		private int minLimit = 2;
+
+		@Min(1)
+		private int maxLimit = 64;
+
+		@DecimalMin("0.1")
+		@DecimalMax("0.95")
+		private double backoffRatio = 0.5;
+
+		@DecimalMin("1.1")
+		private double latencyTolerance = 2.0;
+
+		public boolean isAdaptive() {
+			return adaptive;
+		}
+
+		public void setAdaptive(boolean adaptive) {
+			this.adaptive = adaptive;
+		}
+
+		public int getInitialLimit() {
+			return initialLimit;
+		}
+
+		public void setInitialLimit(int initialLimit) {
+			this.initialLimit = initialLimit;
+		}
+
+		public int getMinLimit() {
+			return minLimit;
+		}
+
+		public void setMinLimit(int minLimit) {
+			this.minLimit = minLimit;
+		}
+
+		public int getMaxLimit() {
+			return maxLimit;
+		}
+
+		public void setMaxLimit(int maxLimit) {
+			this.maxLimit = maxLimit;
+		}
+
+		public double getBackoffRatio() {
+			return backoffRatio;
+		}
+
+		public void setBackoffRatio(double backoffRatio) {
+			this.backoffRatio = backoffRatio;
+		}
+
+		public double getLatencyTolerance() {
+			return latencyTolerance;
+		}
+
+		public void setLatencyTolerance(double latencyTolerance) {
+			this.latencyTolerance = latencyTolerance;
+		}
+	}
+
+	public static class Balancing {
+		private Strategy strategy = Strategy.POWER_OF_TWO_CHOICES;
+
+		// consecutive connection errors or 5xx answers after which a gateway is taken out of rotation
+		@Min(1)
+		private int failureThreshold = 3;
+
+		private Duration ejectionTime = Duration.ofSeconds(30);
+
+		public Strategy getStrategy() {
+			return strategy;
+		}
+
+		public void setStrategy(Strategy strategy) {
+			this.strategy = strategy;
+		}
+
+		public int getFailureThreshold() {
+			return failureThreshold;
+		}
+
+		public void setFailureThreshold(int failureThreshold) {
+			this.failureThreshold = failureThreshold;
+		}
+
+		public Duration getEjectionTime() {
+			return ejectionTime;
+		}
+
+		public void setEjectionTime(Duration ejectionTime) {
+			this.ejectionTime = ejectionTime;
+		}
+
+		public enum Strategy {
+			LEAST_OUTSTANDING,
+			POWER_OF_TWO_CHOICES
+		}
+	}
 }
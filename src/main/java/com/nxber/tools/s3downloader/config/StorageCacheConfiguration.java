@@ -0,0 +1,31 @@
+package com.nxber.tools.s3downloader.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.nxber.tools.s3downloader.cache.LocalStorageCache;
+import com.nxber.tools.s3downloader.cache.PeerStorageCache;
+
+@Configuration
+public class StorageCacheConfiguration {
+	@Bean
+	@ConditionalOnProperty(prefix = "storage.s3.cache", name = "backend", havingValue = "local", matchIfMissing = true)
+	public LocalStorageCache localStorageCache(S3ClientProperties properties) {
+		return new LocalStorageCache(properties.getCache().getMaxEntries());
+	}
+
+	@Bean
+	@ConditionalOnProperty(prefix = "storage.s3.cache", name = "backend", havingValue = "peer")
+	public PeerStorageCache peerStorageCache(S3ClientProperties properties) {
+		S3ClientProperties.Cache cache = properties.getCache();
+		return new PeerStorageCache(
+			new LocalStorageCache(cache.getMaxEntries()),
+			cache.getPeers(),
+			cache.getSelfUrl(),
+			cache.getVirtualNodes(),
+			cache.getTimeout(),
+			cache.getToken()
+		);
+	}
+}
@@ -0,0 +1,28 @@
+package com.nxber.tools.s3downloader.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.nxber.tools.s3downloader.web.support.RequestScopeInterceptor;
+
+@Configuration
+public class WebConfiguration implements WebMvcConfigurer {
+	private final RequestScopeInterceptor requestScopeInterceptor;
+
+	public WebConfiguration(RequestScopeInterceptor requestScopeInterceptor) {
+		this.requestScopeInterceptor = requestScopeInterceptor;
+	}
+
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		registry.addInterceptor(requestScopeInterceptor);
+	}
+
+	@Override
+	public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+		// streamed bodies run as callables, so this is where their scope follows them onto the writing thread
+		configurer.registerCallableInterceptors(requestScopeInterceptor);
+	}
+}
@@ -0,0 +1,38 @@
+package com.nxber.tools.s3downloader.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.nxber.s3downloader.FolderStatsScan")
+@Label("S3 Folder Stats Scan")
+@Description("One partition of a folder size scan, listing every object below a run of sibling folders")
+@Category({"S3 Downloader", "Storage"})
+@StackTrace(false)
+public final class FolderStatsScanEvent extends Event {
+	@Label("Source")
+	public String source;
+
+	@Label("Bucket")
+	public String bucket;
+
+	@Label("Prefix")
+	public String prefix;
+
+	@Label("Folders")
+	public int folders;
+
+	@Label("Pages")
+	public int pages;
+
+	@Label("Objects")
+	public long objects;
+
+	@Label("Bytes")
+	@DataAmount
+	public long bytes;
+}
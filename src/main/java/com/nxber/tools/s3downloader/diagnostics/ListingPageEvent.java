@@ -0,0 +1,34 @@
+package com.nxber.tools.s3downloader.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.nxber.s3downloader.ListingPage")
+@Label("S3 Listing Page")
+@Description("One page of a browse listing, served from the shared cache, a speculative prefetch or S3 itself")
+@Category({"S3 Downloader", "Storage"})
+@StackTrace(false)
+public final class ListingPageEvent extends Event {
+	@Label("Source")
+	public String source;
+
+	@Label("Bucket")
+	public String bucket;
+
+	@Label("Prefix")
+	public String prefix;
+
+	@Label("Entries")
+	public int entries;
+
+	@Label("Truncated")
+	public boolean truncated;
+
+	@Label("Origin")
+	@Description("Where the page came from: cache, prefetch or storage")
+	public String origin;
+}
@@ -0,0 +1,41 @@
+package com.nxber.tools.s3downloader.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("com.nxber.s3downloader.ObjectOpen")
+@Label("S3 Object Open")
+@Description("A GET from asking for a stream slot until the response headers arrive, which is the time to first byte")
+@Category({"S3 Downloader", "Storage"})
+@StackTrace(false)
+public final class ObjectOpenEvent extends Event {
+	@Label("Source")
+	public String source;
+
+	@Label("Bucket")
+	public String bucket;
+
+	@Label("Key")
+	public String key;
+
+	@Label("Range")
+	public String range;
+
+	@Label("Queue Time")
+	@Description("Time spent waiting for a stream slot before the request went out")
+	@Timespan(Timespan.NANOSECONDS)
+	public long queueTime;
+
+	@Label("Content Length")
+	@DataAmount
+	public long contentLength;
+
+	@Label("Succeeded")
+	public boolean succeeded;
+}
@@ -0,0 +1,46 @@
+package com.nxber.tools.s3downloader.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.nxber.s3downloader.Transfer")
+@Label("Transfer")
+@Description("A download or archive streamed to a client, from the start of its body until the response ends")
+@Category({"S3 Downloader", "Transfers"})
+@StackTrace(false)
+public final class TransferEvent extends Event {
+	@Label("Kind")
+	public String kind;
+
+	@Label("Source")
+	public String source;
+
+	@Label("Bucket")
+	public String bucket;
+
+	@Label("Description")
+	public String description;
+
+	@Label("Client")
+	public String client;
+
+	@Label("Entries")
+	public int entries;
+
+	@Label("Object Bytes")
+	@DataAmount
+	public long objectBytes;
+
+	@Label("Bytes Sent")
+	@Description("Bytes that reached the client, after any compression")
+	@DataAmount
+	public long bytesSent;
+
+	@Label("Cancelled")
+	public boolean cancelled;
+}
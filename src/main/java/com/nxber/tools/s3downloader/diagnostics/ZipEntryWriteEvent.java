@@ -0,0 +1,33 @@
+package com.nxber.tools.s3downloader.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.nxber.s3downloader.ZipEntryWrite")
+@Label("Zip Entry Write")
+@Description("One object read from S3 and written into a streamed zip archive")
+@Category({"S3 Downloader", "Transfers"})
+@StackTrace(false)
+public final class ZipEntryWriteEvent extends Event {
+	@Label("Source")
+	public String source;
+
+	@Label("Bucket")
+	public String bucket;
+
+	@Label("Key")
+	public String key;
+
+	@Label("Bytes")
+	@Description("Object bytes written into the entry, before compression")
+	@DataAmount
+	public long bytes;
+
+	@Label("Compressed")
+	public boolean compressed;
+}
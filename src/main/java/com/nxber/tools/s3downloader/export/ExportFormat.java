@@ -0,0 +1,22 @@
+package com.nxber.tools.s3downloader.export;
+
+public enum ExportFormat {
+	CSV("csv", "text/csv"),
+	CSV_GZIP("csv.gz", "application/gzip");
+
+	private final String extension;
+	private final String contentType;
+
+	ExportFormat(String extension, String contentType) {
+		this.extension = extension;
+		this.contentType = contentType;
+	}
+
+	public String extension() {
+		return extension;
+	}
+
+	public String contentType() {
+		return contentType;
+	}
+}
@@ -0,0 +1,149 @@
+package com.nxber.tools.s3downloader.export;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public final class ExportJob {
+	private final String id;
+	private final String sourceName;
+	private final String bucket;
+	private final String prefix;
+	private final ExportFormat format;
+	private final Path directory;
+	private final Instant startedAt;
+	private final AtomicLong objectCount = new AtomicLong();
+	private final AtomicLong totalBytes = new AtomicLong();
+	private final AtomicInteger completedRanges = new AtomicInteger();
+	private volatile int rangeCount;
+	private volatile State state = State.PLANNING;
+	private volatile Instant finishedAt;
+	private volatile String failure;
+
+	ExportJob(String id, String sourceName, String bucket, String prefix, ExportFormat format, Path directory, Instant startedAt) {
+		this.id = id;
+		this.sourceName = sourceName;
+		this.bucket = bucket;
+		this.prefix = prefix;
+		this.format = format;
+		this.directory = directory;
+		this.startedAt = startedAt;
+	}
+
+	public String id() {
+		return id;
+	}
+
+	public String sourceName() {
+		return sourceName;
+	}
+
+	public String bucket() {
+		return bucket;
+	}
+
+	public String prefix() {
+		return prefix;
+	}
+
+	public ExportFormat format() {
+		return format;
+	}
+
+	public Instant startedAt() {
+		return startedAt;
+	}
+
+	public Instant finishedAt() {
+		return finishedAt;
+	}
+
+	public State state() {
+		return state;
+	}
+
+	public String failure() {
+		return failure;
+	}
+
+	public long objectCount() {
+		return objectCount.get();
+	}
+
+	public long totalBytes() {
+		return totalBytes.get();
+	}
+
+	public int rangeCount() {
+		return rangeCount;
+	}
+
+	public int completedRanges() {
+		return completedRanges.get();
+	}
+
+	public long objectsPerSecond() {
+		Instant end = finishedAt != null ? finishedAt : Instant.now();
+		long millis = Math.max(1L, Duration.between(startedAt, end).toMillis());
+		return objectCount.get() * 1000L / millis;
+	}
+
+	public String fileName() {
+		return "listing-" + bucket + "-" + id + "." + format.extension();
+	}
+
+	Path directory() {
+		return directory;
+	}
+
+	Path partPath(int index) {
+		return directory.resolve("part-%05d.%s".formatted(index, format.extension()));
+	}
+
+	long fileBytes() throws IOException {
+		long size = 0L;
+		for (int index = 0; index < rangeCount; index++) {
+			Path part = partPath(index);
+			if (Files.exists(part)) {
+				size += Files.size(part);
+			}
+		}
+		return size;
+	}
+
+	void planned(int ranges) {
+		this.rangeCount = ranges;
+		this.state = State.RUNNING;
+	}
+
+	void recordPage(long objects, long bytes) {
+		objectCount.addAndGet(objects);
+		totalBytes.addAndGet(bytes);
+	}
+
+	void rangeCompleted() {
+		completedRanges.incrementAndGet();
+	}
+
+	void completed(Instant at) {
+		this.finishedAt = at;
+		this.state = State.COMPLETED;
+	}
+
+	void failed(Instant at, String message) {
+		this.finishedAt = at;
+		this.failure = message;
+		this.state = State.FAILED;
+	}
+
+	public enum State {
+		PLANNING,
+		RUNNING,
+		COMPLETED,
+		FAILED
+	}
+}
@@ -0,0 +1,10 @@
+package com.nxber.tools.s3downloader.export;
+
+import com.nxber.tools.s3downloader.storage.KeyOrder;
+
+// keys strictly after startAfter up to and including endInclusive; a null bound is open
+record KeyRange(String startAfter, String endInclusive) {
+	boolean endsBefore(String key) {
+		return endInclusive != null && KeyOrder.compare(key, endInclusive) > 0;
+	}
+}
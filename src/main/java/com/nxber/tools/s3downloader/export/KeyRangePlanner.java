@@ -0,0 +1,92 @@
+package com.nxber.tools.s3downloader.export;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+import com.nxber.tools.s3downloader.storage.KeyOrder;
+
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CommonPrefix;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+
+// splits the key space below a prefix into contiguous ranges that can be listed independently
+final class KeyRangePlanner {
+	// split points for a level too large to discover from one page, covering the usual key alphabets
+	private static final String FALLBACK_SPLITS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+
+	private final S3Client client;
+	private final String bucket;
+	private final int targetRanges;
+	private final int maxDepth;
+
+	KeyRangePlanner(S3Client client, String bucket, int targetRanges, int maxDepth) {
+		this.client = client;
+		this.bucket = bucket;
+		this.targetRanges = Math.max(1, targetRanges);
+		this.maxDepth = maxDepth;
+	}
+
+	List<KeyRange> plan(String prefix) {
+		NavigableSet<String> splitPoints = new TreeSet<>(KeyOrder.UTF8);
+		// breadth first, so every top-level folder is split before any of them is split further
+		Deque<String> levels = new ArrayDeque<>();
+		levels.add(prefix);
+		int depth = 0;
+		while (!levels.isEmpty() && splitPoints.size() < targetRanges && depth <= maxDepth) {
+			Deque<String> nextLevels = new ArrayDeque<>();
+			while (!levels.isEmpty() && splitPoints.size() < targetRanges) {
+				nextLevels.addAll(discover(levels.poll(), splitPoints));
+			}
+			levels = nextLevels;
+			depth++;
+		}
+
+		// any ordered set of split points covers every key exactly once, so thinning only changes how evenly work spreads
+		List<String> points = new ArrayList<>(splitPoints);
+		if (points.size() >= targetRanges) {
+			List<String> thinned = new ArrayList<>(targetRanges - 1);
+			for (int index = 1; index < targetRanges; index++) {
+				thinned.add(points.get((int) ((long) index * points.size() / targetRanges)));
+			}
+			points = thinned;
+		}
+
+		List<KeyRange> ranges = new ArrayList<>(points.size() + 1);
+		String lower = null;
+		for (String point : points) {
+			ranges.add(new KeyRange(lower, point));
+			lower = point;
+		}
+		ranges.add(new KeyRange(lower, null));
+		return ranges;
+	}
+
+	// records the split points of one level and returns the folders worth descending into
+	private List<String> discover(String levelPrefix, NavigableSet<String> splitPoints) {
+		ListObjectsV2Response response = client.listObjectsV2(ListObjectsV2Request.builder()
+			.bucket(bucket)
+			.prefix(levelPrefix)
+			.delimiter("/")
+			.maxKeys(1000)
+			.build());
+
+		List<String> children = response.commonPrefixes().stream()
+			.map(CommonPrefix::prefix)
+			.toList();
+		splitPoints.addAll(children);
+
+		if (Boolean.TRUE.equals(response.isTruncated())) {
+			// paging through a huge flat level here would cost as much as the export itself
+			for (int index = 0; index < FALLBACK_SPLITS.length(); index++) {
+				splitPoints.add(levelPrefix + FALLBACK_SPLITS.charAt(index));
+			}
+			return List.of();
+		}
+		return children;
+	}
+}
@@ -0,0 +1,249 @@
+package com.nxber.tools.s3downloader.export;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import com.nxber.tools.s3downloader.config.ExecutorConfiguration;
+import com.nxber.tools.s3downloader.config.S3ClientProperties;
+import com.nxber.tools.s3downloader.config.S3SourceManager;
+import com.nxber.tools.s3downloader.config.S3SourceManager.S3Source;
+
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+@Service
+public class ListingExportService {
+	private static final Logger log = LoggerFactory.getLogger(ListingExportService.class);
+	private static final String HEADER = "key,size,last_modified,etag,storage_class\n";
+
+	private final S3SourceManager sourceManager;
+	private final S3ClientProperties.Export settings;
+	private final Executor executor;
+	private final Clock clock;
+	private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+
+	@Autowired
+	public ListingExportService(S3SourceManager sourceManager, S3ClientProperties properties, @Qualifier(ExecutorConfiguration.EXPORT_EXECUTOR) Executor executor) {
+		this(sourceManager, properties, executor, Clock.systemUTC());
+	}
+
+	ListingExportService(S3SourceManager sourceManager, S3ClientProperties properties, Executor executor, Clock clock) {
+		this.sourceManager = sourceManager;
+		this.settings = properties.getExport();
+		this.executor = executor;
+		this.clock = clock;
+	}
+
+	public ExportJob start(String sourceName, String bucket, String prefix, ExportFormat format) throws IOException {
+		S3Source source = sourceManager.resolve(sourceName);
+		String effectiveBucket = StringUtils.hasText(bucket) ? bucket : source.defaultBucket();
+		String effectivePrefix = prefix != null ? prefix.trim() : "";
+		String id = UUID.randomUUID().toString();
+		Path directory = Files.createDirectories(settings.getDirectory().resolve(id));
+		ExportJob job = new ExportJob(id, source.name(), effectiveBucket, effectivePrefix, format, directory, clock.instant());
+		jobs.put(id, job);
+
+		CompletableFuture
+			.supplyAsync(() -> new KeyRangePlanner(source.client(), effectiveBucket, settings.getPartitions(), settings.getDiscoveryDepth()).plan(effectivePrefix), executor)
+			.thenCompose(ranges -> exportRanges(source, job, ranges))
+			.whenComplete((ignored, failure) -> finish(job, failure));
+		return job;
+	}
+
+	public List<ExportJob> jobs() {
+		return jobs.values().stream()
+			.sorted(Comparator.comparing(ExportJob::startedAt).reversed())
+			.toList();
+	}
+
+	public Optional<ExportJob> find(String id) {
+		return Optional.ofNullable(jobs.get(id));
+	}
+
+	// the parts are written in key order and gzip allows concatenated members, so the export is the parts back to back
+	public void writeTo(ExportJob job, OutputStream outputStream) throws IOException {
+		if (job.state() != ExportJob.State.COMPLETED) {
+			throw new IllegalStateException("Export '%s' has not completed".formatted(job.id()));
+		}
+		for (int index = 0; index < job.rangeCount(); index++) {
+			Files.copy(job.partPath(index), outputStream);
+		}
+	}
+
+	public void delete(String id) throws IOException {
+		ExportJob job = jobs.get(id);
+		if (job == null) {
+			return;
+		}
+		if (job.state() == ExportJob.State.PLANNING || job.state() == ExportJob.State.RUNNING) {
+			throw new IllegalStateException("Export '%s' is still running".formatted(id));
+		}
+		jobs.remove(id);
+		deleteParts(job);
+	}
+
+	private CompletableFuture<Void> exportRanges(S3Source source, ExportJob job, List<KeyRange> ranges) {
+		job.planned(ranges.size());
+		log.info("Exporting '{}' in bucket '{}' of source '{}' as {} key ranges", job.prefix(), job.bucket(), source.name(), ranges.size());
+
+		// a fixed set of workers drains the ranges in order, so a few dense ranges do not leave the others idle
+		AtomicInteger nextRange = new AtomicInteger();
+		int workerCount = Math.min(Math.max(1, settings.getParallelism()), ranges.size());
+		CompletableFuture<?>[] workers = new CompletableFuture<?>[workerCount];
+		for (int worker = 0; worker < workerCount; worker++) {
+			workers[worker] = CompletableFuture.runAsync(() -> {
+				int index;
+				while (job.state() == ExportJob.State.RUNNING && (index = nextRange.getAndIncrement()) < ranges.size()) {
+					try {
+						exportRange(source, job, ranges.get(index), index);
+					} catch (RuntimeException exception) {
+						// stops the other workers at their next range instead of letting them finish a doomed export
+						job.failed(clock.instant(), exception.getMessage());
+						throw exception;
+					}
+					job.rangeCompleted();
+				}
+			}, executor);
+		}
+		return CompletableFuture.allOf(workers);
+	}
+
+	private void exportRange(S3Source source, ExportJob job, KeyRange range, int index) {
+		try (Writer writer = openPart(job, index)) {
+			if (index == 0) {
+				writer.write(HEADER);
+			}
+			String continuationToken = null;
+			while (true) {
+				ListObjectsV2Request.Builder requestBuilder = ListObjectsV2Request.builder()
+					.bucket(job.bucket())
+					.prefix(job.prefix())
+					.maxKeys(1000);
+				if (StringUtils.hasText(continuationToken)) {
+					requestBuilder = requestBuilder.continuationToken(continuationToken);
+				} else if (range.startAfter() != null) {
+					requestBuilder = requestBuilder.startAfter(range.startAfter());
+				}
+				ListObjectsV2Response response = source.client().listObjectsV2(requestBuilder.build());
+
+				long objects = 0L;
+				long bytes = 0L;
+				boolean reachedEnd = false;
+				for (S3Object object : response.contents()) {
+					if (range.endsBefore(object.key())) {
+						reachedEnd = true;
+						break;
+					}
+					writeRow(writer, object);
+					objects++;
+					bytes += object.size() != null ? object.size() : 0L;
+				}
+				job.recordPage(objects, bytes);
+
+				if (reachedEnd || !Boolean.TRUE.equals(response.isTruncated())) {
+					return;
+				}
+				String nextContinuationToken = response.nextContinuationToken();
+				if (!StringUtils.hasText(nextContinuationToken) || nextContinuationToken.equals(continuationToken)) {
+					return;
+				}
+				continuationToken = nextContinuationToken;
+			}
+		} catch (IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+	}
+
+	private Writer openPart(ExportJob job, int index) throws IOException {
+		OutputStream output = Files.newOutputStream(job.partPath(index));
+		if (job.format() == ExportFormat.CSV_GZIP) {
+			output = new GZIPOutputStream(output, 64 * 1024);
+		}
+		return new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), 64 * 1024);
+	}
+
+	private void finish(ExportJob job, Throwable failure) {
+		if (failure == null) {
+			job.completed(clock.instant());
+			log.info("Exported {} objects from '{}' in bucket '{}' at {} objects/s", job.objectCount(), job.prefix(), job.bucket(), job.objectsPerSecond());
+			return;
+		}
+		Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+		if (job.state() != ExportJob.State.FAILED) {
+			job.failed(clock.instant(), cause.getMessage());
+		}
+		log.warn("Export of '{}' in bucket '{}' failed", job.prefix(), job.bucket(), cause);
+		try {
+			deleteParts(job);
+		} catch (IOException exception) {
+			log.debug("Removing parts of failed export '{}' failed", job.id(), exception);
+		}
+	}
+
+	private static void deleteParts(ExportJob job) throws IOException {
+		if (!Files.isDirectory(job.directory())) {
+			return;
+		}
+		try (Stream<Path> parts = Files.list(job.directory())) {
+			for (Path part : parts.toList()) {
+				Files.deleteIfExists(part);
+			}
+		}
+		Files.deleteIfExists(job.directory());
+	}
+
+	private static void writeRow(Writer writer, S3Object object) throws IOException {
+		writer.write(csvField(object.key()));
+		writer.write(',');
+		writer.write(String.valueOf(object.size() != null ? object.size() : 0L));
+		writer.write(',');
+		if (object.lastModified() != null) {
+			writer.write(object.lastModified().toString());
+		}
+		writer.write(',');
+		if (object.eTag() != null) {
+			// inventory reports carry the ETag without its quotes, so exports do the same
+			writer.write(csvField(object.eTag().replace("\"", "")));
+		}
+		writer.write(',');
+		if (object.storageClassAsString() != null) {
+			writer.write(object.storageClassAsString());
+		}
+		writer.write('\n');
+	}
+
+	private static String csvField(String value) {
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+			return value;
+		}
+		return '"' + value.replace("\"", "\"\"") + '"';
+	}
+}
@@ -0,0 +1,118 @@
+package com.nxber.tools.s3downloader.inventory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+class InventoryCsvReader {
+	private final int keyColumn;
+	private final int sizeColumn;
+	private final int lastModifiedColumn;
+	private final int latestColumn;
+	private final int deleteMarkerColumn;
+
+	InventoryCsvReader(List<String> schemaColumns) {
+		this.keyColumn = schemaColumns.indexOf("Key");
+		this.sizeColumn = schemaColumns.indexOf("Size");
+		this.lastModifiedColumn = schemaColumns.indexOf("LastModifiedDate");
+		this.latestColumn = schemaColumns.indexOf("IsLatest");
+		this.deleteMarkerColumn = schemaColumns.indexOf("IsDeleteMarker");
+		if (keyColumn < 0) {
+			throw new IllegalArgumentException("Inventory schema does not contain a Key column");
+		}
+	}
+
+	void read(InputStream compressed, RowConsumer consumer) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(compressed, 64 * 1024), StandardCharsets.UTF_8));
+		String line;
+		while ((line = reader.readLine()) != null) {
+			if (line.isEmpty()) {
+				continue;
+			}
+			List<String> fields = parseLine(line);
+			// versioned inventories list every version; only the current, non-deleted one counts
+			if (hasFlag(fields, latestColumn, "false") || hasFlag(fields, deleteMarkerColumn, "true")) {
+				continue;
+			}
+
+			String key = URLDecoder.decode(field(fields, keyColumn), StandardCharsets.UTF_8);
+			if (key.isEmpty() || key.endsWith("/")) {
+				continue;
+			}
+			consumer.accept(key, parseSize(field(fields, sizeColumn)), parseLastModified(field(fields, lastModifiedColumn)));
+		}
+	}
+
+	static List<String> parseLine(String line) {
+		List<String> fields = new ArrayList<>();
+		StringBuilder current = new StringBuilder();
+		boolean quoted = false;
+		for (int index = 0; index < line.length(); index++) {
+			char character = line.charAt(index);
+			if (quoted) {
+				if (character == '"') {
+					if (index + 1 < line.length() && line.charAt(index + 1) == '"') {
+						current.append('"');
+						index++;
+					} else {
+						quoted = false;
+					}
+				} else {
+					current.append(character);
+				}
+			} else if (character == '"') {
+				quoted = true;
+			} else if (character == ',') {
+				fields.add(current.toString());
+				current.setLength(0);
+			} else {
+				current.append(character);
+			}
+		}
+		fields.add(current.toString());
+		return fields;
+	}
+
+	private String field(List<String> fields, int column) {
+		return column >= 0 && column < fields.size() ? fields.get(column) : "";
+	}
+
+	private boolean hasFlag(List<String> fields, int column, String expected) {
+		return column >= 0 && expected.equalsIgnoreCase(field(fields, column));
+	}
+
+	private long parseSize(String value) {
+		if (value.isEmpty()) {
+			return 0L;
+		}
+		try {
+			return Long.parseLong(value);
+		} catch (NumberFormatException exception) {
+			return 0L;
+		}
+	}
+
+	private long parseLastModified(String value) {
+		if (value.isEmpty()) {
+			return Long.MIN_VALUE;
+		}
+		try {
+			return Instant.parse(value).toEpochMilli();
+		} catch (DateTimeParseException exception) {
+			return Long.MIN_VALUE;
+		}
+	}
+
+	@FunctionalInterface
+	interface RowConsumer {
+		void accept(String key, long size, long lastModifiedMillis);
+	}
+}
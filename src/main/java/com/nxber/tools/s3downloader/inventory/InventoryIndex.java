@@ -0,0 +1,141 @@
+package com.nxber.tools.s3downloader.inventory;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+import com.nxber.tools.s3downloader.service.RequestScope;
+import com.nxber.tools.s3downloader.storage.KeyOrder;
+import com.nxber.tools.s3downloader.storage.StorageFolder;
+import com.nxber.tools.s3downloader.storage.StorageObject;
+
+public class InventoryIndex {
+	private static final int CHECK_INTERVAL = 4096;
+
+	private final String sourceBucket;
+	private final Instant reportCreatedAt;
+	private final List<InventorySegment> segments;
+
+	InventoryIndex(String sourceBucket, Instant reportCreatedAt, List<InventorySegment> segments) {
+		this.sourceBucket = sourceBucket;
+		this.reportCreatedAt = reportCreatedAt;
+		this.segments = List.copyOf(segments);
+	}
+
+	public String sourceBucket() {
+		return sourceBucket;
+	}
+
+	public Instant reportCreatedAt() {
+		return reportCreatedAt;
+	}
+
+	public long objectCount() {
+		return segments.stream().mapToLong(InventorySegment::rowCount).sum();
+	}
+
+	public Summary summarize(String prefix) {
+		byte[] prefixBytes = prefix.getBytes(StandardCharsets.UTF_8);
+		long[] totals = new long[3];
+		totals[2] = Long.MIN_VALUE;
+		for (InventorySegment segment : segments) {
+			segment.scan(prefixBytes, (key, keyLength, size, lastModified) -> {
+				totals[0]++;
+				totals[1] += size;
+				totals[2] = Math.max(totals[2], lastModified);
+				return true;
+			});
+		}
+		return new Summary(totals[0], totals[1], totals[2] == Long.MIN_VALUE ? null : Instant.ofEpochMilli(totals[2]));
+	}
+
+	// the first limit matching children after the given key, folders and objects together in key order; a null after starts at the beginning
+	public Children listChildren(String prefix, Predicate<String> nameMatcher, int limit, String after) {
+		byte[] prefixBytes = prefix.getBytes(StandardCharsets.UTF_8);
+		byte[] afterBytes = after != null ? after.getBytes(StandardCharsets.UTF_8) : null;
+		RequestScope scope = RequestScope.current();
+		int[] visited = new int[1];
+		// segments are only sorted internally, so keep the lowest children seen so far in one bounded map; one extra tells whether more follow
+		TreeMap<String, Object> children = new TreeMap<>(KeyOrder.UTF8);
+		for (InventorySegment segment : segments) {
+			segment.scanChildren(prefixBytes, afterBytes, (key, length, folder, size, lastModified) -> {
+				if (++visited[0] % CHECK_INTERVAL == 0) {
+					scope.checkActive();
+				}
+				String child = new String(key, 0, length, StandardCharsets.UTF_8);
+				// this segment only yields larger keys from here on
+				if (children.size() > limit && KeyOrder.compare(child, children.lastKey()) >= 0) {
+					return false;
+				}
+				String name = child.substring(prefix.length(), folder ? child.length() - 1 : child.length());
+				if (!nameMatcher.test(name) || children.containsKey(child)) {
+					return true;
+				}
+				children.put(child, folder
+					? new StorageFolder(name, child, 0L, null)
+					: new StorageObject(child, name, size, lastModified == Long.MIN_VALUE ? null : Instant.ofEpochMilli(lastModified), null, false));
+				if (children.size() > limit + 1) {
+					children.pollLastEntry();
+				}
+				return true;
+			});
+		}
+
+		String continueAfter = null;
+		if (children.size() > limit) {
+			children.pollLastEntry();
+			continueAfter = children.lastKey();
+		}
+		List<StorageFolder> folders = new ArrayList<>();
+		List<StorageObject> objects = new ArrayList<>();
+		for (Object child : children.values()) {
+			if (child instanceof StorageFolder folder) {
+				folders.add(folder);
+			} else {
+				objects.add((StorageObject) child);
+			}
+		}
+		return new Children(List.copyOf(folders), List.copyOf(objects), continueAfter);
+	}
+
+	// visits every key below the prefix whose file name matches, until the visitor returns false
+	public void findObjects(String prefix, Predicate<String> nameMatcher, Predicate<StorageObject> visitor) {
+		byte[] prefixBytes = prefix.getBytes(StandardCharsets.UTF_8);
+		boolean[] stopped = new boolean[1];
+		for (InventorySegment segment : segments) {
+			segment.scan(prefixBytes, (key, keyLength, size, lastModified) -> {
+				String keyValue = new String(key, 0, keyLength, StandardCharsets.UTF_8);
+				String name = keyValue.substring(keyValue.lastIndexOf('/') + 1);
+				if (name.isEmpty() || !nameMatcher.test(name)) {
+					return true;
+				}
+				stopped[0] = !visitor.test(new StorageObject(
+					keyValue,
+					name,
+					size,
+					lastModified == Long.MIN_VALUE ? null : Instant.ofEpochMilli(lastModified),
+					null,
+					false
+				));
+				return !stopped[0];
+			});
+			if (stopped[0]) {
+				return;
+			}
+		}
+	}
+
+	List<InventorySegment> segments() {
+		return segments;
+	}
+
+	public record Summary(long objectCount, long totalSize, Instant lastModified) {
+	}
+
+	// continueAfter is the last child returned when more follow, and null on the last page
+	public record Children(List<StorageFolder> folders, List<StorageObject> objects, String continueAfter) {
+	}
+}
@@ -0,0 +1,43 @@
+package com.nxber.tools.s3downloader.inventory;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record InventoryManifest(
+	String sourceBucket,
+	String destinationBucket,
+	String fileFormat,
+	String fileSchema,
+	String creationTimestamp,
+	List<DataFile> files
+) {
+	public List<String> schemaColumns() {
+		if (fileSchema == null) {
+			return List.of();
+		}
+		return Arrays.stream(fileSchema.split(","))
+			.map(String::trim)
+			.toList();
+	}
+
+	public String destinationBucketName() {
+		if (destinationBucket == null) {
+			return null;
+		}
+		// manifests reference the destination as an ARN, e.g. arn:aws:s3:::inventory-bucket
+		int separatorIndex = destinationBucket.lastIndexOf(':');
+		return separatorIndex >= 0 ? destinationBucket.substring(separatorIndex + 1) : destinationBucket;
+	}
+
+	@JsonIgnoreProperties(ignoreUnknown = true)
+	public record DataFile(
+		String key,
+		long size,
+		@JsonProperty("MD5checksum") String md5Checksum
+	) {
+	}
+}
@@ -0,0 +1,368 @@
+package com.nxber.tools.s3downloader.inventory;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/*
+ * One ingested inventory data file, stored column by column:
+ *
+ *   header    magic, version, row count, block size, block count
+ *   offsets   start of every key block within the key column
+ *   sizes     one long per row
+ *   modified  one long (epoch millis) per row
+ *   keys      UTF-8 keys in unsigned byte order, front-coded against the previous key and
+ *             restarted at every block boundary so a prefix lookup can binary search the blocks
+ */
+final class InventorySegment {
+	private static final int MAGIC = 0x53334956;
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 20;
+	private static final int BLOCK_SIZE = 128;
+	private static final int MAX_SEGMENT_ROWS = 1_000_000;
+	private static final long MAX_SEGMENT_KEY_BYTES = 64L * 1024 * 1024;
+
+	private final Path path;
+	private final MappedByteBuffer buffer;
+	private final int rowCount;
+	private final int blockSize;
+	private final long[] blockOffsets;
+	private final byte[][] blockFirstKeys;
+	private final int sizesStart;
+	private final int modifiedStart;
+	private final int keysStart;
+
+	private InventorySegment(Path path, MappedByteBuffer buffer) throws IOException {
+		this.path = path;
+		this.buffer = buffer;
+		if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+			throw new IOException("Unrecognized inventory segment '%s'".formatted(path));
+		}
+		this.rowCount = buffer.getInt(8);
+		this.blockSize = buffer.getInt(12);
+		int blockCount = buffer.getInt(16);
+		this.blockOffsets = new long[blockCount];
+		for (int block = 0; block < blockCount; block++) {
+			blockOffsets[block] = buffer.getLong(HEADER_BYTES + block * 8);
+		}
+		this.sizesStart = HEADER_BYTES + blockCount * 8;
+		this.modifiedStart = sizesStart + rowCount * 8;
+		this.keysStart = modifiedStart + rowCount * 8;
+
+		this.blockFirstKeys = new byte[blockCount][];
+		ByteBuffer cursor = buffer.duplicate();
+		for (int block = 0; block < blockCount; block++) {
+			cursor.position(keysStart + (int) blockOffsets[block]);
+			readVarint(cursor);
+			byte[] firstKey = new byte[readVarint(cursor)];
+			cursor.get(firstKey);
+			blockFirstKeys[block] = firstKey;
+		}
+	}
+
+	static InventorySegment open(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Inventory segment '%s' exceeds 2 GB".formatted(path));
+			}
+			return new InventorySegment(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	// a data file larger than one segment continues in <name>-2.seg, <name>-3.seg and so on
+	static List<Path> parts(Path first) {
+		List<Path> parts = new ArrayList<>();
+		if (!Files.exists(first)) {
+			return parts;
+		}
+		parts.add(first);
+		for (Path next = part(first, 2); Files.exists(next); next = part(first, parts.size() + 1)) {
+			parts.add(next);
+		}
+		return parts;
+	}
+
+	private static Path part(Path first, int number) {
+		String fileName = first.getFileName().toString();
+		int extension = fileName.lastIndexOf('.');
+		return first.resolveSibling(fileName.substring(0, extension) + "-" + number + fileName.substring(extension));
+	}
+
+	Path path() {
+		return path;
+	}
+
+	int rowCount() {
+		return rowCount;
+	}
+
+	void scan(byte[] prefix, RowVisitor visitor) {
+		if (rowCount == 0) {
+			return;
+		}
+
+		int block = findStartBlock(prefix);
+		ByteBuffer cursor = buffer.duplicate();
+		cursor.position(keysStart + (int) blockOffsets[block]);
+		byte[] key = new byte[256];
+		for (int row = block * blockSize; row < rowCount; row++) {
+			int shared = readVarint(cursor);
+			int suffixLength = readVarint(cursor);
+			if (shared + suffixLength > key.length) {
+				key = Arrays.copyOf(key, Math.max(key.length * 2, shared + suffixLength));
+			}
+			cursor.get(key, shared, suffixLength);
+			int keyLength = shared + suffixLength;
+
+			if (startsWith(key, keyLength, prefix)) {
+				long size = buffer.getLong(sizesStart + row * 8);
+				long lastModified = buffer.getLong(modifiedStart + row * 8);
+				if (!visitor.visit(key, keyLength, size, lastModified)) {
+					return;
+				}
+			} else if (Arrays.compareUnsigned(key, 0, keyLength, prefix, 0, prefix.length) > 0) {
+				return;
+			}
+		}
+	}
+
+	// visits the direct children of prefix after the given key in order; a folder is reported once, and the rest of its subtree is skipped a block at a time
+	void scanChildren(byte[] prefix, byte[] after, ChildVisitor visitor) {
+		if (rowCount == 0) {
+			return;
+		}
+
+		// keys sort after the resume key, or from it on when it is a folder's upper bound rather than a key already reported
+		byte[] resumeAt = prefix;
+		boolean resumeExclusive = false;
+		if (after != null && Arrays.compareUnsigned(after, prefix) > 0) {
+			boolean folder = after.length > 0 && after[after.length - 1] == '/';
+			resumeAt = folder ? folderEnd(after, after.length) : after;
+			resumeExclusive = !folder;
+		}
+
+		int block = findStartBlock(resumeAt);
+		ByteBuffer cursor = buffer.duplicate();
+		cursor.position(keysStart + (int) blockOffsets[block]);
+		byte[] key = new byte[256];
+		for (int row = block * blockSize; row < rowCount; row++) {
+			int shared = readVarint(cursor);
+			int suffixLength = readVarint(cursor);
+			if (shared + suffixLength > key.length) {
+				key = Arrays.copyOf(key, Math.max(key.length * 2, shared + suffixLength));
+			}
+			cursor.get(key, shared, suffixLength);
+			int keyLength = shared + suffixLength;
+
+			int order = Arrays.compareUnsigned(key, 0, keyLength, resumeAt, 0, resumeAt.length);
+			if (order < 0 || order == 0 && resumeExclusive) {
+				continue;
+			}
+			if (!startsWith(key, keyLength, prefix)) {
+				return;
+			}
+
+			int separator = indexOf(key, prefix.length, keyLength, (byte) '/');
+			if (separator < 0) {
+				long size = buffer.getLong(sizesStart + row * 8);
+				long lastModified = buffer.getLong(modifiedStart + row * 8);
+				if (!visitor.visit(key, keyLength, false, size, lastModified)) {
+					return;
+				}
+				continue;
+			}
+
+			if (!visitor.visit(key, separator + 1, true, 0L, Long.MIN_VALUE)) {
+				return;
+			}
+			resumeAt = folderEnd(key, separator + 1);
+			resumeExclusive = false;
+			int target = findStartBlock(resumeAt);
+			if (target > row / blockSize) {
+				cursor.position(keysStart + (int) blockOffsets[target]);
+				row = target * blockSize - 1;
+			}
+		}
+	}
+
+	// the smallest key past every key below a folder: its trailing '/' raised to the next byte, '0'
+	private static byte[] folderEnd(byte[] folder, int length) {
+		byte[] end = Arrays.copyOf(folder, length);
+		end[length - 1]++;
+		return end;
+	}
+
+	private static int indexOf(byte[] key, int from, int to, byte value) {
+		for (int index = from; index < to; index++) {
+			if (key[index] == value) {
+				return index;
+			}
+		}
+		return -1;
+	}
+
+	private int findStartBlock(byte[] prefix) {
+		int low = 0;
+		int high = blockFirstKeys.length - 1;
+		int candidate = 0;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			if (Arrays.compareUnsigned(blockFirstKeys[middle], prefix) <= 0) {
+				candidate = middle;
+				low = middle + 1;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return candidate;
+	}
+
+	private static boolean startsWith(byte[] key, int keyLength, byte[] prefix) {
+		return keyLength >= prefix.length && Arrays.equals(key, 0, prefix.length, prefix, 0, prefix.length);
+	}
+
+	private static int readVarint(ByteBuffer source) {
+		int value = 0;
+		int shift = 0;
+		byte current;
+		do {
+			current = source.get();
+			value |= (current & 0x7F) << shift;
+			shift += 7;
+		} while ((current & 0x80) != 0);
+		return value;
+	}
+
+	private static void writeVarint(ByteArrayOutputStream target, int value) {
+		while ((value & ~0x7F) != 0) {
+			target.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		target.write(value);
+	}
+
+	@FunctionalInterface
+	interface RowVisitor {
+		boolean visit(byte[] key, int keyLength, long size, long lastModifiedMillis);
+	}
+
+	// for a folder, length ends at its trailing '/'
+	@FunctionalInterface
+	interface ChildVisitor {
+		boolean visit(byte[] key, int length, boolean folder, long size, long lastModifiedMillis);
+	}
+
+	// rows are sorted and written one bounded segment at a time, so memory use and segment size stay fixed however large the data file
+	static final class Writer {
+		private final Path target;
+		private final int maxRows;
+		private final long maxKeyBytes;
+		private final List<Row> rows = new ArrayList<>();
+		private long keyBytes;
+		private int parts;
+
+		Writer(Path target) {
+			this(target, MAX_SEGMENT_ROWS, MAX_SEGMENT_KEY_BYTES);
+		}
+
+		Writer(Path target, int maxRows, long maxKeyBytes) {
+			this.target = target;
+			this.maxRows = maxRows;
+			this.maxKeyBytes = maxKeyBytes;
+		}
+
+		void add(String key, long size, long lastModifiedMillis) {
+			byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+			rows.add(new Row(bytes, size, lastModifiedMillis));
+			keyBytes += bytes.length;
+			if (rows.size() >= maxRows || keyBytes >= maxKeyBytes) {
+				try {
+					flush();
+				} catch (IOException exception) {
+					throw new UncheckedIOException(exception);
+				}
+			}
+		}
+
+		// the first part is moved into place last, so finding it means every part of the data file was written
+		void finish() throws IOException {
+			if (!rows.isEmpty() || parts == 0) {
+				flush();
+			}
+			Files.move(pending(), target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+
+		private Path pending() {
+			return target.resolveSibling(target.getFileName() + ".pending");
+		}
+
+		private void flush() throws IOException {
+			parts++;
+			write(rows, parts == 1 ? pending() : part(target, parts));
+			rows.clear();
+			keyBytes = 0L;
+		}
+
+		private static void write(List<Row> rows, Path destination) throws IOException {
+			rows.sort(Comparator.comparing(Row::key, Arrays::compareUnsigned));
+
+			int blockCount = (rows.size() + BLOCK_SIZE - 1) / BLOCK_SIZE;
+			long[] blockOffsets = new long[blockCount];
+			ByteArrayOutputStream keys = new ByteArrayOutputStream(rows.size() * 16);
+			byte[] previous = new byte[0];
+			for (int row = 0; row < rows.size(); row++) {
+				byte[] key = rows.get(row).key();
+				int shared = 0;
+				if (row % BLOCK_SIZE == 0) {
+					blockOffsets[row / BLOCK_SIZE] = keys.size();
+				} else {
+					int limit = Math.min(previous.length, key.length);
+					while (shared < limit && previous[shared] == key[shared]) {
+						shared++;
+					}
+				}
+				writeVarint(keys, shared);
+				writeVarint(keys, key.length - shared);
+				keys.write(key, shared, key.length - shared);
+				previous = key;
+			}
+
+			Path temporary = destination.resolveSibling(destination.getFileName() + ".tmp");
+			try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 64 * 1024))) {
+				output.writeInt(MAGIC);
+				output.writeInt(VERSION);
+				output.writeInt(rows.size());
+				output.writeInt(BLOCK_SIZE);
+				output.writeInt(blockCount);
+				for (long offset : blockOffsets) {
+					output.writeLong(offset);
+				}
+				for (Row row : rows) {
+					output.writeLong(row.size());
+				}
+				for (Row row : rows) {
+					output.writeLong(row.lastModifiedMillis());
+				}
+				keys.writeTo(output);
+			}
+			Files.move(temporary, destination, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+
+		private record Row(byte[] key, long size, long lastModifiedMillis) {
+		}
+	}
+}
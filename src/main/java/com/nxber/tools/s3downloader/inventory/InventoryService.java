@@ -0,0 +1,258 @@
+package com.nxber.tools.s3downloader.inventory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nxber.tools.s3downloader.config.S3ClientProperties;
+import com.nxber.tools.s3downloader.config.S3SourceManager;
+import com.nxber.tools.s3downloader.config.S3SourceManager.S3Source;
+
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+@Service
+public class InventoryService {
+	private static final Logger log = LoggerFactory.getLogger(InventoryService.class);
+	private static final String S3_SCHEME = "s3://";
+	private static final String MANIFEST_FILE = "manifest.json";
+	private static final String SEGMENT_SUFFIX = ".seg";
+
+	private final S3SourceManager sourceManager;
+	private final S3ClientProperties properties;
+	private final ObjectMapper objectMapper;
+	private final Clock clock;
+	private final Map<IndexKey, InventoryIndex> indexes = new ConcurrentHashMap<>();
+
+	@Autowired
+	public InventoryService(S3SourceManager sourceManager, S3ClientProperties properties, ObjectMapper objectMapper) {
+		this(sourceManager, properties, objectMapper, Clock.systemUTC());
+	}
+
+	InventoryService(S3SourceManager sourceManager, S3ClientProperties properties, ObjectMapper objectMapper, Clock clock) {
+		this.sourceManager = sourceManager;
+		this.properties = properties;
+		this.objectMapper = objectMapper;
+		this.clock = clock;
+	}
+
+	// an index ages between refreshes too, so one that has gone stale stops answering even before the next refresh drops it
+	public Optional<InventoryIndex> findIndex(String sourceName, String bucket) {
+		return Optional.ofNullable(indexes.get(new IndexKey(sourceName, bucket)))
+			.filter(index -> !isStale(index.reportCreatedAt()));
+	}
+
+	@Scheduled(fixedDelayString = "${storage.s3.inventory.refresh-interval:PT6H}")
+	public void refreshAll() {
+		for (S3Source source : sourceManager.getSources()) {
+			if (!StringUtils.hasText(source.properties().getInventoryManifest())) {
+				continue;
+			}
+			try {
+				refresh(source);
+			} catch (IOException | RuntimeException exception) {
+				log.warn("Failed to ingest S3 Inventory for source '{}'", source.name(), exception);
+			}
+		}
+	}
+
+	public InventoryIndex refresh(S3Source source) throws IOException {
+		ManifestLocation location = resolveManifest(source, source.properties().getInventoryManifest().trim());
+		InventoryManifest manifest;
+		try (InputStream manifestStream = location.openManifest()) {
+			manifest = objectMapper.readValue(manifestStream, InventoryManifest.class);
+		}
+		if (!"CSV".equalsIgnoreCase(manifest.fileFormat())) {
+			throw new IllegalStateException("Inventory format '%s' for source '%s' is not supported; configure the inventory report as CSV"
+				.formatted(manifest.fileFormat(), source.name()));
+		}
+
+		IndexKey indexKey = new IndexKey(source.name(), manifest.sourceBucket());
+		Instant createdAt = StringUtils.hasText(manifest.creationTimestamp())
+			? Instant.ofEpochMilli(Long.parseLong(manifest.creationTimestamp()))
+			: clock.instant();
+		if (isStale(createdAt)) {
+			indexes.remove(indexKey);
+			throw new IllegalStateException("Newest inventory report for '%s' in source '%s' was created at %s, which is older than storage.s3.inventory.max-age"
+				.formatted(manifest.sourceBucket(), source.name(), createdAt));
+		}
+		InventoryIndex current = indexes.get(indexKey);
+		if (current != null && current.reportCreatedAt().equals(createdAt)) {
+			return current;
+		}
+
+		Path directory = properties.getInventory().getDirectory().resolve(source.name()).resolve(manifest.sourceBucket());
+		Files.createDirectories(directory);
+
+		InventoryCsvReader reader = new InventoryCsvReader(manifest.schemaColumns());
+		List<InventorySegment> segments = new ArrayList<>();
+		Set<Path> retained = new HashSet<>();
+		for (InventoryManifest.DataFile dataFile : manifest.files()) {
+			Path segmentPath = directory.resolve(segmentName(dataFile) + SEGMENT_SUFFIX);
+			// data files are immutable, so segments written by an earlier, interrupted run are reused as-is
+			if (!Files.exists(segmentPath)) {
+				InventorySegment.Writer writer = new InventorySegment.Writer(segmentPath);
+				try (InputStream dataStream = location.openDataFile(manifest, dataFile)) {
+					reader.read(dataStream, writer::add);
+				}
+				writer.finish();
+			}
+			for (Path part : InventorySegment.parts(segmentPath)) {
+				segments.add(InventorySegment.open(part));
+				retained.add(part);
+			}
+		}
+
+		InventoryIndex index = new InventoryIndex(manifest.sourceBucket(), createdAt, segments);
+		indexes.put(indexKey, index);
+		deleteStaleSegments(directory, retained);
+		log.info("Ingested S3 Inventory for '{}' in source '{}': {} objects from {} data files", manifest.sourceBucket(), source.name(), index.objectCount(), manifest.files().size());
+		return index;
+	}
+
+	private boolean isStale(Instant createdAt) {
+		return createdAt.isBefore(clock.instant().minus(properties.getInventory().getMaxAge()));
+	}
+
+	private void deleteStaleSegments(Path directory, Set<Path> retained) throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			for (Path file : files.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX)).toList()) {
+				if (!retained.contains(file)) {
+					Files.deleteIfExists(file);
+				}
+			}
+		}
+	}
+
+	private String segmentName(InventoryManifest.DataFile dataFile) {
+		if (StringUtils.hasText(dataFile.md5Checksum())) {
+			return dataFile.md5Checksum();
+		}
+		String key = dataFile.key();
+		return key.substring(key.lastIndexOf('/') + 1).replaceAll("[^A-Za-z0-9._-]", "_");
+	}
+
+	private ManifestLocation resolveManifest(S3Source source, String location) throws IOException {
+		if (location.startsWith(S3_SCHEME)) {
+			String remainder = location.substring(S3_SCHEME.length());
+			int separatorIndex = remainder.indexOf('/');
+			String bucket = separatorIndex >= 0 ? remainder.substring(0, separatorIndex) : remainder;
+			String key = separatorIndex >= 0 ? remainder.substring(separatorIndex + 1) : "";
+			if (key.isEmpty() || key.endsWith("/")) {
+				key = findLatestManifestKey(source.client(), bucket, key);
+			}
+			return new S3ManifestLocation(source.client(), bucket, key);
+		}
+
+		Path path = location.startsWith("file:") ? Path.of(URI.create(location)) : Path.of(location);
+		if (Files.isDirectory(path)) {
+			try (Stream<Path> candidates = Files.walk(path, 3)) {
+				path = candidates
+					.filter(candidate -> candidate.getFileName().toString().equals(MANIFEST_FILE))
+					.max(Comparator.comparing(Path::toString))
+					.orElseThrow(() -> new IOException("No %s found below '%s'".formatted(MANIFEST_FILE, location)));
+			}
+		}
+		return new LocalManifestLocation(path);
+	}
+
+	private String findLatestManifestKey(S3Client s3Client, String bucket, String prefix) throws IOException {
+		ListObjectsV2Request request = ListObjectsV2Request.builder()
+			.bucket(bucket)
+			.prefix(prefix)
+			.build();
+		String latest = null;
+		// report folders are named after their creation time, so the newest manifest sorts last
+		for (ListObjectsV2Response response : s3Client.listObjectsV2Paginator(request)) {
+			for (S3Object object : response.contents()) {
+				if (object.key().endsWith("/" + MANIFEST_FILE) && (latest == null || object.key().compareTo(latest) > 0)) {
+					latest = object.key();
+				}
+			}
+		}
+		if (latest == null) {
+			throw new IOException("No %s found below s3://%s/%s".formatted(MANIFEST_FILE, bucket, prefix));
+		}
+		return latest;
+	}
+
+	private record IndexKey(String sourceName, String bucket) {
+	}
+
+	private interface ManifestLocation {
+		InputStream openManifest() throws IOException;
+
+		InputStream openDataFile(InventoryManifest manifest, InventoryManifest.DataFile dataFile) throws IOException;
+	}
+
+	private record S3ManifestLocation(S3Client s3Client, String bucket, String key) implements ManifestLocation {
+		@Override
+		public InputStream openManifest() {
+			return open(bucket, key);
+		}
+
+		@Override
+		public InputStream openDataFile(InventoryManifest manifest, InventoryManifest.DataFile dataFile) {
+			String dataBucket = Optional.ofNullable(manifest.destinationBucketName()).orElse(bucket);
+			return open(dataBucket, dataFile.key());
+		}
+
+		private ResponseInputStream<GetObjectResponse> open(String objectBucket, String objectKey) {
+			return s3Client.getObject(GetObjectRequest.builder()
+				.bucket(objectBucket)
+				.key(objectKey)
+				.build());
+		}
+	}
+
+	private record LocalManifestLocation(Path manifestPath) implements ManifestLocation {
+		@Override
+		public InputStream openManifest() throws IOException {
+			return Files.newInputStream(manifestPath);
+		}
+
+		@Override
+		public InputStream openDataFile(InventoryManifest manifest, InventoryManifest.DataFile dataFile) throws IOException {
+			String fileName = dataFile.key().substring(dataFile.key().lastIndexOf('/') + 1);
+			Path manifestDirectory = manifestPath.toAbsolutePath().getParent();
+			// a copied destination keeps data files in <config>/data next to the dated manifest folders
+			List<Path> candidates = List.of(
+				manifestDirectory.resolve(fileName),
+				manifestDirectory.resolveSibling("data").resolve(fileName),
+				manifestDirectory.resolve("data").resolve(fileName)
+			);
+			for (Path candidate : candidates) {
+				if (Files.isRegularFile(candidate)) {
+					return Files.newInputStream(candidate);
+				}
+			}
+			throw new IOException("Inventory data file '%s' not found next to '%s'".formatted(fileName, manifestPath));
+		}
+	}
+}
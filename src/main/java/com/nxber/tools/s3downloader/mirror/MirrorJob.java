@@ -0,0 +1,158 @@
+package com.nxber.tools.s3downloader.mirror;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+public final class MirrorJob {
+	private final String id;
+	private final String sourceName;
+	private final String bucket;
+	private final String prefix;
+	private final Path target;
+	private final Instant startedAt;
+	private final AtomicLong listedObjects = new AtomicLong();
+	private final AtomicLong copiedObjects = new AtomicLong();
+	private final AtomicLong skippedObjects = new AtomicLong();
+	private final AtomicLong failedObjects = new AtomicLong();
+	private final AtomicLong copiedBytes = new AtomicLong();
+	private final AtomicLong skippedBytes = new AtomicLong();
+	private volatile State state = State.RUNNING;
+	private volatile boolean cancelRequested;
+	private volatile Instant finishedAt;
+	private volatile String failure;
+	private volatile String lastError;
+
+	MirrorJob(String id, String sourceName, String bucket, String prefix, Path target, Instant startedAt) {
+		this.id = id;
+		this.sourceName = sourceName;
+		this.bucket = bucket;
+		this.prefix = prefix;
+		this.target = target;
+		this.startedAt = startedAt;
+	}
+
+	public String id() {
+		return id;
+	}
+
+	public String sourceName() {
+		return sourceName;
+	}
+
+	public String bucket() {
+		return bucket;
+	}
+
+	public String prefix() {
+		return prefix;
+	}
+
+	public Path target() {
+		return target;
+	}
+
+	public Instant startedAt() {
+		return startedAt;
+	}
+
+	public Instant finishedAt() {
+		return finishedAt;
+	}
+
+	public State state() {
+		return state;
+	}
+
+	public String failure() {
+		return failure;
+	}
+
+	public String lastError() {
+		return lastError;
+	}
+
+	public boolean isCancelRequested() {
+		return cancelRequested;
+	}
+
+	public long listedObjects() {
+		return listedObjects.get();
+	}
+
+	public long copiedObjects() {
+		return copiedObjects.get();
+	}
+
+	public long skippedObjects() {
+		return skippedObjects.get();
+	}
+
+	public long failedObjects() {
+		return failedObjects.get();
+	}
+
+	public long copiedBytes() {
+		return copiedBytes.get();
+	}
+
+	public long skippedBytes() {
+		return skippedBytes.get();
+	}
+
+	// only bytes fetched from storage count, so a mostly skipped run shows the rate of what it actually copied
+	public long bytesPerSecond() {
+		Instant end = finishedAt != null ? finishedAt : Instant.now();
+		long millis = Math.max(1L, Duration.between(startedAt, end).toMillis());
+		return copiedBytes.get() * 1000L / millis;
+	}
+
+	boolean isActive() {
+		return state == State.RUNNING && !cancelRequested;
+	}
+
+	void objectListed() {
+		listedObjects.incrementAndGet();
+	}
+
+	void bytesCopied(long bytes) {
+		copiedBytes.addAndGet(bytes);
+	}
+
+	void objectCopied() {
+		copiedObjects.incrementAndGet();
+	}
+
+	void objectSkipped(long bytes) {
+		skippedObjects.incrementAndGet();
+		skippedBytes.addAndGet(bytes);
+	}
+
+	void objectFailed(String message) {
+		failedObjects.incrementAndGet();
+		lastError = message;
+	}
+
+	void requestCancel() {
+		cancelRequested = true;
+	}
+
+	void completed(Instant at) {
+		this.finishedAt = at;
+		this.state = cancelRequested ? State.CANCELLED : State.COMPLETED;
+	}
+
+	void failed(Instant at, String message) {
+		this.finishedAt = at;
+		this.failure = message;
+		this.state = State.FAILED;
+	}
+
+	public enum State {
+		RUNNING,
+		COMPLETED,
+		CANCELLED,
+		FAILED
+	}
+}
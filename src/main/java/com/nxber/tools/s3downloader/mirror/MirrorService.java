@@ -0,0 +1,306 @@
+package com.nxber.tools.s3downloader.mirror;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import com.nxber.tools.s3downloader.config.ExecutorConfiguration;
+import com.nxber.tools.s3downloader.config.S3ClientProperties;
+import com.nxber.tools.s3downloader.config.S3SourceManager;
+import com.nxber.tools.s3downloader.config.S3SourceManager.S3Source;
+import com.nxber.tools.s3downloader.service.ObjectStreamGate;
+
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+@Service
+public class MirrorService {
+	// ETag sidecars and partial downloads live here, so the mirrored tree holds nothing but the objects
+	static final String STATE_DIRECTORY = ".s3-mirror";
+
+	private static final Logger log = LoggerFactory.getLogger(MirrorService.class);
+	private static final long TRANSFER_CHUNK = 8L * 1024 * 1024;
+
+	private final S3SourceManager sourceManager;
+	private final ObjectStreamGate objectStreamGate;
+	private final S3ClientProperties.Mirror settings;
+	private final Executor executor;
+	private final Clock clock;
+	private final Map<String, MirrorJob> jobs = new ConcurrentHashMap<>();
+
+	@Autowired
+	public MirrorService(S3SourceManager sourceManager, ObjectStreamGate objectStreamGate, S3ClientProperties properties, @Qualifier(ExecutorConfiguration.MIRROR_EXECUTOR) Executor executor) {
+		this(sourceManager, objectStreamGate, properties, executor, Clock.systemUTC());
+	}
+
+	MirrorService(S3SourceManager sourceManager, ObjectStreamGate objectStreamGate, S3ClientProperties properties, Executor executor, Clock clock) {
+		this.sourceManager = sourceManager;
+		this.objectStreamGate = objectStreamGate;
+		this.settings = properties.getMirror();
+		this.executor = executor;
+		this.clock = clock;
+	}
+
+	public synchronized MirrorJob start(String sourceName, String bucket, String prefix, String targetName) throws IOException {
+		S3Source source = sourceManager.resolve(sourceName);
+		String effectiveBucket = StringUtils.hasText(bucket) ? bucket : source.defaultBucket();
+		String effectivePrefix = prefix != null ? prefix.trim() : "";
+		Path target = resolveTarget(targetName);
+		// two jobs in one directory would write the same part files
+		if (jobs.values().stream().anyMatch(job -> job.state() == MirrorJob.State.RUNNING && job.target().equals(target))) {
+			throw new IllegalStateException("A mirror into '%s' is already running".formatted(target));
+		}
+		Files.createDirectories(target.resolve(STATE_DIRECTORY));
+
+		MirrorJob job = new MirrorJob(UUID.randomUUID().toString(), source.name(), effectiveBucket, effectivePrefix, target, clock.instant());
+		jobs.put(job.id(), job);
+		log.info("Mirroring '{}' in bucket '{}' of source '{}' to {}", effectivePrefix, effectiveBucket, source.name(), target);
+
+		// a fixed set of workers shares one listing instead of queueing a task per object
+		ObjectFeed feed = new ObjectFeed(source, effectiveBucket, effectivePrefix);
+		CompletableFuture<?>[] workers = new CompletableFuture<?>[settings.getParallelism()];
+		for (int worker = 0; worker < workers.length; worker++) {
+			workers[worker] = CompletableFuture.runAsync(() -> {
+				S3Object object;
+				try {
+					while (job.isActive() && (object = feed.next()) != null) {
+						mirrorObject(source, job, object);
+					}
+				} catch (RuntimeException exception) {
+					// a broken listing stops the other workers at their next object
+					job.failed(clock.instant(), exception.getMessage());
+					throw exception;
+				}
+			}, executor);
+		}
+		CompletableFuture.allOf(workers).whenComplete((ignored, failure) -> finish(job, failure));
+		return job;
+	}
+
+	public List<MirrorJob> jobs() {
+		return jobs.values().stream()
+			.sorted(Comparator.comparing(MirrorJob::startedAt).reversed())
+			.toList();
+	}
+
+	public Optional<MirrorJob> find(String id) {
+		return Optional.ofNullable(jobs.get(id));
+	}
+
+	// copies in flight finish their current chunk and keep their part file, so the next run resumes them
+	public boolean cancel(String id) {
+		MirrorJob job = jobs.get(id);
+		if (job == null || job.state() != MirrorJob.State.RUNNING) {
+			return false;
+		}
+		job.requestCancel();
+		return true;
+	}
+
+	public Path root() {
+		return settings.getRoot().toAbsolutePath().normalize();
+	}
+
+	Path resolveTarget(String targetName) {
+		if (!StringUtils.hasText(targetName)) {
+			throw new IllegalArgumentException("A target directory is required");
+		}
+		Path root = root();
+		Path target = root.resolve(targetName.trim()).normalize();
+		if (!target.startsWith(root) || target.equals(root)) {
+			throw new IllegalArgumentException("Target '%s' must name a directory below %s".formatted(targetName, root));
+		}
+		return target;
+	}
+
+	private void mirrorObject(S3Source source, MirrorJob job, S3Object object) {
+		String relative = object.key().substring(job.prefix().length());
+		while (relative.startsWith("/")) {
+			relative = relative.substring(1);
+		}
+		if (relative.isEmpty() || object.key().endsWith("/")) {
+			// folder markers have no content of their own
+			return;
+		}
+		job.objectListed();
+
+		Path stateDirectory = job.target().resolve(STATE_DIRECTORY);
+		Path file = job.target().resolve(relative).normalize();
+		if (!file.startsWith(job.target()) || file.startsWith(stateDirectory)) {
+			job.objectFailed("Key '%s' does not map to a path inside the target".formatted(object.key()));
+			return;
+		}
+		Path sidecar = stateDirectory.resolve(relative + ".etag");
+		long size = object.size() != null ? object.size() : 0L;
+
+		try {
+			if (isCurrent(file, sidecar, size, object.eTag(), object.lastModified())) {
+				job.objectSkipped(size);
+				return;
+			}
+			if (copy(source, job, object, file, stateDirectory.resolve(relative + ".part"), stateDirectory.resolve(relative + ".part-etag"), size)) {
+				if (object.eTag() != null) {
+					Files.writeString(sidecar, object.eTag());
+				}
+				job.objectCopied();
+			}
+		} catch (IOException | RuntimeException exception) {
+			// one unreadable object should not stop the rest of the prefix; the next run retries it
+			log.debug("Mirroring '{}' failed", object.key(), exception);
+			job.objectFailed("%s: %s".formatted(object.key(), exception.getMessage()));
+		}
+	}
+
+	// the size has to match; then a recorded ETag decides, and without one the modification time does
+	private static boolean isCurrent(Path file, Path sidecar, long size, String eTag, Instant lastModified) throws IOException {
+		if (!Files.isRegularFile(file) || Files.size(file) != size) {
+			return false;
+		}
+		if (eTag != null && Files.isRegularFile(sidecar)) {
+			return eTag.equals(Files.readString(sidecar));
+		}
+		return lastModified != null
+			&& Files.getLastModifiedTime(file).toInstant().truncatedTo(ChronoUnit.SECONDS).equals(lastModified.truncatedTo(ChronoUnit.SECONDS));
+	}
+
+	// returns false when the job was cancelled part way; the part file stays for the next run
+	private boolean copy(S3Source source, MirrorJob job, S3Object object, Path file, Path part, Path partETag, long size) throws IOException {
+		Files.createDirectories(file.getParent());
+		Files.createDirectories(part.getParent());
+		String eTag = object.eTag();
+
+		// a part only resumes against the exact object version it was started from
+		long position = 0L;
+		if (eTag != null && Files.isRegularFile(part) && Files.isRegularFile(partETag) && eTag.equals(Files.readString(partETag))) {
+			position = Math.min(Files.size(part), size);
+		} else {
+			Files.writeString(partETag, eTag != null ? eTag : "");
+		}
+
+		try (FileChannel channel = FileChannel.open(part, CREATE, WRITE)) {
+			if (position < size) {
+				GetObjectRequest.Builder request = GetObjectRequest.builder()
+					.bucket(job.bucket())
+					.key(object.key());
+				if (position > 0L) {
+					request = request.range("bytes=" + position + "-").ifMatch(eTag);
+				}
+				try (ResponseInputStream<GetObjectResponse> objectStream = objectStreamGate.open(source, request.build())) {
+					if (position > 0L && objectStream.response().contentRange() == null) {
+						// the store sent the whole object despite the range
+						position = 0L;
+					}
+					channel.truncate(position);
+					ReadableByteChannel input = Channels.newChannel(objectStream);
+					long transferred;
+					while ((transferred = channel.transferFrom(input, position, TRANSFER_CHUNK)) > 0L) {
+						position += transferred;
+						job.bytesCopied(transferred);
+						if (job.isCancelRequested()) {
+							objectStream.abort();
+							return false;
+						}
+					}
+				}
+			}
+			if (position != size) {
+				throw new IOException("Expected %d bytes but received %d".formatted(size, position));
+			}
+			channel.truncate(size);
+		}
+
+		if (object.lastModified() != null) {
+			Files.setLastModifiedTime(part, FileTime.from(object.lastModified()));
+		}
+		Files.move(part, file, REPLACE_EXISTING, ATOMIC_MOVE);
+		Files.deleteIfExists(partETag);
+		return true;
+	}
+
+	private void finish(MirrorJob job, Throwable failure) {
+		if (failure == null) {
+			job.completed(clock.instant());
+			log.info("Mirrored '{}' in bucket '{}': {} copied, {} skipped, {} failed at {} bytes/s",
+				job.prefix(), job.bucket(), job.copiedObjects(), job.skippedObjects(), job.failedObjects(), job.bytesPerSecond());
+			return;
+		}
+		Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+		if (job.state() != MirrorJob.State.FAILED) {
+			job.failed(clock.instant(), cause.getMessage());
+		}
+		log.warn("Mirror of '{}' in bucket '{}' failed", job.prefix(), job.bucket(), cause);
+	}
+
+	// workers share one listing; whoever drains a page fetches the next, so listing never runs far ahead of copying
+	private static final class ObjectFeed {
+		private final S3Source source;
+		private final String bucket;
+		private final String prefix;
+		private Iterator<S3Object> page = Collections.emptyIterator();
+		private String continuationToken;
+		private boolean exhausted;
+
+		private ObjectFeed(S3Source source, String bucket, String prefix) {
+			this.source = source;
+			this.bucket = bucket;
+			this.prefix = prefix;
+		}
+
+		private synchronized S3Object next() {
+			while (!page.hasNext()) {
+				if (exhausted) {
+					return null;
+				}
+				ListObjectsV2Request.Builder request = ListObjectsV2Request.builder()
+					.bucket(bucket)
+					.prefix(prefix)
+					.maxKeys(1000);
+				if (continuationToken != null) {
+					request = request.continuationToken(continuationToken);
+				}
+				ListObjectsV2Response response = source.client().listObjectsV2(request.build());
+				page = response.contents().iterator();
+				if (!Boolean.TRUE.equals(response.isTruncated()) || !StringUtils.hasText(response.nextContinuationToken())) {
+					exhausted = true;
+				} else {
+					continuationToken = response.nextContinuationToken();
+				}
+			}
+			return page.next();
+		}
+	}
+}
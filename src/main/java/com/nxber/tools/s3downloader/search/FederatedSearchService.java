@@ -0,0 +1,275 @@
+package com.nxber.tools.s3downloader.search;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import com.nxber.tools.s3downloader.config.ExecutorConfiguration;
+import com.nxber.tools.s3downloader.config.S3ClientProperties;
+import com.nxber.tools.s3downloader.config.S3SourceManager;
+import com.nxber.tools.s3downloader.config.S3SourceManager.S3Source;
+import com.nxber.tools.s3downloader.inventory.InventoryIndex;
+import com.nxber.tools.s3downloader.inventory.InventoryService;
+import com.nxber.tools.s3downloader.service.RequestScope;
+import com.nxber.tools.s3downloader.service.StorageAccessException;
+import com.nxber.tools.s3downloader.service.StorageBrowserService;
+import com.nxber.tools.s3downloader.storage.BucketSummary;
+
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+@Service
+public class FederatedSearchService {
+	private static final Logger log = LoggerFactory.getLogger(FederatedSearchService.class);
+
+	private final S3SourceManager sourceManager;
+	private final StorageBrowserService browserService;
+	private final InventoryService inventoryService;
+	private final S3ClientProperties.FederatedSearch settings;
+	private final Executor executor;
+
+	public FederatedSearchService(
+		S3SourceManager sourceManager,
+		StorageBrowserService browserService,
+		InventoryService inventoryService,
+		S3ClientProperties properties,
+		@Qualifier(ExecutorConfiguration.STORAGE_FAN_OUT_EXECUTOR) Executor executor
+	) {
+		this.sourceManager = sourceManager;
+		this.browserService = browserService;
+		this.inventoryService = inventoryService;
+		this.settings = properties.getFederatedSearch();
+		this.executor = executor;
+	}
+
+	// hits and outcomes are reported on the calling thread as they arrive, never concurrently, and never after this method returns
+	public List<SourceOutcome> search(String query, String prefix, Consumer<SearchHit> hitListener, Consumer<SourceOutcome> outcomeListener) {
+		if (!StringUtils.hasText(query)) {
+			throw new IllegalArgumentException("A search query is required");
+		}
+		String normalizedQuery = query.trim().toLowerCase(Locale.ROOT);
+		Predicate<String> matcher = name -> name.toLowerCase(Locale.ROOT).contains(normalizedQuery);
+		String effectivePrefix = prefix != null ? prefix.trim() : "";
+		SearchRun run = new SearchRun(settings.getMaxResults(), RequestScope.current(), hitListener, outcomeListener);
+
+		// each source is bounded by its own budget, so waiting for all of them never outlasts the slowest budget
+		List<CompletableFuture<SourceOutcome>> sources = sourceManager.getSources().stream()
+			.map(source -> searchSource(source, effectivePrefix, matcher, run))
+			.toList();
+		CompletableFuture.allOf(sources.toArray(CompletableFuture[]::new)).whenComplete((ignored, failure) -> run.finished());
+		run.deliver();
+		return sources.stream().map(CompletableFuture::join).toList();
+	}
+
+	private CompletableFuture<SourceOutcome> searchSource(S3Source source, String prefix, Predicate<String> matcher, SearchRun run) {
+		SourceScan scan = new SourceScan(source, System.nanoTime());
+		return CompletableFuture.supplyAsync(run.scope.wrap(() -> browserService.listBuckets(source.name())), executor)
+			.thenCompose(buckets -> searchBuckets(source, buckets, prefix, matcher, scan, run))
+			.orTimeout(settings.getSourceTimeout().toNanos(), TimeUnit.NANOSECONDS)
+			.handle((ignored, failure) -> {
+				SourceOutcome outcome = scan.finish(failure, run);
+				run.report(outcome);
+				return outcome;
+			});
+	}
+
+	private CompletableFuture<Void> searchBuckets(S3Source source, List<BucketSummary> buckets, String prefix, Predicate<String> matcher, SourceScan scan, SearchRun run) {
+		// a fixed set of workers pulls buckets in turn, so a source with hundreds of buckets never holds more than its share of threads
+		AtomicInteger nextBucket = new AtomicInteger();
+		int workers = Math.min(settings.getSourceConcurrency(), buckets.size());
+		CompletableFuture<?>[] scans = IntStream.range(0, workers)
+			.mapToObj(worker -> CompletableFuture.runAsync(run.scope.wrap(() -> {
+				int index;
+				while (scan.isActive(run) && (index = nextBucket.getAndIncrement()) < buckets.size()) {
+					searchBucket(source, buckets.get(index).name(), prefix, matcher, scan, run);
+				}
+			}), executor))
+			.toArray(CompletableFuture[]::new);
+		return CompletableFuture.allOf(scans);
+	}
+
+	private void searchBucket(S3Source source, String bucket, String prefix, Predicate<String> matcher, SourceScan scan, SearchRun run) {
+		try {
+			Optional<InventoryIndex> inventory = inventoryService.findIndex(source.name(), bucket);
+			if (inventory.isPresent()) {
+				inventory.get().findObjects(prefix, matcher, object ->
+					run.emit(new SearchHit(source.name(), source.displayName(), bucket, object.key(), object.name(), object.size(), object.lastModified()), scan)
+						&& scan.isActive(run));
+			} else {
+				listBucket(source, bucket, prefix, matcher, scan, run);
+			}
+			scan.bucketsSearched.incrementAndGet();
+		} catch (SdkException | StorageAccessException exception) {
+			// one unreadable bucket should not hide matches in the others
+			scan.bucketsFailed.incrementAndGet();
+			log.debug("Federated search skipped bucket '{}' of source '{}'", bucket, source.name(), exception);
+		}
+	}
+
+	private void listBucket(S3Source source, String bucket, String prefix, Predicate<String> matcher, SourceScan scan, SearchRun run) {
+		String continuationToken = null;
+		for (int page = 0; page < settings.getMaxPagesPerBucket() && scan.isActive(run); page++) {
+			ListObjectsV2Request.Builder request = ListObjectsV2Request.builder()
+				.bucket(bucket)
+				.prefix(prefix)
+				.maxKeys(1000);
+			if (continuationToken != null) {
+				request = request.continuationToken(continuationToken);
+			}
+			ListObjectsV2Response response = run.scope.call(request.build(), source.client()::listObjectsV2);
+			for (S3Object object : response.contents()) {
+				String key = object.key();
+				String name = key.substring(key.lastIndexOf('/') + 1);
+				if (name.isEmpty() || !matcher.test(name)) {
+					continue;
+				}
+				long size = object.size() != null ? object.size() : 0L;
+				if (!run.emit(new SearchHit(source.name(), source.displayName(), bucket, key, name, size, object.lastModified()), scan)) {
+					return;
+				}
+			}
+			if (!Boolean.TRUE.equals(response.isTruncated()) || !StringUtils.hasText(response.nextContinuationToken())) {
+				return;
+			}
+			continuationToken = response.nextContinuationToken();
+		}
+	}
+
+	private static final class SearchRun {
+		private static final Runnable FINISHED = () -> { };
+
+		private final int maxResults;
+		private final RequestScope scope;
+		private final Consumer<SearchHit> hitListener;
+		private final Consumer<SourceOutcome> outcomeListener;
+		private final AtomicInteger hits = new AtomicInteger();
+		// bounded by maxResults hits plus one outcome per source
+		private final BlockingQueue<Runnable> deliveries = new LinkedBlockingQueue<>();
+		private boolean closed;
+
+		private SearchRun(int maxResults, RequestScope scope, Consumer<SearchHit> hitListener, Consumer<SourceOutcome> outcomeListener) {
+			this.maxResults = maxResults;
+			this.scope = scope;
+			this.hitListener = hitListener;
+			this.outcomeListener = outcomeListener;
+		}
+
+		// returns false once the caller should stop looking; the hit is only queued, so a slow client never holds up a worker
+		private synchronized boolean emit(SearchHit hit, SourceScan scan) {
+			if (closed || scan.expired || hits.get() >= maxResults) {
+				return false;
+			}
+			hits.incrementAndGet();
+			scan.hits.incrementAndGet();
+			deliveries.add(() -> hitListener.accept(hit));
+			return hits.get() < maxResults;
+		}
+
+		private synchronized void report(SourceOutcome outcome) {
+			if (!closed) {
+				deliveries.add(() -> outcomeListener.accept(outcome));
+			}
+		}
+
+		private void finished() {
+			deliveries.add(FINISHED);
+		}
+
+		// the searching thread is the only writer, and it writes without holding the lock the workers need
+		private void deliver() {
+			try {
+				Runnable delivery;
+				while ((delivery = deliveries.take()) != FINISHED) {
+					delivery.run();
+				}
+			} catch (InterruptedException exception) {
+				Thread.currentThread().interrupt();
+				scope.cancel();
+				throw new StorageAccessException("Interrupted while searching", exception);
+			} catch (RuntimeException exception) {
+				// the client stopped reading, so every source stops listing for it
+				scope.cancel();
+				throw exception;
+			} finally {
+				close();
+			}
+		}
+
+		private boolean hasCapacity() {
+			return hits.get() < maxResults;
+		}
+
+		private synchronized void close() {
+			closed = true;
+		}
+	}
+
+	private static final class SourceScan {
+		private final S3Source source;
+		private final long startedNanos;
+		private final AtomicInteger bucketsSearched = new AtomicInteger();
+		private final AtomicInteger bucketsFailed = new AtomicInteger();
+		private final AtomicInteger hits = new AtomicInteger();
+		private volatile boolean expired;
+
+		private SourceScan(S3Source source, long startedNanos) {
+			this.source = source;
+			this.startedNanos = startedNanos;
+		}
+
+		private boolean isActive(SearchRun run) {
+			return !expired && run.hasCapacity() && run.scope.isActive();
+		}
+
+		private SourceOutcome finish(Throwable failure, SearchRun run) {
+			// workers still listing see the flag at their next page and stop; their late hits are dropped
+			synchronized (run) {
+				expired = true;
+			}
+			Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+			SourceOutcome.Status status;
+			String message = null;
+			if (cause instanceof TimeoutException) {
+				status = SourceOutcome.Status.TIMED_OUT;
+				message = "Stopped after %d ms".formatted(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos));
+			} else if (cause != null) {
+				status = SourceOutcome.Status.FAILED;
+				message = cause.getMessage();
+				log.warn("Federated search failed for source '{}'", source.name(), cause);
+			} else if (!run.hasCapacity()) {
+				status = SourceOutcome.Status.LIMITED;
+			} else {
+				status = SourceOutcome.Status.COMPLETED;
+			}
+			return new SourceOutcome(
+				source.name(),
+				source.displayName(),
+				status,
+				bucketsSearched.get(),
+				bucketsFailed.get(),
+				hits.get(),
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos),
+				message
+			);
+		}
+	}
+}
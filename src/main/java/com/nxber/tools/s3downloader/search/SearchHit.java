@@ -0,0 +1,6 @@
+package com.nxber.tools.s3downloader.search;
+
+import java.time.Instant;
+
+public record SearchHit(String sourceName, String sourceDisplayName, String bucket, String key, String name, long size, Instant lastModified) {
+}
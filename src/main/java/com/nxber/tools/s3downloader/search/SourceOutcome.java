@@ -0,0 +1,20 @@
+package com.nxber.tools.s3downloader.search;
+
+public record SourceOutcome(
+	String sourceName,
+	String sourceDisplayName,
+	Status status,
+	int bucketsSearched,
+	int bucketsFailed,
+	int hits,
+	long elapsedMillis,
+	String message
+) {
+	public enum Status {
+		COMPLETED,
+		// stopped because the search as a whole reached its result limit
+		LIMITED,
+		TIMED_OUT,
+		FAILED
+	}
+}
@@ -0,0 +1,14 @@
+package com.nxber.tools.s3downloader.service;
+
+import com.nxber.tools.s3downloader.storage.KeyOrder;
+
+// one part of a split folder archive: keys strictly after startAfter up to and including endInclusive, a null bound being open
+public record ArchiveVolume(int part, String startAfter, String endInclusive, int objects, long bytes) {
+	public boolean isLast() {
+		return endInclusive == null;
+	}
+
+	public static boolean isValidRange(String startAfter, String endInclusive) {
+		return startAfter == null || endInclusive == null || KeyOrder.compare(startAfter, endInclusive) < 0;
+	}
+}
@@ -0,0 +1,10 @@
+package com.nxber.tools.s3downloader.service;
+
+import java.util.List;
+
+import com.nxber.tools.s3downloader.storage.BucketSummary;
+import com.nxber.tools.s3downloader.storage.StorageListing;
+
+// errorMessage is set when the listing could not be read; the bucket list is still usable then
+public record BrowsePage(List<BucketSummary> buckets, StorageListing listing, String errorMessage) {
+}
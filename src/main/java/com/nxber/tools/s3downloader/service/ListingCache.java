@@ -0,0 +1,135 @@
+package com.nxber.tools.s3downloader.service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nxber.tools.s3downloader.archive.ZipEntryInfo;
+import com.nxber.tools.s3downloader.cache.StorageCache;
+import com.nxber.tools.s3downloader.config.S3ClientProperties;
+import com.nxber.tools.s3downloader.storage.BucketSummary;
+
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+
+@Component
+public class ListingCache {
+	private static final Logger log = LoggerFactory.getLogger(ListingCache.class);
+
+	private final StorageCache cache;
+	private final S3ClientProperties.Cache settings;
+	private final ObjectMapper objectMapper;
+	private final JavaType bucketListType;
+	private final JavaType zipDirectoryType;
+
+	public ListingCache(StorageCache cache, S3ClientProperties properties, ObjectMapper objectMapper) {
+		this.cache = cache;
+		this.settings = properties.getCache();
+		this.objectMapper = objectMapper;
+		this.bucketListType = objectMapper.getTypeFactory().constructCollectionType(List.class, BucketSummary.class);
+		this.zipDirectoryType = objectMapper.getTypeFactory().constructCollectionType(List.class, ZipEntryInfo.class);
+	}
+
+	public List<BucketSummary> buckets(String sourceName, Supplier<List<BucketSummary>> loader) {
+		return getOrLoad("buckets|" + sourceName, bucketListType, settings.getBucketTtl(), loader);
+	}
+
+	public Optional<List<BucketSummary>> cachedBuckets(String sourceName) {
+		if (!isEnabled(settings.getBucketTtl())) {
+			return Optional.empty();
+		}
+		return cache.get("buckets|" + sourceName).flatMap(value -> read(value, bucketListType));
+	}
+
+	public boolean isBucketListingDenied(String sourceName) {
+		return isEnabled(settings.getBucketDeniedTtl()) && cache.get("buckets-denied|" + sourceName).isPresent();
+	}
+
+	public void markBucketListingDenied(String sourceName) {
+		if (isEnabled(settings.getBucketDeniedTtl())) {
+			write("buckets-denied|" + sourceName, Boolean.TRUE, settings.getBucketDeniedTtl());
+		}
+	}
+
+	public List<ZipEntryInfo> zipDirectory(String sourceName, String bucket, String key, String eTag, Supplier<List<ZipEntryInfo>> loader) {
+		if (eTag == null) {
+			return loader.get();
+		}
+		return getOrLoad("zip-directory|" + sourceName + "|" + bucket + "|" + key + "|" + eTag, zipDirectoryType, settings.getZipDirectoryTtl(), loader);
+	}
+
+	public ListingPage listingPage(String sourceName, ListObjectsV2Request request, Supplier<ListingPage> loader) {
+		String continuationToken = request.continuationToken() != null ? request.continuationToken() : "";
+		String key = listingKeyPrefix(sourceName, request.bucket(), request.prefix()) + "|" + request.maxKeys() + "|" + continuationToken;
+		return getOrLoad(key, objectMapper.constructType(ListingPage.class), settings.getListingTtl(), loader);
+	}
+
+	public <T> Optional<T> folderStats(String sourceName, String bucket, String folderPrefix, Class<T> type) {
+		if (!isEnabled(settings.getFolderStatsTtl())) {
+			return Optional.empty();
+		}
+		return cache.get(folderStatsKeyPrefix(sourceName, bucket) + folderPrefix)
+			.flatMap(value -> read(value, objectMapper.constructType(type)));
+	}
+
+	public void putFolderStats(String sourceName, String bucket, String folderPrefix, Object stats) {
+		if (isEnabled(settings.getFolderStatsTtl())) {
+			write(folderStatsKeyPrefix(sourceName, bucket) + folderPrefix, stats, settings.getFolderStatsTtl());
+		}
+	}
+
+	public void invalidate(String sourceName, String bucket, String prefix) {
+		cache.invalidate(listingKeyPrefix(sourceName, bucket, prefix));
+		// every ancestor's size includes the changed prefix, so the whole bucket's folder stats go
+		cache.invalidate(folderStatsKeyPrefix(sourceName, bucket));
+	}
+
+	private <T> T getOrLoad(String key, JavaType type, Duration ttl, Supplier<T> loader) {
+		if (!isEnabled(ttl)) {
+			return loader.get();
+		}
+		Optional<T> cached = cache.get(key).flatMap(value -> read(value, type));
+		if (cached.isPresent()) {
+			return cached.get();
+		}
+		T loaded = loader.get();
+		write(key, loaded, ttl);
+		return loaded;
+	}
+
+	private <T> Optional<T> read(byte[] value, JavaType type) {
+		try {
+			return Optional.of(objectMapper.readValue(value, type));
+		} catch (IOException exception) {
+			log.debug("Discarding unreadable cache entry of type {}", type, exception);
+			return Optional.empty();
+		}
+	}
+
+	private void write(String key, Object value, Duration ttl) {
+		try {
+			cache.put(key, objectMapper.writeValueAsBytes(value), ttl);
+		} catch (IOException exception) {
+			log.debug("Could not cache entry '{}'", key, exception);
+		}
+	}
+
+	private boolean isEnabled(Duration ttl) {
+		return ttl != null && ttl.isPositive();
+	}
+
+	private String listingKeyPrefix(String sourceName, String bucket, String prefix) {
+		return "listing|" + sourceName + "|" + bucket + "|" + (prefix != null ? prefix : "");
+	}
+
+	private String folderStatsKeyPrefix(String sourceName, String bucket) {
+		return "folder-stats|" + sourceName + "|" + bucket + "|";
+	}
+}
@@ -0,0 +1,137 @@
+package com.nxber.tools.s3downloader.service;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import com.nxber.tools.s3downloader.config.S3ClientProperties;
+
+@Component
+public class ListingCursorStore {
+	private final S3ClientProperties.Cursor settings;
+	private final Clock clock;
+	private final Map<CursorKey, Cursor> cursors;
+
+	@Autowired
+	public ListingCursorStore(S3ClientProperties properties) {
+		this(properties, Clock.systemUTC());
+	}
+
+	ListingCursorStore(S3ClientProperties properties, Clock clock) {
+		this.settings = properties.getCursor();
+		this.clock = clock;
+		int maxEntries = settings.getMaxEntries();
+		this.cursors = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<CursorKey, Cursor> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	public synchronized Cursor open(String sourceName, String bucket, String prefix, String query) {
+		return open(new CursorKey(sourceName, bucket, prefix, StringUtils.hasText(query) ? query : "", false));
+	}
+
+	// inventory searches page by the last key returned, which must never reach S3 as a continuation token
+	public synchronized Cursor openInventorySearch(String sourceName, String bucket, String prefix, String query) {
+		return open(new CursorKey(sourceName, bucket, prefix, query, true));
+	}
+
+	private Cursor open(CursorKey key) {
+		Instant now = clock.instant();
+		Cursor cursor = cursors.get(key);
+		// boundaries go stale as objects are added or removed, so start over once the ttl passes
+		if (cursor == null || cursor.createdAt().plus(settings.getTtl()).isBefore(now)) {
+			cursor = new Cursor(now);
+			cursors.put(key, cursor);
+		}
+		return cursor;
+	}
+
+	// drops the plain listing and every search below the prefix, so a refreshed folder relearns its page boundaries
+	public synchronized void invalidate(String sourceName, String bucket, String prefix) {
+		cursors.keySet().removeIf(key -> key.sourceName().equals(sourceName) && key.bucket().equals(bucket) && key.prefix().equals(prefix));
+	}
+
+	public synchronized int size() {
+		return cursors.size();
+	}
+
+	public record PageStart(int index, String token) {
+	}
+
+	private record CursorKey(String sourceName, String bucket, String prefix, String query, boolean inventory) {
+	}
+
+	public static final class Cursor {
+		private final Instant createdAt;
+		// index i holds the token that starts page i; the first page never needs one
+		private final List<String> boundaries = new ArrayList<>(List.of(""));
+		private final AtomicBoolean prefetching = new AtomicBoolean();
+		private boolean complete;
+
+		Cursor(Instant createdAt) {
+			this.createdAt = createdAt;
+		}
+
+		Instant createdAt() {
+			return createdAt;
+		}
+
+		// the index and its token are read under one lock, since a final page recorded in between truncates the boundaries
+		public synchronized PageStart pageStart(int requestedIndex) {
+			int pageIndex = Math.max(0, Math.min(requestedIndex, boundaries.size() - 1));
+			return new PageStart(pageIndex, boundaries.get(pageIndex));
+		}
+
+		public synchronized PageStart lastPageStart() {
+			return pageStart(boundaries.size() - 1);
+		}
+
+		public synchronized int knownPages() {
+			return boundaries.size();
+		}
+
+		public synchronized boolean isComplete() {
+			return complete;
+		}
+
+		public synchronized OptionalInt totalPages() {
+			return complete ? OptionalInt.of(boundaries.size()) : OptionalInt.empty();
+		}
+
+		public synchronized void recordNextBoundary(int pageIndex, String nextToken) {
+			if (pageIndex >= boundaries.size()) {
+				return;
+			}
+			if (!StringUtils.hasText(nextToken)) {
+				boundaries.subList(pageIndex + 1, boundaries.size()).clear();
+				complete = true;
+				return;
+			}
+			if (pageIndex + 1 < boundaries.size()) {
+				boundaries.set(pageIndex + 1, nextToken);
+			} else {
+				boundaries.add(nextToken);
+			}
+		}
+
+		boolean beginPrefetch() {
+			return prefetching.compareAndSet(false, true);
+		}
+
+		void endPrefetch() {
+			prefetching.set(false);
+		}
+	}
+}
@@ -0,0 +1,23 @@
+package com.nxber.tools.s3downloader.service;
+
+import java.time.Instant;
+import java.util.List;
+
+import software.amazon.awssdk.services.s3.model.CommonPrefix;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+
+// the parts of a listing response the browser uses, in a shape that can be shared between nodes
+public record ListingPage(List<String> commonPrefixes, List<Entry> contents, boolean truncated, String nextContinuationToken) {
+	public static ListingPage of(ListObjectsV2Response response) {
+		List<String> commonPrefixes = response.commonPrefixes().stream()
+			.map(CommonPrefix::prefix)
+			.toList();
+		List<Entry> contents = response.contents().stream()
+			.map(object -> new Entry(object.key(), object.size() != null ? object.size() : 0L, object.lastModified(), object.eTag()))
+			.toList();
+		return new ListingPage(commonPrefixes, contents, Boolean.TRUE.equals(response.isTruncated()), response.nextContinuationToken());
+	}
+
+	public record Entry(String key, long size, Instant lastModified, String eTag) {
+	}
+}
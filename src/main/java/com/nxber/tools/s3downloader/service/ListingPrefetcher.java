@@ -0,0 +1,143 @@
+package com.nxber.tools.s3downloader.service;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import com.nxber.tools.s3downloader.config.ExecutorConfiguration;
+import com.nxber.tools.s3downloader.config.S3ClientProperties;
+import com.nxber.tools.s3downloader.config.S3SourceManager.S3Source;
+
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+
+@Component
+public class ListingPrefetcher {
+	private static final Logger log = LoggerFactory.getLogger(ListingPrefetcher.class);
+
+	private final S3ClientProperties.Prefetch settings;
+	private final Executor executor;
+	private final Clock clock;
+	private final Map<PageKey, CachedPage> pages;
+	private final Set<PageKey> inFlight = ConcurrentHashMap.newKeySet();
+	private final Map<String, Budget> budgets = new ConcurrentHashMap<>();
+
+	@Autowired
+	public ListingPrefetcher(S3ClientProperties properties, @Qualifier(ExecutorConfiguration.STORAGE_FAN_OUT_EXECUTOR) Executor executor) {
+		this(properties, executor, Clock.systemUTC());
+	}
+
+	ListingPrefetcher(S3ClientProperties properties, Executor executor, Clock clock) {
+		this.settings = properties.getPrefetch();
+		this.executor = executor;
+		this.clock = clock;
+		int maxEntries = settings.getMaxEntries();
+		this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<PageKey, CachedPage> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	public boolean isEnabled() {
+		return settings.isEnabled();
+	}
+
+	public int subfolderLimit() {
+		return settings.getSubfolders();
+	}
+
+	public Optional<ListObjectsV2Response> lookup(String sourceName, ListObjectsV2Request request) {
+		if (!settings.isEnabled()) {
+			return Optional.empty();
+		}
+		PageKey key = PageKey.of(sourceName, request);
+		synchronized (pages) {
+			CachedPage page = pages.get(key);
+			if (page == null) {
+				return Optional.empty();
+			}
+			if (page.fetchedAt().plus(settings.getTtl()).isBefore(clock.instant())) {
+				pages.remove(key);
+				return Optional.empty();
+			}
+			return Optional.of(page.response());
+		}
+	}
+
+	public void prefetch(S3Source source, ListObjectsV2Request request) {
+		if (!settings.isEnabled()) {
+			return;
+		}
+		PageKey key = PageKey.of(source.name(), request);
+		if (lookup(source.name(), request).isPresent() || !inFlight.add(key)) {
+			return;
+		}
+		// speculative requests cost real money, so each source only gets a fixed number per minute
+		if (!budgets.computeIfAbsent(source.name(), name -> new Budget(settings.getBudgetPerMinute(), clock.millis())).tryAcquire(clock.millis())) {
+			inFlight.remove(key);
+			return;
+		}
+
+		try {
+			executor.execute(() -> {
+				try {
+					ListObjectsV2Response response = source.client().listObjectsV2(request);
+					synchronized (pages) {
+						pages.put(key, new CachedPage(response, clock.instant()));
+					}
+				} catch (RuntimeException exception) {
+					log.debug("Speculative listing of '{}' in bucket '{}' failed", request.prefix(), request.bucket(), exception);
+				} finally {
+					inFlight.remove(key);
+				}
+			});
+		} catch (RejectedExecutionException exception) {
+			inFlight.remove(key);
+		}
+	}
+
+	private record PageKey(String sourceName, String bucket, String prefix, String delimiter, Integer maxKeys, String continuationToken) {
+		static PageKey of(String sourceName, ListObjectsV2Request request) {
+			return new PageKey(sourceName, request.bucket(), request.prefix(), request.delimiter(), request.maxKeys(), request.continuationToken());
+		}
+	}
+
+	private record CachedPage(ListObjectsV2Response response, Instant fetchedAt) {
+	}
+
+	private static final class Budget {
+		private final int perMinute;
+		private double available;
+		private long refilledAt;
+
+		Budget(int perMinute, long now) {
+			this.perMinute = perMinute;
+			this.available = perMinute;
+			this.refilledAt = now;
+		}
+
+		synchronized boolean tryAcquire(long now) {
+			available = Math.min(perMinute, available + (now - refilledAt) * perMinute / 60_000d);
+			refilledAt = now;
+			if (available < 1d) {
+				return false;
+			}
+			available -= 1d;
+			return true;
+		}
+	}
+}
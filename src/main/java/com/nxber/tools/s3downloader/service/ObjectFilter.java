@@ -0,0 +1,94 @@
+package com.nxber.tools.s3downloader.service;
+
+import java.time.Instant;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.springframework.util.StringUtils;
+
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+public record ObjectFilter(
+	String prefix,
+	Pattern pattern,
+	boolean matchFullPath,
+	Long minSize,
+	Long maxSize,
+	Instant modifiedSince,
+	boolean recursive
+) {
+	public static ObjectFilter of(String prefix, String glob, String regex, Long minSize, Long maxSize, Instant modifiedSince, boolean recursive) {
+		Pattern pattern = null;
+		boolean matchFullPath = false;
+		if (StringUtils.hasText(regex)) {
+			try {
+				pattern = Pattern.compile(regex);
+			} catch (PatternSyntaxException exception) {
+				throw new IllegalArgumentException("Invalid regular expression: " + exception.getDescription(), exception);
+			}
+			matchFullPath = true;
+		} else if (StringUtils.hasText(glob)) {
+			pattern = Pattern.compile(globToRegex(glob.trim()));
+			// like .gitignore, a glob without a slash matches file names at any depth
+			matchFullPath = glob.contains("/");
+		}
+		return new ObjectFilter(prefix, pattern, matchFullPath, minSize, maxSize, modifiedSince, recursive);
+	}
+
+	public ObjectFilter withPrefix(String normalizedPrefix) {
+		return new ObjectFilter(normalizedPrefix, pattern, matchFullPath, minSize, maxSize, modifiedSince, recursive);
+	}
+
+	public boolean matches(S3Object object) {
+		String key = object.key();
+		if (key.endsWith("/")) {
+			return false;
+		}
+		String relativeKey = key.startsWith(prefix) ? key.substring(prefix.length()) : key;
+		if (!recursive && relativeKey.contains("/")) {
+			return false;
+		}
+		if (minSize != null && object.size() < minSize) {
+			return false;
+		}
+		if (maxSize != null && object.size() > maxSize) {
+			return false;
+		}
+		if (modifiedSince != null && (object.lastModified() == null || object.lastModified().isBefore(modifiedSince))) {
+			return false;
+		}
+		if (pattern == null) {
+			return true;
+		}
+		String subject = matchFullPath ? relativeKey : relativeKey.substring(relativeKey.lastIndexOf('/') + 1);
+		return pattern.matcher(subject).matches();
+	}
+
+	static String globToRegex(String glob) {
+		StringBuilder regex = new StringBuilder();
+		StringBuilder literal = new StringBuilder();
+		for (int index = 0; index < glob.length(); index++) {
+			char character = glob.charAt(index);
+			if (character != '*' && character != '?') {
+				literal.append(character);
+				continue;
+			}
+			if (!literal.isEmpty()) {
+				regex.append(Pattern.quote(literal.toString()));
+				literal.setLength(0);
+			}
+			if (character == '?') {
+				regex.append("[^/]");
+			} else if (index + 1 < glob.length() && glob.charAt(index + 1) == '*') {
+				regex.append(".*");
+				index++;
+			} else {
+				regex.append("[^/]*");
+			}
+		}
+		if (!literal.isEmpty()) {
+			regex.append(Pattern.quote(literal.toString()));
+		}
+		return regex.toString();
+	}
+}
@@ -0,0 +1,116 @@
+package com.nxber.tools.s3downloader.service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.stereotype.Component;
+
+import com.nxber.tools.s3downloader.config.S3SourceManager.S3Source;
+import com.nxber.tools.s3downloader.diagnostics.ObjectOpenEvent;
+
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+// with virtual threads nothing else bounds open object bodies, so they queue here instead of inside the Apache pool lease
+@Component
+public class ObjectStreamGate {
+	private static final long ACQUIRE_SLICE_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+	private final Map<String, Semaphore> permits = new ConcurrentHashMap<>();
+
+	public ResponseInputStream<GetObjectResponse> open(S3Source source, GetObjectRequest request) {
+		Semaphore gate = permits.computeIfAbsent(source.name(), name -> new Semaphore(source.properties().getMaxConcurrentStreams(), true));
+		RequestScope scope = RequestScope.current();
+		ObjectOpenEvent event = new ObjectOpenEvent();
+		event.begin();
+		GetObjectResponse response = null;
+		try {
+			long queuedAt = System.nanoTime();
+			try {
+				acquire(source, gate, scope);
+			} finally {
+				event.queueTime = System.nanoTime() - queuedAt;
+			}
+			try {
+				ResponseInputStream<GetObjectResponse> objectStream = scope.call(request, source.client()::getObject);
+				response = objectStream.response();
+				// a request abandoned while its body is still open aborts that body
+				Runnable forget = scope.register(objectStream);
+				Runnable release = () -> {
+					forget.run();
+					gate.release();
+				};
+				return new ResponseInputStream<>(objectStream.response(), AbortableInputStream.create(new ReleasingInputStream(objectStream, release), objectStream));
+			} catch (RuntimeException exception) {
+				gate.release();
+				throw exception;
+			}
+		} finally {
+			commit(event, source, request, response);
+		}
+	}
+
+	public int availablePermits(String sourceName) {
+		Semaphore gate = permits.get(sourceName);
+		return gate != null ? gate.availablePermits() : -1;
+	}
+
+	private void acquire(S3Source source, Semaphore gate, RequestScope scope) {
+		long waitNanos = Math.min(source.properties().getConnectionAcquisitionTimeout().toNanos(), scope.remainingNanos());
+		long deadline = System.nanoTime() + waitNanos;
+		try {
+			// waits in short slices, so a request abandoned while queued gives up its place right away
+			while (!gate.tryAcquire(Math.min(ACQUIRE_SLICE_NANOS, Math.max(0L, deadline - System.nanoTime())), TimeUnit.NANOSECONDS)) {
+				scope.checkActive();
+				if (System.nanoTime() - deadline >= 0L) {
+					throw new StorageAccessException("Too many concurrent transfers from source '%s'; try again shortly.".formatted(source.name()), null);
+				}
+			}
+		} catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+			throw new StorageAccessException("Interrupted while waiting for a transfer slot on source '%s'".formatted(source.name()), exception);
+		}
+	}
+
+	private static void commit(ObjectOpenEvent event, S3Source source, GetObjectRequest request, GetObjectResponse response) {
+		event.end();
+		if (event.shouldCommit()) {
+			event.source = source.name();
+			event.bucket = request.bucket();
+			event.key = request.key();
+			event.range = request.range();
+			event.contentLength = response != null && response.contentLength() != null ? response.contentLength() : -1L;
+			event.succeeded = response != null;
+			event.commit();
+		}
+	}
+
+	private static final class ReleasingInputStream extends FilterInputStream {
+		private final Runnable release;
+		private final AtomicBoolean released = new AtomicBoolean();
+
+		private ReleasingInputStream(InputStream delegate, Runnable release) {
+			super(delegate);
+			this.release = release;
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				super.close();
+			} finally {
+				if (released.compareAndSet(false, true)) {
+					release.run();
+				}
+			}
+		}
+	}
+}
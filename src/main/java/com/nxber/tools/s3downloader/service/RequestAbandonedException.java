@@ -0,0 +1,7 @@
+package com.nxber.tools.s3downloader.service;
+
+public class RequestAbandonedException extends StorageAccessException {
+	public RequestAbandonedException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
@@ -0,0 +1,196 @@
+package com.nxber.tools.s3downloader.service;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import com.nxber.tools.s3downloader.config.ExecutorConfiguration;
+import com.nxber.tools.s3downloader.config.S3ClientProperties;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+@Component
+public class RequestHedger implements MeterBinder {
+	public static final String LIST_OBJECTS = "list-objects";
+	public static final String GET_OBJECT = "get-object";
+
+	private static final int WINDOW_SIZE = 512;
+	private static final int RECOMPUTE_EVERY = 64;
+
+	private final S3ClientProperties.Hedging settings;
+	private final Executor executor;
+	private final Map<String, OperationStats> operations = Map.of(
+		LIST_OBJECTS, new OperationStats(),
+		GET_OBJECT, new OperationStats()
+	);
+	private final Budget budget = new Budget();
+
+	public RequestHedger(S3ClientProperties properties, @Qualifier(ExecutorConfiguration.STORAGE_FAN_OUT_EXECUTOR) Executor executor) {
+		this.settings = properties.getHedging();
+		this.executor = executor;
+	}
+
+	public <T> T execute(String operation, Supplier<T> call, Consumer<T> discard) {
+		OperationStats stats = operations.get(operation);
+		if (!settings.isEnabled() || stats == null) {
+			return call.get();
+		}
+		stats.requests.increment();
+		budget.earn(settings.getBudgetPercent());
+		long delayNanos = stats.hedgeDelayNanos(settings);
+		if (delayNanos < 0L) {
+			return timed(call, stats).get();
+		}
+
+		CompletableFuture<T> primary = CompletableFuture.supplyAsync(timed(call, stats), executor);
+		try {
+			return primary.get(delayNanos, TimeUnit.NANOSECONDS);
+		} catch (TimeoutException exception) {
+			// fall through to the hedge
+		} catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+			primary.thenAccept(discard);
+			throw new StorageAccessException("Interrupted while waiting for storage", exception);
+		} catch (ExecutionException exception) {
+			throw unwrap(exception.getCause());
+		}
+
+		if (!budget.trySpend()) {
+			return join(primary);
+		}
+		stats.hedges.increment();
+		CompletableFuture<T> hedge = CompletableFuture.supplyAsync(timed(call, stats), executor);
+
+		// the first successful answer wins; the slower one is released as soon as it arrives
+		CompletableFuture<T> winner = new CompletableFuture<>();
+		AtomicInteger failures = new AtomicInteger();
+		primary.whenComplete((value, error) -> settle(winner, failures, value, error, discard, null));
+		hedge.whenComplete((value, error) -> settle(winner, failures, value, error, discard, stats.hedgeWins));
+		return join(winner);
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		operations.forEach((operation, stats) -> {
+			FunctionCounter.builder("s3.client.hedge.requests", stats.requests, LongAdder::sum)
+				.description("Reads eligible for hedging")
+				.tag("operation", operation)
+				.register(registry);
+			FunctionCounter.builder("s3.client.hedge.issued", stats.hedges, LongAdder::sum)
+				.description("Duplicate reads sent after the latency threshold passed")
+				.tag("operation", operation)
+				.register(registry);
+			FunctionCounter.builder("s3.client.hedge.wins", stats.hedgeWins, LongAdder::sum)
+				.description("Duplicate reads that answered before the original")
+				.tag("operation", operation)
+				.register(registry);
+			Gauge.builder("s3.client.hedge.delay", stats, value -> value.thresholdNanos / 1_000_000d)
+				.description("Current hedging delay in milliseconds")
+				.tag("operation", operation)
+				.register(registry);
+		});
+	}
+
+	long hedgeCount(String operation) {
+		return operations.get(operation).hedges.sum();
+	}
+
+	private <T> void settle(CompletableFuture<T> winner, AtomicInteger failures, T value, Throwable error, Consumer<T> discard, LongAdder wins) {
+		if (error != null) {
+			if (failures.incrementAndGet() == 2) {
+				winner.completeExceptionally(error);
+			}
+			return;
+		}
+		if (winner.complete(value)) {
+			if (wins != null) {
+				wins.increment();
+			}
+		} else {
+			discard.accept(value);
+		}
+	}
+
+	private <T> Supplier<T> timed(Supplier<T> call, OperationStats stats) {
+		return () -> {
+			long startedAt = System.nanoTime();
+			T result = call.get();
+			stats.record(System.nanoTime() - startedAt, settings.getPercentile());
+			return result;
+		};
+	}
+
+	private <T> T join(CompletableFuture<T> future) {
+		try {
+			return future.join();
+		} catch (CompletionException exception) {
+			throw unwrap(exception.getCause());
+		}
+	}
+
+	private RuntimeException unwrap(Throwable cause) {
+		Throwable actual = cause instanceof CompletionException && cause.getCause() != null ? cause.getCause() : cause;
+		if (actual instanceof RuntimeException runtimeException) {
+			return runtimeException;
+		}
+		return new StorageAccessException("Storage request failed", actual);
+	}
+
+	private static final class OperationStats {
+		private final LongAdder requests = new LongAdder();
+		private final LongAdder hedges = new LongAdder();
+		private final LongAdder hedgeWins = new LongAdder();
+		private final long[] window = new long[WINDOW_SIZE];
+		private int samples;
+		private volatile long thresholdNanos = -1L;
+
+		synchronized void record(long latencyNanos, double percentile) {
+			window[samples % WINDOW_SIZE] = latencyNanos;
+			samples++;
+			// sorting the window on every call would cost more than it saves, so the percentile is refreshed in batches
+			if (samples % RECOMPUTE_EVERY == 0) {
+				long[] sorted = Arrays.copyOf(window, Math.min(samples, WINDOW_SIZE));
+				Arrays.sort(sorted);
+				int index = (int) Math.ceil(percentile / 100d * sorted.length) - 1;
+				thresholdNanos = sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+			}
+		}
+
+		long hedgeDelayNanos(S3ClientProperties.Hedging settings) {
+			long threshold = thresholdNanos;
+			return threshold < 0L ? -1L : Math.max(threshold, settings.getMinDelay().toNanos());
+		}
+	}
+
+	// every request earns a fraction of a hedge, so duplicates stay within budget-percent of traffic even in bursts
+	private static final class Budget {
+		private double tokens;
+
+		synchronized void earn(double percent) {
+			tokens = Math.min(Math.max(1d, percent), tokens + percent / 100d);
+		}
+
+		synchronized boolean trySpend() {
+			if (tokens < 1d) {
+				return false;
+			}
+			tokens -= 1d;
+			return true;
+		}
+	}
+}
@@ -0,0 +1,164 @@
+package com.nxber.tools.s3downloader.service;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import software.amazon.awssdk.awscore.AwsRequest;
+import software.amazon.awssdk.core.exception.AbortedException;
+import software.amazon.awssdk.core.exception.ApiCallTimeoutException;
+import software.amazon.awssdk.http.Abortable;
+
+// the storage work one client request may still do: it ends when the client goes away or the deadline passes, whichever comes first
+public final class RequestScope {
+	private static final ThreadLocal<RequestScope> CURRENT = new ThreadLocal<>();
+	private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+	private final RequestScope parent;
+	private final Set<Abortable> openStreams = ConcurrentHashMap.newKeySet();
+	private volatile long deadlineNanos;
+	private volatile boolean cancelled;
+
+	private RequestScope(RequestScope parent, long deadlineNanos) {
+		this.parent = parent;
+		this.deadlineNanos = deadlineNanos;
+	}
+
+	// a null or zero budget leaves the scope bounded only by cancellation
+	public static RequestScope open(Duration budget) {
+		RequestScope scope = new RequestScope(null, NO_DEADLINE);
+		return scope.restrict(budget);
+	}
+
+	// work outside any request gets a scope of its own that nothing else cancels
+	public static RequestScope current() {
+		RequestScope scope = CURRENT.get();
+		return scope != null ? scope : new RequestScope(null, NO_DEADLINE);
+	}
+
+	// cancelling the child stops its own work only; cancelling the parent stops the child too
+	public RequestScope child() {
+		return new RequestScope(this, NO_DEADLINE);
+	}
+
+	public RequestScope restrict(Duration budget) {
+		if (budget != null && !budget.isZero() && !budget.isNegative()) {
+			deadlineNanos = Math.min(deadlineNanos, System.nanoTime() + budget.toNanos());
+		}
+		return this;
+	}
+
+	public Attachment attach() {
+		RequestScope previous = CURRENT.get();
+		CURRENT.set(this);
+		return () -> {
+			if (previous != null) {
+				CURRENT.set(previous);
+			} else {
+				CURRENT.remove();
+			}
+		};
+	}
+
+	public Runnable wrap(Runnable task) {
+		return () -> {
+			try (Attachment ignored = attach()) {
+				task.run();
+			}
+		};
+	}
+
+	public <T> Supplier<T> wrap(Supplier<T> task) {
+		return () -> {
+			try (Attachment ignored = attach()) {
+				return task.get();
+			}
+		};
+	}
+
+	public boolean isActive() {
+		return !isCancelled() && remainingNanos() > 0L;
+	}
+
+	public boolean isCancelled() {
+		return cancelled || parent != null && parent.isCancelled();
+	}
+
+	public long remainingNanos() {
+		long remaining = deadlineNanos == NO_DEADLINE ? Long.MAX_VALUE : deadlineNanos - System.nanoTime();
+		return parent != null ? Math.min(remaining, parent.remainingNanos()) : remaining;
+	}
+
+	public boolean hasDeadline() {
+		return remainingNanos() != Long.MAX_VALUE;
+	}
+
+	public void checkActive() {
+		if (!isActive()) {
+			throw abandoned(null);
+		}
+	}
+
+	// aborting drops the HTTP connection instead of draining the body, so the pool slot comes back immediately
+	public void cancel() {
+		cancelled = true;
+		for (Abortable stream : openStreams) {
+			stream.abort();
+		}
+	}
+
+	// returns the call that forgets the stream again once it is closed
+	public Runnable register(Abortable stream) {
+		openStreams.add(stream);
+		// a cancel that raced the registration would have missed this stream
+		if (isCancelled()) {
+			stream.abort();
+		}
+		Runnable parentRelease = parent != null ? parent.register(stream) : () -> {
+		};
+		return () -> {
+			openStreams.remove(stream);
+			parentRelease.run();
+		};
+	}
+
+	public <T> T call(Supplier<T> call) {
+		checkActive();
+		try {
+			return call.get();
+		} catch (ApiCallTimeoutException | AbortedException exception) {
+			if (!isActive()) {
+				throw abandoned(exception);
+			}
+			throw exception;
+		}
+	}
+
+	// the SDK aborts the call itself once the remaining budget runs out, which also frees its pooled connection
+	@SuppressWarnings("unchecked")
+	public <R extends AwsRequest, T> T call(R request, Function<R, T> operation) {
+		return call(() -> {
+			if (!hasDeadline()) {
+				return operation.apply(request);
+			}
+			Duration remaining = Duration.ofNanos(Math.max(1L, remainingNanos()));
+			return operation.apply((R) request.toBuilder()
+				.overrideConfiguration(override -> override.apiCallTimeout(remaining))
+				.build());
+		});
+	}
+
+	private RequestAbandonedException abandoned(Throwable cause) {
+		if (isCancelled()) {
+			return new RequestAbandonedException("The request was abandoned before storage answered", cause);
+		}
+		return new RequestAbandonedException("Storage did not answer before the request deadline", cause);
+	}
+
+	public interface Attachment extends AutoCloseable {
+		@Override
+		void close();
+	}
+}
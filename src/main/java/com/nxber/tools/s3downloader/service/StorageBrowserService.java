@@ -1,58 +1,107 @@
 package com.nxber.tools.s3downloader.service;
 
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UncheckedIOException;
-import java.nio.charset.StandardCharsets;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.time.Instant;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Base64;
 import java.util.Collection;
-import java.util.Deque;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
+import com.nxber.tools.s3downloader.archive.ArchiveCompressor;
+import com.nxber.tools.s3downloader.archive.ZipArchiveWriter;
+import com.nxber.tools.s3downloader.config.ExecutorConfiguration;
 import com.nxber.tools.s3downloader.config.S3ClientProperties;
 import com.nxber.tools.s3downloader.config.S3SourceManager;
 import com.nxber.tools.s3downloader.config.S3SourceManager.S3Source;
+import com.nxber.tools.s3downloader.diagnostics.FolderStatsScanEvent;
+import com.nxber.tools.s3downloader.diagnostics.ListingPageEvent;
+import com.nxber.tools.s3downloader.diagnostics.ZipEntryWriteEvent;
+import com.nxber.tools.s3downloader.inventory.InventoryIndex;
+import com.nxber.tools.s3downloader.inventory.InventoryService;
 import com.nxber.tools.s3downloader.storage.BucketSummary;
+import com.nxber.tools.s3downloader.storage.KeyOrder;
 import com.nxber.tools.s3downloader.storage.StorageFolder;
 import com.nxber.tools.s3downloader.storage.StorageListing;
 import com.nxber.tools.s3downloader.storage.StorageObject;
+import com.nxber.tools.s3downloader.transfer.Transfer;
+import com.nxber.tools.s3downloader.transfer.TransferCancelledException;
 
 import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.CommonPrefix;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListBucketsRequest;
 import software.amazon.awssdk.services.s3.model.ListBucketsResponse;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
 import software.amazon.awssdk.services.s3.model.S3Exception;
 import software.amazon.awssdk.services.s3.model.S3Object;
 import software.amazon.awssdk.services.s3.paginators.ListObjectsV2Iterable;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
 
 @Service
 public class StorageBrowserService {
-	private static final String TOKEN_DELIMITER = "::";
+	private static final Logger log = LoggerFactory.getLogger(StorageBrowserService.class);
 	private static final Set<String> PREVIEWABLE_IMAGE_EXTENSIONS = Set.of("jpg", "jpeg", "png", "gif", "webp", "bmp", "tif", "tiff", "avif", "svg");
 
 	private final S3SourceManager sourceManager;
 	private final S3ClientProperties properties;
-
-	public StorageBrowserService(S3SourceManager sourceManager, S3ClientProperties properties) {
+	private final ListingCursorStore cursorStore;
+	private final InventoryService inventoryService;
+	private final ListingPrefetcher listingPrefetcher;
+	private final ObjectStreamGate objectStreamGate;
+	private final ListingCache listingCache;
+	private final RequestHedger requestHedger;
+	private final ArchiveCompressor archiveCompressor;
+	private final Executor executor;
+
+	public StorageBrowserService(
+		S3SourceManager sourceManager,
+		S3ClientProperties properties,
+		ListingCursorStore cursorStore,
+		InventoryService inventoryService,
+		ListingPrefetcher listingPrefetcher,
+		ObjectStreamGate objectStreamGate,
+		ListingCache listingCache,
+		RequestHedger requestHedger,
+		ArchiveCompressor archiveCompressor,
+		@Qualifier(ExecutorConfiguration.STORAGE_FAN_OUT_EXECUTOR) Executor executor
+	) {
 		this.sourceManager = sourceManager;
 		this.properties = properties;
+		this.cursorStore = cursorStore;
+		this.inventoryService = inventoryService;
+		this.listingPrefetcher = listingPrefetcher;
+		this.objectStreamGate = objectStreamGate;
+		this.listingCache = listingCache;
+		this.requestHedger = requestHedger;
+		this.archiveCompressor = archiveCompressor;
+		this.executor = executor;
 	}
 
 	public List<S3Source> listSources() {
@@ -65,34 +114,88 @@ public class StorageBrowserService {
 
 	public List<BucketSummary> listBuckets(String sourceName) {
 		S3Source source = sourceManager.resolve(sourceName);
+		return listingCache.buckets(source.name(), () -> loadBuckets(source));
+	}
+
+	private List<BucketSummary> loadBuckets(S3Source source) {
+		List<BucketSummary> fallback = List.of(new BucketSummary(source.defaultBucket()));
+		// credentials rarely gain ListBuckets at runtime, so a denial is remembered well past the bucket list itself
+		if (listingCache.isBucketListingDenied(source.name())) {
+			return fallback;
+		}
 		S3Client s3Client = source.client();
 		try {
-			ListBucketsResponse response = s3Client.listBuckets();
+			ListBucketsResponse response = RequestScope.current().call(ListBucketsRequest.builder().build(), s3Client::listBuckets);
 			return response.buckets().stream()
 				.map(bucket -> new BucketSummary(bucket.name()))
 				.toList();
 		} catch (S3Exception exception) {
 			if (exception.statusCode() == 403 || exception.statusCode() == 401) {
-				return List.of(new BucketSummary(source.defaultBucket()));
+				listingCache.markBucketListingDenied(source.name());
+				return fallback;
 			}
 			throw exception;
 		}
 	}
 
-	public StorageListing listObjects(String sourceName, String bucket, String prefix, String tokenStack, String query, boolean includeFolderDetails) {
+	// the bucket list and the listing are independent round-trips, so a page view waits for the slower one instead of both
+	public BrowsePage browse(String sourceName, String bucket, String prefix, int page, String query, boolean includeFolderDetails) {
+		S3Source source = sourceManager.resolve(sourceName);
+		String effectiveBucket = StringUtils.hasText(bucket) ? bucket : source.defaultBucket();
+		// the bucket list is cached far longer than listings, so most page views never need a second thread for it
+		Optional<List<BucketSummary>> cachedBuckets = listingCache.cachedBuckets(source.name());
+		CompletableFuture<List<BucketSummary>> buckets = cachedBuckets.isPresent()
+			? CompletableFuture.completedFuture(cachedBuckets.get())
+			: CompletableFuture.supplyAsync(RequestScope.current().wrap(() -> listBuckets(source.name())), executor);
+
+		StorageListing listing;
+		String errorMessage = null;
+		try {
+			listing = listObjects(source.name(), effectiveBucket, prefix, page, query, includeFolderDetails);
+		} catch (StorageAccessException exception) {
+			errorMessage = exception.getMessage();
+			listing = new StorageListing(effectiveBucket, "", List.of(), List.of(), false, 1, 1, 1);
+		}
+
+		try {
+			return new BrowsePage(buckets.join(), listing, errorMessage);
+		} catch (CompletionException exception) {
+			if (exception.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			throw exception;
+		}
+	}
+
+	public void invalidateListing(String sourceName, String bucket, String prefix) {
+		S3Source source = sourceManager.resolve(sourceName);
+		String effectiveBucket = StringUtils.hasText(bucket) ? bucket : source.defaultBucket();
+		listingCache.invalidate(source.name(), effectiveBucket, normalizePrefix(prefix));
+		cursorStore.invalidate(source.name(), effectiveBucket, normalizePrefix(prefix));
+	}
+
+	public StorageListing listObjects(String sourceName, String bucket, String prefix, int page, String query, boolean includeFolderDetails) {
 		S3Source source = sourceManager.resolve(sourceName);
-		S3Client s3Client = source.client();
 		String effectiveBucket = StringUtils.hasText(bucket) ? bucket : source.defaultBucket();
 
 		String normalizedPrefix = normalizePrefix(prefix);
-		Deque<String> decodedTokenStack = decodeTokenStack(tokenStack);
-		String continuationToken = decodedTokenStack.peekLast();
+		if (StringUtils.hasText(query)) {
+			Optional<InventoryIndex> inventory = inventoryService.findIndex(source.name(), effectiveBucket);
+			if (inventory.isPresent()) {
+				return searchInventory(inventory.get(), source, effectiveBucket, normalizedPrefix, page, query, includeFolderDetails);
+			}
+		}
+
+		ListingCursorStore.Cursor cursor = cursorStore.open(source.name(), effectiveBucket, normalizedPrefix, query);
+		// pages beyond the furthest discovered boundary fall back to the last page we can reach directly
+		ListingCursorStore.PageStart pageStart = cursor.pageStart(page - 1);
+		int pageIndex = pageStart.index();
+		String continuationToken = pageStart.token();
 
 		int searchIterations = 0;
 
 		List<StorageObject> objects = new ArrayList<>();
 		List<StorageFolder> folders = new ArrayList<>();
-		Map<String, FolderStats> folderStatsCache = includeFolderDetails ? new HashMap<>() : Map.of();
 
 		boolean truncated = false;
 
@@ -102,26 +205,17 @@ public class StorageBrowserService {
 		Predicate<String> matchesQuery = buildMatcher(query);
 
 		do {
-			ListObjectsV2Request.Builder requestBuilder = ListObjectsV2Request.builder()
-				.bucket(effectiveBucket)
-				.prefix(normalizedPrefix)
-				.delimiter("/")
-				.maxKeys(properties.getPageSize());
-
-			if (StringUtils.hasText(currentToken)) {
-				requestBuilder = requestBuilder.continuationToken(currentToken);
-			}
+			ListObjectsV2Request request = listingPageRequest(effectiveBucket, normalizedPrefix, currentToken);
 
-			ListObjectsV2Response response;
+			ListingPage response;
 			try {
-				response = s3Client.listObjectsV2(requestBuilder.build());
+				response = fetchListingPage(source, request, true);
 			} catch (S3Exception exception) {
 				throw translateException(exception, effectiveBucket, source);
 			}
 			searchIterations++;
 
 			List<StorageFolder> pageFolders = response.commonPrefixes().stream()
-				.map(CommonPrefix::prefix)
 				.map(prefixValue -> new StorageFolder(folderName(prefixValue), prefixValue, 0L, null))
 				.filter(folder -> matchesQuery.test(folder.name()))
 				.toList();
@@ -146,7 +240,7 @@ public class StorageBrowserService {
 			folders.addAll(pageFolders);
 			objects.addAll(pageObjects);
 
-			truncated = response.isTruncated();
+			truncated = response.truncated();
 			nextTokenForStack = response.nextContinuationToken();
 
 			boolean reachedDisplayCapacity = objects.size() >= properties.getPageSize();
@@ -167,63 +261,222 @@ public class StorageBrowserService {
 		List<StorageFolder> trimmedFolders = limitList(folders, properties.getPageSize());
 		List<StorageFolder> sizedFolders;
 		if (includeFolderDetails) {
-			sizedFolders = trimmedFolders.stream()
-				.map(folder -> {
-					// cache folder metrics per prefix to avoid repeat listings during this request
-					FolderStats stats = folderStatsCache.computeIfAbsent(folder.prefix(), key -> calculateFolderStats(source, effectiveBucket, key));
-					return new StorageFolder(
-						folder.name(),
-						folder.prefix(),
-						stats.size(),
-						stats.lastModified()
-					);
-				})
-				.toList();
+			sizedFolders = withFolderStats(source, effectiveBucket, normalizedPrefix, trimmedFolders);
 		} else {
 			sizedFolders = trimmedFolders.stream()
 				.map(folder -> new StorageFolder(folder.name(), folder.prefix(), 0L, null))
 				.toList();
 		}
 
-		String encodedCurrentStack = encodeTokenStack(decodedTokenStack);
-		String encodedNextStack = StringUtils.hasText(nextTokenForStack)
-			? appendToStack(encodedCurrentStack, nextTokenForStack)
-			: "";
-		String encodedPreviousStack = decodedTokenStack.isEmpty() ? "" : dropLastFromStack(encodedCurrentStack);
+		boolean hasNext = truncated && StringUtils.hasText(nextTokenForStack);
+		cursor.recordNextBoundary(pageIndex, hasNext ? nextTokenForStack : null);
+		if (!StringUtils.hasText(query)) {
+			schedulePageBoundaryPrefetch(source, effectiveBucket, normalizedPrefix, cursor);
+			scheduleSpeculativeListings(source, effectiveBucket, normalizedPrefix, hasNext ? nextTokenForStack : null, sizedFolders);
+		}
 
 		return new StorageListing(
 			effectiveBucket,
 			normalizedPrefix,
 			sizedFolders,
 			trimmedObjects,
-			truncated && StringUtils.hasText(nextTokenForStack),
-			encodedCurrentStack,
-			encodedNextStack,
-			encodedPreviousStack
+			hasNext,
+			pageIndex + 1,
+			cursor.knownPages(),
+			cursor.totalPages().orElse(0)
 		);
 	}
 
+	private StorageListing searchInventory(InventoryIndex inventory, S3Source source, String bucket, String prefix, int page, String query, boolean includeFolderDetails) {
+		// the inventory answers each page without listing S3; a page's boundary is the last child of the page before it
+		ListingCursorStore.Cursor cursor = cursorStore.openInventorySearch(source.name(), bucket, prefix, query);
+		ListingCursorStore.PageStart pageStart = cursor.pageStart(page - 1);
+		InventoryIndex.Children children = inventory.listChildren(prefix, buildMatcher(query), properties.getPageSize(),
+			StringUtils.hasText(pageStart.token()) ? pageStart.token() : null);
+		cursor.recordNextBoundary(pageStart.index(), children.continueAfter());
+		List<StorageFolder> folders = includeFolderDetails
+			? withFolderStats(source, bucket, prefix, children.folders())
+			: children.folders();
+		List<StorageObject> objects = children.objects().stream()
+			.map(object -> new StorageObject(object.key(), object.name(), object.size(), object.lastModified(), object.eTag(), isPreviewableImageKey(object.key())))
+			.toList();
+		return new StorageListing(bucket, prefix, folders, objects, children.continueAfter() != null, pageStart.index() + 1, cursor.knownPages(), cursor.totalPages().orElse(0));
+	}
+
+	// only pages someone is waiting for are hedged; background walks would spend the budget and skew the latency window it hedges by
+	private ListingPage fetchListingPage(S3Source source, ListObjectsV2Request request, boolean hedged) {
+		// hedged attempts run on the hedger's own threads, so they carry the caller's scope explicitly
+		RequestScope scope = RequestScope.current();
+		ListingPageEvent event = new ListingPageEvent();
+		event.begin();
+		// a page another node already fetched beats a speculative local copy, which beats asking S3
+		event.origin = "cache";
+		ListingPage page = listingCache.listingPage(source.name(), request, () -> {
+			event.origin = "prefetch";
+			return ListingPage.of(listingPrefetcher.lookup(source.name(), request)
+				.orElseGet(() -> {
+					event.origin = "storage";
+					if (!hedged) {
+						return scope.call(request, source.client()::listObjectsV2);
+					}
+					return requestHedger.execute(RequestHedger.LIST_OBJECTS, () -> scope.call(request, source.client()::listObjectsV2), response -> {
+					});
+				}));
+		});
+		event.end();
+		if (event.shouldCommit()) {
+			event.source = source.name();
+			event.bucket = request.bucket();
+			event.prefix = request.prefix();
+			event.entries = page.commonPrefixes().size() + page.contents().size();
+			event.truncated = page.truncated();
+			event.commit();
+		}
+		return page;
+	}
+
+	private ListObjectsV2Request listingPageRequest(String bucket, String prefix, String continuationToken) {
+		ListObjectsV2Request.Builder requestBuilder = ListObjectsV2Request.builder()
+			.bucket(bucket)
+			.prefix(prefix)
+			.delimiter("/")
+			.maxKeys(properties.getPageSize());
+
+		if (StringUtils.hasText(continuationToken)) {
+			requestBuilder = requestBuilder.continuationToken(continuationToken);
+		}
+		return requestBuilder.build();
+	}
+
+	private void scheduleSpeculativeListings(S3Source source, String bucket, String prefix, String nextToken, List<StorageFolder> visibleFolders) {
+		if (!listingPrefetcher.isEnabled()) {
+			return;
+		}
+		// the request shapes match listObjects exactly so the foreground lookup hits the same cache entries
+		if (StringUtils.hasText(nextToken)) {
+			listingPrefetcher.prefetch(source, listingPageRequest(bucket, prefix, nextToken));
+		}
+		visibleFolders.stream()
+			.limit(listingPrefetcher.subfolderLimit())
+			.forEach(folder -> listingPrefetcher.prefetch(source, listingPageRequest(bucket, folder.prefix(), null)));
+	}
+
+	private void schedulePageBoundaryPrefetch(S3Source source, String bucket, String prefix, ListingCursorStore.Cursor cursor) {
+		S3ClientProperties.Cursor settings = properties.getCursor();
+		if (!settings.isPrefetchEnabled() || cursor.isComplete() || cursor.knownPages() >= settings.getPrefetchPageLimit()) {
+			return;
+		}
+		if (!cursor.beginPrefetch()) {
+			return;
+		}
+
+		try {
+			executor.execute(() -> {
+				try {
+					prefetchPageBoundaries(source, bucket, prefix, cursor, settings.getPrefetchPageLimit());
+				} catch (RuntimeException exception) {
+					log.debug("Page boundary prefetch for '{}' in bucket '{}' stopped early", prefix, bucket, exception);
+				} finally {
+					cursor.endPrefetch();
+				}
+			});
+		} catch (RejectedExecutionException exception) {
+			cursor.endPrefetch();
+		}
+	}
+
+	private void prefetchPageBoundaries(S3Source source, String bucket, String prefix, ListingCursorStore.Cursor cursor, int pageLimit) {
+		// walk the same page shape the browser uses so every boundary lines up with a rendered page
+		while (!cursor.isComplete() && cursor.knownPages() < pageLimit) {
+			ListingCursorStore.PageStart pageStart = cursor.lastPageStart();
+			ListingPage response = fetchListingPage(source, listingPageRequest(bucket, prefix, pageStart.token()), false);
+			cursor.recordNextBoundary(pageStart.index(), response.truncated() ? response.nextContinuationToken() : null);
+		}
+	}
+
 	public ResponseInputStream<GetObjectResponse> openObjectStream(String sourceName, String bucket, String key) {
 		S3Source source = sourceManager.resolve(sourceName);
 		String effectiveBucket = StringUtils.hasText(bucket) ? bucket : source.defaultBucket();
-		return source.client().getObject(GetObjectRequest.builder()
+		return objectStreamGate.open(source, GetObjectRequest.builder()
 			.bucket(effectiveBucket)
 			.key(key)
 			.build());
 	}
 
-	public Map<String, Long> streamObjectsAsZip(String sourceName, String bucket, Collection<String> keys, ZipOutputStream zipOutputStream) {
+	public ResponseInputStream<GetObjectResponse> openPreviewStream(String sourceName, String bucket, String key) {
+		return openPreviewRange(sourceName, bucket, key, null);
+	}
+
+	// range is an HTTP byte range such as "bytes=0-65535" or "bytes=-65536"; null reads the whole object
+	public ResponseInputStream<GetObjectResponse> openPreviewRange(String sourceName, String bucket, String key, String range) {
+		S3Source source = sourceManager.resolve(sourceName);
+		String effectiveBucket = StringUtils.hasText(bucket) ? bucket : source.defaultBucket();
+		GetObjectRequest request = GetObjectRequest.builder()
+			.bucket(effectiveBucket)
+			.key(key)
+			.range(range)
+			.build();
+		// previews are small reads on the interactive path, so a slow first answer is worth duplicating
+		return requestHedger.execute(RequestHedger.GET_OBJECT, RequestScope.current().wrap(() -> objectStreamGate.open(source, request)), this::abortQuietly);
+	}
+
+	// empty when the source proxies object bytes; disposition replaces the header storage would otherwise send back
+	public Optional<URI> presignObjectUrl(String sourceName, String bucket, String key, String contentDisposition) {
+		S3Source source = sourceManager.resolve(sourceName);
+		if (!source.redirectsDownloads()) {
+			return Optional.empty();
+		}
+		String effectiveBucket = StringUtils.hasText(bucket) ? bucket : source.defaultBucket();
+		GetObjectRequest request = GetObjectRequest.builder()
+			.bucket(effectiveBucket)
+			.key(key)
+			.responseContentDisposition(contentDisposition)
+			.build();
+		// signing is local, so a missing object surfaces as a 404 from storage rather than from here
+		PresignedGetObjectRequest presigned = source.presigner().presignGetObject(GetObjectPresignRequest.builder()
+			.signatureDuration(source.properties().getPresignTtl())
+			.getObjectRequest(request)
+			.build());
+		try {
+			return Optional.of(presigned.url().toURI());
+		} catch (URISyntaxException exception) {
+			throw new StorageAccessException("Could not sign a download URL for '%s' in source '%s'".formatted(key, source.name()), exception);
+		}
+	}
+
+	private void abortQuietly(ResponseInputStream<GetObjectResponse> objectStream) {
+		objectStream.abort();
+		try {
+			objectStream.close();
+		} catch (IOException exception) {
+			log.debug("Closing an abandoned object stream failed", exception);
+		}
+	}
+
+	public ZipArchiveWriter openArchive(OutputStream outputStream) {
+		return archiveCompressor.open(outputStream);
+	}
+
+	public Map<String, Long> streamObjectsAsZip(String sourceName, String bucket, Collection<String> keys, ZipArchiveWriter archive, Transfer transfer) {
 		S3Source source = sourceManager.resolve(sourceName);
 		S3Client s3Client = source.client();
 		String effectiveBucket = StringUtils.hasText(bucket) ? bucket : source.defaultBucket();
 		Map<String, Long> transferredBytes = new HashMap<>();
 		keys.stream()
 			.filter(StringUtils::hasText)
-			.forEach(key -> writeObjectToZip(s3Client, effectiveBucket, key, zipOutputStream, transferredBytes, source));
+			.forEach(key -> transferredBytes.put(key, writeObjectToZip(s3Client, effectiveBucket, key, archive, "", source, transfer)));
 		return transferredBytes;
 	}
 
-	public Map<String, Long> streamPrefixAsZip(String sourceName, String bucket, String prefix, ZipOutputStream zipOutputStream) {
+	public Map<String, Long> streamPrefixAsZip(String sourceName, String bucket, String prefix, ZipArchiveWriter archive, Transfer transfer) {
+		return streamPrefixRangeAsZip(sourceName, bucket, prefix, null, null, archive, transfer);
+	}
+
+	// writes the objects of one volume: keys below the prefix strictly after startAfter and up to endInclusive, a null bound being open
+	public Map<String, Long> streamPrefixRangeAsZip(String sourceName, String bucket, String prefix, String startAfter, String endInclusive, ZipArchiveWriter archive, Transfer transfer) {
+		if (!ArchiveVolume.isValidRange(startAfter, endInclusive)) {
+			throw new IllegalArgumentException("Volume range ends before it starts");
+		}
 		S3Source source = sourceManager.resolve(sourceName);
 		S3Client s3Client = source.client();
 		String effectiveBucket = StringUtils.hasText(bucket) ? bucket : source.defaultBucket();
@@ -233,6 +486,7 @@ public class StorageBrowserService {
 		ListObjectsV2Request request = ListObjectsV2Request.builder()
 			.bucket(effectiveBucket)
 			.prefix(normalizedPrefix)
+			.startAfter(startAfter)
 			.build();
 
 		ListObjectsV2Iterable iterable;
@@ -241,49 +495,172 @@ public class StorageBrowserService {
 		} catch (S3Exception exception) {
 			throw translateException(exception, effectiveBucket, source);
 		}
+		RequestScope scope = RequestScope.current();
 		for (ListObjectsV2Response response : iterable) {
+			scope.checkActive();
 			for (S3Object object : response.contents()) {
+				// listings come back in key order, so the first key past the range ends the volume
+				if (endInclusive != null && KeyOrder.compare(object.key(), endInclusive) > 0) {
+					return transferredBytes;
+				}
 				if (object.key().endsWith("/")) {
 					continue;
 				}
-				writeObjectToZip(s3Client, effectiveBucket, object.key(), zipOutputStream, transferredBytes, normalizedPrefix, source);
+				transferredBytes.put(object.key(), writeObjectToZip(s3Client, effectiveBucket, object.key(), archive, normalizedPrefix, source, transfer));
 			}
 		}
 
 		return transferredBytes;
 	}
 
-	private void writeObjectToZip(S3Client s3Client, String bucket, String key, ZipOutputStream zipOutputStream, Map<String, Long> transferredBytes, S3Source source) {
-		writeObjectToZip(s3Client, bucket, key, zipOutputStream, transferredBytes, "", source);
+	// cuts the listing below a prefix into contiguous key ranges of about volumeBytes each, reporting each volume as soon as it is closed
+	public int planFolderVolumes(String sourceName, String bucket, String prefix, long volumeBytes, Consumer<ArchiveVolume> listener) {
+		S3Source source = sourceManager.resolve(sourceName);
+		S3Client s3Client = source.client();
+		String effectiveBucket = StringUtils.hasText(bucket) ? bucket : source.defaultBucket();
+		int maxVolumes = properties.getArchive().getMaxVolumes();
+
+		int part = 0;
+		String startAfter = null;
+		String lastKey = null;
+		int objects = 0;
+		long bytes = 0L;
+		RequestScope scope = RequestScope.current();
+		try {
+			for (ListObjectsV2Response response : s3Client.listObjectsV2Paginator(ListObjectsV2Request.builder()
+				.bucket(effectiveBucket)
+				.prefix(normalizePrefix(prefix))
+				.maxKeys(1000)
+				.build())) {
+				scope.checkActive();
+				for (S3Object object : response.contents()) {
+					if (object.key().endsWith("/")) {
+						continue;
+					}
+					long size = object.size() != null ? object.size() : 0L;
+					// an object larger than the budget still gets a volume of its own rather than being split
+					if (objects > 0 && bytes + size > volumeBytes && part + 1 < maxVolumes) {
+						listener.accept(new ArchiveVolume(++part, startAfter, lastKey, objects, bytes));
+						startAfter = lastKey;
+						objects = 0;
+						bytes = 0L;
+					}
+					objects++;
+					bytes += size;
+					lastKey = object.key();
+				}
+			}
+		} catch (S3Exception exception) {
+			throw translateException(exception, effectiveBucket, source);
+		}
+
+		// the last volume stays open-ended, so objects written after planning still land in exactly one volume
+		listener.accept(new ArchiveVolume(++part, startAfter, null, objects, bytes));
+		return part;
+	}
+
+	public ArchiveSummary streamFilteredAsZip(String sourceName, String bucket, ObjectFilter filter, ZipArchiveWriter archive, Transfer transfer) {
+		S3Source source = sourceManager.resolve(sourceName);
+		S3Client s3Client = source.client();
+		String effectiveBucket = StringUtils.hasText(bucket) ? bucket : source.defaultBucket();
+		ObjectFilter effectiveFilter = filter.withPrefix(normalizePrefix(filter.prefix()));
+
+		ListObjectsV2Request.Builder requestBuilder = ListObjectsV2Request.builder()
+			.bucket(effectiveBucket)
+			.prefix(effectiveFilter.prefix())
+			.maxKeys(1000);
+		if (!effectiveFilter.recursive()) {
+			requestBuilder = requestBuilder.delimiter("/");
+		}
+
+		// matches go straight from each listing page into the archive, so only counters outlive a page
+		int entries = 0;
+		long bytes = 0L;
+		RequestScope scope = RequestScope.current();
+		try {
+			for (ListObjectsV2Response response : s3Client.listObjectsV2Paginator(requestBuilder.build())) {
+				// a selective filter can page through many listings between matches, none of which would notice a departed client by writing
+				transfer.checkNotCancelled();
+				scope.checkActive();
+				for (S3Object object : response.contents()) {
+					if (!effectiveFilter.matches(object)) {
+						continue;
+					}
+					bytes += Math.max(0L, writeObjectToZip(s3Client, effectiveBucket, object.key(), archive, effectiveFilter.prefix(), source, transfer));
+					entries++;
+				}
+			}
+		} catch (S3Exception exception) {
+			throw translateException(exception, effectiveBucket, source);
+		}
+
+		return new ArchiveSummary(entries, bytes);
+	}
+
+	public ArchiveSummary streamKeysAsZip(String sourceName, String bucket, String prefixToTrim, Iterator<String> keys, ZipArchiveWriter archive, Transfer transfer) {
+		S3Source source = sourceManager.resolve(sourceName);
+		S3Client s3Client = source.client();
+		String effectiveBucket = StringUtils.hasText(bucket) ? bucket : source.defaultBucket();
+		String normalizedPrefix = normalizePrefix(prefixToTrim);
+		int entries = 0;
+		long bytes = 0L;
+		while (keys.hasNext()) {
+			String key = keys.next();
+			if (!StringUtils.hasText(key)) {
+				continue;
+			}
+			bytes += Math.max(0L, writeObjectToZip(s3Client, effectiveBucket, key, archive, normalizedPrefix, source, transfer));
+			entries++;
+		}
+		return new ArchiveSummary(entries, bytes);
 	}
 
-	private void writeObjectToZip(S3Client s3Client, String bucket, String key, ZipOutputStream zipOutputStream, Map<String, Long> transferredBytes, String prefixToTrim, S3Source source) {
+	private long writeObjectToZip(S3Client s3Client, String bucket, String key, ZipArchiveWriter archive, String prefixToTrim, S3Source source, Transfer transfer) {
+		transfer.checkNotCancelled();
 		String entryName = sanitizeEntryName(key, prefixToTrim);
 
-		try (ResponseInputStream<GetObjectResponse> objectStream = s3Client.getObject(GetObjectRequest.builder()
+		try (ResponseInputStream<GetObjectResponse> objectStream = objectStreamGate.open(source, GetObjectRequest.builder()
 			.bucket(bucket)
 			.key(key)
 			.build())) {
-			ZipEntry entry = new ZipEntry(entryName);
-			Long contentLength = objectStream.response().contentLength();
-			if (contentLength != null && contentLength >= 0) {
-				entry.setSize(contentLength);
+			GetObjectResponse response = objectStream.response();
+			Long contentLength = response.contentLength();
+			transfer.beginEntry(key, objectStream);
+			boolean compress = archiveCompressor.shouldCompress(key, response.contentType());
+			ZipEntryWriteEvent event = new ZipEntryWriteEvent();
+			event.begin();
+			long written = -1L;
+			try {
+				written = archive.writeEntry(
+					entryName,
+					response.lastModified(),
+					contentLength != null ? contentLength : -1L,
+					objectStream,
+					compress
+				);
+				return written;
+			} finally {
+				transfer.endEntry(written);
+				event.end();
+				if (event.shouldCommit()) {
+					event.source = source.name();
+					event.bucket = bucket;
+					event.key = key;
+					event.bytes = written;
+					event.compressed = compress;
+					event.commit();
+				}
 			}
-			zipOutputStream.putNextEntry(entry);
-			transfer(objectStream, zipOutputStream);
-			zipOutputStream.closeEntry();
-			transferredBytes.put(key, contentLength != null ? contentLength : -1L);
 		} catch (IOException exception) {
+			if (transfer.isCancelled()) {
+				throw new TransferCancelledException(transfer.id(), exception);
+			}
 			throw new UncheckedIOException("Failed to add object '%s' to archive".formatted(key), exception);
 		} catch (S3Exception exception) {
 			throw translateException(exception, bucket, source);
 		}
 	}
 
-	private void transfer(InputStream inputStream, ZipOutputStream outputStream) throws IOException {
-		inputStream.transferTo(outputStream);
-	}
-
 	private Predicate<String> buildMatcher(String query) {
 		if (!StringUtils.hasText(query)) {
 			return value -> true;
@@ -328,100 +705,178 @@ public class StorageBrowserService {
 		return sanitized;
 	}
 
-	private Deque<String> decodeTokenStack(String encodedStack) {
-		Deque<String> tokens = new ArrayDeque<>();
-		if (!StringUtils.hasText(encodedStack)) {
-			return tokens;
-		}
+	private <T> List<T> limitList(List<T> source, int maxSize) {
+		return source.size() <= maxSize ? source : source.subList(0, maxSize);
+	}
 
-		for (String encoded : encodedStack.split(TOKEN_DELIMITER)) {
-			if (!StringUtils.hasText(encoded)) {
-				continue;
-			}
-			tokens.addLast(new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8));
-		}
+	public boolean supportsInlinePreview(String key) {
+		return isPreviewableImageKey(key);
+	}
 
-		return tokens;
+	public void streamFolderStats(String sourceName, String bucket, String parentPrefix, Collection<String> folderPrefixes, Consumer<StorageFolder> listener) {
+		S3Source source = sourceManager.resolve(sourceName);
+		String effectiveBucket = StringUtils.hasText(bucket) ? bucket : source.defaultBucket();
+		aggregateFolderStats(source, effectiveBucket, normalizePrefix(parentPrefix), folderPrefixes, (folderPrefix, stats) ->
+			listener.accept(new StorageFolder(folderName(folderPrefix), folderPrefix, stats.size(), stats.lastModified())));
 	}
 
-	private String encodeTokenStack(Deque<String> tokens) {
-		return tokens.stream()
-			.filter(StringUtils::hasText)
-			.map(token -> Base64.getUrlEncoder().withoutPadding().encodeToString(token.getBytes(StandardCharsets.UTF_8)))
-			.reduce((left, right) -> left + TOKEN_DELIMITER + right)
-			.orElse("");
+	private List<StorageFolder> withFolderStats(S3Source source, String bucket, String parentPrefix, List<StorageFolder> folders) {
+		Map<String, FolderStats> statsByPrefix = new ConcurrentHashMap<>();
+		aggregateFolderStats(source, bucket, parentPrefix, folders.stream().map(StorageFolder::prefix).toList(), statsByPrefix::put);
+		return folders.stream()
+			.map(folder -> {
+				FolderStats stats = statsByPrefix.getOrDefault(folder.prefix(), new FolderStats(0L, null));
+				return new StorageFolder(folder.name(), folder.prefix(), stats.size(), stats.lastModified());
+			})
+			.toList();
 	}
 
-	private String appendToStack(String encodedStack, String tokenToAppend) {
-		if (!StringUtils.hasText(tokenToAppend)) {
-			return encodedStack;
+	private void aggregateFolderStats(S3Source source, String bucket, String parentPrefix, Collection<String> folderPrefixes, BiConsumer<String, FolderStats> listener) {
+		List<String> sortedPrefixes = folderPrefixes.stream()
+			.filter(StringUtils::hasText)
+			.map(this::normalizePrefix)
+			.filter(folderPrefix -> folderPrefix.startsWith(parentPrefix) && folderPrefix.length() > parentPrefix.length())
+			.distinct()
+			.sorted(KeyOrder.UTF8)
+			.toList();
+		if (sortedPrefixes.isEmpty()) {
+			return;
 		}
 
-		String encodedToken = Base64.getUrlEncoder().withoutPadding().encodeToString(tokenToAppend.getBytes(StandardCharsets.UTF_8));
-		if (!StringUtils.hasText(encodedStack)) {
-			return encodedToken;
+		Optional<InventoryIndex> inventory = inventoryService.findIndex(source.name(), bucket);
+		if (inventory.isPresent()) {
+			for (String folderPrefix : sortedPrefixes) {
+				InventoryIndex.Summary summary = inventory.get().summarize(folderPrefix);
+				listener.accept(folderPrefix, new FolderStats(summary.totalSize(), summary.lastModified()));
+			}
+			return;
 		}
 
-		return encodedStack + TOKEN_DELIMITER + encodedToken;
-	}
-
-	private String dropLastFromStack(String encodedStack) {
-		if (!StringUtils.hasText(encodedStack)) {
-			return "";
+		List<String> uncachedPrefixes = new ArrayList<>();
+		for (String folderPrefix : sortedPrefixes) {
+			Optional<FolderStats> cached = listingCache.folderStats(source.name(), bucket, folderPrefix, FolderStats.class);
+			if (cached.isPresent()) {
+				listener.accept(folderPrefix, cached.get());
+			} else {
+				uncachedPrefixes.add(folderPrefix);
+			}
 		}
-
-		int lastDelimiterIndex = encodedStack.lastIndexOf(TOKEN_DELIMITER);
-		if (lastDelimiterIndex < 0) {
-			return "";
+		if (uncachedPrefixes.isEmpty()) {
+			return;
+		}
+		BiConsumer<String, FolderStats> cachingListener = (folderPrefix, stats) -> {
+			listingCache.putFolderStats(source.name(), bucket, folderPrefix, stats);
+			listener.accept(folderPrefix, stats);
+		};
+
+		// split the sorted children into contiguous key ranges and walk each range once instead of listing every child separately
+		int partitionCount = Math.min(Math.max(1, properties.getFolderStats().getPartitions()), uncachedPrefixes.size());
+		int partitionSize = (uncachedPrefixes.size() + partitionCount - 1) / partitionCount;
+		List<List<String>> partitions = new ArrayList<>();
+		for (int start = 0; start < uncachedPrefixes.size(); start += partitionSize) {
+			partitions.add(uncachedPrefixes.subList(start, Math.min(start + partitionSize, uncachedPrefixes.size())));
 		}
 
-		return encodedStack.substring(0, lastDelimiterIndex);
-	}
+		if (partitions.size() == 1) {
+			scanFolderStatsPartition(source, bucket, parentPrefix, partitions.getFirst(), cachingListener);
+			return;
+		}
 
-	private <T> List<T> limitList(List<T> source, int maxSize) {
-		return source.size() <= maxSize ? source : source.subList(0, maxSize);
+		// the first partition to fail stops its siblings at their next page instead of letting them scan to the end
+		RequestScope scans = RequestScope.current().child();
+		AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+		List<CompletableFuture<Void>> partitionScans = partitions.stream()
+			.map(partition -> CompletableFuture.runAsync(scans.wrap(() -> scanFolderStatsPartition(source, bucket, parentPrefix, partition, cachingListener)), executor)
+				.whenComplete((ignored, failure) -> {
+					if (failure != null && firstFailure.compareAndSet(null, failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure)) {
+						scans.cancel();
+					}
+				}))
+			.toList();
+		try {
+			CompletableFuture.allOf(partitionScans.toArray(CompletableFuture[]::new)).join();
+		} catch (CompletionException exception) {
+			if (firstFailure.get() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			throw exception;
+		}
 	}
 
-	public boolean supportsInlinePreview(String key) {
-		return isPreviewableImageKey(key);
+	private void scanFolderStatsPartition(S3Source source, String bucket, String parentPrefix, List<String> folderPrefixes, BiConsumer<String, FolderStats> listener) {
+		FolderStatsScanEvent event = new FolderStatsScanEvent();
+		event.begin();
+		try {
+			scanFolderStatsPartition(source, bucket, parentPrefix, folderPrefixes, listener, event);
+		} finally {
+			event.end();
+			if (event.shouldCommit()) {
+				event.source = source.name();
+				event.bucket = bucket;
+				event.prefix = folderPrefixes.size() == 1 ? folderPrefixes.getFirst() : parentPrefix;
+				event.folders = folderPrefixes.size();
+				event.commit();
+			}
+		}
 	}
 
-	private FolderStats calculateFolderStats(S3Source source, String bucket, String prefix) {
-		if (!StringUtils.hasText(prefix)) {
-			return new FolderStats(0L, null);
-		}
+	private void scanFolderStatsPartition(S3Source source, String bucket, String parentPrefix, List<String> folderPrefixes, BiConsumer<String, FolderStats> listener, FolderStatsScanEvent event) {
+		S3Client s3Client = source.client();
+		RequestScope scope = RequestScope.current();
+		String firstPrefix = folderPrefixes.getFirst();
+		int pageSize = Math.max(1, properties.getPageSize());
 
-		String normalizedPrefix = normalizePrefix(prefix);
-		String continuationToken = null;
+		int folderIndex = 0;
 		long totalSize = 0L;
 		Instant mostRecent = null;
-		int pageSize = Math.max(1, properties.getPageSize());
-		S3Client s3Client = source.client();
+		String continuationToken = null;
 
+		scan:
 		while (true) {
 			ListObjectsV2Request.Builder requestBuilder = ListObjectsV2Request.builder()
 				.bucket(bucket)
-				.prefix(normalizedPrefix)
 				.maxKeys(pageSize);
 
+			if (folderPrefixes.size() == 1) {
+				requestBuilder = requestBuilder.prefix(firstPrefix);
+			} else {
+				// every key below the first child sorts after the child prefix itself
+				requestBuilder = requestBuilder.prefix(parentPrefix).startAfter(firstPrefix);
+			}
 			if (StringUtils.hasText(continuationToken)) {
 				requestBuilder = requestBuilder.continuationToken(continuationToken);
 			}
 
 			ListObjectsV2Response response;
 			try {
-				response = s3Client.listObjectsV2(requestBuilder.build());
+				response = scope.call(requestBuilder.build(), s3Client::listObjectsV2);
 			} catch (S3Exception exception) {
 				throw translateException(exception, bucket, source);
 			}
+			event.pages++;
 
 			for (S3Object object : response.contents()) {
-				if (!object.key().endsWith("/")) {
-					totalSize += object.size();
-					Instant objectLastModified = object.lastModified();
-					if (objectLastModified != null && (mostRecent == null || objectLastModified.isAfter(mostRecent))) {
-						mostRecent = objectLastModified;
-					}
+				String key = object.key();
+				// keys arrive in order, so once a key sorts past a child that child's totals are final
+				while (folderIndex < folderPrefixes.size() && !key.startsWith(folderPrefixes.get(folderIndex)) && KeyOrder.compare(key, folderPrefixes.get(folderIndex)) > 0) {
+					listener.accept(folderPrefixes.get(folderIndex), new FolderStats(totalSize, mostRecent));
+					totalSize = 0L;
+					mostRecent = null;
+					folderIndex++;
+				}
+				if (folderIndex == folderPrefixes.size()) {
+					break scan;
+				}
+				if (key.endsWith("/") || !key.startsWith(folderPrefixes.get(folderIndex))) {
+					continue;
+				}
+
+				totalSize += object.size();
+				event.objects++;
+				event.bytes += object.size();
+				Instant objectLastModified = object.lastModified();
+				if (objectLastModified != null && (mostRecent == null || objectLastModified.isAfter(mostRecent))) {
+					mostRecent = objectLastModified;
 				}
 			}
 
@@ -436,10 +891,17 @@ public class StorageBrowserService {
 			continuationToken = nextContinuationToken;
 		}
 
-		return new FolderStats(totalSize, mostRecent);
+		for (; folderIndex < folderPrefixes.size(); folderIndex++) {
+			listener.accept(folderPrefixes.get(folderIndex), new FolderStats(totalSize, mostRecent));
+			totalSize = 0L;
+			mostRecent = null;
+		}
+	}
+
+	record FolderStats(long size, Instant lastModified) {
 	}
 
-	private record FolderStats(long size, Instant lastModified) {
+	public record ArchiveSummary(int entries, long bytes) {
 	}
 
 	private boolean isPreviewableImageKey(String key) {
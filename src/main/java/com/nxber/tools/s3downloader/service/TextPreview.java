@@ -0,0 +1,23 @@
+package com.nxber.tools.s3downloader.service;
+
+import java.util.List;
+
+public record TextPreview(
+	String key,
+	boolean tail,
+	String charset,
+	boolean binary,
+	List<String> lines,
+	Table table,
+	long objectSize,
+	long rangeStart,
+	long rangeEnd,
+	boolean truncated
+) {
+	public long fetchedBytes() {
+		return rangeEnd - rangeStart;
+	}
+
+	public record Table(List<String> columns, List<List<String>> rows, int skippedRows) {
+	}
+}
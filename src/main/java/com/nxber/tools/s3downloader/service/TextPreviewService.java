@@ -0,0 +1,259 @@
+package com.nxber.tools.s3downloader.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nxber.tools.s3downloader.config.S3ClientProperties;
+
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+@Service
+public class TextPreviewService {
+	private static final Set<String> TEXT_EXTENSIONS = Set.of(
+		"txt", "log", "out", "err", "csv", "tsv", "json", "jsonl", "ndjson", "md", "xml",
+		"yaml", "yml", "ini", "conf", "cfg", "properties", "sql", "html", "htm", "js", "css", "sh"
+	);
+	private static final Set<String> DELIMITED_EXTENSIONS = Set.of("csv", "tsv");
+	private static final Set<String> JSON_LINES_EXTENSIONS = Set.of("jsonl", "ndjson");
+	private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+|\\*)");
+
+	private final StorageBrowserService browserService;
+	private final S3ClientProperties.TextPreview settings;
+	private final ObjectMapper objectMapper;
+
+	public TextPreviewService(StorageBrowserService browserService, S3ClientProperties properties, ObjectMapper objectMapper) {
+		this.browserService = browserService;
+		this.settings = properties.getTextPreview();
+		this.objectMapper = objectMapper;
+	}
+
+	public boolean supports(String key) {
+		return TEXT_EXTENSIONS.contains(extension(key));
+	}
+
+	public int defaultLines() {
+		return settings.getDefaultLines();
+	}
+
+	public TextPreview preview(String sourceName, String bucket, String key, boolean tail, int requestedLines) {
+		int lineLimit = Math.min(Math.max(1, requestedLines), settings.getMaxLines());
+		int maxBytes = settings.getMaxBytes();
+		// a suffix range reads the last bytes without knowing the object size up front
+		String range = tail ? "bytes=-" + maxBytes : "bytes=0-" + (maxBytes - 1);
+
+		byte[] bytes;
+		long rangeStart;
+		long objectSize;
+		try (ResponseInputStream<GetObjectResponse> objectStream = browserService.openPreviewRange(sourceName, bucket, key, range)) {
+			bytes = objectStream.readNBytes(maxBytes);
+			GetObjectResponse response = objectStream.response();
+			Matcher contentRange = response.contentRange() != null ? CONTENT_RANGE.matcher(response.contentRange()) : null;
+			if (contentRange != null && contentRange.matches()) {
+				rangeStart = Long.parseLong(contentRange.group(1));
+				objectSize = "*".equals(contentRange.group(3)) ? -1L : Long.parseLong(contentRange.group(3));
+			} else {
+				// the store ignored the range and sent the object from the start
+				rangeStart = 0L;
+				objectSize = response.contentLength() != null ? response.contentLength() : -1L;
+			}
+			if (objectSize < 0 || rangeStart + bytes.length < objectSize) {
+				objectStream.abort();
+			}
+		} catch (S3Exception exception) {
+			if (exception.statusCode() == 416) {
+				// empty objects have no satisfiable range
+				return new TextPreview(key, tail, null, false, List.of(), null, 0L, 0L, 0L, false);
+			}
+			throw exception;
+		} catch (IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+
+		long rangeEnd = rangeStart + bytes.length;
+		boolean atStart = rangeStart == 0L;
+		boolean atEnd = objectSize >= 0 && rangeEnd >= objectSize;
+		TextSample sample = TextSample.decode(bytes, atStart, atEnd);
+		if (sample.binary()) {
+			return new TextPreview(key, tail, null, true, List.of(), null, objectSize, rangeStart, rangeEnd, !atStart || !atEnd);
+		}
+
+		List<String> completeLines = completeLines(sample.text(), atStart, atEnd);
+		boolean truncated = !atStart || !atEnd || completeLines.size() > lineLimit;
+		List<String> lines = tail
+			? completeLines.subList(Math.max(0, completeLines.size() - lineLimit), completeLines.size())
+			: completeLines.subList(0, Math.min(lineLimit, completeLines.size()));
+
+		TextPreview.Table table = null;
+		if (!tail && atStart) {
+			String extension = extension(key);
+			if (DELIMITED_EXTENSIONS.contains(extension)) {
+				table = delimitedTable(sample.text(), "tsv".equals(extension) ? '\t' : detectDelimiter(sample.text()), atEnd, lineLimit);
+			} else if (JSON_LINES_EXTENSIONS.contains(extension)) {
+				table = jsonLinesTable(completeLines, lineLimit);
+			}
+		}
+		return new TextPreview(key, tail, sample.charset(), false, List.copyOf(lines), table, objectSize, rangeStart, rangeEnd, truncated);
+	}
+
+	// a line cut by either edge of the range is dropped rather than shown half-finished
+	static List<String> completeLines(String text, boolean atStart, boolean atEnd) {
+		List<String> lines = new ArrayList<>(Arrays.asList(text.split("\n", -1)));
+		if (!atEnd || (!lines.isEmpty() && lines.getLast().isEmpty())) {
+			lines.removeLast();
+		}
+		if (!atStart && !lines.isEmpty()) {
+			lines.removeFirst();
+		}
+		lines.replaceAll(line -> line.endsWith("\r") ? line.substring(0, line.length() - 1) : line);
+		return lines;
+	}
+
+	static char detectDelimiter(String text) {
+		int lineEnd = text.indexOf('\n');
+		String firstLine = lineEnd >= 0 ? text.substring(0, lineEnd) : text;
+		char best = ',';
+		long bestCount = 0L;
+		for (char candidate : new char[] {',', ';', '\t', '|'}) {
+			long count = firstLine.chars().filter(value -> value == candidate).count();
+			if (count > bestCount) {
+				best = candidate;
+				bestCount = count;
+			}
+		}
+		return best;
+	}
+
+	// RFC 4180 records, so quoted fields may hold delimiters, quotes and line breaks
+	static TextPreview.Table delimitedTable(String text, char delimiter, boolean atEnd, int rowLimit) {
+		List<List<String>> records = new ArrayList<>();
+		List<String> record = new ArrayList<>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		boolean recordComplete = true;
+		int index = 0;
+		while (index < text.length() && records.size() <= rowLimit) {
+			char current = text.charAt(index++);
+			recordComplete = false;
+			if (quoted) {
+				if (current == '"' && index < text.length() && text.charAt(index) == '"') {
+					field.append('"');
+					index++;
+				} else if (current == '"') {
+					quoted = false;
+				} else {
+					field.append(current);
+				}
+			} else if (current == '"' && field.isEmpty()) {
+				quoted = true;
+			} else if (current == delimiter) {
+				record.add(field.toString());
+				field.setLength(0);
+			} else if (current == '\n') {
+				record.add(stripCarriageReturn(field));
+				field.setLength(0);
+				records.add(record);
+				record = new ArrayList<>();
+				recordComplete = true;
+			} else {
+				field.append(current);
+			}
+		}
+		// the final record is only whole when the range reached the end of the object
+		if (!recordComplete && atEnd && !quoted) {
+			record.add(stripCarriageReturn(field));
+			records.add(record);
+		}
+		if (records.isEmpty()) {
+			return new TextPreview.Table(List.of(), List.of(), 0);
+		}
+
+		List<String> columns = records.getFirst();
+		List<List<String>> rows = records.subList(1, Math.min(records.size(), rowLimit + 1)).stream()
+			.map(row -> padded(row, columns.size()))
+			.toList();
+		return new TextPreview.Table(List.copyOf(columns), rows, 0);
+	}
+
+	private TextPreview.Table jsonLinesTable(List<String> lines, int rowLimit) {
+		Set<String> columns = new LinkedHashSet<>();
+		List<Map<String, String>> parsedRows = new ArrayList<>();
+		int skipped = 0;
+		for (Iterator<String> iterator = lines.iterator(); iterator.hasNext() && parsedRows.size() < rowLimit; ) {
+			String line = iterator.next();
+			if (line.isBlank()) {
+				continue;
+			}
+			JsonNode node;
+			try {
+				node = objectMapper.readTree(line);
+			} catch (JsonProcessingException exception) {
+				skipped++;
+				continue;
+			}
+			Map<String, String> row = new LinkedHashMap<>();
+			if (node.isObject()) {
+				node.properties().forEach(property -> row.put(property.getKey(), cellValue(property.getValue())));
+			} else {
+				row.put("value", cellValue(node));
+			}
+			columns.addAll(row.keySet());
+			parsedRows.add(row);
+		}
+
+		List<String> columnList = List.copyOf(columns);
+		List<List<String>> rows = parsedRows.stream()
+			.map(row -> columnList.stream().map(column -> row.getOrDefault(column, "")).toList())
+			.toList();
+		return new TextPreview.Table(columnList, rows, skipped);
+	}
+
+	private static String cellValue(JsonNode value) {
+		if (value.isNull()) {
+			return "";
+		}
+		return value.isValueNode() ? value.asText() : value.toString();
+	}
+
+	private static List<String> padded(List<String> row, int width) {
+		if (row.size() >= width) {
+			return List.copyOf(row);
+		}
+		List<String> padded = new ArrayList<>(row);
+		while (padded.size() < width) {
+			padded.add("");
+		}
+		return padded;
+	}
+
+	private static String stripCarriageReturn(StringBuilder field) {
+		int length = field.length();
+		return length > 0 && field.charAt(length - 1) == '\r' ? field.substring(0, length - 1) : field.toString();
+	}
+
+	private static String extension(String key) {
+		if (key == null) {
+			return "";
+		}
+		String fileName = key.substring(key.lastIndexOf('/') + 1).toLowerCase(Locale.ROOT);
+		int dotIndex = fileName.lastIndexOf('.');
+		return dotIndex < 0 ? "" : fileName.substring(dotIndex + 1);
+	}
+}
@@ -0,0 +1,97 @@
+package com.nxber.tools.s3downloader.service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+// decodes a byte range cut out of a larger object, where either edge may split a character
+record TextSample(String charset, String text, boolean binary) {
+	private static final int BINARY_PROBE_BYTES = 8 * 1024;
+
+	static TextSample decode(byte[] bytes, boolean atStart, boolean atEnd) {
+		if (atStart && startsWith(bytes, 0xEF, 0xBB, 0xBF)) {
+			// the byte order mark settles the encoding, so stray malformed bytes are replaced rather than rejected
+			TextSample sample = utf8(bytes, 3, bytes.length, atEnd);
+			return sample != null ? sample : new TextSample(StandardCharsets.UTF_8.name(), new String(bytes, 3, bytes.length - 3, StandardCharsets.UTF_8), false);
+		}
+		if (atStart && startsWith(bytes, 0xFE, 0xFF)) {
+			return utf16(bytes, StandardCharsets.UTF_16BE, atEnd);
+		}
+		if (atStart && startsWith(bytes, 0xFF, 0xFE)) {
+			return utf16(bytes, StandardCharsets.UTF_16LE, atEnd);
+		}
+
+		int probe = Math.min(bytes.length, BINARY_PROBE_BYTES);
+		for (int index = 0; index < probe; index++) {
+			if (bytes[index] == 0) {
+				return new TextSample(null, "", true);
+			}
+		}
+
+		// a range starting mid-object may open on the continuation bytes of a character
+		int start = 0;
+		if (!atStart) {
+			while (start < Math.min(bytes.length, 3) && isContinuation(bytes[start])) {
+				start++;
+			}
+		}
+		TextSample sample = utf8(bytes, start, bytes.length, atEnd);
+		if (sample != null) {
+			return sample;
+		}
+		return new TextSample(StandardCharsets.ISO_8859_1.name(), new String(bytes, StandardCharsets.ISO_8859_1), false);
+	}
+
+	private static TextSample utf8(byte[] bytes, int start, int end, boolean atEnd) {
+		int limit = atEnd ? end : completeUtf8End(bytes, start, end);
+		try {
+			String text = StandardCharsets.UTF_8.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPORT)
+				.onUnmappableCharacter(CodingErrorAction.REPORT)
+				.decode(ByteBuffer.wrap(bytes, start, limit - start))
+				.toString();
+			return new TextSample(StandardCharsets.UTF_8.name(), text, false);
+		} catch (CharacterCodingException exception) {
+			return null;
+		}
+	}
+
+	private static TextSample utf16(byte[] bytes, Charset charset, boolean atEnd) {
+		int length = bytes.length - 2;
+		if (!atEnd) {
+			length -= length % 2;
+		}
+		return new TextSample(charset.name(), new String(bytes, 2, length, charset), false);
+	}
+
+	// drops a multi-byte sequence the range cut off at its end
+	private static int completeUtf8End(byte[] bytes, int start, int end) {
+		for (int index = end - 1; index >= Math.max(start, end - 4); index--) {
+			int value = bytes[index] & 0xFF;
+			if (isContinuation(bytes[index])) {
+				continue;
+			}
+			int sequenceLength = value >= 0xF0 ? 4 : value >= 0xE0 ? 3 : value >= 0xC0 ? 2 : 1;
+			return index + sequenceLength > end ? index : end;
+		}
+		return end;
+	}
+
+	private static boolean isContinuation(byte value) {
+		return (value & 0xC0) == 0x80;
+	}
+
+	private static boolean startsWith(byte[] bytes, int... prefix) {
+		if (bytes.length < prefix.length) {
+			return false;
+		}
+		for (int index = 0; index < prefix.length; index++) {
+			if ((bytes[index] & 0xFF) != prefix[index]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,166 @@
+package com.nxber.tools.s3downloader.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.zip.ZipException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import com.nxber.tools.s3downloader.archive.ZipCentralDirectory;
+import com.nxber.tools.s3downloader.archive.ZipEntryInfo;
+import com.nxber.tools.s3downloader.config.S3ClientProperties;
+import com.nxber.tools.s3downloader.config.S3SourceManager;
+import com.nxber.tools.s3downloader.config.S3SourceManager.S3Source;
+
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+
+@Service
+public class ZipBrowserService {
+	private static final Logger log = LoggerFactory.getLogger(ZipBrowserService.class);
+
+	private final S3SourceManager sourceManager;
+	private final ObjectStreamGate objectStreamGate;
+	private final ListingCache listingCache;
+	private final S3ClientProperties.Archive settings;
+
+	public ZipBrowserService(S3SourceManager sourceManager, ObjectStreamGate objectStreamGate, ListingCache listingCache, S3ClientProperties properties) {
+		this.sourceManager = sourceManager;
+		this.objectStreamGate = objectStreamGate;
+		this.listingCache = listingCache;
+		this.settings = properties.getArchive();
+	}
+
+	public boolean supports(String key) {
+		return key != null && key.toLowerCase(Locale.ROOT).endsWith(".zip");
+	}
+
+	public ZipListing list(String sourceName, String bucket, String key, String path) {
+		RemoteArchive archive = open(sourceName, bucket, key);
+		List<ZipEntryInfo> entries = directory(archive);
+		String normalizedPath = StringUtils.hasText(path) && !path.endsWith("/") ? path + "/" : (path != null ? path : "");
+
+		// archives often omit directory entries, so folders come from the paths of the files below them
+		TreeSet<String> folders = new TreeSet<>();
+		List<ZipEntryInfo> files = entries.stream()
+			.filter(entry -> entry.name().startsWith(normalizedPath) && entry.name().length() > normalizedPath.length())
+			.filter(entry -> {
+				String remainder = entry.name().substring(normalizedPath.length());
+				int slashIndex = remainder.indexOf('/');
+				if (slashIndex >= 0) {
+					folders.add(remainder.substring(0, slashIndex));
+					return false;
+				}
+				return true;
+			})
+			.sorted((left, right) -> left.name().compareToIgnoreCase(right.name()))
+			.toList();
+		return new ZipListing(key, normalizedPath, List.copyOf(folders), files, entries.size(), archive.size());
+	}
+
+	public Optional<ZipEntryStream> openEntry(String sourceName, String bucket, String key, String entryName) {
+		RemoteArchive archive = open(sourceName, bucket, key);
+		Optional<ZipEntryInfo> match = directory(archive).stream()
+			.filter(entry -> entry.name().equals(entryName) && !entry.directory())
+			.findFirst();
+		if (match.isEmpty()) {
+			return Optional.empty();
+		}
+		ZipEntryInfo entry = match.get();
+		if (!entry.readable()) {
+			throw new StorageAccessException("'%s' is encrypted or uses compression method %d, which cannot be extracted here".formatted(entryName, entry.method()), null);
+		}
+		if (entry.compressedSize() == 0L) {
+			return Optional.of(new ZipEntryStream(entry, ZipCentralDirectory.entryStream(entry, InputStream.nullInputStream()), () -> {
+			}));
+		}
+
+		try {
+			long dataOffset = ZipCentralDirectory.dataOffset(entry, read(archive, entry.localHeaderOffset(), ZipCentralDirectory.LOCAL_HEADER_SIZE));
+			ResponseInputStream<GetObjectResponse> compressed = openRange(archive, dataOffset, entry.compressedSize());
+			return Optional.of(new ZipEntryStream(entry, ZipCentralDirectory.entryStream(entry, compressed), compressed));
+		} catch (ZipException exception) {
+			throw unreadable(archive, exception);
+		} catch (IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+	}
+
+	private RemoteArchive open(String sourceName, String bucket, String key) {
+		S3Source source = sourceManager.resolve(sourceName);
+		String effectiveBucket = StringUtils.hasText(bucket) ? bucket : source.defaultBucket();
+		HeadObjectResponse head = source.client().headObject(HeadObjectRequest.builder()
+			.bucket(effectiveBucket)
+			.key(key)
+			.build());
+		return new RemoteArchive(source, effectiveBucket, key, head.eTag(), head.contentLength() != null ? head.contentLength() : 0L);
+	}
+
+	// a new upload gets a new ETag, so a cached directory can never describe different bytes
+	private List<ZipEntryInfo> directory(RemoteArchive archive) {
+		return listingCache.zipDirectory(archive.source().name(), archive.bucket(), archive.key(), archive.eTag(), () -> {
+			try {
+				return ZipCentralDirectory.read((offset, length) -> read(archive, offset, length), archive.size(), settings.getMaxDirectoryBytes());
+			} catch (ZipException exception) {
+				throw unreadable(archive, exception);
+			} catch (IOException exception) {
+				throw new UncheckedIOException(exception);
+			}
+		});
+	}
+
+	private StorageAccessException unreadable(RemoteArchive archive, ZipException exception) {
+		return new StorageAccessException("'%s' is not a readable zip archive: %s".formatted(archive.key(), exception.getMessage()), exception);
+	}
+
+	// If-Match keeps every range on the bytes the directory was read from, even if the object is replaced meanwhile
+	private ResponseInputStream<GetObjectResponse> openRange(RemoteArchive archive, long offset, long length) throws ZipException {
+		GetObjectRequest.Builder request = GetObjectRequest.builder()
+			.bucket(archive.bucket())
+			.key(archive.key())
+			.range("bytes=" + offset + "-" + (offset + length - 1));
+		if (archive.eTag() != null) {
+			request = request.ifMatch(archive.eTag());
+		}
+		ResponseInputStream<GetObjectResponse> range = objectStreamGate.open(archive.source(), request.build());
+		if (range.response().contentRange() == null) {
+			// bytes from the start of the object would be parsed as if they came from the offset
+			abortQuietly(range);
+			throw new ZipException("Storage ignored the byte range request");
+		}
+		return range;
+	}
+
+	private byte[] read(RemoteArchive archive, long offset, int length) throws IOException {
+		try (ResponseInputStream<GetObjectResponse> range = openRange(archive, offset, length)) {
+			byte[] bytes = range.readNBytes(length);
+			if (bytes.length < length) {
+				throw new ZipException("Archive ended %d bytes early at offset %d".formatted(length - bytes.length, offset));
+			}
+			return bytes;
+		}
+	}
+
+	private void abortQuietly(ResponseInputStream<GetObjectResponse> objectStream) {
+		objectStream.abort();
+		try {
+			objectStream.close();
+		} catch (IOException exception) {
+			log.debug("Closing an abandoned object stream failed", exception);
+		}
+	}
+
+	private record RemoteArchive(S3Source source, String bucket, String key, String eTag, long size) {
+	}
+}
@@ -0,0 +1,11 @@
+package com.nxber.tools.s3downloader.service;
+
+import java.io.InputStream;
+
+import com.nxber.tools.s3downloader.archive.ZipEntryInfo;
+
+import software.amazon.awssdk.http.Abortable;
+
+// data yields the uncompressed entry; aborting drops the ranged read behind it
+public record ZipEntryStream(ZipEntryInfo entry, InputStream data, Abortable abortable) {
+}
@@ -0,0 +1,9 @@
+package com.nxber.tools.s3downloader.service;
+
+import java.util.List;
+
+import com.nxber.tools.s3downloader.archive.ZipEntryInfo;
+
+// one folder level inside an archive; path is "" or ends with '/'
+public record ZipListing(String key, String path, List<String> folders, List<ZipEntryInfo> entries, int totalEntries, long archiveSize) {
+}
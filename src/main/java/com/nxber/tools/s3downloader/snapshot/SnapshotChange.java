@@ -0,0 +1,13 @@
+package com.nxber.tools.s3downloader.snapshot;
+
+public record SnapshotChange(Type type, String key, SnapshotEntry before, SnapshotEntry after) {
+	public long size() {
+		return after != null ? after.size() : before.size();
+	}
+
+	public enum Type {
+		ADDED,
+		REMOVED,
+		MODIFIED
+	}
+}
@@ -0,0 +1,72 @@
+package com.nxber.tools.s3downloader.snapshot;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.nxber.tools.s3downloader.storage.KeyOrder;
+
+// merge-joins two key-ordered listings, holding only the current entry of each side in memory
+final class SnapshotDiff implements Iterator<SnapshotChange> {
+	private final Iterator<SnapshotEntry> before;
+	private final Iterator<SnapshotEntry> after;
+	private SnapshotEntry pendingBefore;
+	private SnapshotEntry pendingAfter;
+	private SnapshotChange next;
+
+	SnapshotDiff(Iterator<SnapshotEntry> before, Iterator<SnapshotEntry> after) {
+		this.before = before;
+		this.after = after;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (next == null) {
+			next = advance();
+		}
+		return next != null;
+	}
+
+	@Override
+	public SnapshotChange next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		SnapshotChange change = next;
+		next = null;
+		return change;
+	}
+
+	private SnapshotChange advance() {
+		while (true) {
+			if (pendingBefore == null && before.hasNext()) {
+				pendingBefore = before.next();
+			}
+			if (pendingAfter == null && after.hasNext()) {
+				pendingAfter = after.next();
+			}
+			if (pendingBefore == null && pendingAfter == null) {
+				return null;
+			}
+
+			int order = pendingBefore == null ? 1 : pendingAfter == null ? -1 : KeyOrder.compare(pendingBefore.key(), pendingAfter.key());
+			if (order < 0) {
+				SnapshotEntry removed = pendingBefore;
+				pendingBefore = null;
+				return new SnapshotChange(SnapshotChange.Type.REMOVED, removed.key(), removed, null);
+			}
+			if (order > 0) {
+				SnapshotEntry added = pendingAfter;
+				pendingAfter = null;
+				return new SnapshotChange(SnapshotChange.Type.ADDED, added.key(), null, added);
+			}
+
+			SnapshotEntry previous = pendingBefore;
+			SnapshotEntry current = pendingAfter;
+			pendingBefore = null;
+			pendingAfter = null;
+			if (!previous.sameContentAs(current)) {
+				return new SnapshotChange(SnapshotChange.Type.MODIFIED, current.key(), previous, current);
+			}
+		}
+	}
+}
@@ -0,0 +1,12 @@
+package com.nxber.tools.s3downloader.snapshot;
+
+import java.time.Instant;
+import java.util.Objects;
+
+public record SnapshotEntry(String key, long size, Instant lastModified, String eTag) {
+	boolean sameContentAs(SnapshotEntry other) {
+		return size == other.size
+			&& Objects.equals(eTag, other.eTag)
+			&& Objects.equals(lastModified, other.lastModified);
+	}
+}
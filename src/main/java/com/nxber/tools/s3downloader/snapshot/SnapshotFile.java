@@ -0,0 +1,204 @@
+package com.nxber.tools.s3downloader.snapshot;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/*
+ * A full listing of one prefix at one point in time, gzip-compressed and read strictly front to back:
+ *
+ *   header   magic, version, taken-at (epoch millis)
+ *   entries  flag 1, then the UTF-8 key front-coded against the previous key (shared length, suffix
+ *            length, suffix), size, last modified (epoch millis plus one, 0 if unknown) and ETag, all as varints
+ *   trailer  flag 0, entry count, total bytes
+ *
+ * Entries keep the order the listing returned them in, which is unsigned UTF-8 byte order.
+ */
+final class SnapshotFile {
+	private static final int MAGIC = 0x53335350;
+	private static final int VERSION = 1;
+	private static final int ENTRY_FLAG = 1;
+	private static final int END_FLAG = 0;
+
+	private SnapshotFile() {
+	}
+
+	static final class Writer implements Closeable {
+		private final Path target;
+		private final Path temporary;
+		private final DataOutputStream output;
+		private byte[] previousKey = new byte[0];
+		private long entryCount;
+		private long totalBytes;
+		private boolean finished;
+
+		Writer(Path target, Instant takenAt) throws IOException {
+			this.target = target;
+			this.temporary = target.resolveSibling(target.getFileName() + ".tmp");
+			this.output = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(temporary), 64 * 1024)));
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeLong(takenAt.toEpochMilli());
+		}
+
+		void add(SnapshotEntry entry) throws IOException {
+			byte[] key = entry.key().getBytes(StandardCharsets.UTF_8);
+			int shared = Arrays.mismatch(previousKey, key);
+			if (shared < 0) {
+				shared = key.length;
+			}
+			output.writeByte(ENTRY_FLAG);
+			writeVarint(output, shared);
+			writeVarint(output, key.length - shared);
+			output.write(key, shared, key.length - shared);
+			writeVarint(output, entry.size());
+			writeVarint(output, entry.lastModified() != null ? entry.lastModified().toEpochMilli() + 1 : 0L);
+			byte[] eTag = entry.eTag() != null ? entry.eTag().getBytes(StandardCharsets.UTF_8) : new byte[0];
+			writeVarint(output, eTag.length);
+			output.write(eTag);
+			previousKey = key;
+			entryCount++;
+			totalBytes += entry.size();
+		}
+
+		long entryCount() {
+			return entryCount;
+		}
+
+		long totalBytes() {
+			return totalBytes;
+		}
+
+		// the snapshot only becomes visible once it is complete, so a failed listing never leaves a truncated file behind
+		void finish() throws IOException {
+			output.writeByte(END_FLAG);
+			writeVarint(output, entryCount);
+			writeVarint(output, totalBytes);
+			output.close();
+			Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			finished = true;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (!finished) {
+				output.close();
+				Files.deleteIfExists(temporary);
+			}
+		}
+	}
+
+	static final class Reader implements Iterator<SnapshotEntry>, Closeable {
+		private final DataInputStream input;
+		private final Instant takenAt;
+		private byte[] previousKey = new byte[0];
+		private SnapshotEntry next;
+		private boolean ended;
+
+		Reader(Path path) throws IOException {
+			this.input = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(path), 64 * 1024)));
+			try {
+				if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+					throw new IOException("Unrecognized snapshot file '%s'".formatted(path));
+				}
+				this.takenAt = Instant.ofEpochMilli(input.readLong());
+			} catch (IOException exception) {
+				input.close();
+				throw exception;
+			}
+		}
+
+		Instant takenAt() {
+			return takenAt;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (next == null && !ended) {
+				try {
+					next = readEntry();
+				} catch (IOException exception) {
+					throw new UncheckedIOException(exception);
+				}
+			}
+			return next != null;
+		}
+
+		@Override
+		public SnapshotEntry next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			SnapshotEntry entry = next;
+			next = null;
+			return entry;
+		}
+
+		@Override
+		public void close() throws IOException {
+			input.close();
+		}
+
+		private SnapshotEntry readEntry() throws IOException {
+			int flag = input.read();
+			if (flag < 0) {
+				throw new EOFException("Snapshot file ends without a trailer");
+			}
+			if (flag == END_FLAG) {
+				ended = true;
+				return null;
+			}
+			int shared = (int) readVarint(input);
+			int suffixLength = (int) readVarint(input);
+			byte[] key = Arrays.copyOf(previousKey, shared + suffixLength);
+			input.readFully(key, shared, suffixLength);
+			long size = readVarint(input);
+			long modified = readVarint(input);
+			byte[] eTag = new byte[(int) readVarint(input)];
+			input.readFully(eTag);
+			previousKey = key;
+			return new SnapshotEntry(
+				new String(key, StandardCharsets.UTF_8),
+				size,
+				modified > 0L ? Instant.ofEpochMilli(modified - 1) : null,
+				eTag.length > 0 ? new String(eTag, StandardCharsets.UTF_8) : null
+			);
+		}
+	}
+
+	private static void writeVarint(DataOutputStream output, long value) throws IOException {
+		long remaining = value;
+		while ((remaining & ~0x7FL) != 0L) {
+			output.writeByte((int) ((remaining & 0x7F) | 0x80));
+			remaining >>>= 7;
+		}
+		output.writeByte((int) remaining);
+	}
+
+	private static long readVarint(DataInputStream input) throws IOException {
+		long value = 0L;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int current = input.readUnsignedByte();
+			value |= (long) (current & 0x7F) << shift;
+			if ((current & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed varint in snapshot file");
+	}
+}
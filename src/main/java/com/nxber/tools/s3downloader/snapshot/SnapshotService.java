@@ -0,0 +1,233 @@
+package com.nxber.tools.s3downloader.snapshot;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import com.nxber.tools.s3downloader.config.S3ClientProperties;
+import com.nxber.tools.s3downloader.config.S3SourceManager;
+import com.nxber.tools.s3downloader.config.S3SourceManager.S3Source;
+
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+@Service
+public class SnapshotService {
+	public static final String LIVE = "live";
+
+	private static final Logger log = LoggerFactory.getLogger(SnapshotService.class);
+	private static final String SNAPSHOT_SUFFIX = ".snap";
+	private static final Pattern SNAPSHOT_ID = Pattern.compile("\\d{1,19}");
+
+	private final S3SourceManager sourceManager;
+	private final S3ClientProperties.Snapshot settings;
+	private final Clock clock;
+
+	@Autowired
+	public SnapshotService(S3SourceManager sourceManager, S3ClientProperties properties) {
+		this(sourceManager, properties, Clock.systemUTC());
+	}
+
+	SnapshotService(S3SourceManager sourceManager, S3ClientProperties properties, Clock clock) {
+		this.sourceManager = sourceManager;
+		this.settings = properties.getSnapshot();
+		this.clock = clock;
+	}
+
+	@Scheduled(fixedDelayString = "${storage.s3.snapshot.interval:PT24H}", initialDelayString = "${storage.s3.snapshot.interval:PT24H}")
+	public void snapshotTargets() {
+		for (S3ClientProperties.Snapshot.Target target : settings.getTargets()) {
+			try {
+				takeSnapshot(target.getSource(), target.getBucket(), target.getPrefix());
+			} catch (IOException | RuntimeException exception) {
+				log.warn("Failed to snapshot '{}' in bucket '{}' of source '{}'", target.getPrefix(), target.getBucket(), target.getSource(), exception);
+			}
+		}
+	}
+
+	public SnapshotInfo takeSnapshot(String sourceName, String bucket, String prefix) throws IOException {
+		S3Source source = sourceManager.resolve(sourceName);
+		String effectiveBucket = StringUtils.hasText(bucket) ? bucket : source.defaultBucket();
+		String normalizedPrefix = normalizePrefix(prefix);
+		Path directory = Files.createDirectories(directoryFor(source.name(), effectiveBucket, normalizedPrefix));
+
+		Instant takenAt = clock.instant();
+		Path target = directory.resolve(takenAt.toEpochMilli() + SNAPSHOT_SUFFIX);
+		long entryCount;
+		long totalBytes;
+		try (SnapshotFile.Writer writer = new SnapshotFile.Writer(target, takenAt)) {
+			Iterator<SnapshotEntry> entries = liveEntries(source, effectiveBucket, normalizedPrefix);
+			while (entries.hasNext()) {
+				writer.add(entries.next());
+			}
+			writer.finish();
+			entryCount = writer.entryCount();
+			totalBytes = writer.totalBytes();
+		}
+		pruneSnapshots(directory);
+		log.info("Snapshotted '{}' in bucket '{}' of source '{}': {} objects", normalizedPrefix, effectiveBucket, source.name(), entryCount);
+		return new SnapshotInfo(String.valueOf(takenAt.toEpochMilli()), takenAt, entryCount, totalBytes, Files.size(target));
+	}
+
+	public List<SnapshotInfo> listSnapshots(String sourceName, String bucket, String prefix) throws IOException {
+		S3Source source = sourceManager.resolve(sourceName);
+		String effectiveBucket = StringUtils.hasText(bucket) ? bucket : source.defaultBucket();
+		Path directory = directoryFor(source.name(), effectiveBucket, normalizePrefix(prefix));
+		if (!Files.isDirectory(directory)) {
+			return List.of();
+		}
+		try (Stream<Path> files = Files.list(directory)) {
+			return files
+				.map(SnapshotService::snapshotId)
+				.filter(StringUtils::hasText)
+				.map(id -> {
+					Path path = directory.resolve(id + SNAPSHOT_SUFFIX);
+					try {
+						return new SnapshotInfo(id, Instant.ofEpochMilli(Long.parseLong(id)), -1L, -1L, Files.size(path));
+					} catch (IOException exception) {
+						throw new UncheckedIOException(exception);
+					}
+				})
+				.sorted(Comparator.comparing(SnapshotInfo::takenAt).reversed())
+				.toList();
+		}
+	}
+
+	// the stream reads both sides lazily and must be closed to release the snapshot files
+	public Stream<SnapshotChange> diff(String sourceName, String bucket, String prefix, String fromId, String toId) throws IOException {
+		S3Source source = sourceManager.resolve(sourceName);
+		String effectiveBucket = StringUtils.hasText(bucket) ? bucket : source.defaultBucket();
+		String normalizedPrefix = normalizePrefix(prefix);
+		Path directory = directoryFor(source.name(), effectiveBucket, normalizedPrefix);
+
+		SnapshotFile.Reader before = openSnapshot(directory, fromId);
+		SnapshotFile.Reader after = null;
+		try {
+			Iterator<SnapshotEntry> afterEntries;
+			if (!StringUtils.hasText(toId) || LIVE.equals(toId)) {
+				afterEntries = liveEntries(source, effectiveBucket, normalizedPrefix);
+			} else {
+				after = openSnapshot(directory, toId);
+				afterEntries = after;
+			}
+			SnapshotFile.Reader afterReader = after;
+			return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new SnapshotDiff(before, afterEntries), Spliterator.ORDERED | Spliterator.NONNULL), false)
+				.onClose(() -> closeQuietly(before, afterReader));
+		} catch (RuntimeException exception) {
+			closeQuietly(before, after);
+			throw exception;
+		}
+	}
+
+	private SnapshotFile.Reader openSnapshot(Path directory, String id) throws IOException {
+		if (!StringUtils.hasText(id) || !SNAPSHOT_ID.matcher(id).matches()) {
+			throw new IllegalArgumentException("Unknown snapshot '%s'".formatted(id));
+		}
+		Path path = directory.resolve(id + SNAPSHOT_SUFFIX);
+		if (!Files.isRegularFile(path)) {
+			throw new IllegalArgumentException("Unknown snapshot '%s'".formatted(id));
+		}
+		return new SnapshotFile.Reader(path);
+	}
+
+	private Iterator<SnapshotEntry> liveEntries(S3Source source, String bucket, String prefix) {
+		ListObjectsV2Request request = ListObjectsV2Request.builder()
+			.bucket(bucket)
+			.prefix(prefix)
+			.maxKeys(1000)
+			.build();
+		// folder markers carry no content, so they are left out on both sides of a diff
+		return source.client().listObjectsV2Paginator(request).contents().stream()
+			.filter(object -> !object.key().endsWith("/"))
+			.map(this::toEntry)
+			.iterator();
+	}
+
+	private SnapshotEntry toEntry(S3Object object) {
+		return new SnapshotEntry(object.key(), object.size() != null ? object.size() : 0L, object.lastModified(), object.eTag());
+	}
+
+	private void pruneSnapshots(Path directory) throws IOException {
+		List<String> ids;
+		try (Stream<Path> files = Files.list(directory)) {
+			ids = files.map(SnapshotService::snapshotId)
+				.filter(StringUtils::hasText)
+				.sorted(Comparator.comparingLong(Long::parseLong).reversed())
+				.toList();
+		}
+		for (String id : ids.subList(Math.min(settings.getRetain(), ids.size()), ids.size())) {
+			Files.deleteIfExists(directory.resolve(id + SNAPSHOT_SUFFIX));
+		}
+	}
+
+	private Path directoryFor(String sourceName, String bucket, String prefix) {
+		Path root = settings.getDirectory().toAbsolutePath().normalize();
+		Path directory = root.resolve(pathSegment(sourceName))
+			.resolve(pathSegment(bucket))
+			.resolve(prefix.isEmpty() ? "_root" : pathSegment(prefix))
+			.normalize();
+		if (!directory.startsWith(root)) {
+			throw new IllegalArgumentException("Invalid snapshot location for bucket '%s'".formatted(bucket));
+		}
+		return directory;
+	}
+
+	// every name becomes exactly one directory: separators are percent-encoded, and so are the dots of a bare '.' or '..'
+	private static String pathSegment(String name) {
+		String encoded = URLEncoder.encode(name, StandardCharsets.UTF_8);
+		return encoded.equals(".") || encoded.equals("..") ? encoded.replace(".", "%2E") : encoded;
+	}
+
+	private static String snapshotId(Path path) {
+		String fileName = path.getFileName().toString();
+		if (!fileName.endsWith(SNAPSHOT_SUFFIX)) {
+			return null;
+		}
+		String id = fileName.substring(0, fileName.length() - SNAPSHOT_SUFFIX.length());
+		return SNAPSHOT_ID.matcher(id).matches() ? id : null;
+	}
+
+	private static String normalizePrefix(String prefix) {
+		if (!StringUtils.hasText(prefix)) {
+			return "";
+		}
+		String normalized = prefix.trim();
+		return normalized.endsWith("/") ? normalized : normalized + "/";
+	}
+
+	private static void closeQuietly(SnapshotFile.Reader... readers) {
+		for (SnapshotFile.Reader reader : readers) {
+			if (reader == null) {
+				continue;
+			}
+			try {
+				reader.close();
+			} catch (IOException exception) {
+				log.debug("Closing snapshot reader failed", exception);
+			}
+		}
+	}
+
+	public record SnapshotInfo(String id, Instant takenAt, long objectCount, long totalBytes, long fileBytes) {
+	}
+}
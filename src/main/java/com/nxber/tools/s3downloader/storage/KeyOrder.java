@@ -0,0 +1,27 @@
+package com.nxber.tools.s3downloader.storage;
+
+import java.util.Comparator;
+
+// S3 lists keys in unsigned UTF-8 byte order, which is code point order rather than String.compareTo's UTF-16 order
+public final class KeyOrder {
+	public static final Comparator<String> UTF8 = KeyOrder::compare;
+
+	private KeyOrder() {
+	}
+
+	public static int compare(String left, String right) {
+		int leftIndex = 0;
+		int rightIndex = 0;
+		while (leftIndex < left.length() && rightIndex < right.length()) {
+			int leftCodePoint = left.codePointAt(leftIndex);
+			int rightCodePoint = right.codePointAt(rightIndex);
+			if (leftCodePoint != rightCodePoint) {
+				return Integer.compare(leftCodePoint, rightCodePoint);
+			}
+			leftIndex += Character.charCount(leftCodePoint);
+			rightIndex += Character.charCount(rightCodePoint);
+		}
+		// a key that is a prefix of the other sorts first
+		return Integer.compare(left.length() - leftIndex, right.length() - rightIndex);
+	}
+}
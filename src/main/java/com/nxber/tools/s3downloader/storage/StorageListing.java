@@ -8,8 +8,8 @@ public record StorageListing(
 	List<StorageFolder> folders,
 	List<StorageObject> objects,
 	boolean hasNext,
-	String continuationToken,
-	String nextContinuationToken,
-	String previousContinuationToken
+	int page,
+	int knownPages,
+	int totalPages
 ) {
 }
@@ -0,0 +1,186 @@
+package com.nxber.tools.s3downloader.transfer;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import com.nxber.tools.s3downloader.diagnostics.TransferEvent;
+import com.nxber.tools.s3downloader.service.RequestScope;
+
+import software.amazon.awssdk.http.Abortable;
+
+public final class Transfer implements AutoCloseable {
+	private static final Runnable NO_ENTRY = () -> {
+	};
+
+	private final String id;
+	private final Kind kind;
+	private final String sourceName;
+	private final String bucket;
+	private final String description;
+	private final String client;
+	private final Instant startedAt;
+	private final Consumer<Transfer> onClose;
+	private final RequestScope scope;
+	private final AtomicLong bytesSent = new AtomicLong();
+	private final AtomicLong objectBytes = new AtomicLong();
+	private final AtomicInteger entries = new AtomicInteger();
+	private final TransferEvent event = new TransferEvent();
+	private volatile String currentEntry;
+	private volatile Runnable releaseEntry = NO_ENTRY;
+	private volatile boolean cancelled;
+
+	Transfer(String id, Kind kind, String sourceName, String bucket, String description, String client, Instant startedAt, RequestScope scope, Consumer<Transfer> onClose) {
+		this.id = id;
+		this.kind = kind;
+		this.sourceName = sourceName;
+		this.bucket = bucket;
+		this.description = description;
+		this.client = client;
+		this.startedAt = startedAt;
+		this.scope = scope;
+		this.onClose = onClose;
+		event.begin();
+	}
+
+	public String id() {
+		return id;
+	}
+
+	public Kind kind() {
+		return kind;
+	}
+
+	public String sourceName() {
+		return sourceName;
+	}
+
+	public String bucket() {
+		return bucket;
+	}
+
+	public String description() {
+		return description;
+	}
+
+	public String client() {
+		return client;
+	}
+
+	public Instant startedAt() {
+		return startedAt;
+	}
+
+	public String currentEntry() {
+		return currentEntry;
+	}
+
+	public int entries() {
+		return entries.get();
+	}
+
+	public long bytesSent() {
+		return bytesSent.get();
+	}
+
+	public long objectBytes() {
+		return objectBytes.get();
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	public long bytesPerSecond() {
+		long millis = Math.max(1L, Duration.between(startedAt, Instant.now()).toMillis());
+		return bytesSent.get() * 1000L / millis;
+	}
+
+	public TransferStatus status() {
+		return new TransferStatus(id, kind, sourceName, bucket, description, client, startedAt, currentEntry, entries(), objectBytes(), bytesSent(), bytesPerSecond(), cancelled);
+	}
+
+	// counts what actually reaches the client and stops writing as soon as the transfer is cancelled
+	public OutputStream track(OutputStream outputStream) {
+		return new FilterOutputStream(outputStream) {
+			@Override
+			public void write(int value) throws IOException {
+				ensureActive();
+				out.write(value);
+				bytesSent.incrementAndGet();
+			}
+
+			@Override
+			public void write(byte[] buffer, int offset, int length) throws IOException {
+				ensureActive();
+				out.write(buffer, offset, length);
+				bytesSent.addAndGet(length);
+			}
+
+			private void ensureActive() throws IOException {
+				if (cancelled) {
+					throw new IOException("Transfer '%s' was cancelled".formatted(id));
+				}
+			}
+		};
+	}
+
+	public void checkNotCancelled() {
+		if (cancelled) {
+			throw new TransferCancelledException(id, null);
+		}
+	}
+
+	// the entry's stream may have been opened by the handler, so it joins this transfer's scope, which the body's scope
+	// cancels too when the client goes away
+	public void beginEntry(String key, Abortable stream) {
+		checkNotCancelled();
+		currentEntry = key;
+		releaseEntry = scope.register(stream);
+	}
+
+	public void endEntry(long bytes) {
+		releaseEntry.run();
+		releaseEntry = NO_ENTRY;
+		if (bytes > 0L) {
+			objectBytes.addAndGet(bytes);
+		}
+		entries.incrementAndGet();
+	}
+
+	void cancel() {
+		cancelled = true;
+		scope.cancel();
+	}
+
+	@Override
+	public void close() {
+		event.end();
+		if (event.shouldCommit()) {
+			event.kind = kind.name();
+			event.source = sourceName;
+			event.bucket = bucket;
+			event.description = description;
+			event.client = client;
+			event.entries = entries();
+			event.objectBytes = objectBytes();
+			event.bytesSent = bytesSent();
+			event.cancelled = cancelled;
+			event.commit();
+		}
+		onClose.accept(this);
+	}
+
+	public enum Kind {
+		FILE,
+		SELECTION,
+		FOLDER,
+		FILTERED,
+		CHANGES
+	}
+}
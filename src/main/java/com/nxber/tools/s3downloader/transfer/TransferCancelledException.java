@@ -0,0 +1,7 @@
+package com.nxber.tools.s3downloader.transfer;
+
+public class TransferCancelledException extends RuntimeException {
+	public TransferCancelledException(String transferId, Throwable cause) {
+		super("Transfer '%s' was cancelled".formatted(transferId), cause);
+	}
+}
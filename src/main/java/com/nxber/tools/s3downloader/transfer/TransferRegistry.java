@@ -0,0 +1,87 @@
+package com.nxber.tools.s3downloader.transfer;
+
+import java.time.Clock;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.nxber.tools.s3downloader.service.RequestScope;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+@Component
+public class TransferRegistry implements MeterBinder {
+	private static final Logger log = LoggerFactory.getLogger(TransferRegistry.class);
+
+	private final Map<String, Transfer> active = new ConcurrentHashMap<>();
+	private final LongAdder cancellations = new LongAdder();
+	private final Clock clock;
+
+	@Autowired
+	public TransferRegistry() {
+		this(Clock.systemUTC());
+	}
+
+	TransferRegistry(Clock clock) {
+		this.clock = clock;
+	}
+
+	// the transfer unregisters itself when closed, so callers hold it in try-with-resources around the response body;
+	// cancelling it only ends its own scope, while the client going away ends the body's scope and the transfer's with it
+	public Transfer start(Transfer.Kind kind, String sourceName, String bucket, String description, String client) {
+		Transfer transfer = new Transfer(UUID.randomUUID().toString(), kind, sourceName, bucket, description, client, clock.instant(), RequestScope.current().child(), this::finish);
+		active.put(transfer.id(), transfer);
+		return transfer;
+	}
+
+	public List<Transfer> transfers() {
+		return active.values().stream()
+			.sorted(Comparator.comparing(Transfer::startedAt))
+			.toList();
+	}
+
+	public List<TransferStatus> statuses() {
+		return transfers().stream().map(Transfer::status).toList();
+	}
+
+	public Optional<Transfer> find(String id) {
+		return Optional.ofNullable(active.get(id));
+	}
+
+	public boolean cancel(String id) {
+		Transfer transfer = active.get(id);
+		if (transfer == null) {
+			return false;
+		}
+		log.info("Cancelling {} transfer '{}' of '{}' for {} after {} bytes", transfer.kind(), id, transfer.description(), transfer.client(), transfer.bytesSent());
+		transfer.cancel();
+		cancellations.increment();
+		return true;
+	}
+
+	private void finish(Transfer transfer) {
+		active.remove(transfer.id(), transfer);
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("s3.transfers.active", active, Map::size)
+			.description("Downloads currently streaming to clients")
+			.register(registry);
+		FunctionCounter.builder("s3.transfers.cancelled", cancellations, LongAdder::sum)
+			.description("Downloads cancelled by an operator")
+			.register(registry);
+	}
+}
@@ -0,0 +1,20 @@
+package com.nxber.tools.s3downloader.transfer;
+
+import java.time.Instant;
+
+public record TransferStatus(
+	String id,
+	Transfer.Kind kind,
+	String sourceName,
+	String bucket,
+	String description,
+	String client,
+	Instant startedAt,
+	String currentEntry,
+	int entries,
+	long objectBytes,
+	long bytesSent,
+	long bytesPerSecond,
+	boolean cancelled
+) {
+}
@@ -1,10 +1,20 @@
 package com.nxber.tools.s3downloader.web;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 
 import org.springframework.http.HttpHeaders;
@@ -15,31 +25,62 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.util.CollectionUtils;
+import org.springframework.util.StreamUtils;
 import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nxber.tools.s3downloader.archive.ZipArchiveWriter;
+import com.nxber.tools.s3downloader.config.S3ClientProperties;
 import com.nxber.tools.s3downloader.config.S3SourceManager.S3Source;
-import com.nxber.tools.s3downloader.service.StorageAccessException;
+import com.nxber.tools.s3downloader.service.ArchiveVolume;
+import com.nxber.tools.s3downloader.service.BrowsePage;
+import com.nxber.tools.s3downloader.service.ObjectFilter;
 import com.nxber.tools.s3downloader.service.StorageBrowserService;
-import com.nxber.tools.s3downloader.storage.BucketSummary;
+import com.nxber.tools.s3downloader.storage.StorageFolder;
 import com.nxber.tools.s3downloader.storage.StorageListing;
+import com.nxber.tools.s3downloader.transfer.Transfer;
+import com.nxber.tools.s3downloader.transfer.TransferCancelledException;
+import com.nxber.tools.s3downloader.transfer.TransferRegistry;
+import com.nxber.tools.s3downloader.web.support.ByteSizeFormatter;
+import com.nxber.tools.s3downloader.web.support.ResponseCompression;
 import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 import software.amazon.awssdk.services.s3.model.S3Exception;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
 @Controller
 public class BucketBrowserController {
 	private static final DateTimeFormatter ZIP_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss", Locale.US)
 		.withZone(ZoneId.systemDefault());
+	private static final DateTimeFormatter DETAIL_TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss", Locale.US)
+		.withZone(ZoneId.systemDefault());
+	private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
 
 	private final StorageBrowserService browserService;
+	private final S3ClientProperties properties;
+	private final ObjectMapper objectMapper;
+	private final ByteSizeFormatter byteFormatter;
+	private final TransferRegistry transferRegistry;
+	private final ResponseCompression responseCompression;
 
-	public BucketBrowserController(StorageBrowserService browserService) {
+	public BucketBrowserController(StorageBrowserService browserService, S3ClientProperties properties, ObjectMapper objectMapper, ByteSizeFormatter byteFormatter, TransferRegistry transferRegistry, ResponseCompression responseCompression) {
 		this.browserService = browserService;
+		this.properties = properties;
+		this.objectMapper = objectMapper;
+		this.byteFormatter = byteFormatter;
+		this.transferRegistry = transferRegistry;
+		this.responseCompression = responseCompression;
 	}
 
 	@GetMapping({"/", "/browser"})
@@ -47,7 +88,7 @@ public class BucketBrowserController {
 		@RequestParam(name = "source", required = false) String sourceName,
 		@RequestParam(name = "bucket", required = false) String bucket,
 		@RequestParam(name = "prefix", required = false, defaultValue = "") String prefix,
-		@RequestParam(name = "tokenStack", required = false, defaultValue = "") String tokenStack,
+		@RequestParam(name = "page", required = false, defaultValue = "1") int page,
 		@RequestParam(name = "query", required = false, defaultValue = "") String query,
 		@RequestParam(name = "showDetails", required = false, defaultValue = "false") boolean showDetails,
 		Model model
@@ -57,40 +98,97 @@ public class BucketBrowserController {
 		String activeBucket = resolveBucket(activeSource, bucket);
 
 		List<S3Source> sources = browserService.listSources();
-		List<BucketSummary> buckets = browserService.listBuckets(activeSourceName);
-		StorageListing listing;
-		String errorMessage = null;
-		try {
-			listing = browserService.listObjects(activeSourceName, activeBucket, prefix, tokenStack, query, showDetails);
-		} catch (StorageAccessException exception) {
-			errorMessage = exception.getMessage();
-			listing = new StorageListing(activeBucket, "", List.of(), List.of(), false, "", "", "");
-		}
+		// with progressive details the page renders immediately and folder sizes stream in from /folder-stats
+		boolean progressiveFolderStats = showDetails && properties.getFolderStats().isProgressive();
+		BrowsePage browsePage = browserService.browse(activeSourceName, activeBucket, prefix, page, query, showDetails && !progressiveFolderStats);
+		StorageListing listing = browsePage.listing();
 		List<Breadcrumb> breadcrumbs = buildBreadcrumbs(listing.prefix());
 		String parentPrefix = computeParentPrefix(listing.prefix());
 
 		model.addAttribute("sources", sources);
 		model.addAttribute("activeSource", activeSourceName);
 		model.addAttribute("activeSourceDisplayName", activeSource.displayName());
-		model.addAttribute("buckets", buckets);
+		model.addAttribute("buckets", browsePage.buckets());
 		model.addAttribute("activeBucket", activeBucket);
 		model.addAttribute("listing", listing);
 		model.addAttribute("breadcrumbs", breadcrumbs);
 		model.addAttribute("parentPrefix", parentPrefix);
 		model.addAttribute("query", query);
-		model.addAttribute("errorMessage", errorMessage);
+		model.addAttribute("errorMessage", browsePage.errorMessage());
 		model.addAttribute("showDetails", showDetails);
+		model.addAttribute("progressiveFolderStats", progressiveFolderStats);
 
 		return "index";
 	}
 
+	@PostMapping(path = "/refresh")
+	public String refresh(
+		@RequestParam(name = "source", required = false) String sourceName,
+		@RequestParam(name = "bucket", required = false) String bucket,
+		@RequestParam(name = "prefix", required = false, defaultValue = "") String prefix,
+		@RequestParam(name = "showDetails", required = false, defaultValue = "false") boolean showDetails,
+		RedirectAttributes redirectAttributes
+	) {
+		// drops the cached pages and folder sizes on every node, not only the one serving this request
+		browserService.invalidateListing(sourceName, bucket, prefix);
+		if (StringUtils.hasText(sourceName)) {
+			redirectAttributes.addAttribute("source", sourceName);
+		}
+		if (StringUtils.hasText(bucket)) {
+			redirectAttributes.addAttribute("bucket", bucket);
+		}
+		redirectAttributes.addAttribute("prefix", prefix);
+		redirectAttributes.addAttribute("showDetails", showDetails);
+		return "redirect:/browser";
+	}
+
+	@PostMapping(path = "/folder-stats")
+	public ResponseEntity<StreamingResponseBody> folderStats(
+		@RequestParam(name = "source", required = false) String sourceName,
+		@RequestParam("bucket") String bucket,
+		@RequestParam(name = "prefix", required = false, defaultValue = "") String prefix,
+		@RequestParam("folders") List<String> folders
+	) {
+		if (CollectionUtils.isEmpty(folders)) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No folders requested");
+		}
+
+		StreamingResponseBody body = outputStream -> {
+			// partitions finish on different threads, so each line is written and flushed as one unit
+			browserService.streamFolderStats(sourceName, bucket, prefix, folders, folder -> {
+				byte[] line = folderStatsLine(folder);
+				synchronized (outputStream) {
+					try {
+						outputStream.write(line);
+						outputStream.flush();
+					} catch (IOException exception) {
+						throw new UncheckedIOException(exception);
+					}
+				}
+			});
+		};
+
+		return ResponseEntity.ok()
+			.contentType(NDJSON)
+			.header(HttpHeaders.CACHE_CONTROL, "no-store")
+			.body(body);
+	}
+
 	@GetMapping(path = "/download")
 	public ResponseEntity<StreamingResponseBody> downloadFile(
 		@RequestParam(name = "source", required = false) String sourceName,
 		@RequestParam("bucket") String bucket,
-		@RequestParam("key") String key
+		@RequestParam("key") String key,
+		HttpServletRequest request,
+		HttpServletResponse response
 	) {
 		String filename = extractFileName(key);
+		String contentDisposition = "attachment; filename=\"" + filename + "\"";
+		Optional<URI> presigned = browserService.presignObjectUrl(sourceName, bucket, key, contentDisposition);
+		if (presigned.isPresent()) {
+			return redirectTo(presigned.get());
+		}
+		String client = TransferController.clientOf(request);
 
 		ResponseInputStream<GetObjectResponse> objectStream;
 		try {
@@ -100,19 +198,41 @@ public class BucketBrowserController {
 		}
 
 		long contentLength = Optional.ofNullable(objectStream.response().contentLength()).orElse(-1L);
+		String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
 
 		StreamingResponseBody body = outputStream -> {
-			try (objectStream) {
-				objectStream.transferTo(outputStream);
+			// the slot is only taken once the body runs, so a body that never starts cannot keep it
+			try (objectStream; Transfer transfer = transferRegistry.start(Transfer.Kind.FILE, sourceName, bucket, key, client);
+				ResponseCompression.Slot compression = responseCompression.acquire(acceptEncoding, key, objectStream.response()).orElse(null)) {
+				// nothing is written yet, so the framing headers can still say what this body actually sends
+				if (compression != null) {
+					response.setHeader(HttpHeaders.CONTENT_ENCODING, compression.encoding());
+				} else if (contentLength >= 0) {
+					response.setContentLengthLong(contentLength);
+				}
+				transfer.beginEntry(key, objectStream);
+				long written = -1L;
+				// the transfer counts bytes on the wire, so a compressed download shows what it actually costs in egress
+				OutputStream tracked = transfer.track(outputStream);
+				try (OutputStream target = compression != null ? compression.wrap(tracked) : StreamUtils.nonClosing(tracked)) {
+					written = objectStream.transferTo(target);
+				} catch (IOException exception) {
+					if (transfer.isCancelled()) {
+						throw new TransferCancelledException(transfer.id(), exception);
+					}
+					throw exception;
+				} finally {
+					transfer.endEntry(written);
+				}
 			}
 		};
 
 		ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
-			.header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+			.header(HttpHeaders.CONTENT_DISPOSITION, contentDisposition)
 			.contentType(MediaType.APPLICATION_OCTET_STREAM);
 
-		if (contentLength >= 0) {
-			builder = builder.contentLength(contentLength);
+		if (responseCompression.isEnabled()) {
+			builder = builder.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
 		}
 
 		return builder.body(body);
@@ -128,9 +248,14 @@ public class BucketBrowserController {
 			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Preview not supported for this object");
 		}
 
+		Optional<URI> presigned = browserService.presignObjectUrl(sourceName, bucket, key, null);
+		if (presigned.isPresent()) {
+			return redirectTo(presigned.get());
+		}
+
 		ResponseInputStream<GetObjectResponse> objectStream;
 		try {
-			objectStream = browserService.openObjectStream(sourceName, bucket, key);
+			objectStream = browserService.openPreviewStream(sourceName, bucket, key);
 		} catch (S3Exception exception) {
 			throw new ResponseStatusException(HttpStatus.NOT_FOUND, exception.awsErrorDetails().errorMessage(), exception);
 		}
@@ -170,7 +295,8 @@ public class BucketBrowserController {
 	public ResponseEntity<StreamingResponseBody> downloadSelection(
 		@RequestParam(name = "source", required = false) String sourceName,
 		@RequestParam("bucket") String bucket,
-		@RequestParam("keys") List<String> keys
+		@RequestParam("keys") List<String> keys,
+		HttpServletRequest request
 	) {
 		if (CollectionUtils.isEmpty(keys)) {
 			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No objects selected for download");
@@ -186,10 +312,12 @@ public class BucketBrowserController {
 		}
 
 		String zipName = "download-" + ZIP_TIMESTAMP.format(java.time.Instant.now()) + ".zip";
+		String client = TransferController.clientOf(request);
 
 		StreamingResponseBody body = outputStream -> {
-			try (java.util.zip.ZipOutputStream zipOutputStream = new java.util.zip.ZipOutputStream(outputStream)) {
-				browserService.streamObjectsAsZip(sourceName, bucket, sanitizedKeys, zipOutputStream);
+			try (Transfer transfer = transferRegistry.start(Transfer.Kind.SELECTION, sourceName, bucket, sanitizedKeys.size() + " selected objects", client);
+				ZipArchiveWriter archive = browserService.openArchive(transfer.track(outputStream))) {
+				browserService.streamObjectsAsZip(sourceName, bucket, sanitizedKeys, archive, transfer);
 			}
 		};
 
@@ -203,19 +331,20 @@ public class BucketBrowserController {
 	public ResponseEntity<StreamingResponseBody> downloadFolder(
 		@RequestParam(name = "source", required = false) String sourceName,
 		@RequestParam("bucket") String bucket,
-		@RequestParam("prefix") String prefix
+		@RequestParam("prefix") String prefix,
+		HttpServletRequest request
 	) {
 		if (!StringUtils.hasText(prefix)) {
 			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Folder prefix is required");
 		}
 
-		String folderName = prefix.endsWith("/") ? prefix.substring(0, prefix.length() - 1) : prefix;
-		folderName = folderName.contains("/") ? folderName.substring(folderName.lastIndexOf('/') + 1) : folderName;
-		String zipName = folderName + "-" + ZIP_TIMESTAMP.format(java.time.Instant.now()) + ".zip";
+		String zipName = computeFolderName(prefix) + "-" + ZIP_TIMESTAMP.format(java.time.Instant.now()) + ".zip";
+		String client = TransferController.clientOf(request);
 
 		StreamingResponseBody body = outputStream -> {
-			try (java.util.zip.ZipOutputStream zipOutputStream = new java.util.zip.ZipOutputStream(outputStream)) {
-				browserService.streamPrefixAsZip(sourceName, bucket, prefix, zipOutputStream);
+			try (Transfer transfer = transferRegistry.start(Transfer.Kind.FOLDER, sourceName, bucket, prefix, client);
+				ZipArchiveWriter archive = browserService.openArchive(transfer.track(outputStream))) {
+				browserService.streamPrefixAsZip(sourceName, bucket, prefix, archive, transfer);
 			}
 		};
 
@@ -225,6 +354,197 @@ public class BucketBrowserController {
 			.body(body);
 	}
 
+	// plans the folder as independent volumes and streams one line per volume, each with the URL that downloads it
+	@GetMapping(path = "/download/folder/volumes")
+	public ResponseEntity<StreamingResponseBody> planFolderVolumes(
+		@RequestParam(name = "source", required = false) String sourceName,
+		@RequestParam("bucket") String bucket,
+		@RequestParam("prefix") String prefix,
+		@RequestParam(name = "volumeSize", required = false) String volumeSize
+	) {
+		if (!StringUtils.hasText(prefix)) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Folder prefix is required");
+		}
+		long volumeBytes;
+		try {
+			Long requested = parseDataSize(volumeSize);
+			volumeBytes = requested != null ? requested : properties.getArchive().getVolumeSize();
+		} catch (IllegalArgumentException exception) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, exception.getMessage(), exception);
+		}
+		if (volumeBytes < DataSize.ofMegabytes(1).toBytes()) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Volumes must hold at least 1MB");
+		}
+
+		String effectiveSource = browserService.resolveSource(sourceName).name();
+		String folderName = computeFolderName(prefix);
+		// request attributes are gone once the body streams, so the base URL is taken here
+		UriComponentsBuilder volumeUrl = ServletUriComponentsBuilder.fromCurrentContextPath().path("/download/folder/volume");
+
+		StreamingResponseBody body = outputStream -> browserService.planFolderVolumes(effectiveSource, bucket, prefix, volumeBytes, volume -> {
+			try {
+				outputStream.write(volumeLine(volume, folderName, volumeUrl.cloneBuilder(), effectiveSource, bucket, prefix));
+				outputStream.flush();
+			} catch (IOException exception) {
+				throw new UncheckedIOException(exception);
+			}
+		});
+
+		return ResponseEntity.ok()
+			.contentType(NDJSON)
+			.header(HttpHeaders.CACHE_CONTROL, "no-store")
+			.body(body);
+	}
+
+	@GetMapping(path = "/download/folder/volume")
+	public ResponseEntity<StreamingResponseBody> downloadFolderVolume(
+		@RequestParam(name = "source", required = false) String sourceName,
+		@RequestParam("bucket") String bucket,
+		@RequestParam("prefix") String prefix,
+		@RequestParam("part") int part,
+		@RequestParam(name = "after", required = false) String startAfter,
+		@RequestParam(name = "through", required = false) String endInclusive,
+		HttpServletRequest request
+	) {
+		if (!StringUtils.hasText(prefix)) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Folder prefix is required");
+		}
+		if (part < 1) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Volume parts are numbered from 1");
+		}
+		String effectiveStartAfter = StringUtils.hasText(startAfter) ? startAfter : null;
+		String effectiveEndInclusive = StringUtils.hasText(endInclusive) ? endInclusive : null;
+		if (!ArchiveVolume.isValidRange(effectiveStartAfter, effectiveEndInclusive)) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Volume range ends before it starts");
+		}
+
+		// no timestamp, so a retried volume downloads under the same name and replaces the broken copy
+		String zipName = volumeFileName(computeFolderName(prefix), part);
+		String client = TransferController.clientOf(request);
+
+		StreamingResponseBody body = outputStream -> {
+			try (Transfer transfer = transferRegistry.start(Transfer.Kind.FOLDER, sourceName, bucket, prefix + " (part " + part + ")", client);
+				ZipArchiveWriter archive = browserService.openArchive(transfer.track(outputStream))) {
+				browserService.streamPrefixRangeAsZip(sourceName, bucket, prefix, effectiveStartAfter, effectiveEndInclusive, archive, transfer);
+			}
+		};
+
+		return ResponseEntity.ok()
+			.header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + zipName + "\"")
+			.contentType(MediaType.APPLICATION_OCTET_STREAM)
+			.body(body);
+	}
+
+	private byte[] volumeLine(ArchiveVolume volume, String folderName, UriComponentsBuilder volumeUrl, String sourceName, String bucket, String prefix) {
+		Map<String, Object> variables = new LinkedHashMap<>();
+		variables.put("source", sourceName);
+		variables.put("bucket", bucket);
+		variables.put("prefix", prefix);
+		variables.put("part", volume.part());
+		volumeUrl.queryParam("source", "{source}")
+			.queryParam("bucket", "{bucket}")
+			.queryParam("prefix", "{prefix}")
+			.queryParam("part", "{part}");
+		if (volume.startAfter() != null) {
+			volumeUrl.queryParam("after", "{after}");
+			variables.put("after", volume.startAfter());
+		}
+		if (volume.endInclusive() != null) {
+			volumeUrl.queryParam("through", "{through}");
+			variables.put("through", volume.endInclusive());
+		}
+
+		Map<String, Object> line = new LinkedHashMap<>();
+		line.put("part", volume.part());
+		line.put("last", volume.isLast());
+		line.put("objects", volume.objects());
+		line.put("bytes", volume.bytes());
+		line.put("sizeLabel", byteFormatter.format(volume.bytes()));
+		line.put("fileName", volumeFileName(folderName, volume.part()));
+		// template variables are encoded strictly, so keys holding '&', '+' or '=' survive the round trip
+		line.put("url", volumeUrl.encode().buildAndExpand(variables).toUriString());
+		try {
+			return (objectMapper.writeValueAsString(line) + "\n").getBytes(StandardCharsets.UTF_8);
+		} catch (IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+	}
+
+	private static String volumeFileName(String folderName, int part) {
+		return "%s-part-%03d.zip".formatted(folderName, part);
+	}
+
+	private byte[] folderStatsLine(StorageFolder folder) {
+		Map<String, Object> line = new LinkedHashMap<>();
+		line.put("prefix", folder.prefix());
+		line.put("size", folder.size());
+		line.put("sizeLabel", byteFormatter.format(folder.size()));
+		line.put("lastModified", folder.lastModified() != null ? DETAIL_TIMESTAMP.format(folder.lastModified()) : null);
+		try {
+			return (objectMapper.writeValueAsString(line) + "\n").getBytes(StandardCharsets.UTF_8);
+		} catch (IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+	}
+
+	@GetMapping(path = "/download/archive")
+	public ResponseEntity<StreamingResponseBody> downloadFiltered(
+		@RequestParam(name = "source", required = false) String sourceName,
+		@RequestParam("bucket") String bucket,
+		@RequestParam(name = "prefix", required = false, defaultValue = "") String prefix,
+		@RequestParam(name = "glob", required = false) String glob,
+		@RequestParam(name = "regex", required = false) String regex,
+		@RequestParam(name = "minSize", required = false) String minSize,
+		@RequestParam(name = "maxSize", required = false) String maxSize,
+		@RequestParam(name = "modifiedSince", required = false) String modifiedSince,
+		@RequestParam(name = "recursive", required = false, defaultValue = "false") boolean recursive,
+		HttpServletRequest request
+	) {
+		ObjectFilter filter;
+		try {
+			filter = ObjectFilter.of(prefix, glob, regex, parseDataSize(minSize), parseDataSize(maxSize), parseModifiedSince(modifiedSince), recursive);
+		} catch (IllegalArgumentException | DateTimeParseException exception) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, exception.getMessage(), exception);
+		}
+
+		String baseName = StringUtils.hasText(prefix) ? computeFolderName(prefix) : "download";
+		String zipName = baseName + "-filtered-" + ZIP_TIMESTAMP.format(java.time.Instant.now()) + ".zip";
+		String client = TransferController.clientOf(request);
+
+		StreamingResponseBody body = outputStream -> {
+			try (Transfer transfer = transferRegistry.start(Transfer.Kind.FILTERED, sourceName, bucket, prefix, client);
+				ZipArchiveWriter archive = browserService.openArchive(transfer.track(outputStream))) {
+				browserService.streamFilteredAsZip(sourceName, bucket, filter, archive, transfer);
+			}
+		};
+
+		return ResponseEntity.ok()
+			.header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + zipName + "\"")
+			.contentType(MediaType.APPLICATION_OCTET_STREAM)
+			.body(body);
+	}
+
+	private Long parseDataSize(String value) {
+		return StringUtils.hasText(value) ? DataSize.parse(value.trim()).toBytes() : null;
+	}
+
+	private Instant parseModifiedSince(String value) {
+		if (!StringUtils.hasText(value)) {
+			return null;
+		}
+		String trimmed = value.trim();
+		// date inputs send a plain day, API callers may send a full timestamp
+		if (trimmed.length() == 10) {
+			return LocalDate.parse(trimmed).atStartOfDay(ZoneId.systemDefault()).toInstant();
+		}
+		return Instant.parse(trimmed);
+	}
+
+	private String computeFolderName(String prefix) {
+		String folderName = prefix.endsWith("/") ? prefix.substring(0, prefix.length() - 1) : prefix;
+		return folderName.contains("/") ? folderName.substring(folderName.lastIndexOf('/') + 1) : folderName;
+	}
+
 	private String resolveBucket(S3Source source, String bucket) {
 		if (StringUtils.hasText(bucket)) {
 			return bucket;
@@ -232,6 +552,14 @@ public class BucketBrowserController {
 		return source.defaultBucket();
 	}
 
+	private static ResponseEntity<StreamingResponseBody> redirectTo(URI location) {
+		// the signature expires, so neither browsers nor proxies may keep the redirect around
+		return ResponseEntity.status(HttpStatus.FOUND)
+			.location(location)
+			.header(HttpHeaders.CACHE_CONTROL, "no-store")
+			.build();
+	}
+
 	private String extractFileName(String key) {
 		if (!StringUtils.hasText(key)) {
 			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Object key is required");
@@ -240,7 +568,7 @@ public class BucketBrowserController {
 		return separatorIndex >= 0 ? key.substring(separatorIndex + 1) : key;
 	}
 
-	private List<Breadcrumb> buildBreadcrumbs(String prefix) {
+	static List<Breadcrumb> buildBreadcrumbs(String prefix) {
 		List<Breadcrumb> breadcrumbs = new ArrayList<>();
 		if (!StringUtils.hasText(prefix)) {
 			return breadcrumbs;
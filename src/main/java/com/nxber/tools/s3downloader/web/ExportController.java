@@ -0,0 +1,122 @@
+package com.nxber.tools.s3downloader.web;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+
+import com.nxber.tools.s3downloader.config.S3SourceManager.S3Source;
+import com.nxber.tools.s3downloader.export.ExportFormat;
+import com.nxber.tools.s3downloader.export.ExportJob;
+import com.nxber.tools.s3downloader.export.ListingExportService;
+import com.nxber.tools.s3downloader.service.StorageBrowserService;
+
+@Controller
+public class ExportController {
+	private final ListingExportService exportService;
+	private final StorageBrowserService browserService;
+
+	public ExportController(ListingExportService exportService, StorageBrowserService browserService) {
+		this.exportService = exportService;
+		this.browserService = browserService;
+	}
+
+	@GetMapping("/exports")
+	public String exports(
+		@RequestParam(name = "source", required = false) String sourceName,
+		@RequestParam(name = "bucket", required = false) String bucket,
+		@RequestParam(name = "prefix", required = false, defaultValue = "") String prefix,
+		Model model
+	) {
+		S3Source source = browserService.resolveSource(sourceName);
+		List<ExportJob> jobs = exportService.jobs();
+
+		model.addAttribute("activeSource", source.name());
+		model.addAttribute("activeSourceDisplayName", source.displayName());
+		model.addAttribute("activeBucket", StringUtils.hasText(bucket) ? bucket : source.defaultBucket());
+		model.addAttribute("prefix", prefix);
+		model.addAttribute("formats", ExportFormat.values());
+		model.addAttribute("exports", jobs);
+		model.addAttribute("running", jobs.stream().anyMatch(job -> job.state() == ExportJob.State.PLANNING || job.state() == ExportJob.State.RUNNING));
+		return "exports";
+	}
+
+	@PostMapping("/exports")
+	public String startExport(
+		@RequestParam(name = "source", required = false) String sourceName,
+		@RequestParam(name = "bucket", required = false) String bucket,
+		@RequestParam(name = "prefix", required = false, defaultValue = "") String prefix,
+		@RequestParam(name = "format", required = false, defaultValue = "CSV_GZIP") String format,
+		RedirectAttributes redirectAttributes
+	) throws IOException {
+		ExportFormat exportFormat;
+		try {
+			exportFormat = ExportFormat.valueOf(format.toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException exception) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported export format '%s'".formatted(format), exception);
+		}
+		exportService.start(sourceName, bucket, prefix, exportFormat);
+
+		if (StringUtils.hasText(sourceName)) {
+			redirectAttributes.addAttribute("source", sourceName);
+		}
+		if (StringUtils.hasText(bucket)) {
+			redirectAttributes.addAttribute("bucket", bucket);
+		}
+		redirectAttributes.addAttribute("prefix", prefix);
+		return "redirect:/exports";
+	}
+
+	@GetMapping("/exports/{id}/download")
+	public ResponseEntity<StreamingResponseBody> downloadExport(@PathVariable("id") String id) {
+		ExportJob job = exportService.find(id)
+			.orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown export '%s'".formatted(id)));
+		if (job.state() != ExportJob.State.COMPLETED) {
+			throw new ResponseStatusException(HttpStatus.CONFLICT, "Export '%s' is %s".formatted(id, job.state().name().toLowerCase(Locale.ROOT)));
+		}
+
+		StreamingResponseBody body = outputStream -> exportService.writeTo(job, outputStream);
+		return ResponseEntity.ok()
+			.header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + job.fileName() + "\"")
+			.contentType(MediaType.parseMediaType(job.format().contentType()))
+			.body(body);
+	}
+
+	@PostMapping("/exports/{id}/delete")
+	public String deleteExport(
+		@PathVariable("id") String id,
+		@RequestParam(name = "source", required = false) String sourceName,
+		@RequestParam(name = "bucket", required = false) String bucket,
+		@RequestParam(name = "prefix", required = false, defaultValue = "") String prefix,
+		RedirectAttributes redirectAttributes
+	) throws IOException {
+		try {
+			exportService.delete(id);
+		} catch (IllegalStateException exception) {
+			throw new ResponseStatusException(HttpStatus.CONFLICT, exception.getMessage(), exception);
+		}
+
+		if (StringUtils.hasText(sourceName)) {
+			redirectAttributes.addAttribute("source", sourceName);
+		}
+		if (StringUtils.hasText(bucket)) {
+			redirectAttributes.addAttribute("bucket", bucket);
+		}
+		redirectAttributes.addAttribute("prefix", prefix);
+		return "redirect:/exports";
+	}
+}
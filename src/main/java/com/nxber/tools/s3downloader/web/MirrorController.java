@@ -0,0 +1,95 @@
+package com.nxber.tools.s3downloader.web;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+
+import com.nxber.tools.s3downloader.config.S3SourceManager.S3Source;
+import com.nxber.tools.s3downloader.mirror.MirrorJob;
+import com.nxber.tools.s3downloader.mirror.MirrorService;
+import com.nxber.tools.s3downloader.service.StorageBrowserService;
+
+@Controller
+public class MirrorController {
+	private final MirrorService mirrorService;
+	private final StorageBrowserService browserService;
+
+	public MirrorController(MirrorService mirrorService, StorageBrowserService browserService) {
+		this.mirrorService = mirrorService;
+		this.browserService = browserService;
+	}
+
+	@GetMapping("/mirrors")
+	public String mirrors(
+		@RequestParam(name = "source", required = false) String sourceName,
+		@RequestParam(name = "bucket", required = false) String bucket,
+		@RequestParam(name = "prefix", required = false, defaultValue = "") String prefix,
+		Model model
+	) {
+		S3Source source = browserService.resolveSource(sourceName);
+		List<MirrorJob> jobs = mirrorService.jobs();
+
+		model.addAttribute("activeSource", source.name());
+		model.addAttribute("activeSourceDisplayName", source.displayName());
+		model.addAttribute("activeBucket", StringUtils.hasText(bucket) ? bucket : source.defaultBucket());
+		model.addAttribute("prefix", prefix);
+		model.addAttribute("root", mirrorService.root());
+		model.addAttribute("mirrors", jobs);
+		model.addAttribute("running", jobs.stream().anyMatch(job -> job.state() == MirrorJob.State.RUNNING));
+		return "mirrors";
+	}
+
+	@PostMapping("/mirrors")
+	public String startMirror(
+		@RequestParam(name = "source", required = false) String sourceName,
+		@RequestParam(name = "bucket", required = false) String bucket,
+		@RequestParam(name = "prefix", required = false, defaultValue = "") String prefix,
+		@RequestParam(name = "target", required = false) String target,
+		RedirectAttributes redirectAttributes
+	) throws IOException {
+		try {
+			mirrorService.start(sourceName, bucket, prefix, target);
+		} catch (IllegalArgumentException exception) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, exception.getMessage(), exception);
+		} catch (IllegalStateException exception) {
+			throw new ResponseStatusException(HttpStatus.CONFLICT, exception.getMessage(), exception);
+		}
+		return redirectToMirrors(sourceName, bucket, prefix, redirectAttributes);
+	}
+
+	@PostMapping("/mirrors/{id}/cancel")
+	public String cancelMirror(
+		@PathVariable("id") String id,
+		@RequestParam(name = "source", required = false) String sourceName,
+		@RequestParam(name = "bucket", required = false) String bucket,
+		@RequestParam(name = "prefix", required = false, defaultValue = "") String prefix,
+		RedirectAttributes redirectAttributes
+	) {
+		if (mirrorService.find(id).isEmpty()) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown mirror '%s'".formatted(id));
+		}
+		mirrorService.cancel(id);
+		return redirectToMirrors(sourceName, bucket, prefix, redirectAttributes);
+	}
+
+	private static String redirectToMirrors(String sourceName, String bucket, String prefix, RedirectAttributes redirectAttributes) {
+		if (StringUtils.hasText(sourceName)) {
+			redirectAttributes.addAttribute("source", sourceName);
+		}
+		if (StringUtils.hasText(bucket)) {
+			redirectAttributes.addAttribute("bucket", bucket);
+		}
+		redirectAttributes.addAttribute("prefix", prefix);
+		return "redirect:/mirrors";
+	}
+}
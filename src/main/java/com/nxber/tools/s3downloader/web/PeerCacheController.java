@@ -0,0 +1,81 @@
+package com.nxber.tools.s3downloader.web;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.nxber.tools.s3downloader.cache.LocalStorageCache;
+import com.nxber.tools.s3downloader.cache.PeerStorageCache;
+import com.nxber.tools.s3downloader.config.S3ClientProperties;
+
+// serves this node's share of the ring to the other nodes; it never forwards, so requests cannot loop
+@RestController
+@ConditionalOnProperty(prefix = "storage.s3.cache", name = "backend", havingValue = "peer")
+public class PeerCacheController {
+	private final LocalStorageCache localStore;
+	private final String token;
+
+	public PeerCacheController(PeerStorageCache cache, S3ClientProperties properties) {
+		this.localStore = cache.localStore();
+		this.token = properties.getCache().getToken();
+	}
+
+	@GetMapping(value = PeerStorageCache.ENTRY_PATH, produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+	public ResponseEntity<byte[]> getEntry(@RequestHeader(value = PeerStorageCache.TOKEN_HEADER, required = false) String presentedToken, @RequestParam String key) {
+		authorize(presentedToken);
+		return localStore.get(key)
+			.map(ResponseEntity::ok)
+			.orElseGet(() -> ResponseEntity.notFound().build());
+	}
+
+	@PutMapping(PeerStorageCache.ENTRY_PATH)
+	public ResponseEntity<Void> putEntry(
+		@RequestHeader(value = PeerStorageCache.TOKEN_HEADER, required = false) String presentedToken,
+		@RequestParam String key,
+		@RequestParam String ttl,
+		@RequestBody byte[] value
+	) {
+		authorize(presentedToken);
+		Duration timeToLive;
+		try {
+			timeToLive = Duration.parse(ttl);
+		} catch (DateTimeParseException exception) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid ttl", exception);
+		}
+		localStore.put(key, value, timeToLive);
+		return ResponseEntity.noContent().build();
+	}
+
+	@DeleteMapping(PeerStorageCache.ENTRIES_PATH)
+	public ResponseEntity<Void> invalidate(@RequestHeader(value = PeerStorageCache.TOKEN_HEADER, required = false) String presentedToken, @RequestParam String prefix) {
+		authorize(presentedToken);
+		localStore.invalidate(prefix);
+		return ResponseEntity.noContent().build();
+	}
+
+	private void authorize(String presentedToken) {
+		if (!StringUtils.hasText(token) || !StringUtils.hasText(presentedToken)) {
+			throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+		}
+		byte[] expected = token.getBytes(StandardCharsets.UTF_8);
+		byte[] presented = presentedToken.getBytes(StandardCharsets.UTF_8);
+		if (!MessageDigest.isEqual(expected, presented)) {
+			throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+		}
+	}
+}
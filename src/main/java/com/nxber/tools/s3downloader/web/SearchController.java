@@ -0,0 +1,128 @@
+package com.nxber.tools.s3downloader.web;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nxber.tools.s3downloader.search.FederatedSearchService;
+import com.nxber.tools.s3downloader.search.SearchHit;
+import com.nxber.tools.s3downloader.search.SourceOutcome;
+import com.nxber.tools.s3downloader.service.StorageBrowserService;
+import com.nxber.tools.s3downloader.web.support.ByteSizeFormatter;
+
+@Controller
+public class SearchController {
+	private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+	private static final DateTimeFormatter DETAIL_TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss", Locale.US)
+		.withZone(ZoneId.systemDefault());
+
+	private final FederatedSearchService searchService;
+	private final StorageBrowserService browserService;
+	private final ObjectMapper objectMapper;
+	private final ByteSizeFormatter byteFormatter;
+
+	public SearchController(FederatedSearchService searchService, StorageBrowserService browserService, ObjectMapper objectMapper, ByteSizeFormatter byteFormatter) {
+		this.searchService = searchService;
+		this.browserService = browserService;
+		this.objectMapper = objectMapper;
+		this.byteFormatter = byteFormatter;
+	}
+
+	@GetMapping("/search")
+	public String search(
+		@RequestParam(name = "query", required = false, defaultValue = "") String query,
+		@RequestParam(name = "prefix", required = false, defaultValue = "") String prefix,
+		Model model
+	) {
+		model.addAttribute("query", query);
+		model.addAttribute("prefix", prefix);
+		model.addAttribute("sources", browserService.listSources());
+		return "search";
+	}
+
+	@GetMapping(path = "/search/results")
+	public ResponseEntity<StreamingResponseBody> searchResults(
+		@RequestParam("query") String query,
+		@RequestParam(name = "prefix", required = false, defaultValue = "") String prefix
+	) {
+		if (!StringUtils.hasText(query)) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A search query is required");
+		}
+
+		// the service serializes both listeners, so lines never interleave
+		StreamingResponseBody body = outputStream -> {
+			long startedAt = System.currentTimeMillis();
+			List<SourceOutcome> outcomes = searchService.search(query, prefix,
+				hit -> writeLine(outputStream, hitLine(hit)),
+				outcome -> writeLine(outputStream, outcomeLine(outcome)));
+			Map<String, Object> done = new LinkedHashMap<>();
+			done.put("type", "done");
+			done.put("hits", outcomes.stream().mapToInt(SourceOutcome::hits).sum());
+			done.put("elapsedMillis", System.currentTimeMillis() - startedAt);
+			writeLine(outputStream, done);
+		};
+
+		return ResponseEntity.ok()
+			.contentType(NDJSON)
+			.header(HttpHeaders.CACHE_CONTROL, "no-store")
+			.body(body);
+	}
+
+	private Map<String, Object> hitLine(SearchHit hit) {
+		Map<String, Object> line = new LinkedHashMap<>();
+		line.put("type", "hit");
+		line.put("source", hit.sourceName());
+		line.put("sourceDisplayName", hit.sourceDisplayName());
+		line.put("bucket", hit.bucket());
+		line.put("key", hit.key());
+		line.put("name", hit.name());
+		line.put("folder", hit.key().substring(0, hit.key().length() - hit.name().length()));
+		line.put("size", hit.size());
+		line.put("sizeLabel", byteFormatter.format(hit.size()));
+		line.put("lastModified", hit.lastModified() != null ? DETAIL_TIMESTAMP.format(hit.lastModified()) : null);
+		return line;
+	}
+
+	private Map<String, Object> outcomeLine(SourceOutcome outcome) {
+		Map<String, Object> line = new LinkedHashMap<>();
+		line.put("type", "source");
+		line.put("source", outcome.sourceName());
+		line.put("sourceDisplayName", outcome.sourceDisplayName());
+		line.put("status", outcome.status().name().toLowerCase(Locale.ROOT).replace('_', ' '));
+		line.put("bucketsSearched", outcome.bucketsSearched());
+		line.put("bucketsFailed", outcome.bucketsFailed());
+		line.put("hits", outcome.hits());
+		line.put("elapsedMillis", outcome.elapsedMillis());
+		line.put("message", outcome.message());
+		return line;
+	}
+
+	private void writeLine(OutputStream outputStream, Map<String, Object> line) {
+		try {
+			outputStream.write((objectMapper.writeValueAsString(line) + "\n").getBytes(StandardCharsets.UTF_8));
+			outputStream.flush();
+		} catch (IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+	}
+}
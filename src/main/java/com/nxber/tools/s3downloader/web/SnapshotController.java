@@ -0,0 +1,163 @@
+package com.nxber.tools.s3downloader.web;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+
+import com.nxber.tools.s3downloader.archive.ZipArchiveWriter;
+import com.nxber.tools.s3downloader.config.S3SourceManager.S3Source;
+import com.nxber.tools.s3downloader.service.StorageAccessException;
+import com.nxber.tools.s3downloader.service.StorageBrowserService;
+import com.nxber.tools.s3downloader.snapshot.SnapshotChange;
+import com.nxber.tools.s3downloader.snapshot.SnapshotService;
+import com.nxber.tools.s3downloader.transfer.Transfer;
+import com.nxber.tools.s3downloader.transfer.TransferRegistry;
+
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+@Controller
+public class SnapshotController {
+	private static final int DISPLAYED_CHANGES = 500;
+	private static final DateTimeFormatter ZIP_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneOffset.UTC);
+
+	private final SnapshotService snapshotService;
+	private final StorageBrowserService browserService;
+	private final TransferRegistry transferRegistry;
+
+	public SnapshotController(SnapshotService snapshotService, StorageBrowserService browserService, TransferRegistry transferRegistry) {
+		this.snapshotService = snapshotService;
+		this.browserService = browserService;
+		this.transferRegistry = transferRegistry;
+	}
+
+	@GetMapping("/snapshots")
+	public String snapshots(
+		@RequestParam(name = "source", required = false) String sourceName,
+		@RequestParam(name = "bucket", required = false) String bucket,
+		@RequestParam(name = "prefix", required = false, defaultValue = "") String prefix,
+		@RequestParam(name = "from", required = false) String fromId,
+		@RequestParam(name = "to", required = false, defaultValue = SnapshotService.LIVE) String toId,
+		Model model
+	) throws IOException {
+		S3Source source = browserService.resolveSource(sourceName);
+		String activeBucket = StringUtils.hasText(bucket) ? bucket : source.defaultBucket();
+
+		model.addAttribute("activeSource", source.name());
+		model.addAttribute("activeSourceDisplayName", source.displayName());
+		model.addAttribute("activeBucket", activeBucket);
+		model.addAttribute("prefix", prefix);
+		model.addAttribute("snapshots", snapshotService.listSnapshots(source.name(), activeBucket, prefix));
+		model.addAttribute("fromId", fromId);
+		model.addAttribute("toId", toId);
+
+		if (StringUtils.hasText(fromId)) {
+			// every change is counted, but only the first few hundred are rendered
+			Map<SnapshotChange.Type, Long> counts = new EnumMap<>(SnapshotChange.Type.class);
+			List<SnapshotChange> changes = new ArrayList<>();
+			try (Stream<SnapshotChange> diff = snapshotService.diff(source.name(), activeBucket, prefix, fromId, toId)) {
+				diff.forEach(change -> {
+					counts.merge(change.type(), 1L, Long::sum);
+					if (changes.size() < DISPLAYED_CHANGES) {
+						changes.add(change);
+					}
+				});
+			} catch (IllegalArgumentException exception) {
+				throw new ResponseStatusException(HttpStatus.NOT_FOUND, exception.getMessage(), exception);
+			} catch (S3Exception | StorageAccessException exception) {
+				model.addAttribute("errorMessage", exception.getMessage());
+			}
+			for (SnapshotChange.Type type : SnapshotChange.Type.values()) {
+				counts.putIfAbsent(type, 0L);
+			}
+			model.addAttribute("changes", changes);
+			model.addAttribute("changeCounts", counts);
+			model.addAttribute("truncatedChanges", counts.values().stream().mapToLong(Long::longValue).sum() > changes.size());
+		}
+		return "snapshots";
+	}
+
+	@PostMapping("/snapshots")
+	public String takeSnapshot(
+		@RequestParam(name = "source", required = false) String sourceName,
+		@RequestParam(name = "bucket", required = false) String bucket,
+		@RequestParam(name = "prefix", required = false, defaultValue = "") String prefix,
+		RedirectAttributes redirectAttributes
+	) throws IOException {
+		SnapshotService.SnapshotInfo snapshot;
+		try {
+			snapshot = snapshotService.takeSnapshot(sourceName, bucket, prefix);
+		} catch (S3Exception exception) {
+			throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, exception.getMessage(), exception);
+		}
+		if (StringUtils.hasText(sourceName)) {
+			redirectAttributes.addAttribute("source", sourceName);
+		}
+		if (StringUtils.hasText(bucket)) {
+			redirectAttributes.addAttribute("bucket", bucket);
+		}
+		redirectAttributes.addAttribute("prefix", prefix);
+		redirectAttributes.addAttribute("from", snapshot.id());
+		return "redirect:/snapshots";
+	}
+
+	@GetMapping("/snapshots/archive")
+	public ResponseEntity<StreamingResponseBody> downloadChanges(
+		@RequestParam(name = "source", required = false) String sourceName,
+		@RequestParam(name = "bucket", required = false) String bucket,
+		@RequestParam(name = "prefix", required = false, defaultValue = "") String prefix,
+		@RequestParam("from") String fromId,
+		@RequestParam(name = "to", required = false, defaultValue = SnapshotService.LIVE) String toId,
+		HttpServletRequest request
+	) throws IOException {
+		Stream<SnapshotChange> diff;
+		try {
+			diff = snapshotService.diff(sourceName, bucket, prefix, fromId, toId);
+		} catch (IllegalArgumentException exception) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, exception.getMessage(), exception);
+		}
+
+		String zipName = "changes-since-" + ZIP_TIMESTAMP.format(Instant.ofEpochMilli(Long.parseLong(fromId))) + ".zip";
+		String client = TransferController.clientOf(request);
+		// the delta is fed from the merge join straight into the archive, so large diffs never sit in memory
+		StreamingResponseBody body = outputStream -> {
+			try (diff;
+				Transfer transfer = transferRegistry.start(Transfer.Kind.CHANGES, sourceName, bucket, prefix, client);
+				ZipArchiveWriter archive = browserService.openArchive(transfer.track(outputStream))) {
+				browserService.streamKeysAsZip(sourceName, bucket, prefix, diff
+					.filter(change -> change.type() != SnapshotChange.Type.REMOVED)
+					.map(SnapshotChange::key)
+					.iterator(), archive, transfer);
+			} catch (UncheckedIOException exception) {
+				throw exception.getCause();
+			}
+		};
+
+		return ResponseEntity.ok()
+			.header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + zipName + "\"")
+			.contentType(MediaType.APPLICATION_OCTET_STREAM)
+			.body(body);
+	}
+}
@@ -0,0 +1,62 @@
+package com.nxber.tools.s3downloader.web;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.nxber.tools.s3downloader.config.S3SourceManager.S3Source;
+import com.nxber.tools.s3downloader.service.StorageBrowserService;
+import com.nxber.tools.s3downloader.service.TextPreview;
+import com.nxber.tools.s3downloader.service.TextPreviewService;
+
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+@Controller
+public class TextPreviewController {
+	private final TextPreviewService textPreviewService;
+	private final StorageBrowserService browserService;
+
+	public TextPreviewController(TextPreviewService textPreviewService, StorageBrowserService browserService) {
+		this.textPreviewService = textPreviewService;
+		this.browserService = browserService;
+	}
+
+	@GetMapping("/preview/text")
+	public String previewText(
+		@RequestParam(name = "source", required = false) String sourceName,
+		@RequestParam("bucket") String bucket,
+		@RequestParam("key") String key,
+		@RequestParam(name = "mode", required = false, defaultValue = "head") String mode,
+		@RequestParam(name = "lines", required = false) Integer lines,
+		Model model
+	) {
+		if (!textPreviewService.supports(key)) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Preview not supported for this object");
+		}
+		boolean tail = "tail".equalsIgnoreCase(mode);
+		int lineCount = lines != null ? lines : textPreviewService.defaultLines();
+
+		TextPreview preview;
+		try {
+			preview = textPreviewService.preview(sourceName, bucket, key, tail, lineCount);
+		} catch (S3Exception exception) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, exception.awsErrorDetails().errorMessage(), exception);
+		}
+
+		S3Source source = browserService.resolveSource(sourceName);
+		int slashIndex = key.lastIndexOf('/');
+		model.addAttribute("activeSource", source.name());
+		model.addAttribute("activeSourceDisplayName", source.displayName());
+		model.addAttribute("activeBucket", StringUtils.hasText(bucket) ? bucket : source.defaultBucket());
+		model.addAttribute("prefix", slashIndex >= 0 ? key.substring(0, slashIndex + 1) : "");
+		model.addAttribute("key", key);
+		model.addAttribute("mode", tail ? "tail" : "head");
+		model.addAttribute("lineCount", lineCount);
+		model.addAttribute("preview", preview);
+		return "text-preview";
+	}
+}
@@ -0,0 +1,125 @@
+package com.nxber.tools.s3downloader.web;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.nxber.tools.s3downloader.transfer.TransferRegistry;
+import com.nxber.tools.s3downloader.transfer.TransferStatus;
+import com.nxber.tools.s3downloader.web.support.ByteSizeFormatter;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+@Controller
+public class TransferController {
+	private static final DateTimeFormatter STARTED_AT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss", Locale.US)
+		.withZone(ZoneId.systemDefault());
+	private static final long EMITTER_TIMEOUT_MILLIS = Duration.ofMinutes(30).toMillis();
+
+	private final TransferRegistry transferRegistry;
+	private final ByteSizeFormatter byteFormatter;
+	private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+
+	public TransferController(TransferRegistry transferRegistry, ByteSizeFormatter byteFormatter) {
+		this.transferRegistry = transferRegistry;
+		this.byteFormatter = byteFormatter;
+	}
+
+	@GetMapping(path = "/admin/transfers", produces = MediaType.TEXT_HTML_VALUE)
+	public String transfers(Model model) {
+		model.addAttribute("transfers", transferRegistry.statuses());
+		return "transfers";
+	}
+
+	@GetMapping(path = "/admin/transfers", produces = MediaType.APPLICATION_JSON_VALUE)
+	@ResponseBody
+	public List<TransferStatus> transferStatuses() {
+		return transferRegistry.statuses();
+	}
+
+	@GetMapping(path = "/admin/transfers/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	@ResponseBody
+	public SseEmitter transferEvents() throws IOException {
+		SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MILLIS);
+		emitter.onCompletion(() -> emitters.remove(emitter));
+		emitter.onTimeout(() -> emitters.remove(emitter));
+		emitter.onError(error -> emitters.remove(emitter));
+		emitters.add(emitter);
+		emitter.send(progressEvent(progressRows()));
+		return emitter;
+	}
+
+	@PostMapping("/admin/transfers/{id}/cancel")
+	public String cancelTransfer(@PathVariable("id") String id) {
+		if (!transferRegistry.cancel(id)) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No active transfer '%s'".formatted(id));
+		}
+		return "redirect:/admin/transfers";
+	}
+
+	// one snapshot is built per tick and shared by every open feed, so the cost does not grow with viewers
+	@Scheduled(fixedRateString = "${storage.s3.transfers.progress-interval:PT1S}")
+	public void publishProgress() {
+		if (emitters.isEmpty()) {
+			return;
+		}
+		List<Map<String, Object>> rows = progressRows();
+		for (SseEmitter emitter : emitters) {
+			try {
+				emitter.send(progressEvent(rows));
+			} catch (IOException | IllegalStateException exception) {
+				emitters.remove(emitter);
+				emitter.completeWithError(exception);
+			}
+		}
+	}
+
+	static String clientOf(HttpServletRequest request) {
+		String user = request.getRemoteUser();
+		return StringUtils.hasText(user) ? user + " (" + request.getRemoteAddr() + ")" : request.getRemoteAddr();
+	}
+
+	private SseEmitter.SseEventBuilder progressEvent(List<Map<String, Object>> rows) {
+		return SseEmitter.event().name("transfers").data(rows, MediaType.APPLICATION_JSON);
+	}
+
+	private List<Map<String, Object>> progressRows() {
+		return transferRegistry.statuses().stream().map(this::progressRow).toList();
+	}
+
+	private Map<String, Object> progressRow(TransferStatus status) {
+		Map<String, Object> row = new LinkedHashMap<>();
+		row.put("id", status.id());
+		row.put("kind", status.kind().name().toLowerCase(Locale.ROOT));
+		row.put("description", status.description());
+		row.put("client", status.client());
+		row.put("startedAt", STARTED_AT.format(status.startedAt()));
+		row.put("currentEntry", status.currentEntry());
+		row.put("entries", status.entries());
+		row.put("bytesSent", status.bytesSent());
+		row.put("bytesSentLabel", byteFormatter.format(status.bytesSent()));
+		row.put("objectBytesLabel", byteFormatter.format(status.objectBytes()));
+		row.put("rateLabel", byteFormatter.format(status.bytesPerSecond()) + "/s");
+		row.put("cancelled", status.cancelled());
+		return row;
+	}
+}
@@ -0,0 +1,122 @@
+package com.nxber.tools.s3downloader.web;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.nxber.tools.s3downloader.config.S3SourceManager.S3Source;
+import com.nxber.tools.s3downloader.service.StorageAccessException;
+import com.nxber.tools.s3downloader.service.StorageBrowserService;
+import com.nxber.tools.s3downloader.service.ZipBrowserService;
+import com.nxber.tools.s3downloader.service.ZipEntryStream;
+import com.nxber.tools.s3downloader.service.ZipListing;
+import com.nxber.tools.s3downloader.transfer.Transfer;
+import com.nxber.tools.s3downloader.transfer.TransferCancelledException;
+import com.nxber.tools.s3downloader.transfer.TransferRegistry;
+
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+@Controller
+public class ZipBrowserController {
+	private final ZipBrowserService zipBrowserService;
+	private final StorageBrowserService browserService;
+	private final TransferRegistry transferRegistry;
+
+	public ZipBrowserController(ZipBrowserService zipBrowserService, StorageBrowserService browserService, TransferRegistry transferRegistry) {
+		this.zipBrowserService = zipBrowserService;
+		this.browserService = browserService;
+		this.transferRegistry = transferRegistry;
+	}
+
+	@GetMapping("/browser/zip")
+	public String browseArchive(
+		@RequestParam(name = "source", required = false) String sourceName,
+		@RequestParam("bucket") String bucket,
+		@RequestParam("key") String key,
+		@RequestParam(name = "path", required = false, defaultValue = "") String path,
+		Model model
+	) {
+		if (!zipBrowserService.supports(key)) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Only zip archives can be browsed");
+		}
+
+		ZipListing listing = null;
+		String errorMessage = null;
+		try {
+			listing = zipBrowserService.list(sourceName, bucket, key, path);
+		} catch (S3Exception exception) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, exception.awsErrorDetails().errorMessage(), exception);
+		} catch (StorageAccessException exception) {
+			errorMessage = exception.getMessage();
+		}
+
+		S3Source source = browserService.resolveSource(sourceName);
+		int slashIndex = key.lastIndexOf('/');
+		model.addAttribute("activeSource", source.name());
+		model.addAttribute("activeSourceDisplayName", source.displayName());
+		model.addAttribute("activeBucket", StringUtils.hasText(bucket) ? bucket : source.defaultBucket());
+		model.addAttribute("prefix", slashIndex >= 0 ? key.substring(0, slashIndex + 1) : "");
+		model.addAttribute("key", key);
+		model.addAttribute("archiveName", key.substring(slashIndex + 1));
+		model.addAttribute("breadcrumbs", BucketBrowserController.buildBreadcrumbs(listing != null ? listing.path() : ""));
+		model.addAttribute("listing", listing);
+		model.addAttribute("errorMessage", errorMessage);
+		return "zip";
+	}
+
+	@GetMapping("/download/zip-entry")
+	public ResponseEntity<StreamingResponseBody> downloadEntry(
+		@RequestParam(name = "source", required = false) String sourceName,
+		@RequestParam("bucket") String bucket,
+		@RequestParam("key") String key,
+		@RequestParam("entry") String entryName,
+		HttpServletRequest request
+	) {
+		ZipEntryStream entryStream;
+		try {
+			entryStream = zipBrowserService.openEntry(sourceName, bucket, key, entryName)
+				.orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No entry '%s' in '%s'".formatted(entryName, key)));
+		} catch (S3Exception exception) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, exception.awsErrorDetails().errorMessage(), exception);
+		} catch (StorageAccessException exception) {
+			throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, exception.getMessage(), exception);
+		}
+		String client = TransferController.clientOf(request);
+
+		StreamingResponseBody body = outputStream -> {
+			try (InputStream data = entryStream.data(); Transfer transfer = transferRegistry.start(Transfer.Kind.FILE, sourceName, bucket, key + " / " + entryName, client)) {
+				transfer.beginEntry(entryName, entryStream.abortable());
+				long written = -1L;
+				try {
+					written = data.transferTo(transfer.track(outputStream));
+				} catch (IOException exception) {
+					if (transfer.isCancelled()) {
+						throw new TransferCancelledException(transfer.id(), exception);
+					}
+					throw exception;
+				} finally {
+					transfer.endEntry(written);
+				}
+			}
+		};
+
+		return ResponseEntity.ok()
+			.header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + entryStream.entry().fileName() + "\"")
+			.contentType(MediaType.APPLICATION_OCTET_STREAM)
+			.contentLength(entryStream.entry().size())
+			.body(body);
+	}
+}
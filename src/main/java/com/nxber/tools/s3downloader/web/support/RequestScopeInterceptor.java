@@ -0,0 +1,108 @@
+package com.nxber.tools.s3downloader.web.support;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import com.nxber.tools.s3downloader.config.S3ClientProperties;
+import com.nxber.tools.s3downloader.service.RequestScope;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+// handlers run under the request deadline; streamed bodies run under a scope of their own that only the client's departure ends
+@Component
+public class RequestScopeInterceptor implements AsyncHandlerInterceptor, CallableProcessingInterceptor {
+	private static final String HANDLER_SCOPE = RequestScopeInterceptor.class.getName() + ".handlerScope";
+	private static final String HANDLER_ATTACHMENT = RequestScopeInterceptor.class.getName() + ".handlerAttachment";
+	private static final String BODY_SCOPE = RequestScopeInterceptor.class.getName() + ".bodyScope";
+	private static final String BODY_ATTACHMENT = RequestScopeInterceptor.class.getName() + ".bodyAttachment";
+
+	private final Duration requestDeadline;
+
+	public RequestScopeInterceptor(S3ClientProperties properties) {
+		this.requestDeadline = properties.getRequestDeadline();
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		RequestScope scope = RequestScope.open(requestDeadline);
+		request.setAttribute(HANDLER_SCOPE, scope);
+		request.setAttribute(HANDLER_ATTACHMENT, scope.attach());
+		return true;
+	}
+
+	@Override
+	public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		detachHandlerScope(request);
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception exception) {
+		RequestScope scope = detachHandlerScope(request);
+		// anything the handler left running has nobody left to answer
+		if (scope != null) {
+			scope.cancel();
+		}
+	}
+
+	// downloads last as long as the client keeps reading, so a body gets no deadline, only cancellation
+	@Override
+	public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+		request.setAttribute(BODY_SCOPE, RequestScope.open(null), RequestAttributes.SCOPE_REQUEST);
+	}
+
+	@Override
+	public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+		if (request.getAttribute(BODY_SCOPE, RequestAttributes.SCOPE_REQUEST) instanceof RequestScope scope) {
+			request.setAttribute(BODY_ATTACHMENT, scope.attach(), RequestAttributes.SCOPE_REQUEST);
+		}
+	}
+
+	@Override
+	public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) {
+		if (request.getAttribute(BODY_ATTACHMENT, RequestAttributes.SCOPE_REQUEST) instanceof RequestScope.Attachment attachment) {
+			request.removeAttribute(BODY_ATTACHMENT, RequestAttributes.SCOPE_REQUEST);
+			attachment.close();
+		}
+	}
+
+	@Override
+	public <T> Object handleTimeout(NativeWebRequest request, Callable<T> task) {
+		cancelBodyScope(request);
+		return RESULT_NONE;
+	}
+
+	// the container reports a client that hung up here, often long before the body's next write would fail
+	@Override
+	public <T> Object handleError(NativeWebRequest request, Callable<T> task, Throwable error) {
+		cancelBodyScope(request);
+		return RESULT_NONE;
+	}
+
+	@Override
+	public <T> void afterCompletion(NativeWebRequest request, Callable<T> task) {
+		cancelBodyScope(request);
+	}
+
+	private static RequestScope detachHandlerScope(HttpServletRequest request) {
+		if (request.getAttribute(HANDLER_ATTACHMENT) instanceof RequestScope.Attachment attachment) {
+			request.removeAttribute(HANDLER_ATTACHMENT);
+			attachment.close();
+		}
+		RequestScope scope = (RequestScope) request.getAttribute(HANDLER_SCOPE);
+		request.removeAttribute(HANDLER_SCOPE);
+		return scope;
+	}
+
+	private static void cancelBodyScope(NativeWebRequest request) {
+		if (request.getAttribute(BODY_SCOPE, RequestAttributes.SCOPE_REQUEST) instanceof RequestScope scope) {
+			scope.cancel();
+		}
+	}
+}
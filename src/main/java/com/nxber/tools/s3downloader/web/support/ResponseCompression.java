@@ -0,0 +1,141 @@
+package com.nxber.tools.s3downloader.web.support;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.StringUtils;
+
+import com.nxber.tools.s3downloader.config.S3ClientProperties;
+
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+// gzip for proxied downloads of text-like objects; the JDK ships no zstd codec, so gzip is the one encoding offered
+@Component
+public class ResponseCompression {
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final Set<String> COMPRESSIBLE_TYPES = Set.of(
+		"application/json",
+		"application/x-ndjson",
+		"application/xml",
+		"application/javascript",
+		"application/x-javascript",
+		"application/yaml",
+		"application/x-yaml",
+		"application/sql",
+		"application/x-sh",
+		"application/x-tex",
+		"application/postscript",
+		"image/svg+xml"
+	);
+	// most uploads are stored as application/octet-stream, so for those the extension decides
+	private static final Set<String> COMPRESSIBLE_EXTENSIONS = Set.of(
+		"txt", "log", "out", "csv", "tsv", "json", "jsonl", "ndjson", "xml", "yaml", "yml", "md",
+		"html", "htm", "css", "js", "mjs", "sql", "svg", "ini", "conf", "cfg", "properties", "sh", "py", "java", "srt", "vtt", "har"
+	);
+
+	private final S3ClientProperties.ContentEncoding settings;
+	private final Semaphore slots;
+
+	public ResponseCompression(S3ClientProperties properties) {
+		this.settings = properties.getContentEncoding();
+		this.slots = new Semaphore(settings.getMaxConcurrent() > 0 ? settings.getMaxConcurrent() : Runtime.getRuntime().availableProcessors());
+	}
+
+	public boolean isEnabled() {
+		return settings.isEnabled();
+	}
+
+	// with every slot taken the object goes out as stored rather than queueing behind other downloads for CPU
+	public Optional<Slot> acquire(String acceptEncoding, String key, GetObjectResponse response) {
+		if (!settings.isEnabled() || !acceptsGzip(acceptEncoding) || !isCompressible(key, response) || !slots.tryAcquire()) {
+			return Optional.empty();
+		}
+		return Optional.of(new Slot());
+	}
+
+	boolean isCompressible(String key, GetObjectResponse response) {
+		// an object stored with an encoding of its own is sent as is, never wrapped twice
+		String storedEncoding = response.contentEncoding();
+		if (StringUtils.hasText(storedEncoding) && !"identity".equalsIgnoreCase(storedEncoding.trim())) {
+			return false;
+		}
+		Long contentLength = response.contentLength();
+		if (contentLength != null && contentLength < settings.getMinSize()) {
+			return false;
+		}
+		if (StringUtils.hasText(response.contentType())) {
+			String mediaType = response.contentType().split(";", 2)[0].trim().toLowerCase(Locale.ROOT);
+			if (!mediaType.equals("application/octet-stream") && !mediaType.equals("binary/octet-stream")) {
+				return mediaType.startsWith("text/") || COMPRESSIBLE_TYPES.contains(mediaType) || mediaType.endsWith("+json") || mediaType.endsWith("+xml");
+			}
+		}
+		String fileName = key.substring(key.lastIndexOf('/') + 1);
+		int dot = fileName.lastIndexOf('.');
+		return dot >= 0 && COMPRESSIBLE_EXTENSIONS.contains(fileName.substring(dot + 1).toLowerCase(Locale.ROOT));
+	}
+
+	// an explicit gzip entry wins over the wildcard, so "gzip;q=0, *" still refuses gzip
+	static boolean acceptsGzip(String acceptEncoding) {
+		if (!StringUtils.hasText(acceptEncoding)) {
+			return false;
+		}
+		Double gzip = null;
+		Double wildcard = null;
+		for (String entry : acceptEncoding.split(",")) {
+			String[] parts = entry.split(";");
+			String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+			if (coding.equals("gzip") || coding.equals("x-gzip")) {
+				gzip = quality(parts);
+			} else if (coding.equals("*")) {
+				wildcard = quality(parts);
+			}
+		}
+		return gzip != null ? gzip > 0 : wildcard != null && wildcard > 0;
+	}
+
+	private static double quality(String[] parts) {
+		for (int index = 1; index < parts.length; index++) {
+			String parameter = parts[index].trim();
+			if (parameter.startsWith("q=")) {
+				try {
+					return Double.parseDouble(parameter.substring(2));
+				} catch (NumberFormatException exception) {
+					return 0;
+				}
+			}
+		}
+		return 1;
+	}
+
+	public final class Slot implements AutoCloseable {
+		private final AtomicBoolean released = new AtomicBoolean();
+
+		public String encoding() {
+			return "gzip";
+		}
+
+		// closing the returned stream writes the gzip trailer but leaves the response stream open
+		public OutputStream wrap(OutputStream outputStream) throws IOException {
+			return new GZIPOutputStream(StreamUtils.nonClosing(outputStream), BUFFER_SIZE) {
+				{
+					def.setLevel(settings.getLevel());
+				}
+			};
+		}
+
+		@Override
+		public void close() {
+			if (released.compareAndSet(false, true)) {
+				slots.release();
+			}
+		}
+	}
+}
@@ -6,17 +6,38 @@ document.addEventListener('DOMContentLoaded', () => {
 	const selectAllCheckbox = document.querySelector('#selectAll');
 	const downloadButton = document.querySelector('#downloadSelectedButton');
 	const previewToggle = document.querySelector('#previewToggle');
+	const listingTable = document.querySelector('#listingTable');
+	const transferTable = document.querySelector('#transferTable');
+	const federatedResults = document.querySelector('#federatedResults');
+	const federatedSources = document.querySelector('#federatedSources');
 
 	const prefixInput = bucketForm ? bucketForm.querySelector('input[name="prefix"]') : null;
-	const tokenStackInput = bucketForm ? bucketForm.querySelector('input[name="tokenStack"]') : null;
+	const pageInput = bucketForm ? bucketForm.querySelector('input[name="page"]') : null;
+
+	const readLines = async (response, applyLine) => {
+		const reader = response.body.getReader();
+		const decoder = new TextDecoder();
+		let buffered = '';
+		for (;;) {
+			const {value, done} = await reader.read();
+			if (done) {
+				break;
+			}
+			buffered += decoder.decode(value, {stream: true});
+			const lines = buffered.split('\n');
+			buffered = lines.pop();
+			lines.forEach(applyLine);
+		}
+		applyLine(buffered);
+	};
 
 	const resetNavigationState = () => {
 		// clear path state so source/bucket switches always land at the root listing
 		if (prefixInput) {
 			prefixInput.value = '';
 		}
-		if (tokenStackInput) {
-			tokenStackInput.value = '';
+		if (pageInput) {
+			pageInput.value = '1';
 		}
 	};
 
@@ -129,5 +150,159 @@ document.addEventListener('DOMContentLoaded', () => {
 		});
 	}
 
+	const loadFolderStats = async () => {
+		if (!listingTable || !selectionForm || !listingTable.dataset.folderStatsUrl) {
+			return;
+		}
+
+		const sizeCells = new Map();
+		listingTable.querySelectorAll('[data-folder-size]').forEach(cell => sizeCells.set(cell.dataset.folderSize, cell));
+		const modifiedCells = new Map();
+		listingTable.querySelectorAll('[data-folder-modified]').forEach(cell => modifiedCells.set(cell.dataset.folderModified, cell));
+		if (sizeCells.size === 0) {
+			return;
+		}
+
+		const params = new URLSearchParams();
+		params.append('source', selectionForm.querySelector('input[name="source"]').value);
+		params.append('bucket', selectionForm.querySelector('input[name="bucket"]').value);
+		params.append('prefix', listingTable.dataset.prefix || '');
+		sizeCells.forEach((cell, prefix) => params.append('folders', prefix));
+
+		const applyLine = line => {
+			if (!line.trim()) {
+				return;
+			}
+			const stats = JSON.parse(line);
+			const sizeCell = sizeCells.get(stats.prefix);
+			if (sizeCell) {
+				sizeCell.textContent = stats.sizeLabel;
+			}
+			const modifiedCell = modifiedCells.get(stats.prefix);
+			if (modifiedCell) {
+				modifiedCell.textContent = stats.lastModified || '—';
+			}
+		};
+
+		try {
+			const response = await fetch(listingTable.dataset.folderStatsUrl, {method: 'POST', body: params});
+			if (!response.ok || !response.body) {
+				throw new Error(`Folder details request failed with ${response.status}`);
+			}
+
+			// stats arrive one JSON line per folder as each key range finishes
+			await readLines(response, applyLine);
+		} catch (error) {
+			console.warn('Failed to load folder details', error);
+			sizeCells.forEach(cell => {
+				if (cell.textContent === '…') {
+					cell.textContent = '—';
+				}
+			});
+		}
+	};
+
+	const watchTransfers = () => {
+		if (!transferTable || !window.EventSource) {
+			return;
+		}
+
+		const source = new EventSource(transferTable.dataset.eventsUrl);
+		source.addEventListener('transfers', event => {
+			const transfers = JSON.parse(event.data);
+			const rows = transferTable.querySelectorAll('tr[data-transfer-id]');
+			const known = new Set(Array.from(rows, row => row.dataset.transferId));
+			// rows only carry counters, so a transfer starting or finishing needs the server to render the table again
+			if (transfers.length !== known.size || transfers.some(transfer => !known.has(transfer.id))) {
+				source.close();
+				window.location.reload();
+				return;
+			}
+			transfers.forEach(transfer => {
+				const row = transferTable.querySelector(`tr[data-transfer-id="${transfer.id}"]`);
+				row.querySelectorAll('[data-field]').forEach(cell => {
+					const value = transfer[cell.dataset.field];
+					cell.textContent = value === null || value === undefined ? '—' : value;
+				});
+			});
+		});
+	};
+
+	const cell = (content, className) => {
+		const td = document.createElement('td');
+		td.className = className;
+		if (content instanceof Node) {
+			td.appendChild(content);
+		} else {
+			td.textContent = content;
+		}
+		return td;
+	};
+
+	const link = (href, text, className) => {
+		const anchor = document.createElement('a');
+		anchor.href = href;
+		anchor.textContent = text;
+		anchor.className = className;
+		return anchor;
+	};
+
+	const streamSearchResults = async () => {
+		if (!federatedResults) {
+			return;
+		}
+
+		const tbody = federatedResults.querySelector('tbody');
+		const placeholder = tbody.querySelector('[data-placeholder]');
+		const browserUrl = federatedResults.dataset.browserUrl;
+		const downloadUrl = federatedResults.dataset.downloadUrl;
+		let hits = 0;
+
+		const applyLine = line => {
+			if (!line.trim()) {
+				return;
+			}
+			const result = JSON.parse(line);
+			if (result.type === 'hit') {
+				hits++;
+				placeholder.hidden = true;
+				const location = new URLSearchParams({source: result.source, bucket: result.bucket, prefix: result.folder});
+				const download = new URLSearchParams({source: result.source, bucket: result.bucket, key: result.key});
+				const row = document.createElement('tr');
+				row.append(
+					cell(result.name, 'px-6 py-3 font-medium text-slate-800 break-all'),
+					cell(link(`${browserUrl}?${location}`, `${result.sourceDisplayName} / ${result.bucket} / ${result.folder}`, 'font-mono text-xs text-slate-600 hover:text-slate-900'), 'px-6 py-3'),
+					cell(result.sizeLabel, 'px-6 py-3 text-slate-600'),
+					cell(result.lastModified || '—', 'px-6 py-3 text-slate-600'),
+					cell(link(`${downloadUrl}?${download}`, 'Download', 'rounded-md border border-slate-200 px-3 py-1.5 text-xs font-medium text-slate-600 hover:bg-slate-100'), 'px-6 py-3 text-right')
+				);
+				tbody.appendChild(row);
+			} else if (result.type === 'source' && federatedSources) {
+				const item = federatedSources.querySelector(`[data-source-status="${result.source}"] [data-status-text]`);
+				if (item) {
+					const failed = result.bucketsFailed > 0 ? `, ${result.bucketsFailed} unreadable` : '';
+					item.textContent = `${result.status}: ${result.hits} matches in ${result.bucketsSearched} buckets${failed} (${result.elapsedMillis} ms)`;
+				}
+			} else if (result.type === 'done' && hits === 0) {
+				placeholder.querySelector('td').textContent = 'No matches.';
+			}
+		};
+
+		try {
+			const response = await fetch(federatedResults.dataset.resultsUrl);
+			if (!response.ok || !response.body) {
+				throw new Error(`Search request failed with ${response.status}`);
+			}
+			await readLines(response, applyLine);
+		} catch (error) {
+			console.warn('Federated search failed', error);
+			placeholder.hidden = false;
+			placeholder.querySelector('td').textContent = 'Search failed; try again.';
+		}
+	};
+
 	updateDownloadButtonState();
+	loadFolderStats();
+	watchTransfers();
+	streamSearchResults();
 });
@@ -0,0 +1,76 @@
+package com.nxber.tools.s3downloader;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.Banner;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/*
+ * Starts the full application with many configured sources under each startup mode and reports the
+ * median time until the context is ready. Run with ./gradlew benchmark; it is excluded from the regular
+ * test task. The AOT and AppCDS build is measured separately by launching build/cds with and without
+ * -XX:SharedArchiveFile, since both only apply to a packaged jar.
+ */
+@Tag("benchmark")
+class StartupTimeBenchmark {
+	private static final int SOURCES = 48;
+	private static final int RUNS = 5;
+
+	@Test
+	void compareStartupModes() {
+		// one throwaway start so class loading and JIT do not penalize whichever mode runs first
+		start(Map.of());
+
+		List<String> report = new ArrayList<>();
+		report.add(run("eager clients, discovered sources", Map.of("storage.s3.startup.lazy-clients", "false")));
+		report.add(run("lazy clients, discovered sources", Map.of()));
+		report.add(run("lazy clients, listed sources", Map.of("storage.s3.sources", String.join(",", sourceNames()))));
+
+		System.out.printf("%n%d sources, median of %d starts%n", SOURCES, RUNS);
+		report.forEach(System.out::println);
+	}
+
+	private String run(String label, Map<String, Object> overrides) {
+		long[] millis = new long[RUNS];
+		for (int run = 0; run < RUNS; run++) {
+			millis[run] = start(overrides);
+		}
+		Arrays.sort(millis);
+		return String.format(Locale.US, "%-40s %6d ms", label, millis[RUNS / 2]);
+	}
+
+	private long start(Map<String, Object> overrides) {
+		Map<String, Object> properties = new LinkedHashMap<>();
+		properties.put("server.port", "0");
+		properties.put("storage.s3.default-source", "source-0");
+		for (String name : sourceNames()) {
+			properties.put("storage.s3." + name + ".region", "us-east-1");
+			properties.put("storage.s3." + name + ".endpoint", "http://localhost:9000");
+			properties.put("storage.s3." + name + ".access-key", "access");
+			properties.put("storage.s3." + name + ".secret-key", "secret");
+			properties.put("storage.s3." + name + ".default-bucket", "bucket");
+		}
+		properties.putAll(overrides);
+
+		long started = System.nanoTime();
+		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(S3DownloaderApplication.class)
+			.bannerMode(Banner.Mode.OFF)
+			.properties(properties)
+			.run()) {
+			return (System.nanoTime() - started) / 1_000_000L;
+		}
+	}
+
+	private static List<String> sourceNames() {
+		return IntStream.range(0, SOURCES).mapToObj(index -> "source-" + index).toList();
+	}
+}
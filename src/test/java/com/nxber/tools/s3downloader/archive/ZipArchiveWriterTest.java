@@ -0,0 +1,133 @@
+package com.nxber.tools.s3downloader.archive;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.nxber.tools.s3downloader.config.S3ClientProperties;
+
+class ZipArchiveWriterTest {
+	private static final Instant MODIFIED = Instant.parse("2024-05-06T07:08:10Z");
+	private static final int CHUNK_SIZE = 32 * 1024;
+
+	@TempDir
+	Path directory;
+
+	private ExecutorService executor;
+
+	@BeforeEach
+	void setUp() {
+		executor = Executors.newFixedThreadPool(4);
+	}
+
+	@AfterEach
+	void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	void shouldRoundTripChunkedEntriesThroughStreamingAndCentralDirectoryReaders() throws IOException {
+		Map<String, byte[]> contents = new LinkedHashMap<>();
+		contents.put("empty.txt", new byte[0]);
+		contents.put("notes/small.txt", "hello world\n".getBytes(StandardCharsets.UTF_8));
+		contents.put("logs/app.log", repetitiveText(CHUNK_SIZE * 10 + 123));
+		contents.put("caf\u00E9/unknown-size.log", repetitiveText(CHUNK_SIZE * 3));
+
+		Path archive = directory.resolve("archive.zip");
+		try (ZipArchiveWriter writer = new ZipArchiveWriter(Files.newOutputStream(archive), executor, 6, CHUNK_SIZE, 8)) {
+			for (Map.Entry<String, byte[]> entry : contents.entrySet()) {
+				long expectedSize = entry.getKey().contains("unknown-size") ? -1L : entry.getValue().length;
+				long written = writer.writeEntry(entry.getKey(), MODIFIED, expectedSize, new ByteArrayInputStream(entry.getValue()), true);
+				assertThat(written).isEqualTo(entry.getValue().length);
+			}
+		}
+
+		try (ZipInputStream input = new ZipInputStream(Files.newInputStream(archive))) {
+			int count = 0;
+			for (ZipEntry entry = input.getNextEntry(); entry != null; entry = input.getNextEntry()) {
+				assertThat(input.readAllBytes()).isEqualTo(contents.get(entry.getName()));
+				count++;
+			}
+			assertThat(count).isEqualTo(contents.size());
+		}
+		try (ZipFile zipFile = new ZipFile(archive.toFile())) {
+			ZipEntry log = zipFile.getEntry("logs/app.log");
+			assertThat(log.getSize()).isEqualTo(contents.get("logs/app.log").length);
+			assertThat(log.getCompressedSize()).isLessThan(log.getSize() / 4);
+			assertThat(log.getLastModifiedTime().toInstant()).isEqualTo(MODIFIED);
+			assertThat(zipFile.getInputStream(zipFile.getEntry("caf\u00E9/unknown-size.log")).readAllBytes())
+				.isEqualTo(contents.get("caf\u00E9/unknown-size.log"));
+		}
+	}
+
+	@Test
+	void shouldStoreEntriesThatAreNotWorthCompressing() throws IOException {
+		byte[] photo = new byte[CHUNK_SIZE * 4];
+		new Random(7).nextBytes(photo);
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		try (ZipArchiveWriter writer = new ZipArchiveWriter(output, executor, 9, CHUNK_SIZE, 8)) {
+			writer.writeEntry("photo.jpg", MODIFIED, photo.length, new ByteArrayInputStream(photo), false);
+		}
+
+		Path archive = Files.write(directory.resolve("photo.zip"), output.toByteArray());
+		try (ZipFile zipFile = new ZipFile(archive.toFile())) {
+			ZipEntry entry = zipFile.getEntry("photo.jpg");
+			// stored deflate blocks cost five bytes per block and nothing else
+			assertThat(entry.getCompressedSize()).isBetween((long) photo.length, photo.length + 64L);
+			assertThat(zipFile.getInputStream(entry).readAllBytes()).isEqualTo(photo);
+		}
+	}
+
+	@Test
+	void shouldRejectDuplicateEntryNames() throws IOException {
+		try (ZipArchiveWriter writer = new ZipArchiveWriter(new ByteArrayOutputStream(), executor, 6, CHUNK_SIZE, 8)) {
+			writer.writeEntry("a.txt", MODIFIED, 1, new ByteArrayInputStream(new byte[] {'a'}), true);
+
+			assertThatThrownBy(() -> writer.writeEntry("a.txt", MODIFIED, 1, new ByteArrayInputStream(new byte[] {'b'}), true))
+				.isInstanceOf(ZipException.class)
+				.hasMessageContaining("duplicate entry");
+		}
+	}
+
+	@Test
+	void shouldSkipCompressionForMediaAndArchives() {
+		ArchiveCompressor compressor = new ArchiveCompressor(new S3ClientProperties(), executor, 4);
+
+		assertThat(compressor.shouldCompress("photos/IMG_0001.JPG", null)).isFalse();
+		assertThat(compressor.shouldCompress("backups/db.tar.gz", "application/octet-stream")).isFalse();
+		assertThat(compressor.shouldCompress("clips/raw", "video/mp4")).isFalse();
+		assertThat(compressor.shouldCompress("diagrams/flow.svg", "image/svg+xml")).isTrue();
+		assertThat(compressor.shouldCompress("logs/app.log", "text/plain; charset=utf-8")).isTrue();
+	}
+
+	private static byte[] repetitiveText(int length) {
+		StringBuilder text = new StringBuilder(length + 64);
+		Random random = new Random(42);
+		while (text.length() < length) {
+			text.append("request ").append(random.nextInt(1000)).append(" served in ").append(random.nextInt(50)).append(" ms\n");
+		}
+		return text.substring(0, length).getBytes(StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,159 @@
+package com.nxber.tools.s3downloader.archive;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+
+class ZipCentralDirectoryTest {
+	private static final int DIRECTORY_LIMIT = 64 * 1024 * 1024;
+
+	private final List<Long> reads = new ArrayList<>();
+
+	@Test
+	void shouldListAndExtractEntriesOfAnArchiveWithLeadingBytesAndComment() throws IOException {
+		byte[] text = "line of text\n".repeat(5_000).getBytes(StandardCharsets.UTF_8);
+		byte[] binary = new byte[4_096];
+		new Random(7).nextBytes(binary);
+		byte[] zip = zip("r\u00e9sum\u00e9 notes", output -> {
+			output.putNextEntry(new ZipEntry("docs/"));
+			output.putNextEntry(new ZipEntry("docs/readme.txt"));
+			output.write(text);
+			output.putNextEntry(stored("images/noise.bin", binary));
+			output.write(binary);
+		});
+		// a self-extracting stub in front shifts every offset the archive declares
+		byte[] archive = concat(new byte[700], zip);
+
+		List<ZipEntryInfo> entries = ZipCentralDirectory.read(reader(archive), archive.length, DIRECTORY_LIMIT);
+
+		assertThat(entries).extracting(ZipEntryInfo::name).containsExactly("docs/", "docs/readme.txt", "images/noise.bin");
+		assertThat(entries.get(0).directory()).isTrue();
+		assertThat(entries.get(1).method()).isEqualTo(ZipEntryInfo.DEFLATED);
+		assertThat(entries.get(1).size()).isEqualTo(text.length);
+		assertThat(entries.get(1).compressedSize()).isLessThan(text.length);
+		assertThat(entries.get(2).method()).isEqualTo(ZipEntryInfo.STORED);
+		assertThat(entries.get(2).fileName()).isEqualTo("noise.bin");
+		// the whole directory of a small archive arrives with the tail
+		assertThat(reads).hasSize(1);
+
+		assertThat(extract(archive, entries.get(1))).isEqualTo(text);
+		assertThat(extract(archive, entries.get(2))).isEqualTo(binary);
+	}
+
+	@Test
+	void shouldFailExtractionWhenTheChecksumDoesNotMatch() throws IOException {
+		byte[] binary = "stored bytes".getBytes(StandardCharsets.UTF_8);
+		byte[] archive = zip(null, output -> {
+			output.putNextEntry(stored("data.bin", binary));
+			output.write(binary);
+		});
+		ZipEntryInfo entry = ZipCentralDirectory.read(reader(archive), archive.length, DIRECTORY_LIMIT).getFirst();
+		long dataOffset = ZipCentralDirectory.dataOffset(entry, Arrays.copyOfRange(archive, (int) entry.localHeaderOffset(), (int) entry.localHeaderOffset() + ZipCentralDirectory.LOCAL_HEADER_SIZE));
+		archive[(int) dataOffset] ^= 0x01;
+
+		assertThatThrownBy(() -> extract(archive, entry))
+			.isInstanceOf(ZipException.class)
+			.hasMessageContaining("data.bin");
+	}
+
+	@Test
+	void shouldReadZip64DirectoriesOfArchivesWithManyEntries() throws IOException {
+		// past 65535 entries the classic end record overflows and the ZIP64 one takes over
+		byte[] archive = zip(null, output -> {
+			for (int index = 0; index < 70_000; index++) {
+				output.putNextEntry(new ZipEntry("e/%05d".formatted(index)));
+			}
+		});
+
+		List<ZipEntryInfo> entries = ZipCentralDirectory.read(reader(archive), archive.length, DIRECTORY_LIMIT);
+
+		assertThat(entries).hasSize(70_000);
+		assertThat(entries.getLast().name()).isEqualTo("e/69999");
+		assertThat(extract(archive, entries.getLast())).isEmpty();
+	}
+
+	@Test
+	void shouldRefuseDirectoriesBeyondTheLimit() throws IOException {
+		byte[] archive = zip(null, output -> {
+			for (int index = 0; index < 2_000; index++) {
+				output.putNextEntry(new ZipEntry("entry-%04d.txt".formatted(index)));
+			}
+		});
+
+		assertThatThrownBy(() -> ZipCentralDirectory.read(reader(archive), archive.length, 64 * 1024))
+			.isInstanceOf(ZipException.class)
+			.hasMessageContaining("limit");
+	}
+
+	@Test
+	void shouldRejectObjectsThatAreNotZipArchives() {
+		byte[] archive = "definitely not a zip archive".getBytes(StandardCharsets.UTF_8);
+
+		assertThatThrownBy(() -> ZipCentralDirectory.read(reader(archive), archive.length, DIRECTORY_LIMIT))
+			.isInstanceOf(ZipException.class);
+	}
+
+	private ZipCentralDirectory.RangeReader reader(byte[] archive) {
+		return (offset, length) -> {
+			reads.add(offset);
+			return Arrays.copyOfRange(archive, (int) offset, (int) offset + length);
+		};
+	}
+
+	private static byte[] extract(byte[] archive, ZipEntryInfo entry) throws IOException {
+		int headerOffset = (int) entry.localHeaderOffset();
+		long dataOffset = ZipCentralDirectory.dataOffset(entry, Arrays.copyOfRange(archive, headerOffset, headerOffset + ZipCentralDirectory.LOCAL_HEADER_SIZE));
+		InputStream compressed = new ByteArrayInputStream(archive, (int) dataOffset, (int) entry.compressedSize());
+		try (InputStream data = ZipCentralDirectory.entryStream(entry, compressed)) {
+			return data.readAllBytes();
+		}
+	}
+
+	private static ZipEntry stored(String name, byte[] content) {
+		ZipEntry entry = new ZipEntry(name);
+		CRC32 crc = new CRC32();
+		crc.update(content);
+		entry.setMethod(ZipEntry.STORED);
+		entry.setSize(content.length);
+		entry.setCompressedSize(content.length);
+		entry.setCrc(crc.getValue());
+		return entry;
+	}
+
+	private static byte[] zip(String comment, ZipBody body) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ZipOutputStream output = new ZipOutputStream(bytes)) {
+			if (comment != null) {
+				output.setComment(comment);
+			}
+			body.write(output);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static byte[] concat(byte[] first, byte[] second) {
+		byte[] joined = Arrays.copyOf(first, first.length + second.length);
+		System.arraycopy(second, 0, joined, first.length, second.length);
+		return joined;
+	}
+
+	@FunctionalInterface
+	private interface ZipBody {
+		void write(ZipOutputStream output) throws IOException;
+	}
+}
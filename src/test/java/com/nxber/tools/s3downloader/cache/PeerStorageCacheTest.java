@@ -0,0 +1,151 @@
+package com.nxber.tools.s3downloader.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+class PeerStorageCacheTest {
+	private static final String TOKEN = "secret";
+
+	private HttpServer standIn;
+	private LocalStorageCache standInStore;
+	private LocalStorageCache selfStore;
+	private PeerStorageCache cache;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		// a second node reduced to the three internal cache endpoints, backed by its own local store
+		standInStore = new LocalStorageCache(1_000);
+		standIn = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		standIn.createContext(PeerStorageCache.ENTRY_PATH, this::handleEntry);
+		standIn.createContext(PeerStorageCache.ENTRIES_PATH, this::handleEntries);
+		standIn.start();
+
+		selfStore = new LocalStorageCache(1_000);
+		String peerUrl = "http://127.0.0.1:" + standIn.getAddress().getPort();
+		cache = new PeerStorageCache(selfStore, List.of(peerUrl), "http://self.invalid:8080/", 64, Duration.ofSeconds(2), TOKEN);
+	}
+
+	@AfterEach
+	void tearDown() {
+		standIn.stop(0);
+	}
+
+	@Test
+	void shouldStoreEachKeyOnceOnItsOwningNode() {
+		List<String> keys = IntStream.range(0, 200).mapToObj(index -> "listing|primary|bucket|docs/" + index + "/").toList();
+		keys.forEach(key -> cache.put(key, key.getBytes(StandardCharsets.UTF_8), Duration.ofMinutes(1)));
+
+		assertThat(keys).allSatisfy(key -> assertThat(cache.get(key)).hasValueSatisfying(value ->
+			assertThat(new String(value, StandardCharsets.UTF_8)).isEqualTo(key)));
+		assertThat(selfStore.size() + standInStore.size()).isEqualTo(keys.size());
+		assertThat(selfStore.size()).isBetween(40, 160);
+	}
+
+	@Test
+	void shouldInvalidateAcrossNodes() {
+		List<String> keys = IntStream.range(0, 50).mapToObj(index -> "listing|primary|bucket|docs/" + index + "/").toList();
+		keys.forEach(key -> cache.put(key, new byte[] {1}, Duration.ofMinutes(1)));
+		cache.put("listing|primary|bucket|images/", new byte[] {2}, Duration.ofMinutes(1));
+
+		cache.invalidate("listing|primary|bucket|docs/");
+
+		assertThat(keys).allSatisfy(key -> assertThat(cache.get(key)).isEmpty());
+		assertThat(cache.get("listing|primary|bucket|images/")).isPresent();
+	}
+
+	@Test
+	void shouldRouteAroundUnreachablePeer() {
+		standIn.stop(0);
+		String key = IntStream.range(0, 100).mapToObj(index -> "buckets|source-" + index)
+			.filter(candidate -> !cache.ownerOf(candidate).startsWith("http://self"))
+			.findFirst()
+			.orElseThrow();
+
+		cache.put(key, new byte[] {7}, Duration.ofMinutes(1));
+		cache.put(key, new byte[] {7}, Duration.ofMinutes(1));
+
+		assertThat(cache.get(key)).hasValueSatisfying(value -> assertThat(value).containsExactly(7));
+	}
+
+	@Test
+	void shouldRefuseToStartWithoutAToken() {
+		assertThatThrownBy(() -> new PeerStorageCache(new LocalStorageCache(10), List.of(), "http://self.invalid:8080/", 64, Duration.ofSeconds(2), " "))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessageContaining("storage.s3.cache.token");
+	}
+
+	@Test
+	void shouldMoveOnlyKeysClaimedByAddedNode() {
+		List<String> keys = IntStream.range(0, 2_000).mapToObj(index -> "folder-stats|primary|bucket|dir-" + index + "/").toList();
+		ConsistentHashRing before = new ConsistentHashRing(List.of("http://a", "http://b"), 128);
+		ConsistentHashRing after = new ConsistentHashRing(List.of("http://a", "http://b", "http://c"), 128);
+
+		long moved = keys.stream().filter(key -> !before.nodeFor(key).equals(after.nodeFor(key))).count();
+
+		assertThat(keys).filteredOn(key -> !before.nodeFor(key).equals(after.nodeFor(key)))
+			.allSatisfy(key -> assertThat(after.nodeFor(key)).isEqualTo("http://c"));
+		assertThat(moved).isBetween(400L, 1_000L);
+	}
+
+	private void handleEntry(HttpExchange exchange) throws IOException {
+		if (!TOKEN.equals(exchange.getRequestHeaders().getFirst(PeerStorageCache.TOKEN_HEADER))) {
+			respond(exchange, 403, new byte[0]);
+			return;
+		}
+		Map<String, String> query = query(exchange);
+		String key = query.get("key");
+		if ("PUT".equals(exchange.getRequestMethod())) {
+			standInStore.put(key, exchange.getRequestBody().readAllBytes(), Duration.parse(query.get("ttl")));
+			respond(exchange, 204, null);
+			return;
+		}
+		var value = standInStore.get(key);
+		if (value.isPresent()) {
+			respond(exchange, 200, value.get());
+		} else {
+			respond(exchange, 404, null);
+		}
+	}
+
+	private void handleEntries(HttpExchange exchange) throws IOException {
+		standInStore.invalidate(query(exchange).get("prefix"));
+		respond(exchange, 204, null);
+	}
+
+	private Map<String, String> query(HttpExchange exchange) {
+		Map<String, String> parameters = new HashMap<>();
+		for (String pair : exchange.getRequestURI().getRawQuery().split("&")) {
+			int separator = pair.indexOf('=');
+			parameters.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8), URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+		}
+		return parameters;
+	}
+
+	private void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+		exchange.sendResponseHeaders(status, body == null || body.length == 0 ? -1 : body.length);
+		if (body != null && body.length > 0) {
+			try (OutputStream output = exchange.getResponseBody()) {
+				output.write(body);
+			}
+		}
+		exchange.close();
+	}
+}
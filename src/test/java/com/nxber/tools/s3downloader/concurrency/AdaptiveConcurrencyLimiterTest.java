@@ -0,0 +1,109 @@
+package com.nxber.tools.s3downloader.concurrency;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.nxber.tools.s3downloader.concurrency.AdaptiveConcurrencyLimiter.Signal;
+import com.nxber.tools.s3downloader.config.S3SourceProperties;
+
+class AdaptiveConcurrencyLimiterTest {
+	private final AtomicLong clock = new AtomicLong();
+	private S3SourceProperties.Concurrency settings;
+
+	@BeforeEach
+	void setUp() {
+		settings = new S3SourceProperties.Concurrency();
+		settings.setMinLimit(2);
+		settings.setMaxLimit(64);
+	}
+
+	@Test
+	void shouldGrowWhileLatencyStaysHealthy() throws InterruptedException {
+		settings.setInitialLimit(4);
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(settings, clock::get);
+
+		for (int round = 0; round < 40; round++) {
+			runRound(limiter, limiter.limit(), Duration.ofMillis(10), Signal.SUCCESS);
+		}
+
+		assertThat(limiter.limit()).isGreaterThan(8);
+		assertThat(limiter.inFlight()).isZero();
+	}
+
+	@Test
+	void shouldBackOffOncePerThrottledWindow() throws InterruptedException {
+		settings.setInitialLimit(32);
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(settings, clock::get);
+
+		runRound(limiter, 10, Duration.ofMillis(10), Signal.THROTTLED);
+		assertThat(limiter.limit()).isEqualTo(16);
+
+		runRound(limiter, 1, Duration.ofMillis(10), Signal.THROTTLED);
+		assertThat(limiter.limit()).isEqualTo(8);
+		assertThat(limiter.throttledCount()).isEqualTo(11);
+
+		for (int round = 0; round < 5; round++) {
+			runRound(limiter, 1, Duration.ofMillis(10), Signal.THROTTLED);
+		}
+		assertThat(limiter.limit()).isEqualTo(2);
+	}
+
+	@Test
+	void shouldEaseOffWhenLatencyClimbsAboveBaseline() throws InterruptedException {
+		settings.setInitialLimit(20);
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(settings, clock::get);
+		runRound(limiter, 1, Duration.ofMillis(10), Signal.SUCCESS);
+
+		runRound(limiter, 1, Duration.ofMillis(80), Signal.SUCCESS);
+
+		assertThat(limiter.limit()).isEqualTo(18);
+	}
+
+	@Test
+	void shouldJudgeEachOperationAgainstItsOwnBaseline() throws InterruptedException {
+		settings.setInitialLimit(20);
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(settings, clock::get);
+
+		for (int round = 0; round < 10; round++) {
+			runRound(limiter, "ListObjectsV2", 1, Duration.ofMillis(10), Signal.SUCCESS);
+			runRound(limiter, "GetObject", 1, Duration.ofMillis(80), Signal.SUCCESS);
+		}
+
+		assertThat(limiter.limit()).isEqualTo(20);
+	}
+
+	@Test
+	void shouldRejectWhenNoSlotFreesUp() throws InterruptedException {
+		settings.setInitialLimit(2);
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(settings, clock::get);
+
+		assertThat(limiter.tryAcquire(Duration.ZERO)).isTrue();
+		assertThat(limiter.tryAcquire(Duration.ZERO)).isTrue();
+		assertThat(limiter.tryAcquire(Duration.ofMillis(5))).isFalse();
+
+		limiter.release("GetObject", limiter.now(), Signal.FAILED);
+		assertThat(limiter.tryAcquire(Duration.ZERO)).isTrue();
+		assertThat(limiter.limit()).isEqualTo(2);
+	}
+
+	private void runRound(AdaptiveConcurrencyLimiter limiter, int requests, Duration latency, Signal signal) throws InterruptedException {
+		runRound(limiter, "ListObjectsV2", requests, latency, signal);
+	}
+
+	private void runRound(AdaptiveConcurrencyLimiter limiter, String operation, int requests, Duration latency, Signal signal) throws InterruptedException {
+		long startedAt = clock.get();
+		for (int index = 0; index < requests; index++) {
+			assertThat(limiter.tryAcquire(Duration.ZERO)).isTrue();
+		}
+		clock.addAndGet(latency.toNanos());
+		for (int index = 0; index < requests; index++) {
+			limiter.release(operation, startedAt, signal);
+		}
+		clock.addAndGet(1L);
+	}
+}
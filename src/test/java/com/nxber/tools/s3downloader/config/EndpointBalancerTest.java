@@ -0,0 +1,118 @@
+package com.nxber.tools.s3downloader.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import software.amazon.awssdk.core.exception.ApiCallTimeoutException;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+class EndpointBalancerTest {
+	private static final URI FIRST = URI.create("http://gateway-1:9000");
+	private static final URI SECOND = URI.create("http://gateway-2:9000");
+
+	private final AtomicLong clock = new AtomicLong();
+	private final Map<URI, S3Client> clients = new HashMap<>();
+	private final Map<URI, ExecutionInterceptor> trackers = new HashMap<>();
+	private S3SourceProperties.Balancing settings;
+
+	@BeforeEach
+	void setUp() {
+		settings = new S3SourceProperties.Balancing();
+		settings.setFailureThreshold(2);
+		settings.setEjectionTime(Duration.ofSeconds(30));
+	}
+
+	@Test
+	void shouldSendCallsToTheGatewayWithLessWorkOutstanding() {
+		settings.setStrategy(S3SourceProperties.Balancing.Strategy.LEAST_OUTSTANDING);
+		EndpointBalancer balancer = balancer();
+
+		ExecutionAttributes call = start(FIRST);
+
+		for (int attempt = 0; attempt < 20; attempt++) {
+			assertThat(balancer.get()).isSameAs(clients.get(SECOND));
+		}
+		assertThat(balancer.endpoints().getFirst().outstanding()).isEqualTo(1);
+
+		trackers.get(FIRST).afterExecution(mock(Context.AfterExecution.class), call);
+		assertThat(balancer.endpoints().getFirst().outstanding()).isZero();
+		assertThat(balancer.endpoints().getFirst().requests()).isEqualTo(1);
+	}
+
+	@Test
+	void shouldEjectFailingGatewayUntilEjectionTimePasses() {
+		EndpointBalancer balancer = balancer();
+		EndpointBalancer.Endpoint first = balancer.endpoints().getFirst();
+
+		fail(FIRST, SdkClientException.create("Connection refused"));
+		assertThat(first.isEjected()).isFalse();
+		fail(FIRST, SdkClientException.create("Connection reset"));
+
+		assertThat(first.isEjected()).isTrue();
+		assertThat(first.ejections()).isEqualTo(1);
+		assertThat(first.outstanding()).isZero();
+		for (int attempt = 0; attempt < 20; attempt++) {
+			assertThat(balancer.get()).isSameAs(clients.get(SECOND));
+		}
+
+		clock.addAndGet(Duration.ofSeconds(31).toNanos());
+		assertThat(first.isEjected()).isFalse();
+
+		// back in rotation, one more failure is enough
+		fail(FIRST, SdkClientException.create("Connection refused"));
+		assertThat(first.isEjected()).isTrue();
+		assertThat(first.ejections()).isEqualTo(2);
+	}
+
+	@Test
+	void shouldNotBlameGatewayForClientErrorsOrDeadlines() {
+		EndpointBalancer balancer = balancer();
+		EndpointBalancer.Endpoint first = balancer.endpoints().getFirst();
+
+		for (int attempt = 0; attempt < 5; attempt++) {
+			fail(FIRST, S3Exception.builder().statusCode(404).message("Not Found").build());
+			fail(FIRST, ApiCallTimeoutException.create(1000L));
+		}
+
+		assertThat(first.isEjected()).isFalse();
+		assertThat(first.ejections()).isZero();
+	}
+
+	private EndpointBalancer balancer() {
+		return new EndpointBalancer("primary", List.of(FIRST, SECOND), settings, (uri, tracker) -> {
+			S3Client client = mock(S3Client.class);
+			clients.put(uri, client);
+			trackers.put(uri, tracker);
+			return () -> client;
+		}, clock::get);
+	}
+
+	private ExecutionAttributes start(URI uri) {
+		ExecutionAttributes attributes = new ExecutionAttributes();
+		trackers.get(uri).beforeExecution(mock(Context.BeforeExecution.class), attributes);
+		return attributes;
+	}
+
+	private void fail(URI uri, Exception exception) {
+		ExecutionAttributes attributes = start(uri);
+		Context.FailedExecution context = mock(Context.FailedExecution.class);
+		when(context.exception()).thenReturn(exception);
+		trackers.get(uri).onExecutionFailure(context, attributes);
+	}
+}
@@ -0,0 +1,74 @@
+package com.nxber.tools.s3downloader.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import com.nxber.tools.s3downloader.config.S3SourceManager.S3Source;
+
+import software.amazon.awssdk.services.s3.S3Client;
+
+class S3SourceManagerTest {
+	@Test
+	void shouldBuildClientsOnFirstUse() {
+		S3SourceManager manager = new S3SourceManager(environment("primary", "archive"), properties());
+
+		assertThat(manager.getSources()).extracting(S3Source::name).containsExactly("primary", "archive");
+		assertThat(manager.isClientInitialized("primary")).isFalse();
+
+		S3Client client = manager.resolve("primary").client();
+
+		assertThat(manager.resolve("primary").client()).isSameAs(client);
+		assertThat(manager.isClientInitialized("primary")).isTrue();
+		assertThat(manager.isClientInitialized("archive")).isFalse();
+	}
+
+	@Test
+	void shouldBuildClientsAtStartupWhenLazyClientsAreDisabled() {
+		S3ClientProperties properties = properties();
+		properties.getStartup().setLazyClients(false);
+
+		S3SourceManager manager = new S3SourceManager(environment("primary", "archive"), properties);
+
+		assertThat(manager.isClientInitialized("primary")).isTrue();
+		assertThat(manager.isClientInitialized("archive")).isTrue();
+	}
+
+	@Test
+	void shouldUseConfiguredSourceNamesInsteadOfDiscovery() {
+		S3ClientProperties properties = properties();
+		properties.setSources(List.of("archive", "primary"));
+
+		S3SourceManager manager = new S3SourceManager(environment("primary", "archive", "stray"), properties);
+
+		assertThat(manager.getSources()).extracting(S3Source::name).containsExactly("archive", "primary");
+		assertThat(manager.exists("stray")).isFalse();
+		assertThat(manager.getDefaultSource().name()).isEqualTo("primary");
+	}
+
+	private static S3ClientProperties properties() {
+		S3ClientProperties properties = new S3ClientProperties();
+		properties.setDefaultSource("primary");
+		return properties;
+	}
+
+	private static StandardEnvironment environment(String... sourceNames) {
+		Map<String, Object> values = new LinkedHashMap<>();
+		for (String name : sourceNames) {
+			values.put("storage.s3." + name + ".region", "us-east-1");
+			values.put("storage.s3." + name + ".endpoint", "http://localhost:9000");
+			values.put("storage.s3." + name + ".access-key", "access");
+			values.put("storage.s3." + name + ".secret-key", "secret");
+			values.put("storage.s3." + name + ".default-bucket", name + "-bucket");
+		}
+		StandardEnvironment environment = new StandardEnvironment();
+		environment.getPropertySources().addFirst(new MapPropertySource("test", values));
+		return environment;
+	}
+}
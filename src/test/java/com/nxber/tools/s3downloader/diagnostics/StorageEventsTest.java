@@ -0,0 +1,82 @@
+package com.nxber.tools.s3downloader.diagnostics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.nxber.tools.s3downloader.config.S3SourceManager.S3Source;
+import com.nxber.tools.s3downloader.config.S3SourceProperties;
+import com.nxber.tools.s3downloader.service.ObjectStreamGate;
+import com.nxber.tools.s3downloader.transfer.Transfer;
+import com.nxber.tools.s3downloader.transfer.TransferRegistry;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+@ExtendWith(MockitoExtension.class)
+class StorageEventsTest {
+	@Mock
+	private S3Client s3Client;
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void shouldRecordObjectOpenAndTransferCompletion() throws Exception {
+		when(s3Client.getObject(any(GetObjectRequest.class))).thenReturn(new ResponseInputStream<>(
+			GetObjectResponse.builder().contentLength(5L).build(),
+			AbortableInputStream.create(new ByteArrayInputStream("hello".getBytes()))));
+		S3Source source = new S3Source("primary", "Primary", new S3SourceProperties(), s3Client);
+		List<RecordedEvent> events;
+
+		try (Recording recording = new Recording()) {
+			recording.enable(ObjectOpenEvent.class);
+			recording.enable(TransferEvent.class);
+			recording.start();
+
+			try (Transfer transfer = new TransferRegistry().start(Transfer.Kind.FILE, "primary", "bucket", "logs/app.log", "10.0.0.5");
+				InputStream objectStream = new ObjectStreamGate().open(source, GetObjectRequest.builder().bucket("bucket").key("logs/app.log").range("bytes=0-4").build())) {
+				transfer.beginEntry("logs/app.log", () -> { });
+				long written = objectStream.transferTo(transfer.track(OutputStream.nullOutputStream()));
+				transfer.endEntry(written);
+			}
+
+			recording.stop();
+			Path dump = directory.resolve("events.jfr");
+			recording.dump(dump);
+			events = RecordingFile.readAllEvents(dump);
+		}
+
+		assertThat(events).filteredOn(event -> event.getEventType().getName().equals("com.nxber.s3downloader.ObjectOpen")).singleElement().satisfies(event -> {
+			assertThat(event.getString("source")).isEqualTo("primary");
+			assertThat(event.getString("key")).isEqualTo("logs/app.log");
+			assertThat(event.getString("range")).isEqualTo("bytes=0-4");
+			assertThat(event.getLong("contentLength")).isEqualTo(5L);
+			assertThat(event.getBoolean("succeeded")).isTrue();
+		});
+		assertThat(events).filteredOn(event -> event.getEventType().getName().equals("com.nxber.s3downloader.Transfer")).singleElement().satisfies(event -> {
+			assertThat(event.getString("kind")).isEqualTo("FILE");
+			assertThat(event.getInt("entries")).isEqualTo(1);
+			assertThat(event.getLong("bytesSent")).isEqualTo(5L);
+			assertThat(event.getBoolean("cancelled")).isFalse();
+		});
+	}
+}
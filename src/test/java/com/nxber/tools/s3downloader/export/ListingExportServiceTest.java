@@ -0,0 +1,163 @@
+package com.nxber.tools.s3downloader.export;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.nxber.tools.s3downloader.config.S3ClientProperties;
+import com.nxber.tools.s3downloader.config.S3SourceManager;
+import com.nxber.tools.s3downloader.config.S3SourceManager.S3Source;
+import com.nxber.tools.s3downloader.config.S3SourceProperties;
+import com.nxber.tools.s3downloader.storage.KeyOrder;
+
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CommonPrefix;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+@ExtendWith(MockitoExtension.class)
+class ListingExportServiceTest {
+	private static final Instant MODIFIED = Instant.parse("2025-01-01T00:00:00Z");
+
+	@Mock
+	private S3Client s3Client;
+
+	@Mock
+	private S3SourceManager sourceManager;
+
+	@TempDir
+	Path directory;
+
+	private final NavigableMap<String, Long> bucket = new TreeMap<>(KeyOrder.UTF8);
+	private ListingExportService service;
+
+	@BeforeEach
+	void setUp() {
+		for (int index = 0; index < 2500; index++) {
+			bucket.put("a/%04d".formatted(index), (long) index);
+		}
+		bucket.put("b/x/1", 1L);
+		bucket.put("b/y/2", 2L);
+		bucket.put("b/y/3", 3L);
+		bucket.put("c.txt", 4L);
+		bucket.put("d,quoted\"key.txt", 5L);
+		bucket.put("\uFF61.txt", 6L);
+		bucket.put("\uD83D\uDE00.txt", 7L);
+
+		S3ClientProperties properties = new S3ClientProperties();
+		properties.getExport().setDirectory(directory);
+		properties.getExport().setPartitions(16);
+		properties.getExport().setParallelism(4);
+
+		S3SourceProperties sourceProperties = new S3SourceProperties();
+		sourceProperties.setDefaultBucket("default-bucket");
+		when(sourceManager.resolve(Mockito.any())).thenReturn(new S3Source("primary", "Primary", sourceProperties, s3Client));
+		when(s3Client.listObjectsV2(Mockito.any(ListObjectsV2Request.class))).thenAnswer(invocation -> list(invocation.getArgument(0)));
+
+		service = new ListingExportService(sourceManager, properties, Runnable::run);
+	}
+
+	@Test
+	void shouldExportEveryKeyOnceInListingOrderAcrossRanges() throws IOException {
+		ExportJob job = service.start("primary", "default-bucket", "", ExportFormat.CSV);
+
+		assertThat(job.state()).isEqualTo(ExportJob.State.COMPLETED);
+		assertThat(job.rangeCount()).isGreaterThan(4);
+		assertThat(job.completedRanges()).isEqualTo(job.rangeCount());
+		assertThat(job.objectCount()).isEqualTo(bucket.size());
+
+		List<String> lines = lines(export(job));
+		assertThat(lines.getFirst()).isEqualTo("key,size,last_modified,etag,storage_class");
+		List<String> keys = new ArrayList<>(bucket.keySet());
+		assertThat(lines).hasSize(keys.size() + 1);
+		for (int index = 0; index < keys.size(); index++) {
+			String key = keys.get(index);
+			String field = key.contains(",") ? '"' + key.replace("\"", "\"\"") + '"' : key;
+			assertThat(lines.get(index + 1)).startsWith(field + "," + bucket.get(key) + ",2025-01-01T00:00:00Z,etag,STANDARD");
+		}
+	}
+
+	@Test
+	void shouldWriteGzipExportAsConcatenatedMembers() throws IOException {
+		ExportJob plain = service.start("primary", "default-bucket", "a/", ExportFormat.CSV);
+		ExportJob compressed = service.start("primary", "default-bucket", "a/", ExportFormat.CSV_GZIP);
+
+		assertThat(compressed.state()).isEqualTo(ExportJob.State.COMPLETED);
+		assertThat(compressed.fileName()).endsWith(".csv.gz");
+		try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(export(compressed)))) {
+			assertThat(input.readAllBytes()).isEqualTo(export(plain));
+		}
+		assertThat(plain.objectCount()).isEqualTo(2500L);
+	}
+
+	private byte[] export(ExportJob job) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		service.writeTo(job, output);
+		return output.toByteArray();
+	}
+
+	private static List<String> lines(byte[] content) {
+		return new String(content, StandardCharsets.UTF_8).lines().toList();
+	}
+
+	// a stand-in for ListObjectsV2 over an ordered key set, honouring prefix, delimiter, start-after and paging
+	private ListObjectsV2Response list(ListObjectsV2Request request) {
+		String prefix = request.prefix() != null ? request.prefix() : "";
+		String after = request.continuationToken() != null ? request.continuationToken() : request.startAfter();
+		NavigableMap<String, Long> candidates = after != null ? bucket.tailMap(after, false) : bucket.tailMap(prefix, true);
+
+		List<S3Object> contents = new ArrayList<>();
+		List<CommonPrefix> commonPrefixes = new ArrayList<>();
+		String lastKey = null;
+		boolean truncated = false;
+		for (Map.Entry<String, Long> entry : candidates.entrySet()) {
+			String key = entry.getKey();
+			if (!key.startsWith(prefix)) {
+				break;
+			}
+			int delimiterIndex = request.delimiter() != null ? key.indexOf(request.delimiter(), prefix.length()) : -1;
+			String commonPrefix = delimiterIndex >= 0 ? key.substring(0, delimiterIndex + 1) : null;
+			if (commonPrefix != null && !commonPrefixes.isEmpty() && commonPrefixes.getLast().prefix().equals(commonPrefix)) {
+				lastKey = key;
+				continue;
+			}
+			if (contents.size() + commonPrefixes.size() == request.maxKeys()) {
+				truncated = true;
+				break;
+			}
+			if (commonPrefix != null) {
+				commonPrefixes.add(CommonPrefix.builder().prefix(commonPrefix).build());
+			} else {
+				contents.add(S3Object.builder().key(key).size(entry.getValue()).lastModified(MODIFIED).eTag("\"etag\"").storageClass("STANDARD").build());
+			}
+			lastKey = key;
+		}
+		return ListObjectsV2Response.builder()
+			.contents(contents)
+			.commonPrefixes(commonPrefixes)
+			.isTruncated(truncated)
+			.nextContinuationToken(truncated ? lastKey : null)
+			.build();
+	}
+}
@@ -0,0 +1,86 @@
+package com.nxber.tools.s3downloader.inventory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.nxber.tools.s3downloader.service.RequestAbandonedException;
+import com.nxber.tools.s3downloader.service.RequestScope;
+
+class InventorySegmentTest {
+	@TempDir
+	private Path directory;
+
+	@Test
+	void shouldSpillLargeDataFilesIntoSortedParts() throws IOException {
+		Path first = directory.resolve("abc.seg");
+		InventorySegment.Writer writer = new InventorySegment.Writer(first, 2, Long.MAX_VALUE);
+		for (String key : List.of("e.txt", "b.txt", "d.txt", "a.txt", "c.txt")) {
+			writer.add(key, key.length(), 0L);
+		}
+		writer.finish();
+
+		List<Path> parts = InventorySegment.parts(first);
+		assertThat(parts).extracting(path -> path.getFileName().toString()).containsExactly("abc.seg", "abc-2.seg", "abc-3.seg");
+		List<List<String>> keys = new ArrayList<>();
+		for (Path part : parts) {
+			List<String> partKeys = new ArrayList<>();
+			InventorySegment.open(part).scan(new byte[0], (key, keyLength, size, lastModified) -> partKeys.add(new String(key, 0, keyLength, StandardCharsets.UTF_8)));
+			keys.add(partKeys);
+		}
+		assertThat(keys).containsExactly(List.of("b.txt", "e.txt"), List.of("a.txt", "d.txt"), List.of("c.txt"));
+	}
+
+	@Test
+	void shouldReportEachChildFolderOnceAndSkipItsSubtree() throws IOException {
+		Path first = directory.resolve("tree.seg");
+		InventorySegment.Writer writer = new InventorySegment.Writer(first);
+		// the folder spans several key blocks, so reaching b.txt means jumping past whole blocks
+		for (int index = 0; index < 1_000; index++) {
+			writer.add("data/a/%04d.bin".formatted(index), 1L, 0L);
+		}
+		writer.add("data/b.txt", 1L, 0L);
+		writer.add("data/c/one.bin", 1L, 0L);
+		writer.add("other.txt", 1L, 0L);
+		writer.finish();
+		InventorySegment segment = InventorySegment.open(first);
+
+		assertThat(children(segment, "data/", null)).containsExactly("data/a/", "data/b.txt", "data/c/");
+		assertThat(children(segment, "data/", "data/a/")).containsExactly("data/b.txt", "data/c/");
+		assertThat(children(segment, "data/", "data/b.txt")).containsExactly("data/c/");
+		assertThat(children(segment, "data/a/", "data/a/0997.bin")).containsExactly("data/a/0998.bin", "data/a/0999.bin");
+	}
+
+	@Test
+	void shouldStopListingChildrenOnceTheRequestIsAbandoned() throws IOException {
+		Path first = directory.resolve("flat.seg");
+		InventorySegment.Writer writer = new InventorySegment.Writer(first);
+		for (int index = 0; index < 10_000; index++) {
+			writer.add("%05d.bin".formatted(index), 1L, 0L);
+		}
+		writer.finish();
+		InventoryIndex index = new InventoryIndex("bucket", Instant.EPOCH, List.of(InventorySegment.open(first)));
+		RequestScope scope = RequestScope.open(null);
+		scope.cancel();
+
+		try (RequestScope.Attachment attachment = scope.attach()) {
+			assertThatThrownBy(() -> index.listChildren("", name -> false, 50, null)).isInstanceOf(RequestAbandonedException.class);
+		}
+	}
+
+	private static List<String> children(InventorySegment segment, String prefix, String after) {
+		List<String> children = new ArrayList<>();
+		segment.scanChildren(prefix.getBytes(StandardCharsets.UTF_8), after != null ? after.getBytes(StandardCharsets.UTF_8) : null, (key, length, folder, size, lastModified) ->
+			children.add(new String(key, 0, length, StandardCharsets.UTF_8)));
+		return children;
+	}
+}
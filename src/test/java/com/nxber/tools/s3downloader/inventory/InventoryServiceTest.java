@@ -0,0 +1,182 @@
+package com.nxber.tools.s3downloader.inventory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nxber.tools.s3downloader.config.S3ClientProperties;
+import com.nxber.tools.s3downloader.config.S3SourceManager;
+import com.nxber.tools.s3downloader.config.S3SourceManager.S3Source;
+import com.nxber.tools.s3downloader.config.S3SourceProperties;
+import com.nxber.tools.s3downloader.storage.StorageObject;
+
+import software.amazon.awssdk.services.s3.S3Client;
+
+class InventoryServiceTest {
+	// the report in setUp was created at 2025-01-02T01:00Z
+	private static final Clock CLOCK = Clock.fixed(Instant.parse("2025-01-03T00:00:00Z"), ZoneOffset.UTC);
+
+	@TempDir
+	private Path workDirectory;
+
+	private InventoryService service;
+	private S3Source source;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		Path reportDirectory = workDirectory.resolve("reports/example-bucket/daily");
+		Path dated = Files.createDirectories(reportDirectory.resolve("2025-01-02T01-00Z"));
+		Path data = Files.createDirectories(reportDirectory.resolve("data"));
+
+		writeGzip(data.resolve("part-1.csv.gz"), String.join("\n",
+			"\"example-bucket\",\"docs/reports/summary.txt\",\"2048\",\"2025-01-01T00:00:01.000Z\"",
+			"\"example-bucket\",\"docs/readme.txt\",\"1024\",\"2025-01-01T00:00:00.000Z\"",
+			"\"example-bucket\",\"docs/reports/\",\"0\",\"2025-01-01T00:00:00.000Z\""
+		));
+		writeGzip(data.resolve("part-2.csv.gz"), String.join("\n",
+			"\"example-bucket\",\"docs/reports/q1%20final.csv\",\"512\",\"2025-01-03T00:00:00.000Z\"",
+			"\"example-bucket\",\"images/logo.png\",\"64\",\"2025-01-04T00:00:00.000Z\""
+		));
+		Files.writeString(dated.resolve("manifest.json"), """
+			{
+				"sourceBucket": "example-bucket",
+				"destinationBucket": "arn:aws:s3:::inventory-bucket",
+				"fileFormat": "CSV",
+				"fileSchema": "Bucket, Key, Size, LastModifiedDate",
+				"creationTimestamp": "1735779600000",
+				"files": [
+					{"key": "reports/example-bucket/daily/data/part-1.csv.gz", "size": 1, "MD5checksum": "aaa"},
+					{"key": "reports/example-bucket/daily/data/part-2.csv.gz", "size": 1, "MD5checksum": "bbb"}
+				]
+			}
+			""");
+
+		S3ClientProperties properties = new S3ClientProperties();
+		properties.getInventory().setDirectory(workDirectory.resolve("store"));
+
+		S3SourceProperties sourceProperties = new S3SourceProperties();
+		sourceProperties.setDefaultBucket("example-bucket");
+		sourceProperties.setInventoryManifest(reportDirectory.toString());
+		source = new S3Source("primary", "Primary", sourceProperties, mock(S3Client.class));
+
+		service = new InventoryService(mock(S3SourceManager.class), properties, new ObjectMapper(), CLOCK);
+	}
+
+	@Test
+	void shouldSummarizeFolderFromIngestedInventory() throws IOException {
+		service.refresh(source);
+
+		InventoryIndex index = service.findIndex("primary", "example-bucket").orElseThrow();
+		InventoryIndex.Summary summary = index.summarize("docs/reports/");
+
+		assertThat(index.objectCount()).isEqualTo(4);
+		assertThat(summary.objectCount()).isEqualTo(2);
+		assertThat(summary.totalSize()).isEqualTo(2560L);
+		assertThat(summary.lastModified()).isEqualTo(Instant.parse("2025-01-03T00:00:00Z"));
+	}
+
+	@Test
+	void shouldListMatchingChildrenAcrossSegments() throws IOException {
+		service.refresh(source);
+
+		InventoryIndex.Children children = service.findIndex("primary", "example-bucket").orElseThrow()
+			.listChildren("docs/", name -> name.contains("e"), 10, null);
+
+		assertThat(children.folders()).extracting(folder -> folder.prefix()).containsExactly("docs/reports/");
+		assertThat(children.objects()).extracting(StorageObject::name).containsExactly("readme.txt");
+	}
+
+	@Test
+	void shouldPageChildrenAfterTheLastOneReturned() throws IOException {
+		service.refresh(source);
+		InventoryIndex index = service.findIndex("primary", "example-bucket").orElseThrow();
+
+		InventoryIndex.Children first = index.listChildren("docs/", name -> true, 1, null);
+		InventoryIndex.Children second = index.listChildren("docs/", name -> true, 1, first.continueAfter());
+
+		assertThat(first.objects()).extracting(StorageObject::name).containsExactly("readme.txt");
+		assertThat(first.continueAfter()).isEqualTo("docs/readme.txt");
+		assertThat(second.folders()).extracting(folder -> folder.prefix()).containsExactly("docs/reports/");
+		assertThat(second.continueAfter()).isNull();
+	}
+
+	@Test
+	void shouldReuseSegmentsOnRepeatedIngest() throws IOException {
+		service.refresh(source);
+		Path segment = workDirectory.resolve("store/primary/example-bucket/aaa.seg");
+		long firstWrite = Files.getLastModifiedTime(segment).toMillis();
+
+		InventoryService restarted = new InventoryService(mock(S3SourceManager.class), propertiesFor(workDirectory.resolve("store")), new ObjectMapper(), CLOCK);
+		restarted.refresh(source);
+
+		assertThat(Files.getLastModifiedTime(segment).toMillis()).isEqualTo(firstWrite);
+		assertThat(restarted.findIndex("primary", "example-bucket").orElseThrow().summarize("").objectCount()).isEqualTo(4);
+	}
+
+	@Test
+	void shouldSkipReportsOlderThanTheMaximumAge() throws IOException {
+		S3ClientProperties properties = propertiesFor(workDirectory.resolve("store"));
+		properties.getInventory().setMaxAge(Duration.ofDays(8));
+		MutableClock clock = new MutableClock(CLOCK.instant());
+		InventoryService aging = new InventoryService(mock(S3SourceManager.class), properties, new ObjectMapper(), clock);
+		aging.refresh(source);
+		assertThat(aging.findIndex("primary", "example-bucket")).isPresent();
+
+		clock.now = Instant.parse("2025-01-11T00:00:00Z");
+
+		assertThat(aging.findIndex("primary", "example-bucket")).isEmpty();
+		assertThatThrownBy(() -> aging.refresh(source)).isInstanceOf(IllegalStateException.class).hasMessageContaining("max-age");
+	}
+
+	private S3ClientProperties propertiesFor(Path directory) {
+		S3ClientProperties properties = new S3ClientProperties();
+		properties.getInventory().setDirectory(directory);
+		return properties;
+	}
+
+	private static final class MutableClock extends Clock {
+		private Instant now;
+
+		MutableClock(Instant now) {
+			this.now = now;
+		}
+
+		@Override
+		public ZoneOffset getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return now;
+		}
+	}
+
+	private void writeGzip(Path target, String content) throws IOException {
+		try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(target))) {
+			output.write(content.getBytes(StandardCharsets.UTF_8));
+		}
+	}
+}
@@ -0,0 +1,170 @@
+package com.nxber.tools.s3downloader.mirror;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.nxber.tools.s3downloader.config.S3ClientProperties;
+import com.nxber.tools.s3downloader.config.S3SourceManager;
+import com.nxber.tools.s3downloader.config.S3SourceManager.S3Source;
+import com.nxber.tools.s3downloader.config.S3SourceProperties;
+import com.nxber.tools.s3downloader.service.ObjectStreamGate;
+
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+@ExtendWith(MockitoExtension.class)
+class MirrorServiceTest {
+	private static final Instant MODIFIED = Instant.parse("2025-01-01T00:00:00Z");
+	private static final byte[] REPORT = "quarterly numbers, all of them".getBytes(StandardCharsets.UTF_8);
+	private static final byte[] NOTES = "notes".getBytes(StandardCharsets.UTF_8);
+
+	@Mock
+	private S3SourceManager sourceManager;
+
+	@Mock
+	private S3Client s3Client;
+
+	@TempDir
+	Path root;
+
+	private final List<GetObjectRequest> requests = new CopyOnWriteArrayList<>();
+	private MirrorService service;
+
+	@BeforeEach
+	void setUp() {
+		S3ClientProperties properties = new S3ClientProperties();
+		properties.getMirror().setRoot(root);
+		properties.getMirror().setParallelism(2);
+		service = new MirrorService(sourceManager, new ObjectStreamGate(), properties, Runnable::run);
+	}
+
+	@Test
+	void shouldCopyEveryObjectAndSkipThemOnTheNextRun() throws Exception {
+		stubSource();
+		stubListing(object("docs/2025/report.csv", REPORT), object("docs/2025/", new byte[0]), object("docs/notes.txt", NOTES));
+		stubContent();
+
+		MirrorJob first = service.start("primary", "bucket", "docs/", "copy");
+
+		assertThat(first.state()).isEqualTo(MirrorJob.State.COMPLETED);
+		assertThat(first.copiedObjects()).isEqualTo(2);
+		assertThat(first.copiedBytes()).isEqualTo(REPORT.length + NOTES.length);
+		assertThat(Files.readAllBytes(root.resolve("copy/2025/report.csv"))).isEqualTo(REPORT);
+		assertThat(Files.readAllBytes(root.resolve("copy/notes.txt"))).isEqualTo(NOTES);
+		assertThat(Files.getLastModifiedTime(root.resolve("copy/notes.txt")).toInstant()).isEqualTo(MODIFIED);
+		assertThat(Files.readString(root.resolve("copy/.s3-mirror/notes.txt.etag"))).isEqualTo("\"etag-docs/notes.txt\"");
+		assertThat(root.resolve("copy/.s3-mirror/notes.txt.part")).doesNotExist();
+
+		requests.clear();
+		MirrorJob second = service.start("primary", "bucket", "docs/", "copy");
+
+		assertThat(second.copiedObjects()).isZero();
+		assertThat(second.skippedObjects()).isEqualTo(2);
+		assertThat(second.skippedBytes()).isEqualTo(REPORT.length + NOTES.length);
+		assertThat(requests).isEmpty();
+	}
+
+	@Test
+	void shouldResumePartialCopyWithRangedRequestPinnedToETag() throws Exception {
+		stubSource();
+		stubListing(object("docs/2025/report.csv", REPORT));
+		stubContent();
+		Path stateDirectory = root.resolve("copy/.s3-mirror/2025");
+		Files.createDirectories(stateDirectory);
+		Files.write(stateDirectory.resolve("report.csv.part"), Arrays.copyOf(REPORT, 10));
+		Files.writeString(stateDirectory.resolve("report.csv.part-etag"), "\"etag-docs/2025/report.csv\"");
+
+		MirrorJob job = service.start("primary", "bucket", "docs/", "copy");
+
+		assertThat(job.state()).isEqualTo(MirrorJob.State.COMPLETED);
+		assertThat(requests).singleElement().satisfies(request -> {
+			assertThat(request.range()).isEqualTo("bytes=10-");
+			assertThat(request.ifMatch()).isEqualTo("\"etag-docs/2025/report.csv\"");
+		});
+		assertThat(job.copiedBytes()).isEqualTo(REPORT.length - 10);
+		assertThat(Files.readAllBytes(root.resolve("copy/2025/report.csv"))).isEqualTo(REPORT);
+	}
+
+	@Test
+	void shouldRejectTargetsOutsideTheRoot() {
+		assertThatThrownBy(() -> service.start("primary", "bucket", "docs/", "../elsewhere"))
+			.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> service.start("primary", "bucket", "docs/", "."))
+			.isInstanceOf(IllegalArgumentException.class);
+		verify(s3Client, never()).listObjectsV2(any(ListObjectsV2Request.class));
+	}
+
+	@Test
+	void shouldCountKeysThatEscapeTheTargetAsFailures() throws Exception {
+		stubSource();
+		stubListing(object("docs/../../outside.txt", NOTES), object("docs/.s3-mirror/x.etag", NOTES));
+
+		MirrorJob job = service.start("primary", "bucket", "docs/", "copy");
+
+		assertThat(job.state()).isEqualTo(MirrorJob.State.COMPLETED);
+		assertThat(job.failedObjects()).isEqualTo(2);
+		assertThat(root.resolve("outside.txt")).doesNotExist();
+	}
+
+	private void stubSource() {
+		when(sourceManager.resolve("primary")).thenReturn(new S3Source("primary", "Primary", new S3SourceProperties(), s3Client));
+	}
+
+	private void stubListing(S3Object... objects) {
+		when(s3Client.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(ListObjectsV2Response.builder()
+			.contents(objects)
+			.isTruncated(false)
+			.build());
+	}
+
+	private void stubContent() {
+		when(s3Client.getObject(any(GetObjectRequest.class))).thenAnswer(invocation -> {
+			GetObjectRequest request = invocation.getArgument(0);
+			requests.add(request);
+			byte[] content = request.key().endsWith("report.csv") ? REPORT : NOTES;
+			GetObjectResponse.Builder response = GetObjectResponse.builder().eTag("\"etag-" + request.key() + "\"");
+			if (request.range() != null) {
+				int start = Integer.parseInt(request.range().substring("bytes=".length(), request.range().length() - 1));
+				response.contentRange("bytes %d-%d/%d".formatted(start, content.length - 1, content.length));
+				content = Arrays.copyOfRange(content, start, content.length);
+			}
+			return new ResponseInputStream<>(response.contentLength((long) content.length).build(),
+				AbortableInputStream.create(new ByteArrayInputStream(content)));
+		});
+	}
+
+	private static S3Object object(String key, byte[] content) {
+		return S3Object.builder()
+			.key(key)
+			.size((long) content.length)
+			.eTag("\"etag-" + key + "\"")
+			.lastModified(MODIFIED)
+			.build();
+	}
+}
@@ -0,0 +1,170 @@
+package com.nxber.tools.s3downloader.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.nxber.tools.s3downloader.config.S3ClientProperties;
+import com.nxber.tools.s3downloader.config.S3SourceManager;
+import com.nxber.tools.s3downloader.config.S3SourceManager.S3Source;
+import com.nxber.tools.s3downloader.config.S3SourceProperties;
+import com.nxber.tools.s3downloader.inventory.InventoryService;
+import com.nxber.tools.s3downloader.service.StorageBrowserService;
+import com.nxber.tools.s3downloader.storage.BucketSummary;
+
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+@ExtendWith(MockitoExtension.class)
+class FederatedSearchServiceTest {
+	private static final Instant MODIFIED = Instant.parse("2025-01-01T00:00:00Z");
+
+	@Mock
+	private S3SourceManager sourceManager;
+
+	@Mock
+	private StorageBrowserService browserService;
+
+	@Mock
+	private InventoryService inventoryService;
+
+	@Mock
+	private S3Client primaryClient;
+
+	@Mock
+	private S3Client archiveClient;
+
+	private final S3ClientProperties properties = new S3ClientProperties();
+	private ExecutorService executor;
+	private FederatedSearchService service;
+
+	@BeforeEach
+	void setUp() {
+		executor = Executors.newCachedThreadPool();
+		S3SourceProperties sourceProperties = new S3SourceProperties();
+		when(sourceManager.getSources()).thenReturn(List.of(
+			new S3Source("primary", "Primary", sourceProperties, primaryClient),
+			new S3Source("archive", "Archive", sourceProperties, archiveClient)
+		));
+		when(inventoryService.findIndex(anyString(), anyString())).thenReturn(Optional.empty());
+		service = new FederatedSearchService(sourceManager, browserService, inventoryService, properties, executor::execute);
+	}
+
+	@AfterEach
+	void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	void shouldMergeMatchesFromEveryBucketOfEverySource() {
+		when(browserService.listBuckets("primary")).thenReturn(List.of(new BucketSummary("logs"), new BucketSummary("media")));
+		when(browserService.listBuckets("archive")).thenReturn(List.of(new BucketSummary("cold")));
+		when(primaryClient.listObjectsV2(any(ListObjectsV2Request.class))).thenAnswer(invocation -> {
+			ListObjectsV2Request request = invocation.getArgument(0);
+			if (request.bucket().equals("logs")) {
+				return request.continuationToken() == null
+					? page(true, "next", "2025/report-jan.csv", "2025/app.log")
+					: page(false, null, "2025/Report-feb.csv");
+			}
+			return page(false, null, "report/cover.png");
+		});
+		when(archiveClient.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(page(false, null, "old/report-2019.csv", "old/report/"));
+
+		List<SearchHit> hits = new CopyOnWriteArrayList<>();
+		List<SourceOutcome> outcomes = service.search("REPORT", "", hits::add, outcome -> {
+		});
+
+		assertThat(hits).extracting(hit -> hit.sourceName() + ":" + hit.bucket() + ":" + hit.key())
+			.containsExactlyInAnyOrder("primary:logs:2025/report-jan.csv", "primary:logs:2025/Report-feb.csv", "archive:cold:old/report-2019.csv");
+		assertThat(outcomes).extracting(SourceOutcome::status).containsOnly(SourceOutcome.Status.COMPLETED);
+		assertThat(outcomes.getFirst().bucketsSearched()).isEqualTo(2);
+		assertThat(outcomes.getFirst().hits()).isEqualTo(2);
+	}
+
+	@Test
+	void shouldReturnPartialResultsWhenOneSourceRunsOutOfTime() {
+		properties.getFederatedSearch().setSourceTimeout(Duration.ofMillis(200));
+		when(browserService.listBuckets("primary")).thenReturn(List.of(new BucketSummary("logs")));
+		when(browserService.listBuckets("archive")).thenReturn(List.of(new BucketSummary("cold")));
+		when(primaryClient.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(page(false, null, "invoice-1.pdf"));
+		when(archiveClient.listObjectsV2(any(ListObjectsV2Request.class))).thenAnswer(invocation -> {
+			Thread.sleep(5_000);
+			return page(false, null, "invoice-old.pdf");
+		});
+
+		List<SearchHit> hits = new CopyOnWriteArrayList<>();
+		List<SourceOutcome> reported = new CopyOnWriteArrayList<>();
+		long startedAt = System.nanoTime();
+		List<SourceOutcome> outcomes = service.search("invoice", "", hits::add, reported::add);
+
+		assertThat(Duration.ofNanos(System.nanoTime() - startedAt)).isLessThan(Duration.ofSeconds(3));
+		assertThat(hits).extracting(SearchHit::key).containsExactly("invoice-1.pdf");
+		assertThat(outcomes).extracting(SourceOutcome::status).containsExactly(SourceOutcome.Status.COMPLETED, SourceOutcome.Status.TIMED_OUT);
+		assertThat(reported).hasSize(2);
+	}
+
+	@Test
+	void shouldStopListingOnceTheResultLimitIsReached() {
+		properties.getFederatedSearch().setMaxResults(2);
+		when(browserService.listBuckets("primary")).thenReturn(List.of(new BucketSummary("logs")));
+		when(browserService.listBuckets("archive")).thenReturn(List.of());
+		when(primaryClient.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(page(true, "next", "a.txt", "b.txt", "c.txt"));
+
+		List<SearchHit> hits = new CopyOnWriteArrayList<>();
+		List<SourceOutcome> outcomes = service.search(".txt", "", hits::add, outcome -> {
+		});
+
+		assertThat(hits).hasSize(2);
+		assertThat(outcomes.getFirst().status()).isEqualTo(SourceOutcome.Status.LIMITED);
+	}
+
+	@Test
+	void shouldKeepSearchingWhileTheClientIsSlowToRead() {
+		properties.getFederatedSearch().setSourceTimeout(Duration.ofMillis(500));
+		when(browserService.listBuckets("primary")).thenReturn(List.of(new BucketSummary("logs")));
+		when(browserService.listBuckets("archive")).thenReturn(List.of(new BucketSummary("cold")));
+		when(primaryClient.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(page(false, null, "invoice-1.pdf"));
+		when(archiveClient.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(page(false, null, "invoice-old.pdf"));
+
+		Thread searchingThread = Thread.currentThread();
+		List<Thread> writers = new CopyOnWriteArrayList<>();
+		List<SourceOutcome> outcomes = service.search("invoice", "", hit -> {
+			writers.add(Thread.currentThread());
+			try {
+				Thread.sleep(1_000);
+			} catch (InterruptedException exception) {
+				Thread.currentThread().interrupt();
+			}
+		}, outcome -> writers.add(Thread.currentThread()));
+
+		assertThat(outcomes).extracting(SourceOutcome::status).containsOnly(SourceOutcome.Status.COMPLETED);
+		assertThat(writers).hasSize(4).containsOnly(searchingThread);
+	}
+
+	private static ListObjectsV2Response page(boolean truncated, String nextToken, String... keys) {
+		return ListObjectsV2Response.builder()
+			.contents(Arrays.stream(keys).map(key -> S3Object.builder().key(key).size(10L).lastModified(MODIFIED).build()).toList())
+			.isTruncated(truncated)
+			.nextContinuationToken(nextToken)
+			.build();
+	}
+}
@@ -0,0 +1,63 @@
+package com.nxber.tools.s3downloader.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+
+import com.nxber.tools.s3downloader.config.S3ClientProperties;
+
+class ListingCursorStoreTest {
+	private final ListingCursorStore store = new ListingCursorStore(new S3ClientProperties());
+
+	@Test
+	void shouldResolveAPageAgainstBoundariesThatShrankSinceTheLastRead() {
+		ListingCursorStore.Cursor cursor = store.open("primary", "bucket", "logs/", null);
+		cursor.recordNextBoundary(0, "t1");
+		cursor.recordNextBoundary(1, "t2");
+		cursor.recordNextBoundary(2, "t3");
+		assertThat(cursor.pageStart(3)).isEqualTo(new ListingCursorStore.PageStart(3, "t3"));
+
+		// another request finds that page 2 is the last one
+		cursor.recordNextBoundary(1, null);
+
+		assertThat(cursor.pageStart(3)).isEqualTo(new ListingCursorStore.PageStart(1, "t1"));
+		assertThat(cursor.lastPageStart()).isEqualTo(new ListingCursorStore.PageStart(1, "t1"));
+	}
+
+	@Test
+	void shouldNeverReadPastTheBoundariesWhileTheyShrink() {
+		ListingCursorStore.Cursor cursor = store.open("primary", "bucket", "logs/", null);
+		CompletableFuture<Void> shrinking = CompletableFuture.runAsync(() -> {
+			for (int round = 0; round < 20_000; round++) {
+				for (int page = 0; page < 5; page++) {
+					cursor.recordNextBoundary(page, "t" + (page + 1));
+				}
+				cursor.recordNextBoundary(0, null);
+			}
+		});
+
+		while (!shrinking.isDone()) {
+			ListingCursorStore.PageStart start = cursor.pageStart(4);
+			assertThat(start.token()).isEqualTo(start.index() == 0 ? "" : "t" + start.index());
+		}
+		shrinking.join();
+	}
+
+	@Test
+	void shouldForgetEveryQueryOfAnInvalidatedPrefix() {
+		ListingCursorStore.Cursor listing = store.open("primary", "bucket", "logs/", null);
+		listing.recordNextBoundary(0, "t1");
+		listing.recordNextBoundary(1, null);
+		store.open("primary", "bucket", "logs/", "error");
+		store.openInventorySearch("primary", "bucket", "logs/", "error");
+		ListingCursorStore.Cursor other = store.open("primary", "bucket", "images/", null);
+
+		store.invalidate("primary", "bucket", "logs/");
+
+		assertThat(store.size()).isEqualTo(1);
+		assertThat(store.open("primary", "bucket", "images/", null)).isSameAs(other);
+		assertThat(store.open("primary", "bucket", "logs/", null).totalPages()).isEmpty();
+	}
+}
@@ -0,0 +1,53 @@
+package com.nxber.tools.s3downloader.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+class ObjectFilterTest {
+	@Test
+	void shouldMatchFileNameGlobAtAnyDepthWhenRecursive() {
+		ObjectFilter filter = ObjectFilter.of("logs/", "*.csv", null, null, null, null, true);
+
+		assertThat(filter.matches(object("logs/2025/01/report.csv", 10, "2025-01-01T00:00:00Z"))).isTrue();
+		assertThat(filter.matches(object("logs/2025/01/report.csv.gz", 10, "2025-01-01T00:00:00Z"))).isFalse();
+		assertThat(filter.matches(object("logs/2025/", 0, "2025-01-01T00:00:00Z"))).isFalse();
+	}
+
+	@Test
+	void shouldAnchorPathGlobsToPrefix() {
+		ObjectFilter filter = ObjectFilter.of("logs/", "2025/*/report-??.csv", null, null, null, null, true);
+
+		assertThat(filter.matches(object("logs/2025/01/report-01.csv", 10, "2025-01-01T00:00:00Z"))).isTrue();
+		assertThat(filter.matches(object("logs/2025/01/02/report-01.csv", 10, "2025-01-01T00:00:00Z"))).isFalse();
+		assertThat(ObjectFilter.of("logs/", "2025/**.csv", null, null, null, null, true)
+			.matches(object("logs/2025/01/02/report-01.csv", 10, "2025-01-01T00:00:00Z"))).isTrue();
+	}
+
+	@Test
+	void shouldApplySizeDateAndDepthConstraints() {
+		ObjectFilter filter = ObjectFilter.of("data/", null, null, 100L, 1_000L, Instant.parse("2025-03-01T00:00:00Z"), false);
+
+		assertThat(filter.matches(object("data/a.bin", 500, "2025-03-02T00:00:00Z"))).isTrue();
+		assertThat(filter.matches(object("data/b.bin", 50, "2025-03-02T00:00:00Z"))).isFalse();
+		assertThat(filter.matches(object("data/c.bin", 5_000, "2025-03-02T00:00:00Z"))).isFalse();
+		assertThat(filter.matches(object("data/d.bin", 500, "2025-02-28T00:00:00Z"))).isFalse();
+		assertThat(filter.matches(object("data/nested/e.bin", 500, "2025-03-02T00:00:00Z"))).isFalse();
+	}
+
+	@Test
+	void shouldRejectInvalidRegularExpression() {
+		assertThatThrownBy(() -> ObjectFilter.of("", null, "report[", null, null, null, true))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessageStartingWith("Invalid regular expression");
+	}
+
+	private S3Object object(String key, long size, String lastModified) {
+		return S3Object.builder().key(key).size(size).lastModified(Instant.parse(lastModified)).build();
+	}
+}
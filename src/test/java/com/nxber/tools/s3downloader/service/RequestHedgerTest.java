@@ -0,0 +1,99 @@
+package com.nxber.tools.s3downloader.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.nxber.tools.s3downloader.config.S3ClientProperties;
+
+class RequestHedgerTest {
+	private ExecutorService executor;
+	private S3ClientProperties properties;
+	private RequestHedger hedger;
+
+	@BeforeEach
+	void setUp() {
+		executor = Executors.newCachedThreadPool();
+		properties = new S3ClientProperties();
+		properties.getHedging().setEnabled(true);
+		properties.getHedging().setMinDelay(Duration.ofMillis(5));
+		hedger = new RequestHedger(properties, executor);
+	}
+
+	@AfterEach
+	void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	void shouldAnswerFromHedgeWhenOriginalStalls() throws InterruptedException {
+		warmUp();
+		CountDownLatch releaseOriginal = new CountDownLatch(1);
+		AtomicInteger attempts = new AtomicInteger();
+		LinkedBlockingQueue<String> discarded = new LinkedBlockingQueue<>();
+
+		String result = hedger.execute(RequestHedger.LIST_OBJECTS, () -> {
+			if (attempts.incrementAndGet() == 1) {
+				await(releaseOriginal);
+				return "original";
+			}
+			return "hedge";
+		}, discarded::add);
+		releaseOriginal.countDown();
+
+		assertThat(result).isEqualTo("hedge");
+		assertThat(discarded.poll(5, TimeUnit.SECONDS)).isEqualTo("original");
+		assertThat(hedger.hedgeCount(RequestHedger.LIST_OBJECTS)).isEqualTo(1);
+	}
+
+	@Test
+	void shouldWaitForOriginalOnceBudgetIsSpent() {
+		properties.getHedging().setBudgetPercent(0);
+		warmUp();
+		AtomicInteger attempts = new AtomicInteger();
+
+		String result = hedger.execute(RequestHedger.LIST_OBJECTS, () -> {
+			attempts.incrementAndGet();
+			sleep(Duration.ofMillis(30));
+			return "original";
+		}, value -> {
+		});
+
+		assertThat(result).isEqualTo("original");
+		assertThat(attempts).hasValue(1);
+		assertThat(hedger.hedgeCount(RequestHedger.LIST_OBJECTS)).isZero();
+	}
+
+	private void warmUp() {
+		for (int index = 0; index < 64; index++) {
+			hedger.execute(RequestHedger.LIST_OBJECTS, () -> "warm", value -> {
+			});
+		}
+	}
+
+	private void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void sleep(Duration duration) {
+		try {
+			Thread.sleep(duration.toMillis());
+		} catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package com.nxber.tools.s3downloader.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+
+class RequestScopeTest {
+	private static final ListObjectsV2Request REQUEST = ListObjectsV2Request.builder().bucket("bucket").prefix("logs/").build();
+
+	@Test
+	void shouldBoundEachCallByTheRemainingDeadline() {
+		RequestScope scope = RequestScope.open(Duration.ofSeconds(30));
+		AtomicReference<ListObjectsV2Request> sent = new AtomicReference<>();
+
+		scope.call(REQUEST, request -> {
+			sent.set(request);
+			return null;
+		});
+
+		assertThat(sent.get().prefix()).isEqualTo("logs/");
+		assertThat(sent.get().overrideConfiguration().flatMap(override -> override.apiCallTimeout()))
+			.hasValueSatisfying(timeout -> assertThat(timeout).isPositive().isLessThanOrEqualTo(Duration.ofSeconds(30)));
+	}
+
+	@Test
+	void shouldPassRequestsThroughUnchangedWithoutDeadline() {
+		AtomicReference<ListObjectsV2Request> sent = new AtomicReference<>();
+
+		RequestScope.current().call(REQUEST, request -> {
+			sent.set(request);
+			return null;
+		});
+
+		assertThat(sent.get()).isSameAs(REQUEST);
+	}
+
+	@Test
+	void shouldRefuseCallsOnceCancelledAndAbortOpenStreams() {
+		RequestScope scope = RequestScope.open(null);
+		AtomicBoolean aborted = new AtomicBoolean();
+		scope.register(() -> aborted.set(true));
+		AtomicInteger calls = new AtomicInteger();
+
+		scope.cancel();
+
+		assertThat(aborted).isTrue();
+		assertThatThrownBy(() -> scope.call(REQUEST, request -> calls.incrementAndGet()))
+			.isInstanceOf(RequestAbandonedException.class)
+			.hasMessageContaining("abandoned");
+		assertThat(calls).hasValue(0);
+	}
+
+	@Test
+	void shouldReportAnExpiredDeadline() throws InterruptedException {
+		RequestScope scope = RequestScope.open(Duration.ofMillis(1));
+		Thread.sleep(5);
+
+		assertThatThrownBy(scope::checkActive)
+			.isInstanceOf(RequestAbandonedException.class)
+			.hasMessageContaining("deadline");
+	}
+
+	@Test
+	void shouldStopChildrenWithTheirParentButNotTheOtherWayRound() {
+		RequestScope parent = RequestScope.open(null);
+		RequestScope first = parent.child();
+		RequestScope second = parent.child();
+		AtomicBoolean aborted = new AtomicBoolean();
+		second.register(() -> aborted.set(true));
+
+		first.cancel();
+		assertThat(parent.isActive()).isTrue();
+		assertThat(second.isActive()).isTrue();
+
+		parent.cancel();
+		assertThat(second.isActive()).isFalse();
+		assertThat(aborted).isTrue();
+	}
+
+	@Test
+	void shouldCarryTheScopeIntoWrappedTasksAndRestoreItAfterwards() {
+		RequestScope scope = RequestScope.open(null);
+		AtomicReference<RequestScope> seen = new AtomicReference<>();
+
+		scope.wrap(() -> seen.set(RequestScope.current())).run();
+
+		assertThat(seen.get()).isSameAs(scope);
+		assertThat(RequestScope.current()).isNotSameAs(scope);
+	}
+}
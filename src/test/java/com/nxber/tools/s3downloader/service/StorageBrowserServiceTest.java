@@ -4,9 +4,17 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -16,19 +24,40 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.Mockito;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nxber.tools.s3downloader.archive.ArchiveCompressor;
+import com.nxber.tools.s3downloader.archive.ZipArchiveWriter;
+import com.nxber.tools.s3downloader.cache.LocalStorageCache;
 import com.nxber.tools.s3downloader.config.S3ClientProperties;
 import com.nxber.tools.s3downloader.config.S3SourceManager;
 import com.nxber.tools.s3downloader.config.S3SourceManager.S3Source;
 import com.nxber.tools.s3downloader.config.S3SourceProperties;
+import com.nxber.tools.s3downloader.inventory.InventoryService;
+import com.nxber.tools.s3downloader.storage.KeyOrder;
+import com.nxber.tools.s3downloader.storage.StorageFolder;
 import com.nxber.tools.s3downloader.storage.StorageListing;
+import com.nxber.tools.s3downloader.transfer.Transfer;
+import com.nxber.tools.s3downloader.transfer.TransferRegistry;
 
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.model.Bucket;
 import software.amazon.awssdk.services.s3.model.CommonPrefix;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListBucketsRequest;
+import software.amazon.awssdk.services.s3.model.ListBucketsResponse;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
 import software.amazon.awssdk.services.s3.model.S3Exception;
 import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 
 @ExtendWith(MockitoExtension.class)
 class StorageBrowserServiceTest {
@@ -38,6 +67,9 @@ class StorageBrowserServiceTest {
 	@Mock
 	private S3SourceManager sourceManager;
 
+	@Mock
+	private InventoryService inventoryService;
+
 	private S3ClientProperties properties;
 	private StorageBrowserService service;
 	private S3Source source;
@@ -59,7 +91,7 @@ class StorageBrowserServiceTest {
 
 		when(sourceManager.resolve(Mockito.any())).thenReturn(source);
 
-		service = new StorageBrowserService(sourceManager, properties);
+		service = new StorageBrowserService(sourceManager, properties, new ListingCursorStore(properties), inventoryService, new ListingPrefetcher(properties, Runnable::run), new ObjectStreamGate(), new ListingCache(new LocalStorageCache(100), properties, new ObjectMapper().findAndRegisterModules()), new RequestHedger(properties, Runnable::run), new ArchiveCompressor(properties, Runnable::run), Runnable::run);
 	}
 
 	@Test
@@ -93,7 +125,7 @@ class StorageBrowserServiceTest {
 		when(s3Client.listObjectsV2(Mockito.<ListObjectsV2Request>argThat(request -> request != null && request.delimiter() == null && "docs/reports/".equals(request.prefix()))))
 			.thenReturn(folderResponse);
 
-		StorageListing listing = service.listObjects("primary", "default-bucket", "docs", "", "", true);
+		StorageListing listing = service.listObjects("primary", "default-bucket", "docs", 1, "", true);
 
 		assertThat(listing.folders()).hasSize(1);
 		assertThat(listing.folders().getFirst().name()).isEqualTo("reports");
@@ -117,7 +149,7 @@ class StorageBrowserServiceTest {
 
 		when(s3Client.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(response);
 
-		StorageListing listing = service.listObjects("primary", "default-bucket", "docs", "", "beta", true);
+		StorageListing listing = service.listObjects("primary", "default-bucket", "docs", 1, "beta", true);
 
 		assertThat(listing.objects()).hasSize(1);
 		assertThat(listing.objects().getFirst().name()).isEqualTo("beta.txt");
@@ -140,7 +172,7 @@ class StorageBrowserServiceTest {
 
 		when(s3Client.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(response);
 
-		StorageListing listing = service.listObjects("primary", "default-bucket", "docs", "", "", false);
+		StorageListing listing = service.listObjects("primary", "default-bucket", "docs", 1, "", false);
 
 		assertThat(listing.folders()).hasSize(1);
 		assertThat(listing.folders().getFirst().size()).isEqualTo(0L);
@@ -148,9 +180,189 @@ class StorageBrowserServiceTest {
 		verify(s3Client, times(1)).listObjectsV2(any(ListObjectsV2Request.class));
 	}
 
+	@Test
+	void shouldAggregateFolderDetailsInSinglePass() {
+		properties.getFolderStats().setPartitions(1);
+
+		ListObjectsV2Response response = ListObjectsV2Response.builder()
+			.commonPrefixes(
+				CommonPrefix.builder().prefix("docs/alpha/").build(),
+				CommonPrefix.builder().prefix("docs/beta/").build(),
+				CommonPrefix.builder().prefix("docs/gamma/").build()
+			)
+			.isTruncated(false)
+			.build();
+
+		ListObjectsV2Response recursiveResponse = ListObjectsV2Response.builder()
+			.contents(
+				S3Object.builder().key("docs/alpha/one.txt").size(10L).lastModified(Instant.parse("2025-01-01T00:00:00Z")).build(),
+				S3Object.builder().key("docs/alpha/nested/two.txt").size(5L).lastModified(Instant.parse("2025-01-02T00:00:00Z")).build(),
+				S3Object.builder().key("docs/b-loose.txt").size(100L).lastModified(Instant.parse("2025-01-03T00:00:00Z")).build(),
+				S3Object.builder().key("docs/gamma/three.txt").size(7L).lastModified(Instant.parse("2025-01-04T00:00:00Z")).build()
+			)
+			.isTruncated(false)
+			.build();
+
+		when(s3Client.listObjectsV2(Mockito.<ListObjectsV2Request>argThat(request -> request != null && "/".equals(request.delimiter())))).thenReturn(response);
+		when(s3Client.listObjectsV2(Mockito.<ListObjectsV2Request>argThat(request -> request != null && request.delimiter() == null)))
+			.thenReturn(recursiveResponse);
+
+		StorageListing listing = service.listObjects("primary", "default-bucket", "docs", 1, "", true);
+
+		assertThat(listing.folders()).extracting(folder -> folder.size()).containsExactly(15L, 0L, 7L);
+		assertThat(listing.folders().getFirst().lastModified()).isEqualTo(Instant.parse("2025-01-02T00:00:00Z"));
+		assertThat(listing.folders().get(1).lastModified()).isNull();
+		verify(s3Client, times(1)).listObjectsV2(Mockito.<ListObjectsV2Request>argThat(request -> request != null && request.delimiter() == null
+			&& "docs/".equals(request.prefix()) && "docs/alpha/".equals(request.startAfter())));
+	}
+
+	@Test
+	void shouldStreamFolderStatsPerPartition() {
+		properties.getFolderStats().setPartitions(2);
+
+		when(s3Client.listObjectsV2(Mockito.<ListObjectsV2Request>argThat(request -> request != null && "docs/alpha/".equals(request.prefix()))))
+			.thenReturn(ListObjectsV2Response.builder()
+				.contents(S3Object.builder().key("docs/alpha/one.txt").size(10L).lastModified(Instant.parse("2025-01-01T00:00:00Z")).build())
+				.isTruncated(false)
+				.build());
+		when(s3Client.listObjectsV2(Mockito.<ListObjectsV2Request>argThat(request -> request != null && "docs/beta/".equals(request.prefix()))))
+			.thenReturn(ListObjectsV2Response.builder()
+				.contents(S3Object.builder().key("docs/beta/two.txt").size(20L).lastModified(Instant.parse("2025-01-02T00:00:00Z")).build())
+				.isTruncated(false)
+				.build());
+
+		List<StorageFolder> streamed = new ArrayList<>();
+		service.streamFolderStats("primary", "default-bucket", "docs/", List.of("docs/beta/", "docs/alpha/"), streamed::add);
+
+		assertThat(streamed).extracting(StorageFolder::prefix).containsExactlyInAnyOrder("docs/alpha/", "docs/beta/");
+		assertThat(streamed).extracting(StorageFolder::size).containsExactlyInAnyOrder(10L, 20L);
+	}
+
+	@Test
+	void shouldWalkFolderStatsInUtf8KeyOrder() {
+		properties.getFolderStats().setPartitions(1);
+
+		// U+FF61 sorts before U+1F600 in UTF-8, but after its surrogate pair in UTF-16
+		when(s3Client.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(ListObjectsV2Response.builder()
+			.contents(
+				S3Object.builder().key("docs/\uFF61/a.txt").size(10L).build(),
+				S3Object.builder().key("docs/\uD83D\uDE00/b.txt").size(20L).build()
+			)
+			.isTruncated(false)
+			.build());
+
+		List<StorageFolder> streamed = new ArrayList<>();
+		service.streamFolderStats("primary", "default-bucket", "docs/", List.of("docs/\uD83D\uDE00/", "docs/\uFF61/"), streamed::add);
+
+		assertThat(streamed).extracting(StorageFolder::prefix).containsExactly("docs/\uFF61/", "docs/\uD83D\uDE00/");
+		assertThat(streamed).extracting(StorageFolder::size).containsExactly(10L, 20L);
+		verify(s3Client).listObjectsV2(Mockito.<ListObjectsV2Request>argThat(request -> request != null && "docs/\uFF61/".equals(request.startAfter())));
+	}
+
+	@Test
+	void shouldJumpToRememberedPageBoundary() {
+		properties.getCursor().setPrefetchEnabled(false);
+
+		ListObjectsV2Response firstPage = ListObjectsV2Response.builder()
+			.contents(S3Object.builder().key("docs/a.txt").size(1L).lastModified(Instant.now()).eTag("1").build())
+			.isTruncated(true)
+			.nextContinuationToken("token-2")
+			.build();
+		ListObjectsV2Response secondPage = ListObjectsV2Response.builder()
+			.contents(S3Object.builder().key("docs/b.txt").size(1L).lastModified(Instant.now()).eTag("2").build())
+			.isTruncated(false)
+			.build();
+
+		when(s3Client.listObjectsV2(Mockito.<ListObjectsV2Request>argThat(request -> request != null && request.continuationToken() == null))).thenReturn(firstPage);
+		when(s3Client.listObjectsV2(Mockito.<ListObjectsV2Request>argThat(request -> request != null && "token-2".equals(request.continuationToken())))).thenReturn(secondPage);
+
+		StorageListing first = service.listObjects("primary", "default-bucket", "docs", 1, "", false);
+		StorageListing second = service.listObjects("primary", "default-bucket", "docs", 2, "", false);
+		StorageListing unknown = service.listObjects("primary", "default-bucket", "docs", 40, "", false);
+
+		assertThat(first.hasNext()).isTrue();
+		assertThat(first.totalPages()).isZero();
+		assertThat(second.page()).isEqualTo(2);
+		assertThat(second.objects().getFirst().name()).isEqualTo("b.txt");
+		assertThat(second.totalPages()).isEqualTo(2);
+		assertThat(unknown.page()).isEqualTo(2);
+	}
+
+	@Test
+	void shouldPrefetchPageBoundariesForTotalPageCount() {
+		ListObjectsV2Response firstPage = ListObjectsV2Response.builder()
+			.contents(S3Object.builder().key("docs/a.txt").size(1L).lastModified(Instant.now()).eTag("1").build())
+			.isTruncated(true)
+			.nextContinuationToken("token-2")
+			.build();
+		ListObjectsV2Response secondPage = ListObjectsV2Response.builder()
+			.isTruncated(true)
+			.nextContinuationToken("token-3")
+			.build();
+		ListObjectsV2Response lastPage = ListObjectsV2Response.builder()
+			.isTruncated(false)
+			.build();
+
+		when(s3Client.listObjectsV2(Mockito.<ListObjectsV2Request>argThat(request -> request != null && request.continuationToken() == null))).thenReturn(firstPage);
+		when(s3Client.listObjectsV2(Mockito.<ListObjectsV2Request>argThat(request -> request != null && "token-2".equals(request.continuationToken())))).thenReturn(secondPage);
+		when(s3Client.listObjectsV2(Mockito.<ListObjectsV2Request>argThat(request -> request != null && "token-3".equals(request.continuationToken())))).thenReturn(lastPage);
+
+		service.listObjects("primary", "default-bucket", "docs", 1, "", false);
+		StorageListing reloaded = service.listObjects("primary", "default-bucket", "docs", 3, "", false);
+
+		assertThat(reloaded.page()).isEqualTo(3);
+		assertThat(reloaded.totalPages()).isEqualTo(3);
+	}
+
+	@Test
+	void shouldServeNextPageFromSpeculativePrefetch() {
+		properties.getCursor().setPrefetchEnabled(false);
+		properties.getPrefetch().setEnabled(true);
+
+		ListObjectsV2Response firstPage = ListObjectsV2Response.builder()
+			.contents(S3Object.builder().key("docs/a.txt").size(1L).lastModified(Instant.now()).eTag("1").build())
+			.isTruncated(true)
+			.nextContinuationToken("token-2")
+			.build();
+		ListObjectsV2Response secondPage = ListObjectsV2Response.builder()
+			.contents(S3Object.builder().key("docs/b.txt").size(1L).lastModified(Instant.now()).eTag("2").build())
+			.isTruncated(false)
+			.build();
+
+		when(s3Client.listObjectsV2(Mockito.<ListObjectsV2Request>argThat(request -> request != null && request.continuationToken() == null))).thenReturn(firstPage);
+		when(s3Client.listObjectsV2(Mockito.<ListObjectsV2Request>argThat(request -> request != null && "token-2".equals(request.continuationToken())))).thenReturn(secondPage);
+
+		service.listObjects("primary", "default-bucket", "docs", 1, "", false);
+		StorageListing second = service.listObjects("primary", "default-bucket", "docs", 2, "", false);
+
+		assertThat(second.objects().getFirst().name()).isEqualTo("b.txt");
+		verify(s3Client, times(1)).listObjectsV2(Mockito.<ListObjectsV2Request>argThat(request -> request != null && "token-2".equals(request.continuationToken())));
+	}
+
+	@Test
+	void shouldServeRepeatedListingFromCache() {
+		properties.getCursor().setPrefetchEnabled(false);
+
+		ListObjectsV2Response page = ListObjectsV2Response.builder()
+			.commonPrefixes(CommonPrefix.builder().prefix("docs/reports/").build())
+			.contents(S3Object.builder().key("docs/a.txt").size(4L).lastModified(Instant.parse("2025-01-01T00:00:00Z")).eTag("1").build())
+			.isTruncated(false)
+			.build();
+		when(s3Client.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(page);
+
+		service.listObjects("primary", "default-bucket", "docs", 1, "", false);
+		StorageListing cached = service.listObjects("primary", "default-bucket", "docs", 1, "", false);
+		service.invalidateListing("primary", "default-bucket", "docs");
+		service.listObjects("primary", "default-bucket", "docs", 1, "", false);
+
+		assertThat(cached.folders()).extracting(StorageFolder::prefix).containsExactly("docs/reports/");
+		assertThat(cached.objects().getFirst().lastModified()).isEqualTo(Instant.parse("2025-01-01T00:00:00Z"));
+		verify(s3Client, times(2)).listObjectsV2(any(ListObjectsV2Request.class));
+	}
+
 	@Test
 	void shouldFallbackToDefaultBucketWhenListBucketsDenied() {
-		when(s3Client.listBuckets()).thenThrow((S3Exception) S3Exception.builder()
+		when(s3Client.listBuckets(any(ListBucketsRequest.class))).thenThrow((S3Exception) S3Exception.builder()
 			.statusCode(403)
 			.awsErrorDetails(AwsErrorDetails.builder()
 				.errorCode("AccessDenied")
@@ -162,4 +374,153 @@ class StorageBrowserServiceTest {
 
 		assertThat(bucketNames).containsExactly("default-bucket");
 	}
+
+	@Test
+	void shouldRememberDeniedBucketListingPastTheBucketCache() {
+		properties.getCache().setBucketTtl(Duration.ZERO);
+		when(s3Client.listBuckets(any(ListBucketsRequest.class))).thenThrow((S3Exception) S3Exception.builder().statusCode(403).build());
+
+		service.listBuckets("primary");
+		List<String> bucketNames = service.listBuckets("primary").stream().map(bucket -> bucket.name()).toList();
+
+		assertThat(bucketNames).containsExactly("default-bucket");
+		verify(s3Client, times(1)).listBuckets(any(ListBucketsRequest.class));
+	}
+
+	@Test
+	void shouldKeepBucketsWhenTheListingIsDenied() {
+		when(s3Client.listBuckets(any(ListBucketsRequest.class))).thenReturn(ListBucketsResponse.builder()
+			.buckets(Bucket.builder().name("default-bucket").build(), Bucket.builder().name("logs").build())
+			.build());
+		when(s3Client.listObjectsV2(any(ListObjectsV2Request.class))).thenThrow((S3Exception) S3Exception.builder()
+			.statusCode(403)
+			.awsErrorDetails(AwsErrorDetails.builder()
+				.errorCode("AccessDenied")
+				.errorMessage("Access denied")
+				.build())
+			.build());
+
+		BrowsePage page = service.browse("primary", "logs", "", 1, "", false);
+
+		assertThat(page.buckets()).extracting(bucket -> bucket.name()).containsExactly("default-bucket", "logs");
+		assertThat(page.listing().bucket()).isEqualTo("logs");
+		assertThat(page.listing().objects()).isEmpty();
+		assertThat(page.errorMessage()).contains("Access denied");
+	}
+
+	@Test
+	void shouldServeCachedBucketsWithoutHandingOffTheCall() {
+		properties.getCursor().setPrefetchEnabled(false);
+		List<Runnable> handedOff = new ArrayList<>();
+		service = new StorageBrowserService(sourceManager, properties, new ListingCursorStore(properties), inventoryService, new ListingPrefetcher(properties, Runnable::run), new ObjectStreamGate(), new ListingCache(new LocalStorageCache(100), properties, new ObjectMapper().findAndRegisterModules()), new RequestHedger(properties, Runnable::run), new ArchiveCompressor(properties, Runnable::run), task -> {
+			handedOff.add(task);
+			task.run();
+		});
+		when(s3Client.listBuckets(any(ListBucketsRequest.class))).thenReturn(ListBucketsResponse.builder()
+			.buckets(Bucket.builder().name("default-bucket").build())
+			.build());
+		when(s3Client.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(ListObjectsV2Response.builder().isTruncated(false).build());
+
+		service.browse("primary", "default-bucket", "", 1, "", false);
+		BrowsePage page = service.browse("primary", "default-bucket", "", 1, "", false);
+
+		assertThat(page.buckets()).extracting(bucket -> bucket.name()).containsExactly("default-bucket");
+		assertThat(handedOff).hasSize(1);
+		verify(s3Client, times(1)).listBuckets(any(ListBucketsRequest.class));
+	}
+
+	@Test
+	void shouldPresignDownloadsForRedirectSources() {
+		S3SourceProperties redirectProperties = new S3SourceProperties();
+		redirectProperties.setRegion("us-east-1");
+		redirectProperties.setDefaultBucket("default-bucket");
+		redirectProperties.setDownloadMode(S3SourceProperties.DownloadMode.REDIRECT);
+		redirectProperties.setPresignTtl(Duration.ofMinutes(2));
+		S3Presigner presigner = S3Presigner.builder()
+			.region(Region.US_EAST_1)
+			.credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("access", "secret")))
+			.serviceConfiguration(S3Configuration.builder().pathStyleAccessEnabled(true).build())
+			.endpointOverride(URI.create("https://files.example.com"))
+			.build();
+		when(sourceManager.resolve("primary")).thenReturn(new S3Source("primary", "Primary", redirectProperties, s3Client, presigner));
+
+		URI location = service.presignObjectUrl("primary", "", "docs/report.pdf", "attachment; filename=\"report.pdf\"").orElseThrow();
+
+		assertThat(location.getHost()).isEqualTo("files.example.com");
+		assertThat(location.getPath()).isEqualTo("/default-bucket/docs/report.pdf");
+		assertThat(location.getQuery()).contains("X-Amz-Expires=120", "response-content-disposition=attachment; filename=\"report.pdf\"");
+		verifyNoInteractions(s3Client);
+	}
+
+	@Test
+	void shouldNotPresignForProxySources() {
+		assertThat(service.presignObjectUrl("primary", "default-bucket", "docs/report.pdf", null)).isEmpty();
+	}
+
+	@Test
+	void shouldPlanFolderVolumesAsContiguousKeyRangesWithinTheByteBudget() {
+		when(s3Client.listObjectsV2Paginator(any(ListObjectsV2Request.class))).thenCallRealMethod();
+		when(s3Client.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(ListObjectsV2Response.builder()
+			.contents(
+				S3Object.builder().key("data/a.bin").size(40L).build(),
+				S3Object.builder().key("data/b.bin").size(50L).build(),
+				S3Object.builder().key("data/c/").size(0L).build(),
+				S3Object.builder().key("data/c/huge.bin").size(500L).build(),
+				S3Object.builder().key("data/d.bin").size(10L).build(),
+				S3Object.builder().key("data/e.bin").size(10L).build()
+			)
+			.isTruncated(false)
+			.build());
+		List<ArchiveVolume> volumes = new ArrayList<>();
+
+		int parts = service.planFolderVolumes("primary", "default-bucket", "data", 100L, volumes::add);
+
+		assertThat(parts).isEqualTo(3);
+		assertThat(volumes).containsExactly(
+			new ArchiveVolume(1, null, "data/b.bin", 2, 90L),
+			new ArchiveVolume(2, "data/b.bin", "data/c/huge.bin", 1, 500L),
+			new ArchiveVolume(3, "data/c/huge.bin", null, 2, 20L)
+		);
+		assertThat(volumes.getLast().isLast()).isTrue();
+	}
+
+	@Test
+	void shouldStreamAdjacentVolumesCoveringEveryKeyExactlyOnce() throws IOException {
+		List<String> bucket = List.of("data/a.bin", "data/b.bin", "data/b.bin.old", "data/c/", "data/c/one.bin", "data/\uFF61.bin", "data/\uD83D\uDE00.bin")
+			.stream().sorted(KeyOrder.UTF8).toList();
+		when(s3Client.listObjectsV2Paginator(any(ListObjectsV2Request.class))).thenCallRealMethod();
+		// pages of three keys, resuming strictly after the continuation token or startAfter the way S3 does
+		when(s3Client.listObjectsV2(any(ListObjectsV2Request.class))).thenAnswer(invocation -> {
+			ListObjectsV2Request request = invocation.getArgument(0);
+			String after = request.continuationToken() != null ? request.continuationToken() : request.startAfter();
+			List<String> remaining = bucket.stream()
+				.filter(key -> key.startsWith(request.prefix()))
+				.filter(key -> after == null || KeyOrder.compare(key, after) > 0)
+				.toList();
+			List<String> page = remaining.subList(0, Math.min(3, remaining.size()));
+			boolean truncated = remaining.size() > page.size();
+			return ListObjectsV2Response.builder()
+				.contents(page.stream().map(key -> S3Object.builder().key(key).size(key.endsWith("/") ? 0L : 40L).build()).toList())
+				.isTruncated(truncated)
+				.nextContinuationToken(truncated ? page.getLast() : null)
+				.build();
+		});
+		when(s3Client.getObject(any(GetObjectRequest.class))).thenAnswer(invocation -> new ResponseInputStream<>(
+			GetObjectResponse.builder().contentLength(4L).build(),
+			AbortableInputStream.create(new ByteArrayInputStream("data".getBytes(StandardCharsets.UTF_8)))));
+		List<ArchiveVolume> volumes = new ArrayList<>();
+		service.planFolderVolumes("primary", "default-bucket", "data", 100L, volumes::add);
+
+		List<String> written = new ArrayList<>();
+		try (ZipArchiveWriter archive = service.openArchive(OutputStream.nullOutputStream());
+			Transfer transfer = new TransferRegistry().start(Transfer.Kind.FOLDER, "primary", "default-bucket", "data", "10.0.0.5")) {
+			for (ArchiveVolume volume : volumes) {
+				written.addAll(service.streamPrefixRangeAsZip("primary", "default-bucket", "data", volume.startAfter(), volume.endInclusive(), archive, transfer)
+					.keySet().stream().sorted(KeyOrder.UTF8).toList());
+			}
+		}
+
+		assertThat(volumes).hasSizeGreaterThan(2);
+		assertThat(written).containsExactlyElementsOf(bucket.stream().filter(key -> !key.endsWith("/")).toList());
+	}
 }
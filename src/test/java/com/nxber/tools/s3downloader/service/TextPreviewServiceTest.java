@@ -0,0 +1,117 @@
+package com.nxber.tools.s3downloader.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nxber.tools.s3downloader.config.S3ClientProperties;
+
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+@ExtendWith(MockitoExtension.class)
+class TextPreviewServiceTest {
+	private static final int WINDOW = 1024;
+
+	@Mock
+	private StorageBrowserService browserService;
+
+	private TextPreviewService service;
+
+	@BeforeEach
+	void setUp() {
+		S3ClientProperties properties = new S3ClientProperties();
+		properties.getTextPreview().setMaxBytes(WINDOW);
+		service = new TextPreviewService(browserService, properties, new ObjectMapper());
+	}
+
+	@Test
+	void shouldParseLeadingCsvRowsFromHeadRange() {
+		StringBuilder csv = new StringBuilder("id,name,note\r\n");
+		csv.append("1,\"Smith, Jane\",\"two\nlines\"\r\n");
+		for (int row = 2; row < 200; row++) {
+			csv.append(row).append(",name-").append(row).append(",plain\r\n");
+		}
+		byte[] content = csv.toString().getBytes(StandardCharsets.UTF_8);
+		stubRange("data/people.csv", "bytes=0-" + (WINDOW - 1), content, 0);
+
+		TextPreview preview = service.preview("primary", "bucket", "data/people.csv", false, 5);
+
+		assertThat(preview.truncated()).isTrue();
+		assertThat(preview.fetchedBytes()).isEqualTo(WINDOW);
+		assertThat(preview.objectSize()).isEqualTo(content.length);
+		assertThat(preview.table().columns()).containsExactly("id", "name", "note");
+		assertThat(preview.table().rows()).hasSize(5);
+		assertThat(preview.table().rows().getFirst()).containsExactly("1", "Smith, Jane", "two\nlines");
+		assertThat(preview.table().rows().getLast()).containsExactly("5", "name-5", "plain");
+	}
+
+	@Test
+	void shouldDropPartialLineAndSplitCharacterFromTailRange() {
+		StringBuilder log = new StringBuilder();
+		for (int line = 0; line < 300; line++) {
+			log.append("%03d caf\u00E9\n".formatted(line));
+		}
+		byte[] content = log.toString().getBytes(StandardCharsets.UTF_8);
+		// start inside the two-byte \u00E9 so the range opens on a continuation byte
+		int start = content.length - WINDOW;
+		while ((content[start] & 0xC0) != 0x80) {
+			start++;
+		}
+		stubRange("logs/app.log", "bytes=-" + WINDOW, content, start);
+
+		TextPreview preview = service.preview("primary", "bucket", "logs/app.log", true, 3);
+
+		assertThat(preview.charset()).isEqualTo("UTF-8");
+		assertThat(preview.lines()).containsExactly("297 caf\u00E9", "298 caf\u00E9", "299 caf\u00E9");
+		assertThat(preview.table()).isNull();
+		assertThat(preview.truncated()).isTrue();
+	}
+
+	@Test
+	void shouldTabulateJsonLinesWithUnionOfFields() {
+		String jsonLines = """
+			{"level":"info","message":"started"}
+			{"level":"warn","message":"slow","elapsedMs":1200}
+			not json
+			{"level":"info","context":{"user":"a"}}
+			""";
+		byte[] content = jsonLines.getBytes(StandardCharsets.UTF_8);
+		stubRange("logs/events.jsonl", "bytes=0-" + (WINDOW - 1), content, 0);
+
+		TextPreview preview = service.preview("primary", "bucket", "logs/events.jsonl", false, 10);
+
+		assertThat(preview.truncated()).isFalse();
+		assertThat(preview.table().columns()).containsExactly("level", "message", "elapsedMs", "context");
+		assertThat(preview.table().rows()).containsExactly(
+			Arrays.asList("info", "started", "", ""),
+			Arrays.asList("warn", "slow", "1200", ""),
+			Arrays.asList("info", "", "", "{\"user\":\"a\"}")
+		);
+		assertThat(preview.table().skippedRows()).isEqualTo(1);
+	}
+
+	private void stubRange(String key, String range, byte[] content, int start) {
+		int end = Math.min(content.length, start + WINDOW);
+		byte[] slice = Arrays.copyOfRange(content, start, end);
+		GetObjectResponse response = GetObjectResponse.builder()
+			.contentLength((long) slice.length)
+			.contentRange("bytes %d-%d/%d".formatted(start, end - 1, content.length))
+			.build();
+		when(browserService.openPreviewRange(any(), any(), eq(key), eq(range)))
+			.thenReturn(new ResponseInputStream<>(response, AbortableInputStream.create(new ByteArrayInputStream(slice))));
+	}
+}
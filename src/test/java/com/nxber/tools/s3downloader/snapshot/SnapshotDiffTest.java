@@ -0,0 +1,104 @@
+package com.nxber.tools.s3downloader.snapshot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.assertj.core.groups.Tuple;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.nxber.tools.s3downloader.storage.KeyOrder;
+
+class SnapshotDiffTest {
+	@TempDir
+	Path directory;
+
+	@Test
+	void shouldRoundTripEntriesThroughSnapshotFile() throws IOException {
+		List<SnapshotEntry> entries = List.of(
+			new SnapshotEntry("logs/2025/01/a.csv", 12L, Instant.parse("2025-01-01T00:00:00Z"), "\"e1\""),
+			new SnapshotEntry("logs/2025/01/b.csv", 0L, null, null),
+			new SnapshotEntry("logs/2025/02/a.csv", 5_000_000_000L, Instant.parse("2025-02-01T12:30:00Z"), "\"e3-2\"")
+		);
+		Path snapshot = write("1.snap", Instant.parse("2025-03-01T00:00:00Z"), entries);
+
+		try (SnapshotFile.Reader reader = new SnapshotFile.Reader(snapshot)) {
+			List<SnapshotEntry> read = new ArrayList<>();
+			reader.forEachRemaining(read::add);
+			assertThat(reader.takenAt()).isEqualTo(Instant.parse("2025-03-01T00:00:00Z"));
+			assertThat(read).containsExactlyElementsOf(entries);
+		}
+		assertThat(directory.resolve("1.snap.tmp")).doesNotExist();
+	}
+
+	@Test
+	void shouldReportAddedRemovedAndModifiedKeys() throws IOException {
+		Instant modified = Instant.parse("2025-01-01T00:00:00Z");
+		Path before = write("1.snap", modified, List.of(
+			new SnapshotEntry("a.txt", 1L, modified, "\"a\""),
+			new SnapshotEntry("b.txt", 2L, modified, "\"b\""),
+			new SnapshotEntry("c.txt", 3L, modified, "\"c\"")
+		));
+		Path after = write("2.snap", modified, List.of(
+			new SnapshotEntry("b.txt", 2L, modified, "\"b2\""),
+			new SnapshotEntry("c.txt", 3L, modified, "\"c\""),
+			new SnapshotEntry("d.txt", 4L, modified, "\"d\"")
+		));
+
+		List<SnapshotChange> changes = diff(before, after);
+
+		assertThat(changes).extracting(SnapshotChange::type, SnapshotChange::key).containsExactly(
+			Tuple.tuple(SnapshotChange.Type.REMOVED, "a.txt"),
+			Tuple.tuple(SnapshotChange.Type.MODIFIED, "b.txt"),
+			Tuple.tuple(SnapshotChange.Type.ADDED, "d.txt")
+		);
+	}
+
+	@Test
+	void shouldOrderKeysLikeS3AcrossSurrogatePairs() throws IOException {
+		// U+FF61 sorts before the emoji in UTF-8, but after its surrogate pair in UTF-16
+		Instant modified = Instant.parse("2025-01-01T00:00:00Z");
+		Path before = write("1.snap", modified, List.of(
+			new SnapshotEntry("docs/\uFF61", 1L, modified, "\"x\""),
+			new SnapshotEntry("docs/\uD83D\uDE00", 1L, modified, "\"y\"")
+		));
+		Path after = write("2.snap", modified, List.of(
+			new SnapshotEntry("docs/\uFF61", 1L, modified, "\"x\""),
+			new SnapshotEntry("docs/\uD83D\uDE00", 2L, modified, "\"y2\"")
+		));
+
+		assertThat(diff(before, after))
+			.singleElement()
+			.satisfies(change -> {
+				assertThat(change.type()).isEqualTo(SnapshotChange.Type.MODIFIED);
+				assertThat(change.key()).isEqualTo("docs/\uD83D\uDE00");
+			});
+		assertThat(KeyOrder.compare("docs/\uFF61", "docs/\uD83D\uDE00")).isNegative();
+	}
+
+	private Path write(String name, Instant takenAt, List<SnapshotEntry> entries) throws IOException {
+		Path target = directory.resolve(name);
+		try (SnapshotFile.Writer writer = new SnapshotFile.Writer(target, takenAt)) {
+			for (SnapshotEntry entry : entries) {
+				writer.add(entry);
+			}
+			writer.finish();
+		}
+		assertThat(Files.isRegularFile(target)).isTrue();
+		return target;
+	}
+
+	private static List<SnapshotChange> diff(Path before, Path after) throws IOException {
+		try (SnapshotFile.Reader beforeReader = new SnapshotFile.Reader(before); SnapshotFile.Reader afterReader = new SnapshotFile.Reader(after)) {
+			List<SnapshotChange> changes = new ArrayList<>();
+			new SnapshotDiff(beforeReader, afterReader).forEachRemaining(changes::add);
+			return changes;
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package com.nxber.tools.s3downloader.snapshot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.nxber.tools.s3downloader.config.S3ClientProperties;
+import com.nxber.tools.s3downloader.config.S3SourceManager;
+import com.nxber.tools.s3downloader.config.S3SourceManager.S3Source;
+import com.nxber.tools.s3downloader.config.S3SourceProperties;
+
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+
+@ExtendWith(MockitoExtension.class)
+class SnapshotServiceTest {
+	@Mock
+	private S3Client s3Client;
+
+	@Mock
+	private S3SourceManager sourceManager;
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void shouldKeepSnapshotsBelowTheConfiguredDirectory() throws Exception {
+		Path root = directory.resolve("snapshots");
+		S3ClientProperties properties = new S3ClientProperties();
+		properties.getSnapshot().setDirectory(root);
+		when(sourceManager.resolve("..")).thenReturn(new S3Source("..", "Parent", new S3SourceProperties(), s3Client));
+		when(s3Client.listObjectsV2Paginator(any(ListObjectsV2Request.class))).thenCallRealMethod();
+		when(s3Client.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(ListObjectsV2Response.builder().isTruncated(false).build());
+		SnapshotService service = new SnapshotService(sourceManager, properties);
+
+		service.takeSnapshot("..", "..", "../../escaped");
+
+		try (Stream<Path> files = Files.walk(directory)) {
+			assertThat(files.filter(Files::isRegularFile).toList())
+				.singleElement()
+				.satisfies(snapshot -> assertThat(snapshot.startsWith(root)).isTrue());
+		}
+	}
+}
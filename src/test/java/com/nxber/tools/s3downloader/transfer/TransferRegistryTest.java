@@ -0,0 +1,79 @@
+package com.nxber.tools.s3downloader.transfer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.nxber.tools.s3downloader.service.RequestScope;
+
+import software.amazon.awssdk.http.Abortable;
+
+class TransferRegistryTest {
+	private final TransferRegistry registry = new TransferRegistry(Clock.fixed(Instant.parse("2024-05-06T07:08:10Z"), ZoneOffset.UTC));
+
+	@Test
+	void shouldTrackProgressUntilClosed() throws IOException {
+		ByteArrayOutputStream response = new ByteArrayOutputStream();
+		try (Transfer transfer = registry.start(Transfer.Kind.FOLDER, "primary", "bucket", "logs/", "10.0.0.5")) {
+			OutputStream tracked = transfer.track(response);
+			Abortable stream = () -> { };
+			transfer.beginEntry("logs/app.log", stream);
+			tracked.write(new byte[1500]);
+			transfer.endEntry(4000L);
+
+			TransferStatus status = registry.find(transfer.id()).orElseThrow().status();
+			assertThat(status.currentEntry()).isEqualTo("logs/app.log");
+			assertThat(status.entries()).isEqualTo(1);
+			assertThat(status.bytesSent()).isEqualTo(1500L);
+			assertThat(status.objectBytes()).isEqualTo(4000L);
+			assertThat(status.client()).isEqualTo("10.0.0.5");
+		}
+
+		assertThat(registry.transfers()).isEmpty();
+		assertThat(response.size()).isEqualTo(1500);
+	}
+
+	@Test
+	void shouldAbortOpenStreamsAndStopFurtherWritesOnCancel() {
+		AtomicInteger aborts = new AtomicInteger();
+		Transfer transfer = registry.start(Transfer.Kind.SELECTION, "primary", "bucket", "2 selected objects", "10.0.0.5");
+		OutputStream tracked = transfer.track(OutputStream.nullOutputStream());
+		transfer.beginEntry("a.bin", aborts::incrementAndGet);
+
+		assertThat(registry.cancel(transfer.id())).isTrue();
+
+		assertThat(aborts).hasValue(1);
+		assertThat(transfer.isCancelled()).isTrue();
+		assertThatThrownBy(() -> tracked.write(new byte[16])).isInstanceOf(IOException.class);
+		assertThatThrownBy(() -> transfer.beginEntry("b.bin", aborts::incrementAndGet)).isInstanceOf(TransferCancelledException.class);
+		assertThat(aborts).hasValue(1);
+
+		transfer.close();
+		assertThat(registry.cancel(transfer.id())).isFalse();
+	}
+
+	@Test
+	void shouldAbortTheOpenEntryWhenTheClientGoesAway() {
+		AtomicInteger aborts = new AtomicInteger();
+		RequestScope body = RequestScope.open(null);
+		try (RequestScope.Attachment ignored = body.attach();
+			Transfer transfer = registry.start(Transfer.Kind.FILE, "primary", "bucket", "logs/app.log", "10.0.0.5")) {
+			transfer.beginEntry("logs/app.log", aborts::incrementAndGet);
+
+			body.cancel();
+
+			assertThat(aborts).hasValue(1);
+			assertThat(transfer.isCancelled()).isFalse();
+			transfer.endEntry(0L);
+		}
+	}
+}
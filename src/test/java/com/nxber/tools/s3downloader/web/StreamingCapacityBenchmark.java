@@ -0,0 +1,155 @@
+package com.nxber.tools.s3downloader.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nxber.tools.s3downloader.config.S3ClientProperties;
+import com.nxber.tools.s3downloader.service.StorageBrowserService;
+import com.nxber.tools.s3downloader.transfer.TransferRegistry;
+import com.nxber.tools.s3downloader.web.support.ByteSizeFormatter;
+import com.nxber.tools.s3downloader.web.support.ResponseCompression;
+
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+/*
+ * Runs the real /download streaming body against a simulated slow backend on each execution model and
+ * reports how many transfers overlap and how long a burst of downloads takes to drain.
+ * Run with ./gradlew benchmark; it is excluded from the regular test task.
+ */
+@Tag("benchmark")
+class StreamingCapacityBenchmark {
+	private static final int DOWNLOADS = 2_000;
+	private static final int CHUNKS = 16;
+	private static final int CHUNK_BYTES = 4 * 1024;
+	private static final Duration CHUNK_DELAY = Duration.ofMillis(10);
+
+	private final AtomicInteger active = new AtomicInteger();
+	private final AtomicInteger peak = new AtomicInteger();
+
+	@Test
+	void compareConcurrentDownloadCapacity() throws Exception {
+		StorageBrowserService browserService = mock(StorageBrowserService.class);
+		when(browserService.openObjectStream(any(), any(), any())).thenAnswer(invocation -> new ResponseInputStream<>(
+			GetObjectResponse.builder().contentLength((long) CHUNKS * CHUNK_BYTES).build(),
+			AbortableInputStream.create(new SlowBackendStream())
+		));
+		S3ClientProperties properties = new S3ClientProperties();
+		BucketBrowserController controller = new BucketBrowserController(browserService, properties, new ObjectMapper(), new ByteSizeFormatter(), new TransferRegistry(), new ResponseCompression(properties));
+
+		List<String> report = new ArrayList<>();
+		report.add(run("platform, default task pool (8 threads)", () -> platformPool(8), controller));
+		report.add(run("platform, tomcat-sized pool (200 threads)", () -> platformPool(200), controller));
+		report.add(run("virtual threads", Executors::newVirtualThreadPerTaskExecutor, controller));
+
+		System.out.printf("%n%d downloads of %d KB, each chunk delayed %d ms%n", DOWNLOADS, CHUNKS * CHUNK_BYTES / 1024, CHUNK_DELAY.toMillis());
+		report.forEach(System.out::println);
+	}
+
+	private String run(String label, Supplier<ExecutorService> executorFactory, BucketBrowserController controller) throws Exception {
+		active.set(0);
+		peak.set(0);
+		long started = System.nanoTime();
+		try (ExecutorService executor = executorFactory.get()) {
+			List<CompletableFuture<Void>> transfers = new ArrayList<>(DOWNLOADS);
+			for (int index = 0; index < DOWNLOADS; index++) {
+				ResponseEntity<StreamingResponseBody> response = controller.downloadFile("primary", "bucket", "logs/object-" + index + ".log", new MockHttpServletRequest(), new MockHttpServletResponse());
+				StreamingResponseBody body = response.getBody();
+				transfers.add(CompletableFuture.runAsync(() -> {
+					try {
+						body.writeTo(OutputStream.nullOutputStream());
+					} catch (IOException exception) {
+						throw new IllegalStateException(exception);
+					}
+				}, executor));
+			}
+			CompletableFuture.allOf(transfers.toArray(CompletableFuture[]::new)).join();
+		}
+		Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+		assertThat(active.get()).isZero();
+
+		double perSecond = DOWNLOADS / (elapsed.toMillis() / 1000d);
+		return String.format(Locale.US, "%-45s %8d ms  %8.1f downloads/s  peak concurrent transfers %5d", label, elapsed.toMillis(), perSecond, peak.get());
+	}
+
+	private ExecutorService platformPool(int threads) {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(threads);
+		executor.setMaxPoolSize(threads);
+		executor.initialize();
+		return executor.getThreadPoolExecutor();
+	}
+
+	private final class SlowBackendStream extends InputStream {
+		private int chunksLeft = CHUNKS;
+		private int bytesLeftInChunk;
+		private boolean started;
+
+		@Override
+		public int read() throws IOException {
+			byte[] single = new byte[1];
+			return read(single, 0, 1) < 0 ? -1 : single[0];
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			if (!started) {
+				started = true;
+				peak.accumulateAndGet(active.incrementAndGet(), Math::max);
+			}
+			if (bytesLeftInChunk == 0) {
+				if (chunksLeft == 0) {
+					return -1;
+				}
+				pause();
+				chunksLeft--;
+				bytesLeftInChunk = CHUNK_BYTES;
+			}
+			int count = Math.min(length, bytesLeftInChunk);
+			bytesLeftInChunk -= count;
+			return count;
+		}
+
+		@Override
+		public void close() {
+			if (started) {
+				active.decrementAndGet();
+				started = false;
+			}
+		}
+
+		private void pause() throws IOException {
+			try {
+				Thread.sleep(CHUNK_DELAY);
+			} catch (InterruptedException exception) {
+				Thread.currentThread().interrupt();
+				throw new IOException(exception);
+			}
+		}
+	}
+}
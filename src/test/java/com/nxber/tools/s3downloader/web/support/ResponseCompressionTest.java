@@ -0,0 +1,88 @@
+package com.nxber.tools.s3downloader.web.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.nxber.tools.s3downloader.config.S3ClientProperties;
+
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+class ResponseCompressionTest {
+	private static final GetObjectResponse LOG = GetObjectResponse.builder().contentType("application/octet-stream").contentLength(64 * 1024L).build();
+
+	private S3ClientProperties properties;
+
+	@BeforeEach
+	void setUp() {
+		properties = new S3ClientProperties();
+		properties.getContentEncoding().setMaxConcurrent(1);
+	}
+
+	@Test
+	void shouldHonourAcceptEncodingQualities() {
+		assertThat(ResponseCompression.acceptsGzip("gzip, deflate, br, zstd")).isTrue();
+		assertThat(ResponseCompression.acceptsGzip("zstd;q=1.0, gzip;q=0.5")).isTrue();
+		assertThat(ResponseCompression.acceptsGzip("*")).isTrue();
+		assertThat(ResponseCompression.acceptsGzip("gzip;q=0, *")).isFalse();
+		assertThat(ResponseCompression.acceptsGzip("identity")).isFalse();
+		assertThat(ResponseCompression.acceptsGzip(null)).isFalse();
+	}
+
+	@Test
+	void shouldOnlyCompressLargeTextLikeObjectsStoredWithoutEncoding() {
+		ResponseCompression compression = new ResponseCompression(properties);
+
+		assertThat(compression.isCompressible("logs/app.log", LOG)).isTrue();
+		assertThat(compression.isCompressible("exports/data.bin", GetObjectResponse.builder().contentType("text/csv; charset=utf-8").contentLength(64 * 1024L).build())).isTrue();
+		assertThat(compression.isCompressible("exports/data.json", GetObjectResponse.builder().contentType("application/vnd.api+json").build())).isTrue();
+		assertThat(compression.isCompressible("photos/cat.jpg", LOG)).isFalse();
+		assertThat(compression.isCompressible("photos/cat.log", GetObjectResponse.builder().contentType("image/jpeg").contentLength(64 * 1024L).build())).isFalse();
+		assertThat(compression.isCompressible("logs/app.log.gz", GetObjectResponse.builder().contentType("text/plain").contentEncoding("gzip").contentLength(64 * 1024L).build())).isFalse();
+		assertThat(compression.isCompressible("logs/tiny.log", GetObjectResponse.builder().contentLength(100L).build())).isFalse();
+	}
+
+	@Test
+	void shouldSendUncompressedOnceEverySlotIsTaken() {
+		ResponseCompression compression = new ResponseCompression(properties);
+
+		Optional<ResponseCompression.Slot> first = compression.acquire("gzip", "logs/app.log", LOG);
+		assertThat(first).isPresent();
+		assertThat(compression.acquire("gzip", "logs/app.log", LOG)).isEmpty();
+
+		first.get().close();
+		first.get().close();
+		assertThat(compression.acquire("gzip", "logs/app.log", LOG)).isPresent();
+		assertThat(compression.acquire("gzip", "logs/app.log", LOG)).isEmpty();
+	}
+
+	@Test
+	void shouldWriteGzipWithoutClosingTheResponseStream() throws Exception {
+		ResponseCompression compression = new ResponseCompression(properties);
+		byte[] content = "2025-01-01 INFO started\n".repeat(500).getBytes(StandardCharsets.UTF_8);
+		ByteArrayOutputStream response = new ByteArrayOutputStream() {
+			@Override
+			public void close() {
+				throw new AssertionError("response stream closed");
+			}
+		};
+
+		try (ResponseCompression.Slot slot = compression.acquire("gzip", "logs/app.log", LOG).orElseThrow();
+			OutputStream encoded = slot.wrap(response)) {
+			encoded.write(content);
+		}
+
+		assertThat(response.size()).isLessThan(content.length / 10);
+		try (GZIPInputStream decoded = new GZIPInputStream(new ByteArrayInputStream(response.toByteArray()))) {
+			assertThat(decoded.readAllBytes()).isEqualTo(content);
+		}
+	}
+}